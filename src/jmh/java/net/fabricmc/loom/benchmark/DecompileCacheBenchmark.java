@@ -0,0 +1,143 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.benchmark;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.fabricmc.loom.decompilers.ClassLineNumbers;
+import net.fabricmc.loom.decompilers.cache.CachedData;
+import net.fabricmc.loom.decompilers.cache.ClassEntry;
+
+/**
+ * Benchmarks the per-class work of the decompile cache: hashing the class bytes and writing and reading the cached sources.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DecompileCacheBenchmark {
+	private List<List<byte[]>> classes;
+	private List<CachedData> cachedData;
+	private List<byte[]> serialized;
+	private Path file;
+	private FileChannel channel;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		classes = new ArrayList<>();
+		cachedData = new ArrayList<>();
+		serialized = new ArrayList<>();
+		file = Files.createTempFile("loom-benchmark", ".bin");
+		channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+		for (int i = 0; i < SyntheticJar.classCount(); i++) {
+			final List<byte[]> classBytes = new ArrayList<>();
+			classBytes.add(SyntheticJar.createClass(i, null));
+
+			if (SyntheticJar.hasInnerClass(i)) {
+				classBytes.add(SyntheticJar.createInnerClass(i));
+			}
+
+			classes.add(classBytes);
+
+			final CachedData data = createCachedData(i);
+			cachedData.add(data);
+
+			channel.truncate(0).position(0);
+			data.write(channel);
+			final ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+			channel.read(buffer, 0);
+			serialized.add(buffer.array());
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		channel.close();
+		Files.delete(file);
+	}
+
+	@Benchmark
+	public void hashClasses(Blackhole blackhole) throws IOException {
+		for (List<byte[]> classBytes : classes) {
+			blackhole.consume(ClassEntry.hash(classBytes));
+		}
+	}
+
+	@Benchmark
+	public void writeCachedData() throws IOException {
+		for (CachedData data : cachedData) {
+			channel.truncate(0).position(0);
+			data.write(channel);
+		}
+	}
+
+	@Benchmark
+	public void readCachedData(Blackhole blackhole) throws IOException {
+		for (byte[] bytes : serialized) {
+			blackhole.consume(CachedData.read(ByteBuffer.wrap(bytes)));
+		}
+	}
+
+	private static CachedData createCachedData(int index) {
+		final String className = SyntheticJar.className(index);
+		final StringBuilder sources = new StringBuilder("package net.minecraft;\n\npublic class Class").append(index).append(" {\n");
+		final ClassLineNumbers.LineMap.Builder lineMap = new ClassLineNumbers.LineMap.Builder();
+		int line = 4;
+
+		for (int method = 0; method < 20; method++) {
+			sources.append("\tpublic int method").append(method).append("(int input) {\n\t\treturn input * ").append(method).append(";\n\t}\n\n");
+			lineMap.put(line, line + 1);
+			line += 4;
+		}
+
+		sources.append("}\n");
+		return new CachedData(className, sources.toString(), new ClassLineNumbers.Entry(className, line, line + 1, lineMap.build()));
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.fabricmc.loom.api.mappings.layered.MappingsNamespace;
+import net.fabricmc.loom.api.processor.MinecraftJarProcessor;
+import net.fabricmc.loom.api.processor.ProcessorContext;
+import net.fabricmc.loom.configuration.ifaceinject.InterfaceInjectionProcessor;
+import net.fabricmc.loom.configuration.providers.minecraft.MinecraftJarConfiguration;
+import net.fabricmc.loom.util.LazyCloseable;
+import net.fabricmc.loom.util.TinyRemapperHelper;
+import net.fabricmc.mappingio.MappingReader;
+import net.fabricmc.mappingio.tree.MemoryMappingTree;
+import net.fabricmc.tinyremapper.TinyRemapper;
+
+/**
+ * Benchmarks injecting interfaces into the synthetic classes, half of them with generics.
+ * The classes are transformed with the transformer the processor creates for the jar processor manager.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class InterfaceInjectionBenchmark {
+	private Path outputDir;
+	private byte[][] classes;
+	private MinecraftJarProcessor.ClassTransformer transformer;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		outputDir = Files.createTempDirectory("loom-benchmark");
+
+		final MemoryMappingTree mappings = new MemoryMappingTree();
+		MappingReader.read(SyntheticMappings.writeTiny(outputDir.resolve("mappings.tiny")), mappings);
+
+		classes = new byte[SyntheticJar.classCount()][];
+		final List<InterfaceInjectionProcessor.InjectedInterface> injectedInterfaces = new ArrayList<>();
+
+		for (int i = 0; i < classes.length; i++) {
+			// Injected interfaces are declared with intermediary names, and remapped to named by the processor
+			final String className = "net/minecraft/class_" + i;
+			classes[i] = SyntheticJar.createClass(i, null);
+			injectedInterfaces.add(new InterfaceInjectionProcessor.InjectedInterface("benchmark", className, "net/fabricmc/benchmark/Injected", null));
+			injectedInterfaces.add(new InterfaceInjectionProcessor.InjectedInterface("benchmark", className, "net/fabricmc/benchmark/Generic$Inner", i % 2 == 0 ? "<Ljava/lang/String;>" : null));
+		}
+
+		// The processor is abstract so that Gradle can inject into it, nothing needs to be implemented
+		final InterfaceInjectionProcessor processor = new InterfaceInjectionProcessor("benchmark", false) {
+		};
+		transformer = processor.processClasses().createTransformer(new InterfaceInjectionProcessor.Spec(injectedInterfaces), new BenchmarkProcessorContext(mappings));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		try (var files = Files.walk(outputDir)) {
+			for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+				Files.delete(path);
+			}
+		}
+	}
+
+	@Benchmark
+	public void injectInterfaces(Blackhole blackhole) {
+		for (int i = 0; i < classes.length; i++) {
+			final ClassReader reader = new ClassReader(classes[i]);
+			final ClassWriter writer = new ClassWriter(0);
+			reader.accept(transformer.visit(SyntheticJar.className(i), writer), 0);
+			blackhole.consume(writer.toByteArray());
+		}
+	}
+
+	private record BenchmarkProcessorContext(MemoryMappingTree mappings) implements ProcessorContext {
+		@Override
+		public MinecraftJarConfiguration getJarConfiguration() {
+			return MinecraftJarConfiguration.MERGED;
+		}
+
+		@Override
+		public boolean isMerged() {
+			return true;
+		}
+
+		@Override
+		public boolean includesClient() {
+			return true;
+		}
+
+		@Override
+		public boolean includesServer() {
+			return true;
+		}
+
+		@Override
+		public LazyCloseable<TinyRemapper> createRemapper(MappingsNamespace from, MappingsNamespace to) {
+			return new LazyCloseable<>(() -> TinyRemapper.newRemapper()
+					.withMappings(TinyRemapperHelper.create(mappings, from.toString(), to.toString(), true))
+					.build(), TinyRemapper::finish);
+		}
+
+		@Override
+		public MemoryMappingTree getMappings() {
+			return mappings;
+		}
+	}
+}
@@ -0,0 +1,209 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.benchmark;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.fabricmc.loom.decompilers.ClassLineNumbers;
+import net.fabricmc.loom.decompilers.LineNumberRemapper;
+import net.fabricmc.loom.util.Constants;
+
+/**
+ * Benchmarks remapping the line numbers of a full Minecraft jar, set with the {@code loom.benchmark.minecraftJar} system property,
+ * or of a {@link SyntheticJar} when the property is not set.
+ *
+ * <p>The line map keeps every third line of each class and shifts it by 10, so most lookups have to find the next mapped line.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LineNumberRemapperBenchmark {
+	private Path minecraftJar;
+	private Path outputDir;
+	private ClassLineNumbers lineNumbers;
+	private List<ClassLineNumbers.Entry> entries;
+	private int[][] lines;
+	private String text;
+	private byte[] binary;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		final String jar = System.getProperty("loom.benchmark.minecraftJar");
+		outputDir = Files.createTempDirectory("loom-benchmark");
+		minecraftJar = jar != null ? Path.of(jar) : SyntheticJar.create(outputDir.resolve("minecraft.jar"), null);
+
+		final Map<String, List<Integer>> classLines = readLineNumbers(minecraftJar);
+		final Map<String, ClassLineNumbers.Entry> lineMap = new HashMap<>();
+		entries = new ArrayList<>();
+		lines = new int[classLines.size()][];
+
+		for (Map.Entry<String, List<Integer>> entry : classLines.entrySet()) {
+			final ClassLineNumbers.LineMap.Builder builder = new ClassLineNumbers.LineMap.Builder();
+			int maxLine = 0;
+
+			for (int line : entry.getValue()) {
+				maxLine = Math.max(maxLine, line);
+
+				if (line % 3 == 0) {
+					builder.put(line, line + 10);
+				}
+			}
+
+			final ClassLineNumbers.Entry lineEntry = new ClassLineNumbers.Entry(entry.getKey(), maxLine, maxLine + 10, builder.build());
+			lineMap.put(entry.getKey(), lineEntry);
+			lines[entries.size()] = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+			entries.add(lineEntry);
+		}
+
+		lineNumbers = new ClassLineNumbers(lineMap);
+
+		final StringWriter writer = new StringWriter();
+		lineNumbers.write(writer);
+		text = writer.toString();
+
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		try (DataOutputStream output = new DataOutputStream(bytes)) {
+			lineNumbers.writeBinary(output);
+		}
+
+		binary = bytes.toByteArray();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		try (var files = Files.walk(outputDir)) {
+			for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+				Files.delete(path);
+			}
+		}
+	}
+
+	@Benchmark
+	public void remapJar() throws IOException {
+		final Path output = outputDir.resolve("output.jar");
+		Files.deleteIfExists(output);
+		new LineNumberRemapper(lineNumbers).process(minecraftJar, output);
+	}
+
+	@Benchmark
+	public void remapLines(Blackhole blackhole) {
+		for (int i = 0; i < lines.length; i++) {
+			final ClassLineNumbers.Entry entry = entries.get(i);
+
+			for (int line : lines[i]) {
+				blackhole.consume(entry.remap(line));
+			}
+		}
+	}
+
+	@Benchmark
+	public ClassLineNumbers readText() {
+		return ClassLineNumbers.readMappings(new BufferedReader(new StringReader(text)));
+	}
+
+	@Benchmark
+	public ClassLineNumbers readBinary() throws IOException {
+		return ClassLineNumbers.readBinary(new DataInputStream(new ByteArrayInputStream(binary)));
+	}
+
+	private static Map<String, List<Integer>> readLineNumbers(Path jar) throws IOException {
+		final Map<String, List<Integer>> classLines = new HashMap<>();
+
+		try (ZipFile zipFile = new ZipFile(jar.toFile())) {
+			for (ZipEntry entry : Collections.list(zipFile.entries())) {
+				if (!entry.getName().endsWith(".class")) {
+					continue;
+				}
+
+				// Line numbers are mapped per outer class, like the decompiler output
+				String className = entry.getName().substring(0, entry.getName().length() - 6);
+				final int dollar = className.indexOf('$');
+
+				if (dollar >= 0) {
+					className = className.substring(0, dollar);
+				}
+
+				final List<Integer> lines = classLines.computeIfAbsent(className, k -> new ArrayList<>());
+
+				try (var input = zipFile.getInputStream(entry)) {
+					new ClassReader(input).accept(new ClassVisitor(Constants.ASM_VERSION) {
+						@Override
+						public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+							return new MethodVisitor(Constants.ASM_VERSION) {
+								@Override
+								public void visitLineNumber(int line, Label start) {
+									lines.add(line);
+								}
+							};
+						}
+					}, ClassReader.SKIP_FRAMES);
+				}
+			}
+		}
+
+		classLines.values().removeIf(List::isEmpty);
+		return classLines;
+	}
+}
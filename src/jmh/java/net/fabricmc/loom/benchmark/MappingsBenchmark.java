@@ -0,0 +1,136 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.fabricmc.loom.configuration.providers.mappings.BinaryMappingTree;
+import net.fabricmc.loom.util.TinyRemapperHelper;
+import net.fabricmc.loom.util.srg.ForgeMappingsMerger;
+import net.fabricmc.mappingio.MappingReader;
+import net.fabricmc.mappingio.tree.MemoryMappingTree;
+import net.fabricmc.tinyremapper.IMappingProvider;
+
+/**
+ * Benchmarks creating the tiny remapper mapping providers and merging SRG mappings with the synthetic mappings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MappingsBenchmark {
+	private Path outputDir;
+	private Path tiny;
+	private Path tsrg;
+	private MemoryMappingTree mappingTree;
+	private BinaryMappingTree binaryMappingTree;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		outputDir = Files.createTempDirectory("loom-benchmark");
+		tiny = SyntheticMappings.writeTiny(outputDir.resolve("mappings.tiny"));
+		tsrg = SyntheticMappings.writeTsrg(outputDir.resolve("mappings.tsrg"));
+
+		mappingTree = new MemoryMappingTree();
+		MappingReader.read(tiny, mappingTree);
+
+		final Path binary = outputDir.resolve("mappings.bin");
+		BinaryMappingTree.write(mappingTree, binary, tiny);
+		binaryMappingTree = BinaryMappingTree.open(binary, tiny);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		try (var files = Files.walk(outputDir)) {
+			for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+				Files.delete(path);
+			}
+		}
+	}
+
+	@Benchmark
+	public void createMappingProvider(Blackhole blackhole) {
+		TinyRemapperHelper.create(mappingTree, "intermediary", "named", true).load(new ConsumingAcceptor(blackhole));
+	}
+
+	@Benchmark
+	public void createBinaryMappingProvider(Blackhole blackhole) {
+		TinyRemapperHelper.create(binaryMappingTree, "intermediary", "named", true).load(new ConsumingAcceptor(blackhole));
+	}
+
+	@Benchmark
+	public MemoryMappingTree mergeSrg() throws IOException {
+		return ForgeMappingsMerger.mergeSrg(tsrg, tiny, null, true);
+	}
+
+	private record ConsumingAcceptor(Blackhole blackhole) implements IMappingProvider.MappingAcceptor {
+		@Override
+		public void acceptClass(String srcName, String dstName) {
+			blackhole.consume(dstName);
+		}
+
+		@Override
+		public void acceptMethod(IMappingProvider.Member method, String dstName) {
+			blackhole.consume(method);
+			blackhole.consume(dstName);
+		}
+
+		@Override
+		public void acceptMethodArg(IMappingProvider.Member method, int lvIndex, String dstName) {
+			blackhole.consume(dstName);
+		}
+
+		@Override
+		public void acceptMethodVar(IMappingProvider.Member method, int lvIndex, int startOpIdx, int asmIndex, String dstName) {
+			blackhole.consume(dstName);
+		}
+
+		@Override
+		public void acceptField(IMappingProvider.Member field, String dstName) {
+			blackhole.consume(field);
+			blackhole.consume(dstName);
+		}
+	}
+}
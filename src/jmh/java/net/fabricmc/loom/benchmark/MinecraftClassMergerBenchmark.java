@@ -0,0 +1,106 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.fabricmc.loom.configuration.providers.minecraft.MinecraftClassMerger;
+import net.fabricmc.loom.configuration.providers.minecraft.MinecraftJarMerger;
+
+/**
+ * Benchmarks merging the client and server variants of the synthetic classes, one class at a time and as whole jars.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MinecraftClassMergerBenchmark {
+	private byte[][] clientClasses;
+	private byte[][] serverClasses;
+	private Path outputDir;
+	private Path clientJar;
+	private Path serverJar;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		clientClasses = new byte[SyntheticJar.classCount()][];
+		serverClasses = new byte[SyntheticJar.classCount()][];
+
+		for (int i = 0; i < clientClasses.length; i++) {
+			clientClasses[i] = SyntheticJar.createClass(i, "client");
+			serverClasses[i] = SyntheticJar.createClass(i, "server");
+		}
+
+		outputDir = Files.createTempDirectory("loom-benchmark");
+		clientJar = SyntheticJar.create(outputDir.resolve("client.jar"), "client");
+		serverJar = SyntheticJar.create(outputDir.resolve("server.jar"), "server");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		try (var files = Files.walk(outputDir)) {
+			for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+				Files.delete(path);
+			}
+		}
+	}
+
+	@Benchmark
+	public void mergeClasses(Blackhole blackhole) {
+		final MinecraftClassMerger merger = new MinecraftClassMerger();
+
+		for (int i = 0; i < clientClasses.length; i++) {
+			blackhole.consume(merger.merge(clientClasses[i], serverClasses[i]));
+		}
+	}
+
+	@Benchmark
+	public void mergeJars() throws IOException {
+		try (var jarMerger = new MinecraftJarMerger(clientJar.toFile(), serverJar.toFile(), outputDir.resolve("merged.jar").toFile())) {
+			jarMerger.enableSyntheticParamsOffset();
+			jarMerger.merge();
+		}
+	}
+}
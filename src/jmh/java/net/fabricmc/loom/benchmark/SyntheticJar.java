@@ -0,0 +1,211 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Generates Minecraft-like classes and jars for the benchmarks, so that they do not need a Minecraft jar to run.
+ *
+ * <p>Every class has fields, methods with line numbers and a small loop, and every fourth class has an inner class.
+ * Every other class has extra members on each side, so the client and server variants differ like the real jars do.
+ * The number of classes is set with the {@code loom.benchmark.classes} system property.
+ */
+public final class SyntheticJar {
+	private static final int DEFAULT_CLASS_COUNT = 2000;
+
+	private SyntheticJar() {
+	}
+
+	public static int classCount() {
+		return Integer.getInteger("loom.benchmark.classes", DEFAULT_CLASS_COUNT);
+	}
+
+	public static String className(int index) {
+		return "net/minecraft/pkg" + (index % 16) + "/Class" + index;
+	}
+
+	public static boolean hasInnerClass(int index) {
+		return index % 4 == 0;
+	}
+
+	public static String innerClassName(int index) {
+		return className(index) + "$Inner";
+	}
+
+	/**
+	 * Writes a jar with all the classes and a few resources.
+	 *
+	 * @param side {@code null} for classes shared by both sides, or the side whose extra members are added
+	 */
+	public static Path create(Path jar, @Nullable String side) throws IOException {
+		try (ZipOutputStream output = new ZipOutputStream(Files.newOutputStream(jar))) {
+			for (int i = 0; i < classCount(); i++) {
+				write(output, className(i) + ".class", createClass(i, side));
+
+				if (hasInnerClass(i)) {
+					write(output, innerClassName(i) + ".class", createInnerClass(i));
+				}
+
+				if (i % 10 == 0) {
+					write(output, "assets/minecraft/lang/entry" + i + ".json", ("{\"key" + i + "\": \"value\"}").getBytes(StandardCharsets.UTF_8));
+				}
+			}
+		}
+
+		return jar;
+	}
+
+	private static void write(ZipOutputStream output, String name, byte[] bytes) throws IOException {
+		output.putNextEntry(new ZipEntry(name));
+		output.write(bytes);
+		output.closeEntry();
+	}
+
+	/**
+	 * @param side {@code null} for the class shared by both sides, or the side whose extra members are added
+	 */
+	public static byte[] createClass(int index, @Nullable String side) {
+		final String name = className(index);
+		final ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES);
+		writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, name, null, "java/lang/Object", null);
+		writer.visitSource("Class" + index + ".java", null);
+
+		if (hasInnerClass(index)) {
+			writer.visitNestMember(innerClassName(index));
+			writer.visitInnerClass(innerClassName(index), name, "Inner", Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC);
+		}
+
+		writer.visitField(Opcodes.ACC_PRIVATE, "value", "I", null, null).visitEnd();
+		writer.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, "name", "Ljava/lang/String;", null, null).visitEnd();
+
+		MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+		method.visitCode();
+		line(method, 10);
+		method.visitVarInsn(Opcodes.ALOAD, 0);
+		method.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+		line(method, 11);
+		method.visitVarInsn(Opcodes.ALOAD, 0);
+		method.visitLdcInsn("Class" + index);
+		method.visitFieldInsn(Opcodes.PUTFIELD, name, "name", "Ljava/lang/String;");
+		method.visitInsn(Opcodes.RETURN);
+		method.visitMaxs(0, 0);
+		method.visitEnd();
+
+		method = writer.visitMethod(Opcodes.ACC_PUBLIC, "getValue", "()I", null, null);
+		method.visitCode();
+		line(method, 20);
+		method.visitVarInsn(Opcodes.ALOAD, 0);
+		method.visitFieldInsn(Opcodes.GETFIELD, name, "value", "I");
+		method.visitInsn(Opcodes.IRETURN);
+		method.visitMaxs(0, 0);
+		method.visitEnd();
+
+		// int compute(int input) { int result = 0; for (int i = 0; i < input; i++) { result += i * value; } return result; }
+		method = writer.visitMethod(Opcodes.ACC_PUBLIC, "compute", "(I)I", null, null);
+		method.visitCode();
+		line(method, 30);
+		method.visitInsn(Opcodes.ICONST_0);
+		method.visitVarInsn(Opcodes.ISTORE, 2);
+		line(method, 31);
+		method.visitInsn(Opcodes.ICONST_0);
+		method.visitVarInsn(Opcodes.ISTORE, 3);
+		final Label condition = new Label();
+		final Label end = new Label();
+		method.visitLabel(condition);
+		method.visitVarInsn(Opcodes.ILOAD, 3);
+		method.visitVarInsn(Opcodes.ILOAD, 1);
+		method.visitJumpInsn(Opcodes.IF_ICMPGE, end);
+		line(method, 32);
+		method.visitVarInsn(Opcodes.ILOAD, 2);
+		method.visitVarInsn(Opcodes.ILOAD, 3);
+		method.visitVarInsn(Opcodes.ALOAD, 0);
+		method.visitFieldInsn(Opcodes.GETFIELD, name, "value", "I");
+		method.visitInsn(Opcodes.IMUL);
+		method.visitInsn(Opcodes.IADD);
+		method.visitVarInsn(Opcodes.ISTORE, 2);
+		line(method, 31);
+		method.visitIincInsn(3, 1);
+		method.visitJumpInsn(Opcodes.GOTO, condition);
+		method.visitLabel(end);
+		line(method, 34);
+		method.visitVarInsn(Opcodes.ILOAD, 2);
+		method.visitInsn(Opcodes.IRETURN);
+		method.visitMaxs(0, 0);
+		method.visitEnd();
+
+		if (side != null && index % 2 == 0) {
+			writer.visitField(Opcodes.ACC_PRIVATE, side + "Value", "J", null, null).visitEnd();
+
+			method = writer.visitMethod(Opcodes.ACC_PUBLIC, side + "Tick", "()V", null, null);
+			method.visitCode();
+			line(method, 40);
+			method.visitInsn(Opcodes.RETURN);
+			method.visitMaxs(0, 0);
+			method.visitEnd();
+		}
+
+		writer.visitEnd();
+		return writer.toByteArray();
+	}
+
+	public static byte[] createInnerClass(int index) {
+		final String name = innerClassName(index);
+		final ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, name, null, "java/lang/Object", null);
+		writer.visitSource("Class" + index + ".java", null);
+		writer.visitNestHost(className(index));
+		writer.visitInnerClass(name, className(index), "Inner", Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC);
+
+		final MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+		method.visitCode();
+		line(method, 50);
+		method.visitVarInsn(Opcodes.ALOAD, 0);
+		method.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+		method.visitInsn(Opcodes.RETURN);
+		method.visitMaxs(0, 0);
+		method.visitEnd();
+
+		writer.visitEnd();
+		return writer.toByteArray();
+	}
+
+	private static void line(MethodVisitor method, int line) {
+		final Label label = new Label();
+		method.visitLabel(label);
+		method.visitLineNumber(line, label);
+	}
+}
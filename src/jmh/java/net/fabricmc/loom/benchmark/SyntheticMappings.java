@@ -0,0 +1,71 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Generates mappings for the classes of {@link SyntheticJar}, as a tiny v2 file ({@code official}, {@code intermediary}, {@code named})
+ * and a matching TSRG file ({@code official} to SRG names).
+ */
+public final class SyntheticMappings {
+	private SyntheticMappings() {
+	}
+
+	public static Path writeTiny(Path path) throws IOException {
+		final StringBuilder builder = new StringBuilder("tiny\t2\t0\tofficial\tintermediary\tnamed\n");
+
+		for (int i = 0; i < SyntheticJar.classCount(); i++) {
+			builder.append("c\t").append(obfName(i)).append("\tnet/minecraft/class_").append(i).append('\t').append(SyntheticJar.className(i)).append('\n');
+			builder.append("\tf\tI\ta\tfield_").append(i).append("_0\tvalue\n");
+			builder.append("\tf\tLjava/lang/String;\tb\tfield_").append(i).append("_1\tname\n");
+			builder.append("\tm\t()I\ta\tmethod_").append(i).append("_0\tgetValue\n");
+			builder.append("\tm\t(I)I\tb\tmethod_").append(i).append("_1\tcompute\n");
+			builder.append("\t\tp\t1\t\t\tinput\n");
+		}
+
+		return Files.writeString(path, builder);
+	}
+
+	public static Path writeTsrg(Path path) throws IOException {
+		final StringBuilder builder = new StringBuilder();
+
+		for (int i = 0; i < SyntheticJar.classCount(); i++) {
+			builder.append(obfName(i)).append(" net/minecraft/src/C_").append(i).append("_\n");
+			builder.append("\ta f_").append(i).append("_0_\n");
+			builder.append("\tb f_").append(i).append("_1_\n");
+			builder.append("\ta ()I m_").append(i).append("_0_\n");
+			builder.append("\tb (I)I m_").append(i).append("_1_\n");
+		}
+
+		return Files.writeString(path, builder);
+	}
+
+	private static String obfName(int index) {
+		return "c" + index;
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.fabricmc.loom.util.ZipUtils;
+
+/**
+ * Benchmarks {@link ZipUtils#transform(Path, Map)} over the synthetic jar, rewriting either every class or only a few of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ZipUtilsBenchmark {
+	private Path outputDir;
+	private Path sourceJar;
+	private Path jar;
+	private Map<String, ZipUtils.UnsafeUnaryOperator<byte[]>> allClasses;
+	private Map<String, ZipUtils.UnsafeUnaryOperator<byte[]>> fewClasses;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		outputDir = Files.createTempDirectory("loom-benchmark");
+		sourceJar = SyntheticJar.create(outputDir.resolve("source.jar"), null);
+		jar = outputDir.resolve("transformed.jar");
+		allClasses = new HashMap<>();
+		fewClasses = new HashMap<>();
+
+		for (int i = 0; i < SyntheticJar.classCount(); i++) {
+			final String name = SyntheticJar.className(i) + ".class";
+			allClasses.put(name, ZipUtilsBenchmark::touch);
+
+			if (i % 100 == 0) {
+				fewClasses.put(name, ZipUtilsBenchmark::touch);
+			}
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void copyJar() throws IOException {
+		Files.copy(sourceJar, jar, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		try (var files = Files.walk(outputDir)) {
+			for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+				Files.delete(path);
+			}
+		}
+	}
+
+	@Benchmark
+	public int transformAllClasses() throws IOException {
+		return ZipUtils.transform(jar, allClasses);
+	}
+
+	@Benchmark
+	public int transformFewClasses() throws IOException {
+		return ZipUtils.transform(jar, fewClasses);
+	}
+
+	// Changes the contents so the entry has to be compressed again
+	private static byte[] touch(byte[] bytes) {
+		final byte[] copy = bytes.clone();
+		copy[copy.length - 1] ^= 1;
+		return copy;
+	}
+}
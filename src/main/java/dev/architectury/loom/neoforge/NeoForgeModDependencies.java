@@ -1,7 +1,10 @@
 package dev.architectury.loom.neoforge;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.InputStreamReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.Set;
 
@@ -11,12 +14,22 @@ import dev.architectury.loom.metadata.ModMetadataFile;
 import dev.architectury.loom.metadata.ModMetadataFiles;
 
 import net.fabricmc.loom.util.Constants;
-import net.fabricmc.loom.util.FileSystemUtil;
 import net.fabricmc.loom.util.ModPlatform;
+import net.fabricmc.loom.util.ZipRewriter;
 import net.fabricmc.mappingio.tree.MappingTreeView;
 
 public final class NeoForgeModDependencies {
 	public static void remapAts(Path jar, MappingTreeView mappings, String from, String to) throws IOException {
+		try (ZipRewriter rewriter = ZipRewriter.open(jar)) {
+			remapAts(rewriter, jar, mappings, from, to);
+			rewriter.apply();
+		}
+	}
+
+	/**
+	 * Queues the AT remapping on a rewriter of the jar, the jar is only read to find the AT paths.
+	 */
+	public static void remapAts(ZipRewriter rewriter, Path jar, MappingTreeView mappings, String from, String to) throws IOException {
 		final ModMetadataFile modMetadata = ModMetadataFiles.fromJar(jar);
 		Set<String> atPaths = Set.of(Constants.Forge.ACCESS_TRANSFORMER_PATH);
 
@@ -28,16 +41,15 @@ public final class NeoForgeModDependencies {
 			}
 		}
 
-		try (FileSystemUtil.Delegate fs = FileSystemUtil.getJarFileSystem(jar)) {
-			for (String atPathStr : atPaths) {
-				final Path atPath = fs.getPath(atPathStr);
+		for (String atPath : atPaths) {
+			rewriter.transform(atPath, bytes -> {
+				AccessTransformSet ats = AccessTransformFormats.FML.read(new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8));
+				ats = ats.remap(mappings, from, to);
 
-				if (Files.exists(atPath)) {
-					AccessTransformSet ats = AccessTransformFormats.FML.read(atPath);
-					ats = ats.remap(mappings, from, to);
-					AccessTransformFormats.FML.write(atPath, ats);
-				}
-			}
+				final StringWriter writer = new StringWriter();
+				AccessTransformFormats.FML.write(writer, ats);
+				return writer.toString().getBytes(StandardCharsets.UTF_8);
+			});
 		}
 	}
 }
@@ -51,6 +51,8 @@ import net.fabricmc.loom.task.LoomTasks;
 import net.fabricmc.loom.task.RemapTaskConfiguration;
 import net.fabricmc.loom.util.Constants;
 import net.fabricmc.loom.util.LibraryLocationLogger;
+import net.fabricmc.loom.util.gradle.SharedExecutorBuildService;
+import net.fabricmc.loom.util.gradle.TelemetryBuildService;
 
 public class LoomGradlePlugin implements BootstrappedPlugin {
 	public static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
@@ -96,6 +98,10 @@ public class LoomGradlePlugin implements BootstrappedPlugin {
 
 		LibraryLocationLogger.logLibraryVersions();
 
+		// Size the thread pools shared by all projects in the build, before anything uses them.
+		SharedExecutorBuildService.register(project).get();
+		TelemetryBuildService.registerIfEnabled(project);
+
 		// Apply default plugins
 		project.apply(ImmutableMap.of("plugin", "java-library"));
 		project.apply(ImmutableMap.of("plugin", "eclipse"));
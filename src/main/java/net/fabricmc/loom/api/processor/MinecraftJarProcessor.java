@@ -26,9 +26,11 @@ package net.fabricmc.loom.api.processor;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Set;
 
 import org.gradle.api.Named;
 import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassVisitor;
 
 import net.fabricmc.mappingio.tree.MemoryMappingTree;
 
@@ -43,6 +45,15 @@ public interface MinecraftJarProcessor<S extends MinecraftJarProcessor.Spec> ext
 		return null;
 	}
 
+	/**
+	 * Allows the processor to transform the jar as part of a single pass shared with the other processors.
+	 * When this returns non-null {@link #processJar(Path, Spec, ProcessorContext)} is not called.
+	 */
+	@Nullable
+	default ClassProcessor<S> processClasses() {
+		return null;
+	}
+
 	interface Spec {
 		// Must make sure hashCode is correctly implemented.
 	}
@@ -50,4 +61,24 @@ public interface MinecraftJarProcessor<S extends MinecraftJarProcessor.Spec> ext
 	interface MappingsProcessor<S> {
 		boolean transform(MemoryMappingTree mappings, S spec, MappingProcessorContext context);
 	}
+
+	interface ClassProcessor<S> {
+		/**
+		 * @return the transformer to apply to the jar, or null if there is nothing to transform
+		 */
+		@Nullable
+		ClassTransformer createTransformer(S spec, ProcessorContext context) throws IOException;
+	}
+
+	interface ClassTransformer {
+		/**
+		 * @return the internal names of the classes to transform
+		 */
+		Set<String> getTargets();
+
+		/**
+		 * Called for each of the targets, may be called concurrently.
+		 */
+		ClassVisitor visit(String className, ClassVisitor next);
+	}
 }
@@ -95,6 +95,8 @@ import net.fabricmc.loom.util.gradle.GradleUtils;
 import net.fabricmc.loom.util.gradle.SourceSetHelper;
 import net.fabricmc.loom.util.service.ScopedSharedServiceManager;
 import net.fabricmc.loom.util.service.SharedServiceManager;
+import net.fabricmc.loom.util.telemetry.Span;
+import net.fabricmc.loom.util.telemetry.Telemetry;
 
 public abstract class CompileConfiguration implements Runnable {
 	@Inject
@@ -127,11 +129,17 @@ public abstract class CompileConfiguration implements Runnable {
 			}
 
 			try {
-				setupMinecraft(configContext);
+				try (Span span = Telemetry.span("setupMinecraft")) {
+					span.attribute("project", getProject().getPath());
+					setupMinecraft(configContext);
+				}
 
 				LoomDependencyManager dependencyManager = new LoomDependencyManager();
 				extension.setDependencyManager(dependencyManager);
-				dependencyManager.handleDependencies(getProject(), serviceManager);
+
+				try (Span span = Telemetry.span("modDependencies")) {
+					dependencyManager.handleDependencies(getProject(), serviceManager);
+				}
 			} catch (Exception e) {
 				ExceptionUtil.printFileLocks(e, getProject());
 				disownLock();
@@ -217,7 +225,10 @@ public abstract class CompileConfiguration implements Runnable {
 		}
 
 		extension.setMinecraftProvider(minecraftProvider);
-		minecraftProvider.provide();
+
+		try (Span span = Telemetry.span("minecraftProvider")) {
+			minecraftProvider.provide();
+		}
 
 		// Created any layered mapping files.
 		LayeredMappingsFactory.afterEvaluate(configContext);
@@ -239,12 +250,20 @@ public abstract class CompileConfiguration implements Runnable {
 		}
 
 		final DependencyInfo mappingsDep = DependencyInfo.create(getProject(), Configurations.MAPPINGS);
-		final MappingConfiguration mappingConfiguration = MappingConfiguration.create(getProject(), configContext.serviceManager(), mappingsDep, minecraftProvider);
+		final MappingConfiguration mappingConfiguration;
+
+		try (Span span = Telemetry.span("mappings")) {
+			mappingConfiguration = MappingConfiguration.create(getProject(), configContext.serviceManager(), mappingsDep, minecraftProvider);
+		}
+
 		extension.setMappingConfiguration(mappingConfiguration);
 
 		if (extension.isForgeLike()) {
 			ForgeLibrariesProvider.provide(mappingConfiguration, project);
-			((ForgeMinecraftProvider) minecraftProvider).getPatchedProvider().provide();
+
+			try (Span span = Telemetry.span("forgePatchedProvider")) {
+				((ForgeMinecraftProvider) minecraftProvider).getPatchedProvider().provide();
+			}
 		}
 
 		mappingConfiguration.setupPost(project);
@@ -255,7 +274,9 @@ public abstract class CompileConfiguration implements Runnable {
 		}
 
 		if (minecraftProvider instanceof ForgeMinecraftProvider patched) {
-			patched.getPatchedProvider().remapJar();
+			try (Span span = Telemetry.span("forgePatchedRemap")) {
+				patched.getPatchedProvider().remapJar();
+			}
 		}
 
 		// Provide the remapped mc jars
@@ -273,19 +294,31 @@ public abstract class CompileConfiguration implements Runnable {
 		final var provideContext = new AbstractMappedMinecraftProvider.ProvideContext(true, extension.refreshDeps(), configContext);
 
 		extension.setIntermediaryMinecraftProvider(intermediaryMinecraftProvider);
-		intermediaryMinecraftProvider.provide(provideContext);
+
+		try (Span span = Telemetry.span("intermediaryMinecraftProvider")) {
+			intermediaryMinecraftProvider.provide(provideContext);
+		}
 
 		extension.setNamedMinecraftProvider(namedMinecraftProvider);
-		namedMinecraftProvider.provide(provideContext);
+
+		try (Span span = Telemetry.span("namedMinecraftProvider")) {
+			namedMinecraftProvider.provide(provideContext);
+		}
 
 		if (extension.isForge()) {
 			final SrgMinecraftProvider<?> srgMinecraftProvider = jarConfiguration.createSrgMinecraftProvider(project);
 			extension.setSrgMinecraftProvider(srgMinecraftProvider);
-			srgMinecraftProvider.provide(provideContext);
+
+			try (Span span = Telemetry.span("srgMinecraftProvider")) {
+				srgMinecraftProvider.provide(provideContext);
+			}
 		} else if (extension.isNeoForge()) {
 			final MojangMappedMinecraftProvider<?> mojangMappedMinecraftProvider = jarConfiguration.createMojangMappedMinecraftProvider(project);
 			extension.setMojangMappedMinecraftProvider(mojangMappedMinecraftProvider);
-			mojangMappedMinecraftProvider.provide(provideContext);
+
+			try (Span span = Telemetry.span("mojangMappedMinecraftProvider")) {
+				mojangMappedMinecraftProvider.provide(provideContext);
+			}
 		}
 	}
 
@@ -0,0 +1,307 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.configuration.accesstransformer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import dev.architectury.at.AccessTransform;
+import dev.architectury.at.AccessTransformSet;
+import dev.architectury.at.ModifierChange;
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import net.fabricmc.loom.util.Constants;
+import net.fabricmc.loom.util.ZipRewriter;
+import net.fabricmc.loom.util.service.SharedExecutorService;
+
+/**
+ * An in-process implementation of Forge's access transformer tool ({@code TransformerProcessor}).
+ *
+ * <p>The merged access transformers are indexed by class, and applied to the classes of a jar in parallel
+ * with a single ASM pass per transformed class. Like the Forge and NeoForge tools, visibility is only ever widened,
+ * wildcard rules are applied before explicit ones, a class rule also applies to the class's own inner class entry,
+ * and {@code invokespecial} calls to private methods that are made non-private are turned into virtual calls.
+ */
+public final class AccessTransformerEngine {
+	private static final int VISIBILITY_MASK = Opcodes.ACC_PUBLIC | Opcodes.ACC_PROTECTED | Opcodes.ACC_PRIVATE;
+	private static final String VERSIONED_PREFIX = "META-INF/versions/";
+
+	private final Map<String, ClassRules> classes;
+
+	private AccessTransformerEngine(Map<String, ClassRules> classes) {
+		this.classes = classes;
+	}
+
+	public static AccessTransformerEngine create(AccessTransformSet set) {
+		final Map<String, ClassRules> classes = new HashMap<>();
+
+		set.getClasses().forEach((className, classSet) -> {
+			final Map<String, Rule> fields = new HashMap<>();
+			final Map<String, Rule> methods = new HashMap<>();
+			classSet.getFields().forEach((name, transform) -> fields.put(name, Rule.of(transform)));
+			classSet.getMethods().forEach((signature, transform) -> methods.put(signature.getName() + signature.getDescriptor(), Rule.of(transform)));
+
+			final ClassRules rules = new ClassRules(Rule.of(classSet.get()), Rule.of(classSet.allFields()), Rule.of(classSet.allMethods()), fields, methods);
+
+			if (!rules.isEmpty()) {
+				classes.put(className.replace('.', '/'), rules);
+			}
+		});
+
+		return new AccessTransformerEngine(classes);
+	}
+
+	public boolean isEmpty() {
+		return classes.isEmpty();
+	}
+
+	/**
+	 * Access transforms a class.
+	 *
+	 * @return the transformed class, or the input if no access transformer targets it
+	 */
+	public byte[] transform(byte[] classBytes) {
+		final ClassReader reader = new ClassReader(classBytes);
+		final ClassRules rules = classes.get(reader.getClassName());
+
+		if (rules == null) {
+			return classBytes;
+		}
+
+		final ClassWriter writer = new ClassWriter(reader, 0);
+		reader.accept(new AccessTransformingVisitor(writer, rules, findWidenedPrivateMethods(reader, rules)), 0);
+		return writer.toByteArray();
+	}
+
+	/**
+	 * Access transforms the classes of the input jar, and writes them along with all other entries to the output jar.
+	 * The output keeps the entry order of the input, and entries that are not transformed are copied without being recompressed.
+	 *
+	 * @param output the output jar, which may be the input jar to transform it in place
+	 */
+	public void transformJar(Path input, Path output) throws IOException {
+		try (ZipRewriter rewriter = ZipRewriter.open(input, output).parallel(SharedExecutorService.get().cpu())) {
+			try (ZipFile zipFile = new ZipFile(input.toFile())) {
+				for (ZipEntry entry : Collections.list(zipFile.entries())) {
+					if (!entry.isDirectory() && isTransformed(entry.getName())) {
+						rewriter.transform(entry.getName(), this::transform);
+					}
+				}
+			}
+
+			rewriter.apply();
+		}
+	}
+
+	private boolean isTransformed(String name) {
+		if (!name.endsWith(".class")) {
+			return false;
+		}
+
+		// Strip the .class extension
+		name = name.substring(0, name.length() - 6);
+
+		if (name.startsWith(VERSIONED_PREFIX)) {
+			final int end = name.indexOf('/', VERSIONED_PREFIX.length());
+
+			if (end < 0) {
+				return false;
+			}
+
+			name = name.substring(end + 1);
+		}
+
+		return classes.containsKey(name);
+	}
+
+	/**
+	 * Finds the non-static private methods that are made non-private.
+	 * Calls to them from within the class have to be changed from {@code invokespecial} to virtual calls.
+	 */
+	private static Set<String> findWidenedPrivateMethods(ClassReader reader, ClassRules rules) {
+		if (!rules.widensMethods()) {
+			return Set.of();
+		}
+
+		final Set<String> widened = new HashSet<>();
+
+		reader.accept(new ClassVisitor(Constants.ASM_VERSION) {
+			@Override
+			public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+				if ((access & (Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC)) == Opcodes.ACC_PRIVATE && !name.equals("<init>")
+						&& (rules.applyMethod(name, descriptor, access) & Opcodes.ACC_PRIVATE) == 0) {
+					widened.add(name + descriptor);
+				}
+
+				return null;
+			}
+		}, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+
+		return widened;
+	}
+
+	private static int visibilityRank(int access) {
+		if ((access & Opcodes.ACC_PUBLIC) != 0) {
+			return 0;
+		} else if ((access & Opcodes.ACC_PROTECTED) != 0) {
+			return 1;
+		} else if ((access & Opcodes.ACC_PRIVATE) != 0) {
+			return 3;
+		}
+
+		return 2;
+	}
+
+	/**
+	 * A single access transform.
+	 *
+	 * @param visibility the target visibility flag ({@code 0} for package-private), or {@code -1} to leave it unchanged
+	 */
+	record Rule(int visibility, ModifierChange finalChange) {
+		static final Rule NONE = new Rule(-1, ModifierChange.NONE);
+
+		static Rule of(@Nullable AccessTransform transform) {
+			if (transform == null) {
+				return NONE;
+			}
+
+			final int visibility = switch (transform.getAccess()) {
+			case PUBLIC -> Opcodes.ACC_PUBLIC;
+			case PROTECTED -> Opcodes.ACC_PROTECTED;
+			case PACKAGE_PRIVATE -> 0;
+			case PRIVATE -> Opcodes.ACC_PRIVATE;
+			case NONE -> -1;
+			};
+			final ModifierChange finalChange = transform.getFinal();
+			return visibility == -1 && finalChange == ModifierChange.NONE ? NONE : new Rule(visibility, finalChange);
+		}
+
+		boolean isEmpty() {
+			return this == NONE;
+		}
+
+		boolean widens() {
+			return visibility != -1 && visibility != Opcodes.ACC_PRIVATE;
+		}
+
+		int apply(int access) {
+			// Access transformers never make anything less visible
+			if (visibility != -1 && visibilityRank(visibility) < visibilityRank(access)) {
+				access = (access & ~VISIBILITY_MASK) | visibility;
+			}
+
+			return switch (finalChange) {
+			case ADD -> access | Opcodes.ACC_FINAL;
+			case REMOVE -> access & ~Opcodes.ACC_FINAL;
+			case NONE -> access;
+			};
+		}
+	}
+
+	record ClassRules(Rule self, Rule allFields, Rule allMethods, Map<String, Rule> fields, Map<String, Rule> methods) {
+		boolean isEmpty() {
+			return self.isEmpty() && allFields.isEmpty() && allMethods.isEmpty() && fields.isEmpty() && methods.isEmpty();
+		}
+
+		boolean widensMethods() {
+			return allMethods.widens() || methods.values().stream().anyMatch(Rule::widens);
+		}
+
+		int applyField(String name, int access) {
+			access = allFields.apply(access);
+			return fields.getOrDefault(name, Rule.NONE).apply(access);
+		}
+
+		int applyMethod(String name, String descriptor, int access) {
+			access = allMethods.apply(access);
+			return methods.getOrDefault(name + descriptor, Rule.NONE).apply(access);
+		}
+	}
+
+	private static final class AccessTransformingVisitor extends ClassVisitor {
+		private final ClassRules rules;
+		private final Set<String> widenedPrivateMethods;
+		private String className;
+
+		AccessTransformingVisitor(ClassVisitor next, ClassRules rules, Set<String> widenedPrivateMethods) {
+			super(Constants.ASM_VERSION, next);
+			this.rules = rules;
+			this.widenedPrivateMethods = widenedPrivateMethods;
+		}
+
+		@Override
+		public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+			className = name;
+			super.visit(version, rules.self().apply(access), name, signature, superName, interfaces);
+		}
+
+		@Override
+		public void visitInnerClass(String name, String outerName, String innerName, int access) {
+			if (name.equals(className)) {
+				access = rules.self().apply(access);
+			}
+
+			super.visitInnerClass(name, outerName, innerName, access);
+		}
+
+		@Override
+		public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+			return super.visitField(rules.applyField(name, access), name, descriptor, signature, value);
+		}
+
+		@Override
+		public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+			final MethodVisitor mv = super.visitMethod(rules.applyMethod(name, descriptor, access), name, descriptor, signature, exceptions);
+
+			if (mv == null || widenedPrivateMethods.isEmpty()) {
+				return mv;
+			}
+
+			return new MethodVisitor(api, mv) {
+				@Override
+				public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+					if (opcode == Opcodes.INVOKESPECIAL && owner.equals(className) && widenedPrivateMethods.contains(name + descriptor)) {
+						opcode = isInterface ? Opcodes.INVOKEINTERFACE : Opcodes.INVOKEVIRTUAL;
+					}
+
+					super.visitMethodInsn(opcode, owner, name, descriptor, isInterface);
+				}
+			};
+		}
+	}
+}
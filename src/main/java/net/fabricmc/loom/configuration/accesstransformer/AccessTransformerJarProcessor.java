@@ -62,6 +62,7 @@ import net.fabricmc.loom.util.ExceptionUtil;
 import net.fabricmc.loom.util.ForgeToolExecutor;
 import net.fabricmc.loom.util.LoomVersions;
 import net.fabricmc.loom.util.fmj.FabricModJson;
+import net.fabricmc.loom.util.gradle.GradleUtils;
 
 public class AccessTransformerJarProcessor implements MinecraftJarProcessor<AccessTransformerJarProcessor.Spec> {
 	private static final Logger LOGGER = Logging.getLogger(AccessTransformerJarProcessor.class);
@@ -115,9 +116,22 @@ public class AccessTransformerJarProcessor implements MinecraftJarProcessor<Acce
 	public void processJar(Path jar, Spec spec, ProcessorContext context) throws IOException {
 		try (var tempFiles = new TempFiles()) {
 			LOGGER.lifecycle(":applying project access transformers");
+			final AccessTransformSet accessTransformSet = mergeAndRemapAccessTransformers(context, spec.accessTransformers());
+
+			if (!GradleUtils.getBooleanProperty(project, Constants.Properties.DISABLE_IN_PROCESS_ACCESS_TRANSFORMERS)) {
+				AccessTransformerEngine.create(accessTransformSet).transformJar(jar, jar);
+				return;
+			}
+
 			final Path tempInput = tempFiles.file("input", ".jar");
 			Files.copy(jar, tempInput, StandardCopyOption.REPLACE_EXISTING);
-			final Path atPath = mergeAndRemapAccessTransformers(context, spec.accessTransformers(), tempFiles);
+			final Path atPath = tempFiles.file("accesstransformer-merged", ".cfg");
+
+			try {
+				AccessTransformFormats.FML.write(atPath, accessTransformSet);
+			} catch (IOException e) {
+				throw new IOException("Could not write access transformers to " + atPath, e);
+			}
 
 			executeAt(project, tempInput, jar, args -> {
 				args.add("--atFile");
@@ -128,7 +142,7 @@ public class AccessTransformerJarProcessor implements MinecraftJarProcessor<Acce
 		}
 	}
 
-	private Path mergeAndRemapAccessTransformers(ProcessorContext context, List<AccessTransformerEntry> accessTransformers, TempFiles tempFiles) throws IOException {
+	private AccessTransformSet mergeAndRemapAccessTransformers(ProcessorContext context, List<AccessTransformerEntry> accessTransformers) throws IOException {
 		AccessTransformSet accessTransformSet = AccessTransformSet.create();
 
 		for (AccessTransformerEntry entry : accessTransformers) {
@@ -139,17 +153,7 @@ public class AccessTransformerJarProcessor implements MinecraftJarProcessor<Acce
 			}
 		}
 
-		accessTransformSet = accessTransformSet.remap(context.getMappings(), IntermediaryNamespaces.intermediary(project), MappingsNamespace.NAMED.toString());
-
-		final Path accessTransformerPath = tempFiles.file("accesstransformer-merged", ".cfg");
-
-		try {
-			AccessTransformFormats.FML.write(accessTransformerPath, accessTransformSet);
-		} catch (IOException e) {
-			throw new IOException("Could not write access transformers to " + accessTransformerPath, e);
-		}
-
-		return accessTransformerPath;
+		return accessTransformSet.remap(context.getMappings(), IntermediaryNamespaces.intermediary(project), MappingsNamespace.NAMED.toString());
 	}
 
 	@Override
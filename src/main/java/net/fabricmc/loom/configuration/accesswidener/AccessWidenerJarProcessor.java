@@ -43,6 +43,7 @@ import net.fabricmc.loom.api.mappings.layered.MappingsNamespace;
 import net.fabricmc.loom.api.processor.MinecraftJarProcessor;
 import net.fabricmc.loom.api.processor.ProcessorContext;
 import net.fabricmc.loom.api.processor.SpecContext;
+import net.fabricmc.loom.configuration.processors.MinecraftJarProcessorManager;
 import net.fabricmc.loom.util.LazyCloseable;
 import net.fabricmc.loom.util.fmj.FabricModJson;
 import net.fabricmc.loom.util.fmj.ModEnvironment;
@@ -129,6 +130,15 @@ public class AccessWidenerJarProcessor implements MinecraftJarProcessor<AccessWi
 
 	@Override
 	public void processJar(Path jar, AccessWidenerJarProcessor.Spec spec, ProcessorContext context) throws IOException {
+		MinecraftJarProcessorManager.transformClasses(jar, List.of(createTransformer(spec, context)));
+	}
+
+	@Override
+	public ClassProcessor<Spec> processClasses() {
+		return this::createTransformer;
+	}
+
+	private AccessWidenerTransformer createTransformer(AccessWidenerJarProcessor.Spec spec, ProcessorContext context) throws IOException {
 		final List<AccessWidenerEntry> accessWideners = spec.accessWidenersForContext(context);
 
 		final var accessWidener = new AccessWidener();
@@ -139,8 +149,7 @@ public class AccessWidenerJarProcessor implements MinecraftJarProcessor<AccessWi
 			}
 		}
 
-		AccessWidenerTransformer transformer = new AccessWidenerTransformer(accessWidener);
-		transformer.apply(jar);
+		return new AccessWidenerTransformer(accessWidener);
 	}
 
 	@Override
@@ -42,9 +42,7 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import org.jetbrains.annotations.Nullable;
-import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
-import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.signature.SignatureReader;
 import org.objectweb.asm.signature.SignatureVisitor;
@@ -56,10 +54,9 @@ import net.fabricmc.loom.api.mappings.layered.MappingsNamespace;
 import net.fabricmc.loom.api.processor.MinecraftJarProcessor;
 import net.fabricmc.loom.api.processor.ProcessorContext;
 import net.fabricmc.loom.api.processor.SpecContext;
+import net.fabricmc.loom.configuration.processors.MinecraftJarProcessorManager;
 import net.fabricmc.loom.util.Constants;
 import net.fabricmc.loom.util.LazyCloseable;
-import net.fabricmc.loom.util.Pair;
-import net.fabricmc.loom.util.ZipUtils;
 import net.fabricmc.loom.util.fmj.FabricModJson;
 import net.fabricmc.loom.util.fmj.ModMetadataFabricModJson;
 import net.fabricmc.mappingio.tree.MappingTree;
@@ -108,6 +105,19 @@ public abstract class InterfaceInjectionProcessor implements MinecraftJarProcess
 
 	@Override
 	public void processJar(Path jar, Spec spec, ProcessorContext context) throws IOException {
+		try {
+			MinecraftJarProcessorManager.transformClasses(jar, List.of(createTransformer(spec, context)));
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to apply interface injections to " + jar, e);
+		}
+	}
+
+	@Override
+	public ClassProcessor<Spec> processClasses() {
+		return this::createTransformer;
+	}
+
+	private ClassTransformer createTransformer(Spec spec, ProcessorContext context) {
 		// Remap from intermediary->named
 		final MemoryMappingTree mappings = context.getMappings();
 		final int intermediaryIndex = mappings.getNamespaceId(MappingsNamespace.INTERMEDIARY.toString());
@@ -121,11 +131,8 @@ public abstract class InterfaceInjectionProcessor implements MinecraftJarProcess
 							tinyRemapper.get().getEnvironment().getRemapper()
 					))
 					.toList();
-			try {
-				ZipUtils.transform(jar, getTransformers(remappedInjectedInterfaces));
-			} catch (IOException e) {
-				throw new RuntimeException("Failed to apply interface injections to " + jar, e);
-			}
+			return new InjectingClassTransformer(remappedInjectedInterfaces.stream()
+					.collect(Collectors.groupingBy(injectedInterface -> injectedInterface.className().replace('.', '/'))));
 		}
 	}
 
@@ -145,25 +152,16 @@ public abstract class InterfaceInjectionProcessor implements MinecraftJarProcess
 		);
 	}
 
-	private List<Pair<String, ZipUtils.UnsafeUnaryOperator<byte[]>>> getTransformers(List<InjectedInterface> injectedInterfaces) {
-		return injectedInterfaces.stream()
-				.collect(Collectors.groupingBy(InjectedInterface::className))
-				.entrySet()
-				.stream()
-				.map(entry -> {
-					final String zipEntry = entry.getKey().replaceAll("\\.", "/") + ".class";
-					return new Pair<>(zipEntry, getTransformer(entry.getValue()));
-				}).toList();
-	}
+	private record InjectingClassTransformer(Map<String, List<InjectedInterface>> injectedInterfaces) implements ClassTransformer {
+		@Override
+		public Set<String> getTargets() {
+			return injectedInterfaces.keySet();
+		}
 
-	private ZipUtils.UnsafeUnaryOperator<byte[]> getTransformer(List<InjectedInterface> injectedInterfaces) {
-		return input -> {
-			final ClassReader reader = new ClassReader(input);
-			final ClassWriter writer = new ClassWriter(0);
-			final ClassVisitor classVisitor = new InjectingClassVisitor(Constants.ASM_VERSION, writer, injectedInterfaces);
-			reader.accept(classVisitor, 0);
-			return writer.toByteArray();
-		};
+		@Override
+		public ClassVisitor visit(String className, ClassVisitor next) {
+			return new InjectingClassVisitor(Constants.ASM_VERSION, next, injectedInterfaces.get(className));
+		}
 	}
 
 	@Override
@@ -284,8 +282,8 @@ public abstract class InterfaceInjectionProcessor implements MinecraftJarProcess
 		private final List<InjectedInterface> injectedInterfaces;
 		private final Set<String> knownInnerClasses = new HashSet<>();
 
-		InjectingClassVisitor(int asmVersion, ClassWriter writer, List<InjectedInterface> injectedInterfaces) {
-			super(asmVersion, writer);
+		InjectingClassVisitor(int asmVersion, ClassVisitor next, List<InjectedInterface> injectedInterfaces) {
+			super(asmVersion, next);
 			this.injectedInterfaces = injectedInterfaces;
 		}
 
@@ -37,6 +37,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.function.Supplier;
 
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableMap;
 import org.gradle.api.Project;
 import org.gradle.api.artifacts.Configuration;
@@ -181,6 +182,15 @@ public class ModConfigurationRemapper {
 			dependenciesBySourceConfig.put(sourceConfig, modDependencies);
 		});
 
+		// Only created once a mod needs remapping, as it hashes the ABI of every jar on the remap classpath
+		final Supplier<RemappedModCache> remappedModCache = Suppliers.memoize(() -> {
+			try {
+				return RemappedModCache.create(project, serviceManager);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Failed to hash the mod remap environment", e);
+			}
+		});
+
 		// Round 2: Remapping
 		// Remap all discovered artifacts.
 		configsToRemap.forEach((sourceConfig, remappedConfig) -> {
@@ -195,16 +205,24 @@ public class ModConfigurationRemapper {
 			final boolean refreshDeps = LoomGradleExtension.get(project).refreshDeps();
 			// TODO: With the same artifacts being considered multiple times for their different
 			//   usage attributes, this should probably not process them multiple times even with refreshDeps.
-			final List<ModDependency> toRemap = modDependencies.stream()
+			List<ModDependency> toRemap = modDependencies.stream()
 					.filter(dependency -> refreshDeps || dependency.isCacheInvalid(project, null))
 					.toList();
 
-			if (!toRemap.isEmpty()) {
-				try {
+			try {
+				if (!toRemap.isEmpty() && !refreshDeps && remappedModCache.get() != null) {
+					toRemap = remappedModCache.get().restore(project, toRemap);
+				}
+
+				if (!toRemap.isEmpty()) {
 					new ModProcessor(project, sourceConfig, serviceManager).processMods(toRemap);
-				} catch (IOException e) {
-					throw new UncheckedIOException("Failed to remap mods", e);
+
+					if (remappedModCache.get() != null) {
+						remappedModCache.get().store(toRemap);
+					}
 				}
+			} catch (IOException e) {
+				throw new UncheckedIOException("Failed to remap mods", e);
 			}
 
 			// Add all of the remapped mods onto the config
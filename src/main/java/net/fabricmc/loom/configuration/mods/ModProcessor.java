@@ -31,12 +31,18 @@ import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.jar.Manifest;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -48,6 +54,7 @@ import dev.architectury.loom.util.MappingOption;
 import org.gradle.api.Project;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.attributes.Usage;
+import org.gradle.api.logging.Logger;
 
 import net.fabricmc.loom.LoomGradleExtension;
 import net.fabricmc.loom.api.RemapConfigurationSettings;
@@ -56,17 +63,23 @@ import net.fabricmc.loom.build.IntermediaryNamespaces;
 import net.fabricmc.loom.configuration.mods.dependency.ModDependency;
 import net.fabricmc.loom.configuration.providers.mappings.MappingConfiguration;
 import net.fabricmc.loom.extension.RemapperExtensionHolder;
+import net.fabricmc.loom.task.service.ClasspathIndexService;
 import net.fabricmc.loom.util.Constants;
 import net.fabricmc.loom.util.LoggerFilter;
 import net.fabricmc.loom.util.ModPlatform;
 import net.fabricmc.loom.util.Pair;
 import net.fabricmc.loom.util.TinyRemapperHelper;
+import net.fabricmc.loom.util.ZipRewriter;
 import net.fabricmc.loom.util.ZipUtils;
+import net.fabricmc.loom.util.gradle.GradleUtils;
 import net.fabricmc.loom.util.kotlin.KotlinClasspathService;
 import net.fabricmc.loom.util.kotlin.KotlinRemapperClassloader;
+import net.fabricmc.loom.util.service.SharedExecutorService;
 import net.fabricmc.loom.util.service.SharedServiceManager;
 import net.fabricmc.loom.util.srg.AtClassRemapper;
 import net.fabricmc.loom.util.srg.CoreModClassRemapper;
+import net.fabricmc.loom.util.telemetry.Span;
+import net.fabricmc.loom.util.telemetry.Telemetry;
 import net.fabricmc.mappingio.tree.MemoryMappingTree;
 import net.fabricmc.tinyremapper.InputTag;
 import net.fabricmc.tinyremapper.NonClassCopyMode;
@@ -90,7 +103,9 @@ public class ModProcessor {
 	}
 
 	public void processMods(List<ModDependency> remapList) throws IOException {
-		try {
+		try (Span span = Telemetry.span("remapMods")) {
+			span.attribute("configuration", sourceConfiguration.getName());
+			span.attribute("count", remapList.size());
 			project.getLogger().lifecycle(":remapping {} mods from {}", remapList.size(), describeConfiguration(sourceConfiguration));
 			remapJars(remapList);
 		} catch (Exception e) {
@@ -125,40 +140,23 @@ public class ModProcessor {
 		return description;
 	}
 
-	private void stripNestedJars(Path path) {
-		try {
-			ZipUtils.deleteIfExists(path, "META-INF/jarjar/metadata.json");
-		} catch (IOException e) {
-			throw new UncheckedIOException("Failed to strip nested jars from %s".formatted(path), e);
-		}
-
-		if (!ZipUtils.contains(path, "fabric.mod.json")) {
-			if (ZipUtils.contains(path, "quilt.mod.json")) {
-				// Strip out all contained jar info as we dont want loader to try and load the jars contained in dev.
-				try {
-					ZipUtils.transformJson(JsonObject.class, path, Map.of("quilt.mod.json", json -> {
-						if (json.has("quilt_loader")) {
-							json.getAsJsonObject("quilt_loader").remove("jars");
-						}
-
-						return json;
-					}));
-				} catch (IOException e) {
-					throw new UncheckedIOException("Failed to strip nested jars from %s".formatted(path), e);
-				}
-			}
-
-			return;
-		}
+	private void stripNestedJars(ZipRewriter rewriter) throws IOException {
+		rewriter.delete("META-INF/jarjar/metadata.json");
 
 		// Strip out all contained jar info as we dont want loader to try and load the jars contained in dev.
-		try {
-			ZipUtils.transformJson(JsonObject.class, path, Map.of("fabric.mod.json", json -> {
+		if (rewriter.contains("fabric.mod.json")) {
+			rewriter.transform("fabric.mod.json", ZipUtils.jsonTransformer(JsonObject.class, json -> {
 				json.remove("jars");
 				return json;
 			}));
-		} catch (IOException e) {
-			throw new UncheckedIOException("Failed to strip nested jars from %s".formatted(path), e);
+		} else if (rewriter.contains("quilt.mod.json")) {
+			rewriter.transform("quilt.mod.json", ZipUtils.jsonTransformer(JsonObject.class, json -> {
+				if (json.has("quilt_loader")) {
+					json.getAsJsonObject("quilt_loader").remove("jars");
+				}
+
+				return json;
+			}));
 		}
 	}
 
@@ -169,6 +167,12 @@ public class ModProcessor {
 
 		Stopwatch stopwatch = Stopwatch.createStarted();
 
+		// Only values read from the project up front are used by the parallel stages below, as the project is not thread safe
+		final Logger logger = project.getLogger();
+		final boolean forgeLike = extension.isForgeLike();
+		final boolean neoForge = extension.isNeoForge();
+		final String atSourceNamespace = IntermediaryNamespaces.intermediary(project);
+
 		MappingOption mappingOption = MappingOption.forPlatform(extension);
 		MemoryMappingTree mappings = mappingConfiguration.getMappingsService(serviceManager, mappingOption).getMappingTree();
 		LoggerFilter.replaceSystemOut();
@@ -204,18 +208,27 @@ public class ModProcessor {
 		remapper.readClassPath(extension.getMinecraftJars(IntermediaryNamespaces.intermediaryNamespace(project)).toArray(Path[]::new));
 
 		final Map<ModDependency, InputTag> tagMap = new HashMap<>();
-		final Map<ModDependency, OutputConsumerPath> outputConsumerMap = new HashMap<>();
-		final Map<ModDependency, Pair<byte[], String>> accessWidenerMap = new HashMap<>();
+		final Map<ModDependency, OutputConsumerPath> outputConsumerMap = new ConcurrentHashMap<>();
+		final Map<ModDependency, Pair<byte[], String>> accessWidenerMap = new ConcurrentHashMap<>();
+		final boolean parallel = !GradleUtils.getBooleanProperty(project, Constants.Properties.DISABLE_PARALLEL_MOD_REMAPPING);
+
+		final List<Path> classpath = new ArrayList<>();
 
 		for (RemapConfigurationSettings entry : extension.getRemapConfigurations()) {
 			for (File inputFile : entry.getSourceConfiguration().get().getFiles()) {
 				if (remapList.stream().noneMatch(info -> info.getInputFile().toFile().equals(inputFile))) {
 					project.getLogger().debug("Adding " + inputFile + " onto the remap classpath");
-					remapper.readClassPathAsync(inputFile.toPath());
+					classpath.add(inputFile.toPath());
 				}
 			}
 		}
 
+		final ClasspathIndexService classpathIndex = ClasspathIndexService.getOrCreate(serviceManager, project);
+
+		for (Path path : classpathIndex != null ? classpathIndex.index(classpath) : classpath) {
+			remapper.readClassPathAsync(path);
+		}
+
 		for (ModDependency info : remapList) {
 			InputTag tag = remapper.createInputTag();
 
@@ -239,20 +252,21 @@ public class ModProcessor {
 			Files.deleteIfExists(getRemappedOutput(info));
 		}
 
+		final ModPlatform platform = extension.getPlatform().get();
+
 		try {
 			// Apply this in a second loop as we need to ensure all the inputs are on the classpath before remapping.
-			for (ModDependency dependency : remapList) {
+			forEachDependency(remapList, parallel, "apply", dependency -> {
 				try {
 					OutputConsumerPath outputConsumer = new OutputConsumerPath.Builder(getRemappedOutput(dependency)).build();
 
 					outputConsumer.addNonClassFiles(dependency.getInputFile(), NonClassCopyMode.FIX_META_INF, remapper);
 					outputConsumerMap.put(dependency, outputConsumer);
 
-					final ModPlatform platform = LoomGradleExtension.get(project).getPlatform().get();
 					final AccessWidenerUtils.AccessWidenerData accessWidenerData = AccessWidenerUtils.readAccessWidenerData(dependency.getInputFile(), platform);
 
 					if (accessWidenerData != null) {
-						project.getLogger().debug("Remapping access widener in {}", dependency.getInputFile());
+						logger.debug("Remapping access widener in {}", dependency.getInputFile());
 						byte[] remappedAw = AccessWidenerUtils.remapAccessWidener(accessWidenerData.content(), remapper.getEnvironment().getRemapper());
 						accessWidenerMap.put(dependency, new Pair<>(remappedAw, accessWidenerData.path()));
 					}
@@ -261,7 +275,7 @@ public class ModProcessor {
 				} catch (Exception e) {
 					throw new RuntimeException("Failed to remap: " + dependency, e);
 				}
-			}
+			});
 		} finally {
 			remapper.finish();
 
@@ -272,41 +286,125 @@ public class ModProcessor {
 
 		project.getLogger().lifecycle(":remapped {} mods ({} -> {}) in {}", remapList.size(), fromM, toM, stopwatch.stop());
 
-		for (ModDependency dependency : remapList) {
+		stopwatch.reset().start();
+
+		forEachDependency(remapList, parallel, "postProcess", dependency -> {
 			outputConsumerMap.get(dependency).close();
 
 			final Path output = getRemappedOutput(dependency);
 			final Pair<byte[], String> accessWidener = accessWidenerMap.get(dependency);
 
-			if (accessWidener != null) {
-				ZipUtils.replace(output, accessWidener.right(), accessWidener.left());
+			// Apply all the post-processing in a single pass over the jar
+			try (ZipRewriter rewriter = ZipRewriter.open(output)) {
+				if (accessWidener != null) {
+					rewriter.replace(accessWidener.right(), accessWidener.left());
+				}
+
+				stripNestedJars(rewriter);
+				remapJarManifestEntries(rewriter);
+
+				if (forgeLike) {
+					if (neoForge) {
+						// NeoForge: Fully map ATs
+						NeoForgeModDependencies.remapAts(rewriter, output, mappings, fromM, toM);
+					} else {
+						// Forge: only map class names, the rest are mapped srg -> named at runtime
+						AtClassRemapper.remap(logger, atSourceNamespace, rewriter, mappings);
+					}
+
+					CoreModClassRemapper.remapJar(logger, fromM, platform, rewriter, output, mappings);
+				}
+
+				rewriter.apply();
+			}
+		});
+
+		// Copied into the cache on this thread, as copyToCache is given the project
+		for (ModDependency dependency : remapList) {
+			dependency.copyToCache(project, getRemappedOutput(dependency), null);
+		}
+
+		project.getLogger().info(":post-processed {} mods in {}", remapList.size(), stopwatch.stop());
+	}
+
+	/**
+	 * Runs the action for each dependency, on the shared CPU pool when parallel.
+	 * Each dependency only touches its own output jar, so the outputs do not depend on the order the dependencies are processed in.
+	 * The action must not use the project, as it may be called from another thread.
+	 */
+	private void forEachDependency(List<ModDependency> dependencies, boolean parallel, String stage, DependencyAction action) throws IOException {
+		final Logger logger = project.getLogger();
+		final AtomicInteger completed = new AtomicInteger();
+
+		final DependencyAction timedAction = dependency -> {
+			final Stopwatch stopwatch = Stopwatch.createStarted();
+
+			try (Span span = Telemetry.span("remapMod:" + stage)) {
+				span.attribute("mod", dependency.toString());
+				action.accept(dependency);
 			}
 
-			stripNestedJars(output);
-			remapJarManifestEntries(output);
+			logger.info(":{} {} ({}/{}) in {}", stage, dependency, completed.incrementAndGet(), dependencies.size(), stopwatch.stop());
+		};
 
-			if (extension.isForgeLike()) {
-				if (extension.isNeoForge()) {
-					// NeoForge: Fully map ATs
-					NeoForgeModDependencies.remapAts(output, mappings, fromM, toM);
-				} else {
-					// Forge: only map class names, the rest are mapped srg -> named at runtime
-					AtClassRemapper.remap(project, output, mappings);
+		if (!parallel || dependencies.size() < 2) {
+			for (ModDependency dependency : dependencies) {
+				timedAction.accept(dependency);
+			}
+
+			return;
+		}
+
+		final ExecutorService executor = SharedExecutorService.get().cpu();
+		final List<CompletableFuture<Void>> futures = new ArrayList<>(dependencies.size());
+
+		for (ModDependency dependency : dependencies) {
+			futures.add(CompletableFuture.runAsync(() -> {
+				try {
+					timedAction.accept(dependency);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
 				}
+			}, executor));
+		}
+
+		// Wait for every dependency before failing, so no task is still writing once this returns
+		Throwable failure = null;
 
-				CoreModClassRemapper.remapJar(project, extension.getPlatform().get(), output, mappings);
+		for (CompletableFuture<Void> future : futures) {
+			try {
+				future.join();
+			} catch (CompletionException e) {
+				if (failure == null) {
+					failure = e.getCause();
+				} else {
+					failure.addSuppressed(e.getCause());
+				}
 			}
+		}
 
-			dependency.copyToCache(project, output, null);
+		if (failure instanceof UncheckedIOException e) {
+			throw e.getCause();
+		} else if (failure instanceof RuntimeException e) {
+			throw e;
+		} else if (failure instanceof Error e) {
+			throw e;
+		} else if (failure != null) {
+			throw new RuntimeException(failure);
 		}
 	}
 
+	@FunctionalInterface
+	private interface DependencyAction {
+		void accept(ModDependency dependency) throws IOException;
+	}
+
 	private static Path getRemappedOutput(ModDependency dependency) {
 		return dependency.getWorkingFile(null);
 	}
 
-	private void remapJarManifestEntries(Path jar) throws IOException {
-		ZipUtils.transform(jar, Map.of(Constants.Manifest.PATH, bytes -> {
+	private void remapJarManifestEntries(ZipRewriter rewriter) {
+		rewriter.transform(Constants.Manifest.PATH, bytes -> {
 			var manifest = new Manifest(new ByteArrayInputStream(bytes));
 
 			manifest.getMainAttributes().putValue(Constants.Manifest.MAPPING_NAMESPACE, toM);
@@ -314,6 +412,6 @@ public class ModProcessor {
 			ByteArrayOutputStream out = new ByteArrayOutputStream();
 			manifest.write(out);
 			return out.toByteArray();
-		}));
+		});
 	}
 }
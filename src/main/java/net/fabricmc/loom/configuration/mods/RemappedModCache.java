@@ -0,0 +1,357 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.configuration.mods;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.gradle.api.Project;
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.fabricmc.loom.LoomGradleExtension;
+import net.fabricmc.loom.LoomGradlePlugin;
+import net.fabricmc.loom.api.RemapConfigurationSettings;
+import net.fabricmc.loom.api.mappings.layered.MappingsNamespace;
+import net.fabricmc.loom.build.IntermediaryNamespaces;
+import net.fabricmc.loom.configuration.mods.dependency.ModDependency;
+import net.fabricmc.loom.configuration.providers.mappings.MappingConfiguration;
+import net.fabricmc.loom.util.Checksum;
+import net.fabricmc.loom.util.Constants;
+import net.fabricmc.loom.util.ModPlatform;
+import net.fabricmc.loom.util.gradle.GradleUtils;
+import net.fabricmc.loom.util.kotlin.KotlinClasspathService;
+import net.fabricmc.loom.util.service.SharedServiceManager;
+
+/**
+ * A cache of remapped mods in the Gradle user home, shared by every project and checkout.
+ *
+ * <p>Entries are keyed by the hash of the input jar, the mappings, the Minecraft jars, the platform
+ * and the ABI of the rest of the mod's remap classpath, so a mod is only remapped once for each combination, no matter which project asks for it.
+ * Only the class hierarchy, member signatures and access wideners of the other mods change the remapped output,
+ * so changing the code of one mod does not invalidate the entries of the others.
+ * The cached jar is the fully post-processed output of {@link ModProcessor}, before {@link ModDependency#copyToCache} is applied.
+ *
+ * <p>Entries are touched when they are restored, and the entries that have not been used for {@link #MAX_AGE} are deleted when new ones are stored.
+ */
+public final class RemappedModCache {
+	private static final Logger LOGGER = LoggerFactory.getLogger(RemappedModCache.class);
+	// Bump when the remapping or post-processing changes in a way that changes the output.
+	private static final int VERSION = 2;
+	private static final Duration MAX_AGE = Duration.ofDays(30);
+	// Looking for old entries lists the whole cache, so only do it once a day
+	private static final Duration PRUNE_INTERVAL = Duration.ofDays(1);
+	private static final String LAST_PRUNE_FILE = ".last-prune";
+	// Remembers the ABI hash of each jar, keyed by the hash of its contents and the platform.
+	private static final Map<String, String> ABI_HASHES = new ConcurrentHashMap<>();
+
+	private final Path root;
+	private final String environmentHash;
+	// The ABI hash of each file on the remap classpath
+	private final Map<Path, String> classpathAbi;
+
+	private RemappedModCache(Path root, String environmentHash, Map<Path, String> classpathAbi) {
+		this.root = root;
+		this.environmentHash = environmentHash;
+		this.classpathAbi = classpathAbi;
+	}
+
+	/**
+	 * @return the cache for the project, or null when it has been disabled or cannot be used with the project's remapper setup
+	 */
+	@Nullable
+	public static RemappedModCache create(Project project, SharedServiceManager serviceManager) throws IOException {
+		final LoomGradleExtension extension = LoomGradleExtension.get(project);
+
+		if (GradleUtils.getBooleanProperty(project, Constants.Properties.DISABLE_GLOBAL_MOD_CACHE)) {
+			return null;
+		}
+
+		if (!extension.getRemapperExtensions().get().isEmpty()) {
+			// Remapper extensions can change the output in ways that cannot be hashed.
+			LOGGER.info("Not using the global remapped mod cache as remapper extensions are configured");
+			return null;
+		}
+
+		final Path root = extension.getFiles().getGlobalRemappedModCache().toPath();
+		final ModPlatform platform = extension.getPlatform().get();
+		final Map<Path, String> classpathAbi = new HashMap<>();
+
+		for (RemapConfigurationSettings entry : extension.getRemapConfigurations()) {
+			for (File file : entry.getSourceConfiguration().get().getFiles()) {
+				final Path path = file.toPath().toAbsolutePath();
+
+				if (!classpathAbi.containsKey(path)) {
+					classpathAbi.put(path, Files.isRegularFile(path) ? hashAbi(path, platform) : "directory:" + path);
+				}
+			}
+		}
+
+		return new RemappedModCache(root, hashEnvironment(project, serviceManager), classpathAbi);
+	}
+
+	/**
+	 * Hashes everything other than the mod and the rest of its remap classpath that the remapped output depends on.
+	 */
+	private static String hashEnvironment(Project project, SharedServiceManager serviceManager) throws IOException {
+		final LoomGradleExtension extension = LoomGradleExtension.get(project);
+		final MappingConfiguration mappingConfiguration = extension.getMappingConfiguration();
+		final Hasher hasher = Hashing.sha256().newHasher();
+
+		putString(hasher, "version", Integer.toString(VERSION));
+		putString(hasher, "loom", LoomGradlePlugin.LOOM_VERSION);
+		putString(hasher, "platform", extension.getPlatform().get().name());
+		putString(hasher, "from", IntermediaryNamespaces.runtimeIntermediary(project));
+		putString(hasher, "to", MappingsNamespace.NAMED.toString());
+		putString(hasher, "indyBsms", String.join(",", new TreeSet<>(extension.getKnownIndyBsms().get())));
+
+		for (Path mappings : new Path[] {mappingConfiguration.tinyMappings, mappingConfiguration.tinyMappingsWithSrg, mappingConfiguration.tinyMappingsWithMojang}) {
+			putString(hasher, "mappings", mappings != null && Files.exists(mappings) ? hash(mappings) : "none");
+		}
+
+		final KotlinClasspathService kotlinClasspathService = KotlinClasspathService.getOrCreateIfRequired(serviceManager, project);
+		putString(hasher, "kotlin", kotlinClasspathService != null ? kotlinClasspathService.version() : "none");
+
+		// Sorted, as the order of the Minecraft jars on the classpath does not change the output.
+		final TreeSet<String> minecraftJars = new TreeSet<>();
+
+		for (Path path : extension.getMinecraftJars(IntermediaryNamespaces.intermediaryNamespace(project))) {
+			minecraftJars.add(hash(path));
+		}
+
+		putString(hasher, "minecraft", String.join(",", minecraftJars));
+		return hasher.hash().toString();
+	}
+
+	/**
+	 * Hashes the parts of the jar that can change how other mods are remapped: the class hierarchy, the member signatures and the access widener.
+	 * Method bodies, debug info and other files are not included.
+	 */
+	static String hashAbi(Path jar, ModPlatform platform) throws IOException {
+		final String key = hash(jar) + ":" + platform.name();
+		final String cached = ABI_HASHES.get(key);
+
+		if (cached != null) {
+			return cached;
+		}
+
+		final Hasher hasher = Hashing.sha256().newHasher();
+
+		try (ZipFile zipFile = new ZipFile(jar.toFile())) {
+			final List<? extends ZipEntry> classes = Collections.list(zipFile.entries()).stream()
+					.filter(entry -> !entry.isDirectory() && entry.getName().endsWith(".class"))
+					.sorted(Comparator.comparing(ZipEntry::getName))
+					.toList();
+
+			for (ZipEntry entry : classes) {
+				try (InputStream inputStream = zipFile.getInputStream(entry)) {
+					new ClassReader(inputStream).accept(new AbiHashingVisitor(hasher), ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+				}
+			}
+		}
+
+		final AccessWidenerUtils.AccessWidenerData accessWidener = AccessWidenerUtils.readAccessWidenerData(jar, platform);
+		putString(hasher, "accessWidener", accessWidener != null ? new String(accessWidener.content(), StandardCharsets.UTF_8) : "none");
+
+		final String abiHash = hasher.hash().toString();
+		ABI_HASHES.put(key, abiHash);
+		return abiHash;
+	}
+
+	private static void putString(Hasher hasher, String key, String value) {
+		hasher.putString(key, StandardCharsets.UTF_8).putByte((byte) 0);
+		hasher.putString(value, StandardCharsets.UTF_8).putByte((byte) 0);
+	}
+
+	private static String hash(Path path) throws IOException {
+		// Memoized, as the Minecraft jars and mappings are hashed in every configuration.
+		return Checksum.sha256HexMemoized(path);
+	}
+
+	/**
+	 * Copies the cached outputs of the dependencies into the project's cache.
+	 *
+	 * @return the dependencies that were not found in the cache and still need to be remapped
+	 */
+	public List<ModDependency> restore(Project project, List<ModDependency> dependencies) throws IOException {
+		final List<ModDependency> missing = new ArrayList<>();
+
+		for (ModDependency dependency : dependencies) {
+			final Path cached = getCachePath(dependency);
+
+			if (!Files.exists(cached)) {
+				missing.add(dependency);
+				continue;
+			}
+
+			LOGGER.info("Using cached remapped mod {} for {}", cached, dependency);
+			dependency.copyToCache(project, cached, null);
+
+			// Record the last use, so old entries can be found and removed
+			Files.setLastModifiedTime(cached, FileTime.from(Instant.now()));
+		}
+
+		return missing;
+	}
+
+	/**
+	 * Stores the remapped outputs of the dependencies, which must have been processed by {@link ModProcessor}.
+	 */
+	public void store(List<ModDependency> dependencies) throws IOException {
+		for (ModDependency dependency : dependencies) {
+			final Path output = dependency.getWorkingFile(null);
+
+			if (!Files.exists(output)) {
+				continue;
+			}
+
+			final Path cached = getCachePath(dependency);
+			Files.createDirectories(cached.getParent());
+			final Path temp = Files.createTempFile(cached.getParent(), cached.getFileName().toString(), ".tmp");
+
+			try {
+				Files.copy(output, temp, StandardCopyOption.REPLACE_EXISTING);
+				Files.move(temp, cached, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(temp);
+			}
+		}
+
+		prune();
+	}
+
+	/**
+	 * Deletes the entries that have not been used for {@link #MAX_AGE}, at most once every {@link #PRUNE_INTERVAL}.
+	 */
+	void prune() throws IOException {
+		if (!Files.isDirectory(root)) {
+			return;
+		}
+
+		final Path lastPrune = root.resolve(LAST_PRUNE_FILE);
+		final Instant now = Instant.now();
+
+		if (Files.exists(lastPrune) && Files.getLastModifiedTime(lastPrune).toInstant().isAfter(now.minus(PRUNE_INTERVAL))) {
+			return;
+		}
+
+		Files.write(lastPrune, new byte[0]);
+		final FileTime oldest = FileTime.from(now.minus(MAX_AGE));
+
+		try (Stream<Path> directories = Files.list(root)) {
+			for (Path directory : (Iterable<Path>) directories::iterator) {
+				if (!Files.isDirectory(directory)) {
+					continue;
+				}
+
+				try (Stream<Path> files = Files.list(directory)) {
+					for (Path file : (Iterable<Path>) files::iterator) {
+						try {
+							if (Files.getLastModifiedTime(file).compareTo(oldest) < 0) {
+								Files.deleteIfExists(file);
+							}
+						} catch (IOException e) {
+							LOGGER.debug("Failed to delete old remapped mod {}", file, e);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	Path getCachePath(ModDependency dependency) throws IOException {
+		final Path input = dependency.getInputFile().toAbsolutePath();
+		// The mod's own classpath is everything else on the remap classpath, sorted as the order does not change the output.
+		final TreeSet<String> classpath = new TreeSet<>();
+
+		for (Map.Entry<Path, String> entry : classpathAbi.entrySet()) {
+			if (!entry.getKey().equals(input)) {
+				classpath.add(entry.getValue());
+			}
+		}
+
+		final Hasher hasher = Hashing.sha256().newHasher();
+		putString(hasher, "environment", environmentHash);
+		putString(hasher, "input", hash(input));
+		putString(hasher, "mixinRemapType", Objects.toString(dependency.getMetadata().mixinRemapType()));
+		putString(hasher, "classpath", String.join(",", classpath));
+		final String key = hasher.hash().toString();
+
+		return root.resolve(key.substring(0, 2)).resolve(key + ".jar");
+	}
+
+	private static final class AbiHashingVisitor extends ClassVisitor {
+		private final Hasher hasher;
+
+		AbiHashingVisitor(Hasher hasher) {
+			super(Constants.ASM_VERSION);
+			this.hasher = hasher;
+		}
+
+		@Override
+		public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+			putString(hasher, "class", access + " " + name + " " + signature + " " + superName + " " + String.join(",", interfaces != null ? interfaces : new String[0]));
+		}
+
+		@Override
+		public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+			putString(hasher, "field", access + " " + name + " " + descriptor + " " + signature);
+			return null;
+		}
+
+		@Override
+		public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+			putString(hasher, "method", access + " " + name + " " + descriptor + " " + signature);
+			return null;
+		}
+	}
+}
@@ -34,7 +34,16 @@ import java.nio.file.StandardCopyOption;
 
 import org.jetbrains.annotations.Nullable;
 
-public record LocalMavenHelper(String group, String name, String version, @Nullable String baseClassifier, Path root) {
+import net.fabricmc.loom.util.BlobStore;
+
+/**
+ * @param blobStore when set, artifacts are linked to their blob instead of being copied into the maven
+ */
+public record LocalMavenHelper(String group, String name, String version, @Nullable String baseClassifier, Path root, @Nullable BlobStore blobStore) {
+	public LocalMavenHelper(String group, String name, String version, @Nullable String baseClassifier, Path root) {
+		this(group, name, version, baseClassifier, root, null);
+	}
+
 	public Path copyToMaven(Path artifact, @Nullable String classifier) throws IOException {
 		if (!artifact.getFileName().toString().endsWith(".jar") && !artifact.getFileName().toString().endsWith(".zip")) {
 			throw new UnsupportedOperationException();
@@ -42,6 +51,11 @@ public record LocalMavenHelper(String group, String name, String version, @Nulla
 
 		Files.createDirectories(getDirectory());
 		savePom();
+
+		if (blobStore != null) {
+			return blobStore.copy(artifact, getOutputFile(classifier));
+		}
+
 		return Files.copy(artifact, getOutputFile(classifier), StandardCopyOption.REPLACE_EXISTING);
 	}
 
@@ -95,6 +109,6 @@ public record LocalMavenHelper(String group, String name, String version, @Nulla
 	}
 
 	public LocalMavenHelper withClassifier(String classifier) {
-		return new LocalMavenHelper(group, name, version, classifier, root);
+		return new LocalMavenHelper(group, name, version, classifier, root, blobStore);
 	}
 }
@@ -33,6 +33,7 @@ import org.jetbrains.annotations.Nullable;
 import net.fabricmc.loom.LoomGradleExtension;
 import net.fabricmc.loom.configuration.mods.ArtifactMetadata;
 import net.fabricmc.loom.configuration.mods.ArtifactRef;
+import net.fabricmc.loom.util.BlobStore;
 
 public abstract sealed class ModDependency permits SplitModDependency, SimpleModDependency {
 	private final ArtifactRef artifact;
@@ -74,7 +75,7 @@ public abstract sealed class ModDependency permits SplitModDependency, SimpleMod
 	protected LocalMavenHelper createMaven(String name) {
 		final LoomGradleExtension extension = LoomGradleExtension.get(project);
 		final Path root = extension.getFiles().getRemappedModCache().toPath();
-		return new LocalMavenHelper(getRemappedGroup(), name, this.version, this.classifier, root);
+		return new LocalMavenHelper(getRemappedGroup(), name, this.version, this.classifier, root, BlobStore.get(project));
 	}
 
 	public ArtifactRef getInputArtifact() {
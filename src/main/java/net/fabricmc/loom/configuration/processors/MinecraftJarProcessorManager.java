@@ -31,13 +31,21 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.StringJoiner;
 import java.util.stream.Collectors;
 
 import org.gradle.api.Project;
 import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -47,15 +55,21 @@ import net.fabricmc.loom.api.processor.MinecraftJarProcessor;
 import net.fabricmc.loom.api.processor.ProcessorContext;
 import net.fabricmc.loom.api.processor.SpecContext;
 import net.fabricmc.loom.util.Checksum;
+import net.fabricmc.loom.util.Constants;
+import net.fabricmc.loom.util.ZipRewriter;
+import net.fabricmc.loom.util.gradle.GradleUtils;
+import net.fabricmc.loom.util.service.SharedExecutorService;
 import net.fabricmc.mappingio.tree.MemoryMappingTree;
 
 public final class MinecraftJarProcessorManager {
 	private static final Logger LOGGER = LoggerFactory.getLogger(MinecraftJarProcessorManager.class);
 
 	private final List<ProcessorEntry<?>> jarProcessors;
+	private final boolean fused;
 
-	private MinecraftJarProcessorManager(List<ProcessorEntry<?>> jarProcessors) {
+	private MinecraftJarProcessorManager(List<ProcessorEntry<?>> jarProcessors, boolean fused) {
 		this.jarProcessors = Collections.unmodifiableList(jarProcessors);
+		this.fused = fused;
 	}
 
 	@Nullable
@@ -67,11 +81,20 @@ public final class MinecraftJarProcessorManager {
 			processors.add(project.getObjects().newInstance(LegacyJarProcessorWrapper.class, legacyProcessor));
 		}
 
-		return MinecraftJarProcessorManager.create(processors, SpecContextImpl.create(project));
+		final boolean fused = !GradleUtils.getBooleanProperty(project, Constants.Properties.DISABLE_FUSED_JAR_PROCESSORS);
+		return MinecraftJarProcessorManager.create(processors, SpecContextImpl.create(project), fused);
 	}
 
 	@Nullable
 	public static MinecraftJarProcessorManager create(List<MinecraftJarProcessor<?>> processors, SpecContext context) {
+		return create(processors, context, true);
+	}
+
+	/**
+	 * @param fused whether processors that support it should transform the jar in a single shared pass
+	 */
+	@Nullable
+	public static MinecraftJarProcessorManager create(List<MinecraftJarProcessor<?>> processors, SpecContext context, boolean fused) {
 		List<ProcessorEntry<?>> entries = new ArrayList<>();
 
 		for (MinecraftJarProcessor<?> processor : processors) {
@@ -89,7 +112,7 @@ public final class MinecraftJarProcessorManager {
 			return null;
 		}
 
-		return new MinecraftJarProcessorManager(entries);
+		return new MinecraftJarProcessorManager(entries, fused);
 	}
 
 	private String getCacheValue() {
@@ -127,14 +150,209 @@ public final class MinecraftJarProcessorManager {
 		return false;
 	}
 
-	public void processJar(Path jar, ProcessorContext context) throws IOException {
+	/**
+	 * @return the processors that were applied to the jar, to be stored in the jar's {@link ProcessedJarManifest}
+	 */
+	public List<ProcessedJarManifest.Processor> processJar(Path jar, ProcessorContext context) throws IOException {
+		final List<ProcessedJarManifest.Processor> applied = new ArrayList<>();
+		final List<String> transformerNames = new ArrayList<>();
+		final List<MinecraftJarProcessor.ClassTransformer> transformers = new ArrayList<>();
+
 		for (ProcessorEntry<?> entry : jarProcessors) {
+			try {
+				if (fused && entry.classProcessor() != null) {
+					final MinecraftJarProcessor.ClassTransformer transformer = entry.createClassTransformer(context);
+					final Set<String> targets = transformer != null ? Set.copyOf(transformer.getTargets()) : Set.of();
+					applied.add(new ProcessedJarManifest.Processor(entry.name(), entry.spec().hashCode(), targets));
+
+					if (transformer != null) {
+						transformerNames.add(entry.name());
+						transformers.add(new FixedTargetsTransformer(transformer, targets));
+					}
+
+					continue;
+				}
+			} catch (IOException e) {
+				throw new IOException("Failed to process jar when running jar processor: %s".formatted(entry.name()), e);
+			}
+
+			// Run the fused processors declared before this one first, so it sees their output
+			flushTransformers(jar, transformerNames, transformers);
+
 			try {
 				entry.processJar(jar, context);
+				applied.add(new ProcessedJarManifest.Processor(entry.name(), entry.spec().hashCode(), null));
 			} catch (IOException e) {
 				throw new IOException("Failed to process jar when running jar processor: %s".formatted(entry.name()), e);
 			}
 		}
+
+		flushTransformers(jar, transformerNames, transformers);
+		return applied;
+	}
+
+	/**
+	 * Applies the pending fused transformers to the jar in a single pass, and clears them.
+	 */
+	private static void flushTransformers(Path jar, List<String> transformerNames, List<MinecraftJarProcessor.ClassTransformer> transformers) throws IOException {
+		if (transformers.isEmpty()) {
+			return;
+		}
+
+		LOGGER.debug("Transforming {} with jar processors: {}", jar, transformerNames);
+
+		try {
+			transformClasses(jar, getClassTransformers(transformers), null);
+		} catch (IOException e) {
+			throw new IOException("Failed to process jar when running jar processors: %s".formatted(String.join(", ", transformerNames)), e);
+		}
+
+		transformerNames.clear();
+		transformers.clear();
+	}
+
+	/**
+	 * Updates a copy of a jar that was processed with different specs, only the classes targeted by processors whose
+	 * spec has changed are processed again, starting from their unprocessed bytes.
+	 *
+	 * @param inputJar the unprocessed jar
+	 * @param jar the copy of the previously processed jar, updated in place
+	 * @param previous the processors that were applied to the previously processed jar
+	 * @return the processors that are now applied to the jar, or null if it cannot be updated and must be processed from scratch
+	 */
+	@Nullable
+	public List<ProcessedJarManifest.Processor> processJarIncrementally(Path inputJar, Path jar, List<ProcessedJarManifest.Processor> previous, ProcessorContext context) throws IOException {
+		if (!fused) {
+			return null;
+		}
+
+		final Map<String, ProcessedJarManifest.Processor> previousByName = new HashMap<>();
+
+		for (ProcessedJarManifest.Processor processor : previous) {
+			// Processors that transformed the whole jar cannot be undone
+			if (processor.targets() == null || previousByName.put(processor.name(), processor) != null) {
+				return null;
+			}
+		}
+
+		for (ProcessorEntry<?> entry : jarProcessors) {
+			if (entry.classProcessor() == null) {
+				return null;
+			}
+		}
+
+		// The chains are built in processor order, so the processors that remain must be in the same order
+		final List<String> remainingNames = jarProcessors.stream().map(ProcessorEntry::name).filter(previousByName::containsKey).toList();
+		final List<String> previousNames = previous.stream().map(ProcessedJarManifest.Processor::name).filter(remainingNames::contains).toList();
+
+		if (!remainingNames.equals(previousNames)) {
+			return null;
+		}
+
+		final List<ProcessedJarManifest.Processor> applied = new ArrayList<>();
+		final List<MinecraftJarProcessor.ClassTransformer> transformers = new ArrayList<>();
+		final Set<String> affectedClasses = new HashSet<>();
+
+		for (ProcessorEntry<?> entry : jarProcessors) {
+			final MinecraftJarProcessor.ClassTransformer transformer = entry.createClassTransformer(context);
+			final Set<String> targets = transformer != null ? Set.copyOf(transformer.getTargets()) : Set.of();
+			final ProcessedJarManifest.Processor processor = new ProcessedJarManifest.Processor(entry.name(), entry.spec().hashCode(), targets);
+			final ProcessedJarManifest.Processor previousProcessor = previousByName.remove(entry.name());
+			applied.add(processor);
+
+			if (transformer != null) {
+				transformers.add(new FixedTargetsTransformer(transformer, targets));
+			}
+
+			if (!processor.equals(previousProcessor)) {
+				LOGGER.debug("Jar processor {} has changed", entry.name());
+				affectedClasses.addAll(targets);
+
+				if (previousProcessor != null) {
+					affectedClasses.addAll(previousProcessor.targets());
+				}
+			}
+		}
+
+		// Processors that have been removed
+		for (ProcessedJarManifest.Processor processor : previousByName.values()) {
+			LOGGER.debug("Jar processor {} has been removed", processor.name());
+			affectedClasses.addAll(processor.targets());
+		}
+
+		final Map<String, List<MinecraftJarProcessor.ClassTransformer>> classTransformers = getClassTransformers(transformers);
+		final Map<String, List<MinecraftJarProcessor.ClassTransformer>> affectedClassTransformers = new LinkedHashMap<>();
+
+		for (String className : affectedClasses) {
+			affectedClassTransformers.put(className, classTransformers.getOrDefault(className, List.of()));
+		}
+
+		LOGGER.info("Reprocessing {} classes in {}", affectedClassTransformers.size(), jar);
+
+		try (ZipRewriter original = ZipRewriter.open(inputJar)) {
+			transformClasses(jar, affectedClassTransformers, original);
+		}
+
+		return applied;
+	}
+
+	/**
+	 * Applies the class transformers to the jar in a single pass, the transformers of each class are chained in order.
+	 */
+	public static void transformClasses(Path jar, List<MinecraftJarProcessor.ClassTransformer> transformers) throws IOException {
+		transformClasses(jar, getClassTransformers(transformers), null);
+	}
+
+	private static Map<String, List<MinecraftJarProcessor.ClassTransformer>> getClassTransformers(List<MinecraftJarProcessor.ClassTransformer> transformers) {
+		final Map<String, List<MinecraftJarProcessor.ClassTransformer>> classTransformers = new LinkedHashMap<>();
+
+		for (MinecraftJarProcessor.ClassTransformer transformer : transformers) {
+			for (String target : transformer.getTargets()) {
+				classTransformers.computeIfAbsent(target, t -> new ArrayList<>()).add(transformer);
+			}
+		}
+
+		return classTransformers;
+	}
+
+	/**
+	 * @param original when set, classes are transformed starting from their bytes in this jar
+	 */
+	private static void transformClasses(Path jar, Map<String, List<MinecraftJarProcessor.ClassTransformer>> classTransformers, @Nullable ZipRewriter original) throws IOException {
+		try (ZipRewriter rewriter = ZipRewriter.open(jar).parallel(SharedExecutorService.get().cpu())) {
+			for (Map.Entry<String, List<MinecraftJarProcessor.ClassTransformer>> entry : classTransformers.entrySet()) {
+				final String className = entry.getKey();
+				final List<MinecraftJarProcessor.ClassTransformer> chain = entry.getValue();
+
+				rewriter.transform(className + ".class", bytes -> {
+					if (original != null) {
+						final byte[] originalBytes = original.read(className + ".class");
+
+						if (originalBytes != null) {
+							bytes = originalBytes;
+						}
+					}
+
+					if (chain.isEmpty()) {
+						return bytes;
+					}
+
+					final ClassReader reader = new ClassReader(bytes);
+					final ClassWriter writer = new ClassWriter(0);
+					ClassVisitor visitor = writer;
+
+					for (int i = chain.size() - 1; i >= 0; i--) {
+						visitor = chain.get(i).visit(className, visitor);
+					}
+
+					reader.accept(visitor, 0);
+					return writer.toByteArray();
+				});
+			}
+
+			final int transformed = rewriter.apply();
+			LOGGER.debug("Transformed {} classes in {}", transformed, jar);
+		}
 	}
 
 	public boolean processMappings(MemoryMappingTree mappings, MappingProcessorContext context) {
@@ -159,6 +377,16 @@ public final class MinecraftJarProcessorManager {
 			processor().processJar(jar, spec, context);
 		}
 
+		@Nullable
+		private MinecraftJarProcessor.ClassProcessor<S> classProcessor() {
+			return processor().processClasses();
+		}
+
+		@Nullable
+		private MinecraftJarProcessor.ClassTransformer createClassTransformer(ProcessorContext context) throws IOException {
+			return Objects.requireNonNull(classProcessor()).createTransformer(spec, context);
+		}
+
 		private boolean processMappings(MemoryMappingTree mappings, MappingProcessorContext context) {
 			if (mappingsProcessor() == null) {
 				return false;
@@ -175,4 +403,19 @@ public final class MinecraftJarProcessorManager {
 			return processor.getName() + ":" + spec.hashCode();
 		}
 	}
+
+	/**
+	 * Avoids computing the targets of a transformer more than once.
+	 */
+	private record FixedTargetsTransformer(MinecraftJarProcessor.ClassTransformer delegate, Set<String> targets) implements MinecraftJarProcessor.ClassTransformer {
+		@Override
+		public Set<String> getTargets() {
+			return targets;
+		}
+
+		@Override
+		public ClassVisitor visit(String className, ClassVisitor next) {
+			return delegate.visit(className, next);
+		}
+	}
 }
@@ -97,6 +97,12 @@ public abstract class ModJavadocProcessor implements MinecraftJarProcessor<ModJa
 		// Nothing to do for the jar
 	}
 
+	@Override
+	public ClassProcessor<Spec> processClasses() {
+		// Nothing to do for the jar, but allows the jar to be updated incrementally
+		return (spec, context) -> null;
+	}
+
 	@Override
 	public @Nullable MappingsProcessor<Spec> processMappings() {
 		return (mappings, spec, context) -> {
@@ -0,0 +1,68 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.configuration.processors;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import com.google.gson.JsonParseException;
+import org.jetbrains.annotations.Nullable;
+
+import net.fabricmc.loom.LoomGradlePlugin;
+
+/**
+ * Describes how a processed jar was created, so that it can later be updated when only some of the processors change.
+ *
+ * @param inputHash the sha256 of the unprocessed jar
+ * @param processors the processors that were applied, in order
+ */
+public record ProcessedJarManifest(String inputHash, List<Processor> processors) {
+	@Nullable
+	public static ProcessedJarManifest read(Path path) throws IOException {
+		if (Files.notExists(path)) {
+			return null;
+		}
+
+		try {
+			return LoomGradlePlugin.GSON.fromJson(Files.readString(path), ProcessedJarManifest.class);
+		} catch (JsonParseException e) {
+			return null;
+		}
+	}
+
+	public void write(Path path) throws IOException {
+		Files.writeString(path, LoomGradlePlugin.GSON.toJson(this));
+	}
+
+	/**
+	 * @param specHash the hash code of the processor's spec
+	 * @param targets the classes transformed by the processor, or null if it processed the whole jar
+	 */
+	public record Processor(String name, int specHash, @Nullable Set<String> targets) {
+	}
+}
@@ -0,0 +1,360 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.configuration.providers.forge;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.jar.JarInputStream;
+import java.util.zip.Adler32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import lzma.sdk.lzma.Decoder;
+import lzma.streams.LzmaInputStream;
+import org.jetbrains.annotations.Nullable;
+
+import net.fabricmc.loom.util.ZipReprocessorUtil;
+import net.fabricmc.loom.util.ZipUtils;
+import net.fabricmc.loom.util.service.SharedExecutorService;
+
+/**
+ * An in-process implementation of Forge's binarypatcher {@code ConsoleTool --apply}.
+ *
+ * <p>The patches file is a (optionally LZMA compressed) jar of {@code .binpatch} entries, each holding a GDIFF patch
+ * for one class. Classes are patched in parallel and written to the output jar in a single pass,
+ * together with any class transformations the caller would otherwise apply by rewriting the jar again.
+ */
+public final class BinaryPatcher {
+	private static final int PATCH_VERSION = 1;
+	private static final int GDIFF_MAGIC = 0xD1FFD1FF;
+	private static final int GDIFF_VERSION = 4;
+	private static final int GDIFF_EOF = 0;
+	private static final int GDIFF_DATA_MAX = 246;
+	private static final int MAX_PENDING_ENTRIES = Math.max(16, Runtime.getRuntime().availableProcessors() * 4);
+
+	private BinaryPatcher() {
+	}
+
+	/**
+	 * Applies the patches to the clean jar, and writes the patched classes to the output jar.
+	 *
+	 * @param classTransformer applied to every class written to the output, patched or not
+	 */
+	public static void patchJar(Path clean, Path output, Path patchesFile, Options options, ZipUtils.UnsafeUnaryOperator<byte[]> classTransformer) throws IOException {
+		final Map<String, List<Patch>> patches = readPatches(patchesFile, options.prefix());
+		final Path tempFile = output.resolveSibling(output.getFileName() + ".tmp");
+
+		try (ZipFile cleanZip = new ZipFile(clean.toFile())) {
+			final List<EntryTask> entries = new ArrayList<>();
+			final Set<String> patched = new HashSet<>();
+
+			for (ZipEntry entry : cleanZip.stream().toList()) {
+				if (entry.isDirectory()) continue;
+
+				final String name = entry.getName();
+
+				if (name.endsWith(".class")) {
+					final String className = name.substring(0, name.length() - ".class".length());
+					final List<Patch> classPatches = patches.get(className);
+
+					if (classPatches != null) {
+						patched.add(className);
+						entries.add(new EntryTask(name, () -> classTransformer.apply(apply(classPatches, readEntry(cleanZip, entry)))));
+					} else if (options.keepUnpatched()) {
+						entries.add(new EntryTask(name, () -> classTransformer.apply(readEntry(cleanZip, entry))));
+					}
+				} else if (options.keepData()) {
+					entries.add(new EntryTask(name, () -> readEntry(cleanZip, entry)));
+				}
+			}
+
+			// Patches for classes that do not exist in the clean jar add new classes
+			for (Map.Entry<String, List<Patch>> entry : patches.entrySet()) {
+				if (patched.contains(entry.getKey())) continue;
+
+				entries.add(new EntryTask(entry.getKey() + ".class", () -> classTransformer.apply(apply(entry.getValue(), new byte[0]))));
+			}
+
+			writeEntries(tempFile, entries);
+			Files.move(tempFile, output, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+	private static void writeEntries(Path file, List<EntryTask> entries) throws IOException {
+		final Iterator<EntryTask> remaining = entries.iterator();
+		final ArrayDeque<OutputEntry> pending = new ArrayDeque<>();
+
+		try (var zipOutputStream = new ZipOutputStream(Files.newOutputStream(file))) {
+			while (remaining.hasNext() || !pending.isEmpty()) {
+				// Only keep a bounded number of entries in memory at once
+				while (pending.size() < MAX_PENDING_ENTRIES && remaining.hasNext()) {
+					pending.add(submit(remaining.next()));
+				}
+
+				final OutputEntry entry = pending.remove();
+				final byte[] data;
+
+				try {
+					data = entry.data().join();
+				} catch (CompletionException e) {
+					if (e.getCause() instanceof UncheckedIOException uioe) {
+						throw new IOException("Failed to patch " + entry.name(), uioe.getCause());
+					}
+
+					throw e.getCause() instanceof RuntimeException re ? re : new RuntimeException(e.getCause());
+				}
+
+				final var zipEntry = new ZipEntry(entry.name());
+				ZipReprocessorUtil.setConstantFileTime(zipEntry);
+				zipOutputStream.putNextEntry(zipEntry);
+				zipOutputStream.write(data);
+				zipOutputStream.closeEntry();
+			}
+		} finally {
+			// Do not close the clean jar while some entries are still being read
+			CompletableFuture.allOf(pending.stream().map(OutputEntry::data).toArray(CompletableFuture[]::new))
+					.exceptionally(t -> null)
+					.join();
+		}
+	}
+
+	private static OutputEntry submit(EntryTask task) {
+		return new OutputEntry(task.name(), CompletableFuture.supplyAsync(() -> {
+			try {
+				return task.supplier().get();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}, SharedExecutorService.get().cpu()));
+	}
+
+	private static byte[] readEntry(ZipFile zip, ZipEntry entry) throws IOException {
+		try (InputStream inputStream = zip.getInputStream(entry)) {
+			return inputStream.readAllBytes();
+		}
+	}
+
+	/**
+	 * Reads the patches, keyed by the obfuscated name of the class they apply to.
+	 *
+	 * @param prefix only read the patches in this directory of the patches jar, or all patches if {@code null}
+	 */
+	public static Map<String, List<Patch>> readPatches(Path patchesFile, @Nullable String prefix) throws IOException {
+		final Map<String, List<Patch>> patches = new TreeMap<>();
+
+		try (InputStream fileInputStream = Files.newInputStream(patchesFile);
+				InputStream inputStream = patchesFile.getFileName().toString().endsWith(".lzma") ? new LzmaInputStream(fileInputStream, new Decoder()) : fileInputStream;
+				JarInputStream jarInputStream = new JarInputStream(inputStream)) {
+			for (ZipEntry entry; (entry = jarInputStream.getNextEntry()) != null;) {
+				final String name = entry.getName();
+
+				if (!name.endsWith(".binpatch") || (prefix != null && !name.startsWith(prefix + "/"))) continue;
+
+				final Patch patch = Patch.read(jarInputStream.readAllBytes());
+				patches.computeIfAbsent(patch.obf(), k -> new ArrayList<>()).add(patch);
+			}
+		}
+
+		return patches;
+	}
+
+	private static byte[] apply(List<Patch> patches, byte[] data) throws IOException {
+		for (Patch patch : patches) {
+			data = patch.apply(data);
+		}
+
+		return data;
+	}
+
+	/**
+	 * Applies a GDIFF patch, see <a href="https://www.w3.org/TR/NOTE-gdiff-19970901">the GDIFF format</a>.
+	 */
+	public static byte[] applyGdiff(byte[] source, byte[] patch) throws IOException {
+		final var input = new DataInputStream(new ByteArrayInputStream(patch));
+		final var output = new ByteArrayOutputStream(source.length + patch.length);
+
+		if (input.readInt() != GDIFF_MAGIC || input.readUnsignedByte() != GDIFF_VERSION) {
+			throw new IOException("Not a GDIFF version " + GDIFF_VERSION + " patch");
+		}
+
+		while (true) {
+			final int command = input.readUnsignedByte();
+
+			if (command == GDIFF_EOF) {
+				return output.toByteArray();
+			} else if (command <= GDIFF_DATA_MAX) {
+				appendData(input, output, command);
+				continue;
+			}
+
+			switch (command) {
+			case 247 -> appendData(input, output, input.readUnsignedShort());
+			case 248 -> appendData(input, output, input.readInt());
+			case 249 -> appendCopy(source, output, input.readUnsignedShort(), input.readUnsignedByte());
+			case 250 -> appendCopy(source, output, input.readUnsignedShort(), input.readUnsignedShort());
+			case 251 -> appendCopy(source, output, input.readUnsignedShort(), input.readInt());
+			case 252 -> appendCopy(source, output, input.readInt(), input.readUnsignedByte());
+			case 253 -> appendCopy(source, output, input.readInt(), input.readUnsignedShort());
+			case 254 -> appendCopy(source, output, input.readInt(), input.readInt());
+			default -> appendCopy(source, output, input.readLong(), input.readInt());
+			}
+		}
+	}
+
+	private static void appendData(DataInputStream input, ByteArrayOutputStream output, int length) throws IOException {
+		if (length < 0) {
+			throw new IOException("Invalid GDIFF data length " + length);
+		}
+
+		final byte[] data = new byte[length];
+		input.readFully(data);
+		output.write(data);
+	}
+
+	private static void appendCopy(byte[] source, ByteArrayOutputStream output, long offset, int length) throws IOException {
+		if (offset < 0 || length < 0 || offset + length > source.length) {
+			throw new EOFException("GDIFF copy of " + length + " bytes at " + offset + " is out of bounds of the " + source.length + " byte source");
+		}
+
+		output.write(source, (int) offset, length);
+	}
+
+	/**
+	 * The binpatcher options that can be applied in process, parsed from the userdev binpatcher arguments.
+	 *
+	 * @param prefix the directory in the patches jar to read patches from, or {@code null} for all of them
+	 * @param keepData whether to copy the non-class files of the clean jar to the output
+	 * @param keepUnpatched whether to copy the unpatched classes of the clean jar to the output
+	 */
+	public record Options(@Nullable String prefix, boolean keepData, boolean keepUnpatched) {
+		/**
+		 * Parses the binpatcher arguments, with the {@code {clean}}, {@code {output}} and {@code {patch}} placeholders unresolved.
+		 *
+		 * @return the options, or {@code null} if the arguments use an option that is not supported in process
+		 */
+		public static @Nullable Options parse(List<String> args) {
+			String prefix = null;
+			boolean keepData = false;
+			boolean keepUnpatched = false;
+
+			for (int i = 0; i < args.size(); i++) {
+				switch (args.get(i)) {
+				case "--clean", "--output", "--apply" -> i++;
+				case "--prefix" -> prefix = ++i < args.size() ? args.get(i) : null;
+				case "--data" -> keepData = true;
+				case "--unpatched" -> keepUnpatched = true;
+				default -> {
+					return null;
+				}
+				}
+			}
+
+			return new Options(prefix, keepData, keepUnpatched);
+		}
+
+		public Options withKeepData(boolean keepData) {
+			return new Options(prefix, this.keepData || keepData, keepUnpatched);
+		}
+
+		public Options withKeepUnpatched(boolean keepUnpatched) {
+			return new Options(prefix, keepData, this.keepUnpatched || keepUnpatched);
+		}
+	}
+
+	/**
+	 * A single class patch.
+	 *
+	 * @param exists whether the class exists in the clean jar, if not the patch is applied to an empty class
+	 * @param checksum the Adler-32 checksum of the clean class, if it exists
+	 */
+	public record Patch(String obf, String srg, boolean exists, int checksum, byte[] data) {
+		public static Patch read(byte[] bytes) throws IOException {
+			final var input = new DataInputStream(new ByteArrayInputStream(bytes));
+			final int version = input.readUnsignedByte();
+
+			if (version != PATCH_VERSION) {
+				throw new IOException("Unsupported binpatch version " + version);
+			}
+
+			final String obf = input.readUTF();
+			final String srg = input.readUTF();
+			final boolean exists = input.readBoolean();
+			final int checksum = exists ? input.readInt() : 0;
+			final byte[] data = new byte[input.readInt()];
+			input.readFully(data);
+			return new Patch(obf, srg, exists, checksum, data);
+		}
+
+		public byte[] apply(byte[] base) throws IOException {
+			if (!exists && base.length > 0) {
+				throw new IOException("Patch expected " + obf + " to not exist, but received " + base.length + " bytes");
+			} else if (exists && base.length == 0) {
+				throw new IOException("Patch expected " + obf + " to exist, but received no data");
+			} else if (exists && checksum(base) != checksum) {
+				throw new IOException("Patch expected " + obf + " to have the checksum " + Integer.toHexString(checksum) + ", but it was " + Integer.toHexString(checksum(base)));
+			}
+
+			return applyGdiff(base, data);
+		}
+
+		private static int checksum(byte[] data) {
+			final var adler32 = new Adler32();
+			adler32.update(data);
+			return (int) adler32.getValue();
+		}
+	}
+
+	private record EntryTask(String name, IOSupplier supplier) {
+	}
+
+	private record OutputEntry(String name, CompletableFuture<byte[]> data) {
+	}
+
+	@FunctionalInterface
+	private interface IOSupplier {
+		byte[] get() throws IOException;
+	}
+}
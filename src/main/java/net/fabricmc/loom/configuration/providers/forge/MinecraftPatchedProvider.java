@@ -28,8 +28,11 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.Reader;
 import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystem;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -52,6 +55,8 @@ import java.util.stream.Stream;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Stopwatch;
 import de.oceanlabs.mcp.mcinjector.adaptors.ParameterAnnotationFixer;
+import dev.architectury.at.AccessTransformSet;
+import dev.architectury.at.io.AccessTransformFormats;
 import dev.architectury.loom.forge.UserdevConfig;
 import dev.architectury.loom.util.MappingOption;
 import dev.architectury.loom.util.TempFiles;
@@ -68,6 +73,7 @@ import org.objectweb.asm.tree.ClassNode;
 
 import net.fabricmc.loom.LoomGradleExtension;
 import net.fabricmc.loom.build.IntermediaryNamespaces;
+import net.fabricmc.loom.configuration.accesstransformer.AccessTransformerEngine;
 import net.fabricmc.loom.configuration.accesstransformer.AccessTransformerJarProcessor;
 import net.fabricmc.loom.configuration.providers.forge.mcpconfig.McpConfigProvider;
 import net.fabricmc.loom.configuration.providers.forge.mcpconfig.McpExecutor;
@@ -83,10 +89,13 @@ import net.fabricmc.loom.util.ThreadingUtils;
 import net.fabricmc.loom.util.TinyRemapperHelper;
 import net.fabricmc.loom.util.ZipUtils;
 import net.fabricmc.loom.util.function.FsPathConsumer;
+import net.fabricmc.loom.util.gradle.GradleUtils;
 import net.fabricmc.loom.util.service.ScopedSharedServiceManager;
 import net.fabricmc.loom.util.service.SharedServiceManager;
 import net.fabricmc.loom.util.srg.CoreModClassRemapper;
 import net.fabricmc.loom.util.srg.InnerClassRemapper;
+import net.fabricmc.loom.util.telemetry.Span;
+import net.fabricmc.loom.util.telemetry.Telemetry;
 import net.fabricmc.mappingio.tree.MappingTree;
 import net.fabricmc.mappingio.tree.MemoryMappingTree;
 import net.fabricmc.tinyremapper.extension.mixin.MixinExtension;
@@ -251,80 +260,63 @@ public class MinecraftPatchedProvider {
 		return remapper;
 	}
 
-	private void fixParameterAnnotation(Path jarFile) throws Exception {
-		logger.info(":fixing parameter annotations for " + jarFile.toAbsolutePath());
-		Stopwatch stopwatch = Stopwatch.createStarted();
-
-		try (FileSystemUtil.Delegate fs = FileSystemUtil.getJarFileSystem(jarFile, false)) {
-			ThreadingUtils.TaskCompleter completer = ThreadingUtils.taskCompleter();
-
-			for (Path file : (Iterable<? extends Path>) Files.walk(fs.getPath("/"))::iterator) {
-				if (!file.toString().endsWith(".class")) continue;
-
-				completer.add(() -> {
-					byte[] bytes = Files.readAllBytes(file);
-					ClassReader reader = new ClassReader(bytes);
-					ClassNode node = new ClassNode();
-					ClassVisitor visitor = new ParameterAnnotationFixer(node, null);
-					reader.accept(visitor, 0);
+	/**
+	 * Creates the fixups applied to every patched class: deleting the Vignette parameter names,
+	 * and for Forge-like platforms not using official mappings, fixing the parameter annotations.
+	 */
+	private ZipUtils.UnsafeUnaryOperator<byte[]> createClassFixer(boolean fixParameterAnnotations) {
+		Pattern vignetteParameters = Pattern.compile("p_[0-9a-zA-Z]+_(?:[0-9a-zA-Z]+_)?");
+
+		return bytes -> {
+			ClassReader reader = new ClassReader(bytes);
+			ClassNode node = fixParameterAnnotations ? new ClassNode() : null;
+			ClassWriter writer = new ClassWriter(fixParameterAnnotations ? ClassWriter.COMPUTE_MAXS : 0);
+			ClassVisitor next = fixParameterAnnotations ? new ParameterAnnotationFixer(node, null) : writer;
+
+			reader.accept(new ClassVisitor(Opcodes.ASM9, next) {
+				@Override
+				public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+					return new MethodVisitor(Opcodes.ASM9, super.visitMethod(access, name, descriptor, signature, exceptions)) {
+						@Override
+						public void visitParameter(String name, int access) {
+							if (name != null && vignetteParameters.matcher(name).matches()) {
+								super.visitParameter(null, access);
+							} else {
+								super.visitParameter(name, access);
+							}
+						}
 
-					ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
-					node.accept(writer);
-					byte[] out = writer.toByteArray();
+						@Override
+						public void visitLocalVariable(String name, String descriptor, String signature, Label start, Label end, int index) {
+							if (!vignetteParameters.matcher(name).matches()) {
+								super.visitLocalVariable(name, descriptor, signature, start, end, index);
+							}
+						}
+					};
+				}
+			}, 0);
 
-					if (!Arrays.equals(bytes, out)) {
-						Files.delete(file);
-						Files.write(file, out);
-					}
-				});
+			if (node != null) {
+				node.accept(writer);
 			}
 
-			completer.complete();
-		}
-
-		logger.info(":fixed parameter annotations for " + jarFile.toAbsolutePath() + " in " + stopwatch);
+			return writer.toByteArray();
+		};
 	}
 
-	private void deleteParameterNames(Path jarFile) throws Exception {
-		logger.info(":deleting parameter names for " + jarFile.toAbsolutePath());
+	protected void transformClasses(Path jarFile, ZipUtils.UnsafeUnaryOperator<byte[]> transformer) throws Exception {
+		logger.info(":transforming classes for " + jarFile.toAbsolutePath());
 		Stopwatch stopwatch = Stopwatch.createStarted();
 
 		try (FileSystemUtil.Delegate fs = FileSystemUtil.getJarFileSystem(jarFile, false)) {
 			ThreadingUtils.TaskCompleter completer = ThreadingUtils.taskCompleter();
-			Pattern vignetteParameters = Pattern.compile("p_[0-9a-zA-Z]+_(?:[0-9a-zA-Z]+_)?");
 
 			for (Path file : (Iterable<? extends Path>) Files.walk(fs.getPath("/"))::iterator) {
 				if (!file.toString().endsWith(".class")) continue;
 
 				completer.add(() -> {
 					byte[] bytes = Files.readAllBytes(file);
-					ClassReader reader = new ClassReader(bytes);
-					ClassWriter writer = new ClassWriter(0);
-
-					reader.accept(new ClassVisitor(Opcodes.ASM9, writer) {
-						@Override
-						public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
-							return new MethodVisitor(Opcodes.ASM9, super.visitMethod(access, name, descriptor, signature, exceptions)) {
-								@Override
-								public void visitParameter(String name, int access) {
-									if (name != null && vignetteParameters.matcher(name).matches()) {
-										super.visitParameter(null, access);
-									} else {
-										super.visitParameter(name, access);
-									}
-								}
-
-								@Override
-								public void visitLocalVariable(String name, String descriptor, String signature, Label start, Label end, int index) {
-									if (!vignetteParameters.matcher(name).matches()) {
-										super.visitLocalVariable(name, descriptor, signature, start, end, index);
-									}
-								}
-							};
-						}
-					}, 0);
-
-					byte[] out = writer.toByteArray();
+					byte[] out = transformer.apply(bytes);
 
 					if (!Arrays.equals(bytes, out)) {
 						Files.delete(file);
@@ -336,7 +328,7 @@ public class MinecraftPatchedProvider {
 			completer.complete();
 		}
 
-		logger.info(":deleted parameter names for " + jarFile.toAbsolutePath() + " in " + stopwatch);
+		logger.info(":transformed classes for " + jarFile.toAbsolutePath() + " in " + stopwatch);
 	}
 
 	private File getForgeJar() {
@@ -390,19 +382,40 @@ public class MinecraftPatchedProvider {
 
 		Files.deleteIfExists(target);
 
-		try (var tempFiles = new TempFiles()) {
-			AccessTransformerJarProcessor.executeAt(project, input, target, args -> {
+		try (Span span = Telemetry.span("accessTransform");
+				var tempFiles = new TempFiles()) {
+			span.bytesRead(Files.size(input));
+			final boolean inProcess = !GradleUtils.getBooleanProperty(project, Constants.Properties.DISABLE_IN_PROCESS_ACCESS_TRANSFORMERS);
+			span.attribute("inProcess", inProcess);
+
+			if (inProcess) {
+				final AccessTransformSet accessTransformSet = AccessTransformSet.create();
+
 				for (Path jar : atSources) {
 					byte[] atBytes = ZipUtils.unpackNullable(jar, Constants.Forge.ACCESS_TRANSFORMER_PATH);
 
 					if (atBytes != null) {
-						Path tmpFile = tempFiles.file("at-conf", ".cfg");
-						Files.write(tmpFile, atBytes, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-						args.add("--atFile");
-						args.add(tmpFile.toAbsolutePath().toString());
+						try (Reader reader = new InputStreamReader(new ByteArrayInputStream(atBytes), StandardCharsets.UTF_8)) {
+							accessTransformSet.merge(AccessTransformFormats.FML.read(reader));
+						}
 					}
 				}
-			});
+
+				AccessTransformerEngine.create(accessTransformSet).transformJar(input, target);
+			} else {
+				AccessTransformerJarProcessor.executeAt(project, input, target, args -> {
+					for (Path jar : atSources) {
+						byte[] atBytes = ZipUtils.unpackNullable(jar, Constants.Forge.ACCESS_TRANSFORMER_PATH);
+
+						if (atBytes != null) {
+							Path tmpFile = tempFiles.file("at-conf", ".cfg");
+							Files.write(tmpFile, atBytes, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+							args.add("--atFile");
+							args.add(tmpFile.toAbsolutePath().toString());
+						}
+					}
+				});
+			}
 		}
 
 		project.getLogger().lifecycle(":access transformed minecraft in " + stopwatch.stop());
@@ -449,18 +462,49 @@ public class MinecraftPatchedProvider {
 	private void patchJars() throws Exception {
 		Stopwatch stopwatch = Stopwatch.createStarted();
 		logger.lifecycle(":patching jars");
-		patchJars(minecraftIntermediateJar, minecraftPatchedIntermediateJar, type.patches.apply(getExtension().getPatchProvider(), getExtension().getForgeUserdevProvider()));
 
-		copyMissingClasses(minecraftIntermediateJar, minecraftPatchedIntermediateJar);
-		deleteParameterNames(minecraftPatchedIntermediateJar);
+		try (Span span = Telemetry.span("patchJars")) {
+			span.bytesRead(Files.size(minecraftIntermediateJar));
+			Path patches = type.patches.apply(getExtension().getPatchProvider(), getExtension().getForgeUserdevProvider());
+			ZipUtils.UnsafeUnaryOperator<byte[]> classFixer = createClassFixer(getExtension().isForgeLikeAndNotOfficial());
+			boolean inProcess = patchJarsInProcess(minecraftIntermediateJar, minecraftPatchedIntermediateJar, patches, false, classFixer);
+			span.attribute("inProcess", inProcess);
+
+			if (!inProcess) {
+				patchJars(minecraftIntermediateJar, minecraftPatchedIntermediateJar, patches);
+				copyMissingClasses(minecraftIntermediateJar, minecraftPatchedIntermediateJar);
+				transformClasses(minecraftPatchedIntermediateJar, classFixer);
+			}
 
-		if (getExtension().isForgeLikeAndNotOfficial()) {
-			fixParameterAnnotation(minecraftPatchedIntermediateJar);
+			span.bytesWritten(Files.size(minecraftPatchedIntermediateJar));
 		}
 
 		logger.lifecycle(":patched jars in " + stopwatch.stop());
 	}
 
+	/**
+	 * Applies the binary patches in process, copying the unpatched classes and transforming every class in the same jar write.
+	 *
+	 * @param keepData whether to also copy the non-class files of the clean jar
+	 * @return {@code false} if the patches need to be applied by forking the binpatcher instead
+	 */
+	protected boolean patchJarsInProcess(Path clean, Path output, Path patches, boolean keepData, ZipUtils.UnsafeUnaryOperator<byte[]> classTransformer) throws IOException {
+		if (GradleUtils.getBooleanProperty(project, Constants.Properties.DISABLE_IN_PROCESS_BINPATCHER)) {
+			return false;
+		}
+
+		UserdevConfig.BinaryPatcherConfig config = getExtension().getForgeUserdevProvider().getConfig().binpatcher();
+		BinaryPatcher.Options options = BinaryPatcher.Options.parse(config.args());
+
+		if (options == null) {
+			logger.info(":binpatcher arguments {} are not supported in process, forking {}", config.args(), config.dependency());
+			return false;
+		}
+
+		BinaryPatcher.patchJar(clean, output, patches, options.withKeepData(keepData).withKeepUnpatched(true), classTransformer);
+		return true;
+	}
+
 	protected void patchJars(Path clean, Path output, Path patches) throws Exception {
 		ForgeToolExecutor.exec(project, spec -> {
 			UserdevConfig.BinaryPatcherConfig config = getExtension().getForgeUserdevProvider().getConfig().binpatcher();
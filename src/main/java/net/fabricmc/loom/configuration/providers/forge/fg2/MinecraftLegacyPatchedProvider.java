@@ -280,14 +280,19 @@ public class MinecraftLegacyPatchedProvider extends MinecraftPatchedProvider {
 
 	@Override
 	protected void patchJars(Path clean, Path output, Path patches) throws Exception {
+		// Workaround Forge patches apparently violating the JVM spec (see ParameterAnnotationsFixer for details)
+		ZipUtils.UnsafeUnaryOperator<byte[]> classFixer = classModifier(ParameterAnnotationsFixer::new);
+
+		if (patchJarsInProcess(clean, output, patches, true, classFixer)) {
+			return;
+		}
+
 		super.patchJars(clean, output, patches);
 
 		// Patching only preserves affected classes, everything else we need to copy manually
 		copyMissingClasses(clean, output);
 		walkFileSystems(clean, output, file -> !file.toString().endsWith(".class"), this::copyReplacing);
-
-		// Workaround Forge patches apparently violating the JVM spec (see ParameterAnnotationsFixer for details)
-		modifyClasses(output, ParameterAnnotationsFixer::new);
+		transformClasses(output, classFixer);
 	}
 
 	private void mergeJars() throws Exception {
@@ -324,6 +329,8 @@ public class MinecraftLegacyPatchedProvider extends MinecraftPatchedProvider {
 	}
 
 	private void modifyClasses(Path jarFile, Function<ClassVisitor, ClassVisitor> func) throws Exception {
+		ZipUtils.UnsafeUnaryOperator<byte[]> modifier = classModifier(func);
+
 		try (FileSystemUtil.Delegate fs = FileSystemUtil.getJarFileSystem(jarFile, false)) {
 			ThreadingUtils.TaskCompleter completer = ThreadingUtils.taskCompleter();
 
@@ -332,12 +339,7 @@ public class MinecraftLegacyPatchedProvider extends MinecraftPatchedProvider {
 
 				completer.add(() -> {
 					byte[] original = Files.readAllBytes(file);
-
-					ClassReader reader = new ClassReader(original);
-					ClassWriter writer = new ClassWriter(reader, 0);
-					reader.accept(func.apply(writer), 0);
-
-					byte[] modified = writer.toByteArray();
+					byte[] modified = modifier.apply(original);
 
 					if (!Arrays.equals(original, modified)) {
 						Files.write(file, modified, StandardOpenOption.TRUNCATE_EXISTING);
@@ -349,6 +351,15 @@ public class MinecraftLegacyPatchedProvider extends MinecraftPatchedProvider {
 		}
 	}
 
+	private static ZipUtils.UnsafeUnaryOperator<byte[]> classModifier(Function<ClassVisitor, ClassVisitor> func) {
+		return original -> {
+			ClassReader reader = new ClassReader(original);
+			ClassWriter writer = new ClassWriter(reader, 0);
+			reader.accept(func.apply(writer), 0);
+			return writer.toByteArray();
+		};
+	}
+
 	@Override
 	public Path getMinecraftIntermediateJar() {
 		throw new UnsupportedOperationException();
@@ -30,6 +30,7 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
@@ -88,21 +89,33 @@ public final class DependencySet {
 			McpConfigStep data = allSteps.get(step);
 			if (!allSteps.containsKey(step) || skipRules.stream().anyMatch(rule -> rule.test(data))) continue;
 			steps.add(step);
+			queue.addAll(getDependencies(data));
+		}
 
-			if (!ignoreDependenciesFilter.test(allSteps.get(step))) {
-				allSteps.get(step).config().values().forEach(value -> {
-					if (value instanceof ConfigValue.Variable var) {
-						String name = var.name();
+		return steps;
+	}
 
-						if (name.endsWith(PREVIOUS_OUTPUT_SUFFIX) && name.length() > PREVIOUS_OUTPUT_SUFFIX.length()) {
-							String substep = name.substring(0, name.length() - PREVIOUS_OUTPUT_SUFFIX.length());
-							queue.offer(substep);
-						}
+	/**
+	 * Gets the names of the steps whose output the step uses.
+	 *
+	 * @param step the step
+	 * @return the names of the steps it depends on, in config order
+	 */
+	public Set<String> getDependencies(McpConfigStep step) {
+		Set<String> dependencies = new LinkedHashSet<>();
+
+		if (!ignoreDependenciesFilter.test(step)) {
+			step.config().values().forEach(value -> {
+				if (value instanceof ConfigValue.Variable var) {
+					String name = var.name();
+
+					if (name.endsWith(PREVIOUS_OUTPUT_SUFFIX) && name.length() > PREVIOUS_OUTPUT_SUFFIX.length()) {
+						dependencies.add(name.substring(0, name.length() - PREVIOUS_OUTPUT_SUFFIX.length()));
 					}
-				});
-			}
+				}
+			});
 		}
 
-		return steps;
+		return dependencies;
 	}
 }
@@ -27,18 +27,32 @@ package net.fabricmc.loom.configuration.providers.forge.mcpconfig;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.google.common.base.Stopwatch;
 import com.google.common.hash.Hashing;
@@ -71,6 +85,9 @@ import net.fabricmc.loom.util.ForgeToolExecutor;
 import net.fabricmc.loom.util.download.DownloadBuilder;
 import net.fabricmc.loom.util.function.CollectionUtil;
 import net.fabricmc.loom.util.gradle.GradleUtils;
+import net.fabricmc.loom.util.service.SharedExecutorService;
+import net.fabricmc.loom.util.telemetry.Span;
+import net.fabricmc.loom.util.telemetry.Telemetry;
 
 public final class McpExecutor {
 	private static final LogLevel STEP_LOG_LEVEL = LogLevel.LIFECYCLE;
@@ -81,7 +98,9 @@ public final class McpExecutor {
 	private final DependencySet dependencySet;
 	private final Map<String, McpConfigFunction> functions;
 	private final Map<String, String> config = new HashMap<>();
-	private final Map<String, String> extraConfig = new HashMap<>();
+	private final Map<String, String> extraConfig = new ConcurrentHashMap<>();
+	private final BlockingQueue<Runnable> gradleThreadTasks = new LinkedBlockingQueue<>();
+	private volatile @Nullable Thread gradleThread;
 	private @Nullable StepLogic.Provider stepLogicProvider = null;
 
 	public McpExecutor(Project project, MinecraftProvider minecraftProvider, Path cache, McpConfigProvider provider, String environment) {
@@ -171,7 +190,7 @@ public final class McpExecutor {
 		return stepCache;
 	}
 
-	private String resolve(McpConfigStep step, ConfigValue value) {
+	private String resolve(McpConfigStep step, @Nullable String output, ConfigValue value) {
 		return value.resolve(variable -> {
 			String name = variable.name();
 			@Nullable ConfigValue valueFromStep = step.config().get(name);
@@ -180,15 +199,22 @@ public final class McpExecutor {
 			// Also skip if it would recurse with the same variable.
 			if (valueFromStep != null && !valueFromStep.equals(variable)) {
 				// Otherwise, resolve the nested variable.
-				return resolve(step, valueFromStep);
+				return resolve(step, output, valueFromStep);
 			}
 
 			if (config.containsKey(name)) {
 				return config.get(name);
+			} else if (name.equals(ConfigValue.OUTPUT) && output != null) {
+				return output;
 			} else if (extraConfig.containsKey(name)) {
 				return extraConfig.get(name);
 			} else if (name.equals(ConfigValue.LOG)) {
-				return cache.resolve("log.log").toAbsolutePath().toString();
+				// Each step has its own log, since independent steps can run at the same time
+				try {
+					return createStepCache(step.name()).resolve("log.log").toAbsolutePath().toString();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
 			}
 
 			throw new IllegalArgumentException("Unknown MCP config variable: " + name);
@@ -226,30 +252,146 @@ public final class McpExecutor {
 	}
 
 	/**
-	 * Executes the specified steps.
+	 * Executes the specified steps. Steps that don't depend on each other's output are executed at the same time,
+	 * unless {@value Constants.Properties#DISABLE_PARALLEL_MCP_STEPS} is set.
 	 *
-	 * @param steps the steps to execute
-	 * @return the output file of the last executed step
+	 * @param steps the steps to execute, each step must come after the steps it depends on
+	 * @return the output file of the last step
 	 */
 	public Path executeSteps(List<McpConfigStep> steps) throws IOException {
 		extraConfig.clear();
 
-		int totalSteps = steps.size();
-		int currentStepIndex = 0;
+		StepCounter counter = new StepCounter(steps.size());
+		@Nullable McpStepCache stepCache = McpStepCache.create(project);
 
-		project.getLogger().log(STEP_LOG_LEVEL, ":executing {} MCP steps", totalSteps);
+		project.getLogger().log(STEP_LOG_LEVEL, ":executing {} MCP steps", steps.size());
 
-		for (McpConfigStep currentStep : steps) {
-			currentStepIndex++;
-			StepLogic stepLogic = getStepLogic(currentStep.name(), currentStep.type());
-			project.getLogger().log(STEP_LOG_LEVEL, ":step {}/{} - {}", currentStepIndex, totalSteps, stepLogic.getDisplayName(currentStep.name()));
+		if (steps.size() > 1 && !GradleUtils.getBooleanProperty(project, Constants.Properties.DISABLE_PARALLEL_MCP_STEPS)) {
+			executeStepsParallel(steps, counter, stepCache);
+		} else {
+			for (McpConfigStep step : steps) {
+				executeStep(step, counter, stepCache);
+			}
+		}
 
-			Stopwatch stopwatch = Stopwatch.createStarted();
-			stepLogic.execute(new ExecutionContextImpl(currentStep));
-			project.getLogger().log(STEP_LOG_LEVEL, ":{} done in {}", currentStep.name(), stopwatch.stop());
+		return Path.of(extraConfig.get(steps.get(steps.size() - 1).name() + ConfigValue.PREVIOUS_OUTPUT_SUFFIX));
+	}
+
+	private void executeStepsParallel(List<McpConfigStep> steps, StepCounter counter, @Nullable McpStepCache stepCache) throws IOException {
+		Map<String, CompletableFuture<Void>> futures = new LinkedHashMap<>();
+		List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+
+		for (McpConfigStep step : steps) {
+			CompletableFuture<?>[] dependencies = dependencySet.getDependencies(step).stream()
+					.map(futures::get)
+					.filter(Objects::nonNull)
+					.toArray(CompletableFuture[]::new);
+
+			// A step is only started once all of its dependencies have succeeded
+			futures.put(step.name(), CompletableFuture.allOf(dependencies).thenRunAsync(() -> {
+				try {
+					executeStep(step, counter, stepCache);
+				} catch (Throwable t) {
+					failures.add(t);
+					throw new CompletionException(t);
+				}
+			}, SharedExecutorService.get().io()));
 		}
 
-		return Path.of(extraConfig.get(ConfigValue.OUTPUT));
+		CompletableFuture<Void> all = CompletableFuture.allOf(futures.values().toArray(CompletableFuture[]::new));
+		gradleThread = Thread.currentThread();
+
+		try {
+			// Wake up the loop below once every step has completed
+			all.whenComplete((result, throwable) -> gradleThreadTasks.add(() -> { }));
+
+			while (!all.isDone()) {
+				gradleThreadTasks.take().run();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while executing MCP steps", e);
+		} finally {
+			gradleThread = null;
+		}
+
+		if (!failures.isEmpty()) {
+			Throwable failure = failures.get(0);
+
+			for (Throwable other : failures.subList(1, failures.size())) {
+				failure.addSuppressed(other);
+			}
+
+			if (failure instanceof IOException e) {
+				throw e;
+			} else if (failure instanceof RuntimeException e) {
+				throw e;
+			} else if (failure instanceof Error e) {
+				throw e;
+			}
+
+			throw new RuntimeException(failure);
+		}
+	}
+
+	private void executeStep(McpConfigStep step, StepCounter counter, @Nullable McpStepCache stepCache) throws IOException {
+		StepLogic stepLogic = getStepLogic(step.name(), step.type());
+		project.getLogger().log(STEP_LOG_LEVEL, ":step {}/{} - {}", counter.next(), counter.total(), stepLogic.getDisplayName(step.name()));
+
+		Stopwatch stopwatch = Stopwatch.createStarted();
+
+		try (Span span = Telemetry.span("mcpStep")) {
+			span.attribute("step", step.name());
+			span.attribute("type", step.type());
+
+			ExecutionContextImpl context = new ExecutionContextImpl(step);
+			@Nullable String cacheKey = stepCache != null ? stepCache.getKey(step, stepLogic, context) : null;
+			@Nullable Path cached = cacheKey != null ? stepCache.get(cacheKey) : null;
+
+			if (cached != null) {
+				span.cacheHit();
+				Files.copy(cached, context.setOutput(cached.getFileName().toString()), StandardCopyOption.REPLACE_EXISTING);
+				project.getLogger().log(STEP_LOG_LEVEL, ":{} restored from cache in {}", step.name(), stopwatch.stop());
+				return;
+			} else if (cacheKey != null) {
+				span.cacheMiss();
+			}
+
+			stepLogic.execute(context);
+
+			if (cacheKey != null && context.output != null && Files.isRegularFile(context.output) && context.output.startsWith(getStepCache(step.name()).toAbsolutePath())) {
+				stepCache.put(cacheKey, context.output);
+			}
+		}
+
+		project.getLogger().log(STEP_LOG_LEVEL, ":{} done in {}", step.name(), stopwatch.stop());
+	}
+
+	/**
+	 * Runs an action that uses the Gradle project model, such as resolving a configuration,
+	 * on the thread executing the steps instead of the step's own thread.
+	 */
+	private <T> T onGradleThread(Callable<T> action) {
+		@Nullable Thread thread = gradleThread;
+
+		try {
+			if (thread == null || thread == Thread.currentThread()) {
+				return action.call();
+			}
+
+			FutureTask<T> task = new FutureTask<>(action);
+			gradleThreadTasks.add(task);
+			return task.get();
+		} catch (ExecutionException e) {
+			throw e.getCause() instanceof RuntimeException re ? re : new RuntimeException(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
 	}
 
 	/**
@@ -287,8 +429,26 @@ public final class McpExecutor {
 		};
 	}
 
+	private static final class StepCounter {
+		private final AtomicInteger started = new AtomicInteger();
+		private final int total;
+
+		StepCounter(int total) {
+			this.total = total;
+		}
+
+		int next() {
+			return started.incrementAndGet();
+		}
+
+		int total() {
+			return total;
+		}
+	}
+
 	private class ExecutionContextImpl implements StepLogic.ExecutionContext {
 		private final McpConfigStep step;
+		private @Nullable Path output;
 
 		ExecutionContextImpl(McpConfigStep step) {
 			this.step = step;
@@ -306,9 +466,8 @@ public final class McpExecutor {
 
 		@Override
 		public Path setOutput(Path output) {
-			String absolutePath = output.toAbsolutePath().toString();
-			extraConfig.put(ConfigValue.OUTPUT, absolutePath);
-			extraConfig.put(step.name() + ConfigValue.PREVIOUS_OUTPUT_SUFFIX, absolutePath);
+			this.output = output.toAbsolutePath();
+			extraConfig.put(step.name() + ConfigValue.PREVIOUS_OUTPUT_SUFFIX, this.output.toString());
 			return output;
 		}
 
@@ -324,22 +483,36 @@ public final class McpExecutor {
 
 		@Override
 		public String resolve(ConfigValue value) {
-			return McpExecutor.this.resolve(step, value);
+			return McpExecutor.this.resolve(step, output != null ? output.toString() : null, value);
 		}
 
 		@Override
 		public Path downloadFile(String url) throws IOException {
 			Path path = getDownloadCache().resolve(Hashing.sha256().hashString(url, StandardCharsets.UTF_8).toString().substring(0, 24));
-			redirectAwareDownload(url, path);
+
+			if (Files.notExists(path)) {
+				// Download to a temporary file first, as steps running at the same time may download the same file
+				Path temp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+
+				try {
+					redirectAwareDownload(url, temp);
+					Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+				} finally {
+					Files.deleteIfExists(temp);
+				}
+			}
+
 			return path;
 		}
 
 		@Override
 		public Path downloadDependency(String notation) {
-			final Dependency dependency = project.getDependencies().create(notation);
-			final Configuration configuration = project.getConfigurations().detachedConfiguration(dependency);
-			configuration.setTransitive(false);
-			return configuration.getSingleFile().toPath();
+			return onGradleThread(() -> {
+				final Dependency dependency = project.getDependencies().create(notation);
+				final Configuration configuration = project.getConfigurations().detachedConfiguration(dependency);
+				configuration.setTransitive(false);
+				return configuration.getSingleFile().toPath();
+			});
 		}
 
 		@Override
@@ -362,20 +535,22 @@ public final class McpExecutor {
 				redirectAwareDownload(connection.getHeaderField("Location"), path);
 			} else {
 				try (InputStream in = connection.getInputStream()) {
-					Files.copy(in, path);
+					Files.copy(in, path, StandardCopyOption.REPLACE_EXISTING);
 				}
 			}
 		}
 
 		@Override
 		public void javaexec(Action<? super JavaExecSpec> configurator) {
-			ForgeToolExecutor.exec(project, configurator).rethrowFailure().assertNormalExitValue();
+			// Only the settings are resolved on the Gradle thread, so that steps running at the same time can still execute their tools in parallel
+			final ForgeToolExecutor.Prepared executor = onGradleThread(() -> ForgeToolExecutor.prepare(project));
+			executor.exec(configurator).rethrowFailure().assertNormalExitValue();
 		}
 
 		@Override
 		public Set<File> getMinecraftLibraries() {
 			// (1.2) minecraftRuntimeLibraries contains the compile-time libraries as well.
-			return project.getConfigurations().getByName(Constants.Configurations.MINECRAFT_RUNTIME_LIBRARIES).resolve();
+			return onGradleThread(() -> project.getConfigurations().getByName(Constants.Configurations.MINECRAFT_RUNTIME_LIBRARIES).resolve());
 		}
 	}
 }
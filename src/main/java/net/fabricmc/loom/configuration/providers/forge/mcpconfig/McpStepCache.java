@@ -0,0 +1,265 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.configuration.providers.forge.mcpconfig;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.Project;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.fabricmc.loom.LoomGradleExtension;
+import net.fabricmc.loom.LoomGradlePlugin;
+import net.fabricmc.loom.configuration.providers.forge.ConfigValue;
+import net.fabricmc.loom.configuration.providers.forge.mcpconfig.steplogic.StepLogic;
+import net.fabricmc.loom.util.Checksum;
+import net.fabricmc.loom.util.Constants;
+import net.fabricmc.loom.util.gradle.GradleUtils;
+
+/**
+ * A cache of MCP step outputs in the Gradle user home, keyed by the step type and the contents of its inputs.
+ *
+ * <p>The MCP steps run in a new temporary directory every time, so without this cache every project
+ * on the same MCPConfig version would run the slow {@code rename}, {@code decompile} and {@code inject} steps again.
+ *
+ * <p>Entries are touched when they are restored, and the entries that have not been used for {@link #MAX_AGE} are deleted when new ones are stored.
+ */
+public final class McpStepCache {
+	private static final Logger LOGGER = LoggerFactory.getLogger(McpStepCache.class);
+	// Bump when a step changes in a way that changes its output.
+	private static final int VERSION = 1;
+	private static final Duration MAX_AGE = Duration.ofDays(30);
+	// Looking for old entries lists the whole cache, so only do it once a day
+	private static final Duration PRUNE_INTERVAL = Duration.ofDays(1);
+	private static final String LAST_PRUNE_FILE = ".last-prune";
+
+	private final Path root;
+
+	public McpStepCache(Path root) {
+		this.root = root;
+	}
+
+	/**
+	 * @return the cache, or null when it has been disabled or the dependencies are being refreshed
+	 */
+	@Nullable
+	public static McpStepCache create(Project project) {
+		final LoomGradleExtension extension = LoomGradleExtension.get(project);
+
+		if (extension.refreshDeps() || GradleUtils.getBooleanProperty(project, Constants.Properties.DISABLE_GLOBAL_MCP_STEP_CACHE)) {
+			return null;
+		}
+
+		return new McpStepCache(extension.getFiles().getGlobalMcpStepCache().toPath());
+	}
+
+	/**
+	 * Computes the cache key of a step.
+	 *
+	 * @return the key, or null if the output of the step can't be cached
+	 */
+	public @Nullable String getKey(McpConfigStep step, StepLogic logic, StepLogic.ExecutionContext context) throws IOException {
+		final var hasher = new InputHasherImpl(context);
+		hasher.putString(Integer.toString(VERSION));
+		hasher.putString(LoomGradlePlugin.LOOM_VERSION);
+		hasher.putString(step.type());
+		hasher.putString(logic.getClass().getName());
+
+		if (!logic.hashInputs(hasher)) {
+			return null;
+		}
+
+		return hasher.hasher.hash().toString();
+	}
+
+	/**
+	 * @return the cached output of the step, or null if it hasn't been cached
+	 */
+	public @Nullable Path get(String key) throws IOException {
+		final Path entry = getEntryPath(key);
+
+		if (!Files.isDirectory(entry)) {
+			return null;
+		}
+
+		final List<Path> files;
+
+		try (Stream<Path> stream = Files.list(entry)) {
+			files = stream.toList();
+		}
+
+		if (files.size() != 1) {
+			return null;
+		}
+
+		// Record the last use, so old entries can be found and removed
+		Files.setLastModifiedTime(entry, FileTime.from(Instant.now()));
+		return files.get(0);
+	}
+
+	/**
+	 * Stores the output file of a step, keeping its file name.
+	 */
+	public void put(String key, Path output) throws IOException {
+		final Path entry = getEntryPath(key);
+		Files.createDirectories(entry.getParent());
+		final Path temp = Files.createTempDirectory(entry.getParent(), key);
+
+		try {
+			Files.copy(output, temp.resolve(output.getFileName().toString()));
+			Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE);
+		} catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+			// Another build stored the same output first
+		} finally {
+			if (Files.exists(temp)) {
+				FileUtils.deleteDirectory(temp.toFile());
+			}
+		}
+
+		prune();
+	}
+
+	/**
+	 * Deletes the entries that have not been used for {@link #MAX_AGE}, at most once every {@link #PRUNE_INTERVAL}.
+	 */
+	void prune() throws IOException {
+		if (!Files.isDirectory(root)) {
+			return;
+		}
+
+		final Path lastPrune = root.resolve(LAST_PRUNE_FILE);
+		final Instant now = Instant.now();
+
+		if (Files.exists(lastPrune) && Files.getLastModifiedTime(lastPrune).toInstant().isAfter(now.minus(PRUNE_INTERVAL))) {
+			return;
+		}
+
+		Files.write(lastPrune, new byte[0]);
+		final FileTime oldest = FileTime.from(now.minus(MAX_AGE));
+
+		try (Stream<Path> directories = Files.list(root)) {
+			for (Path directory : (Iterable<Path>) directories::iterator) {
+				if (!Files.isDirectory(directory)) {
+					continue;
+				}
+
+				try (Stream<Path> entries = Files.list(directory)) {
+					for (Path entry : (Iterable<Path>) entries::iterator) {
+						try {
+							if (Files.getLastModifiedTime(entry).compareTo(oldest) < 0) {
+								FileUtils.deleteDirectory(entry.toFile());
+							}
+						} catch (IOException e) {
+							LOGGER.debug("Failed to delete old MCP step output {}", entry, e);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private Path getEntryPath(String key) {
+		return root.resolve(key.substring(0, 2)).resolve(key);
+	}
+
+	private static final class InputHasherImpl implements StepLogic.InputHasher {
+		private final StepLogic.ExecutionContext context;
+		private final Hasher hasher = Hashing.sha256().newHasher();
+
+		InputHasherImpl(StepLogic.ExecutionContext context) {
+			this.context = context;
+		}
+
+		@Override
+		public StepLogic.ExecutionContext context() {
+			return context;
+		}
+
+		@Override
+		public void putString(String value) {
+			hasher.putString(value, StandardCharsets.UTF_8).putByte((byte) 0);
+		}
+
+		@Override
+		public void putFile(Path file) throws IOException {
+			if (Files.isDirectory(file)) {
+				final List<Path> files;
+
+				try (Stream<Path> stream = Files.walk(file)) {
+					files = stream.filter(Files::isRegularFile).sorted().toList();
+				}
+
+				putString("directory");
+
+				for (Path child : files) {
+					putString(file.relativize(child).toString().replace(child.getFileSystem().getSeparator(), "/"));
+					putString(Checksum.sha256HexMemoized(child));
+				}
+			} else {
+				putString(Checksum.sha256HexMemoized(file));
+			}
+		}
+
+		@Override
+		public void putValue(ConfigValue value) throws IOException {
+			if (value instanceof ConfigValue.Variable variable && (variable.name().equals(ConfigValue.OUTPUT) || variable.name().equals(ConfigValue.LOG))) {
+				// These are different for every execution, but don't change the output
+				putString("{" + variable.name() + "}");
+				return;
+			}
+
+			final String resolved = context.resolve(value);
+			@Nullable Path path;
+
+			try {
+				path = Path.of(resolved);
+			} catch (InvalidPathException e) {
+				path = null;
+			}
+
+			if (path != null && path.isAbsolute() && Files.exists(path)) {
+				putFile(path);
+			} else {
+				putString(resolved);
+			}
+		}
+	}
+}
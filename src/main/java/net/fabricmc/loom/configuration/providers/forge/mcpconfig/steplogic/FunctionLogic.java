@@ -29,6 +29,8 @@ import java.nio.file.Path;
 import java.util.jar.Attributes;
 import java.util.jar.JarFile;
 
+import org.jetbrains.annotations.Nullable;
+
 import net.fabricmc.loom.configuration.providers.forge.mcpconfig.McpConfigFunction;
 
 /**
@@ -36,6 +38,7 @@ import net.fabricmc.loom.configuration.providers.forge.mcpconfig.McpConfigFuncti
  */
 public final class FunctionLogic implements StepLogic {
 	private final McpConfigFunction function;
+	private @Nullable Path jar;
 
 	public FunctionLogic(McpConfigFunction function) {
 		this.function = function;
@@ -47,7 +50,7 @@ public final class FunctionLogic implements StepLogic {
 		// The other tools seem to work with the name containing .jar anyway.
 		// Technically, FG supports an "outputExtension" config value for steps, but it's not used in practice.
 		context.setOutput("output.jar");
-		Path jar = function.download(context);
+		Path jar = download(context);
 		String mainClass;
 
 		try (JarFile jarFile = new JarFile(jar.toFile())) {
@@ -64,6 +67,23 @@ public final class FunctionLogic implements StepLogic {
 		});
 	}
 
+	@Override
+	public boolean hashInputs(InputHasher hasher) throws IOException {
+		hasher.putString(function.version());
+		hasher.putFile(download(hasher.context()));
+		hasher.putValues(function.args());
+		hasher.putValues(function.jvmArgs());
+		return true;
+	}
+
+	private Path download(ExecutionContext context) throws IOException {
+		if (jar == null) {
+			jar = function.download(context);
+		}
+
+		return jar;
+	}
+
 	@Override
 	public String getDisplayName(String stepName) {
 		return stepName + " with " + function.version();
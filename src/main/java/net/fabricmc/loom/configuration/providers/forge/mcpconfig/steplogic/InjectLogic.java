@@ -63,4 +63,11 @@ public final class InjectLogic implements StepLogic {
 			}
 		}
 	}
+
+	@Override
+	public boolean hashInputs(InputHasher hasher) throws IOException {
+		hasher.putValue(new ConfigValue.Variable("inject"));
+		hasher.putValue(new ConfigValue.Variable("input"));
+		return true;
+	}
 }
@@ -57,4 +57,11 @@ public final class PatchLogic implements StepLogic {
 			throw new RuntimeException("Could not patch " + input + "; rejects saved to " + rejects.toAbsolutePath());
 		}
 	}
+
+	@Override
+	public boolean hashInputs(InputHasher hasher) throws IOException {
+		hasher.putValue(new ConfigValue.Variable("input"));
+		hasher.putValue(new ConfigValue.Variable("patches"));
+		return true;
+	}
 }
@@ -53,6 +53,16 @@ public interface StepLogic {
 		return false;
 	}
 
+	/**
+	 * Adds everything the output of this step depends on to its cache key, besides the step type.
+	 * Steps whose output can't be reused across executions return {@code false}, which is the default.
+	 *
+	 * @return whether the output of this step can be cached
+	 */
+	default boolean hashInputs(InputHasher hasher) throws IOException {
+		return false;
+	}
+
 	interface ExecutionContext {
 		Logger logger();
 		Path setOutput(String fileName) throws IOException;
@@ -72,6 +82,24 @@ public interface StepLogic {
 		}
 	}
 
+	interface InputHasher {
+		ExecutionContext context();
+		void putString(String value);
+		void putFile(Path file) throws IOException;
+
+		/**
+		 * Adds a config value. Values resolving to files or directories are hashed by their contents,
+		 * and the {@code output} and {@code log} variables by their names.
+		 */
+		void putValue(ConfigValue value) throws IOException;
+
+		default void putValues(List<ConfigValue> values) throws IOException {
+			for (ConfigValue value : values) {
+				putValue(value);
+			}
+		}
+	}
+
 	@FunctionalInterface
 	interface Provider {
 		Optional<StepLogic> getStepLogic(String name, String type);
@@ -80,6 +80,13 @@ public final class StripLogic implements StepLogic {
 		}
 	}
 
+	@Override
+	public boolean hashInputs(InputHasher hasher) throws IOException {
+		hasher.putValue(new ConfigValue.Variable("input"));
+		hasher.putFile(hasher.context().mappings());
+		return true;
+	}
+
 	private static String trimLeadingSlash(String string) {
 		if (string.startsWith(File.separator)) {
 			return string.substring(File.separator.length());
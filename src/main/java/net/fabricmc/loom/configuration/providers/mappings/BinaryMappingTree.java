@@ -0,0 +1,533 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.configuration.providers.mappings;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jetbrains.annotations.Nullable;
+
+import net.fabricmc.loom.util.Checksum;
+import net.fabricmc.mappingio.tree.MappingTreeView;
+
+/**
+ * A read only, compact view of a mapping tree, written once from a parsed {@link MappingTreeView}.
+ *
+ * <p>All names and descriptors are interned into a single string pool and every element stores one string id per namespace,
+ * so reading the mappings does not need to build the object graph of a {@link net.fabricmc.mappingio.tree.MemoryMappingTree}.
+ * Strings are only decoded when they are asked for. Comments are not stored, use the full tree when they are needed.
+ * The file is read into the heap rather than memory mapped, so it can be replaced or deleted while the mappings are in use, including on Windows.
+ *
+ * <p>Namespace ids match mapping-io: the source namespace is {@link MappingTreeView#SRC_NAMESPACE_ID}
+ * and the destination namespaces start at 0.
+ */
+public final class BinaryMappingTree {
+	private static final int MAGIC = 0x4C4D5442; // LMTB
+	private static final int VERSION = 2;
+	// The magic, the version and the SHA-256 hash of the source mappings
+	private static final int HEADER_SIZE = 8 + 32;
+	private static final int NULL_STRING = -1;
+
+	private final ByteBuffer buffer;
+	private final int namespaceCount;
+	private final String[] namespaces;
+	private final int stringCount;
+	private final int stringOffsetsStart;
+	private final int stringDataStart;
+	private final int classCount;
+	private final int classOffsetsStart;
+	// The index of each class by its source name, only built when a class is looked up by name
+	@Nullable
+	private volatile Map<String, Integer> classIndex;
+
+	private BinaryMappingTree(ByteBuffer buffer) {
+		this.buffer = buffer;
+
+		int pos = HEADER_SIZE;
+		this.namespaceCount = buffer.getInt(pos);
+		pos += 4;
+		final int[] namespaceIds = new int[namespaceCount];
+
+		for (int i = 0; i < namespaceCount; i++) {
+			namespaceIds[i] = buffer.getInt(pos);
+			pos += 4;
+		}
+
+		this.stringCount = buffer.getInt(pos);
+		pos += 4;
+		this.stringOffsetsStart = pos;
+		pos += (stringCount + 1) * 4;
+		this.stringDataStart = pos;
+		pos += buffer.getInt(stringOffsetsStart + stringCount * 4);
+
+		this.classCount = buffer.getInt(pos);
+		this.classOffsetsStart = pos + 4;
+
+		this.namespaces = new String[namespaceCount];
+
+		for (int i = 0; i < namespaceCount; i++) {
+			namespaces[i] = getString(namespaceIds[i]);
+		}
+	}
+
+	/**
+	 * Reads the binary mappings at the given path.
+	 *
+	 * @param source the text mappings the binary file was written from, used to check if it is up-to-date
+	 * @return the mappings, or null when the file does not exist or is not up-to-date with the source mappings
+	 */
+	@Nullable
+	public static BinaryMappingTree open(Path path, Path source) throws IOException {
+		if (Files.notExists(path)) {
+			return null;
+		}
+
+		final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+
+		if (buffer.capacity() < HEADER_SIZE + 4
+				|| buffer.getInt(0) != MAGIC
+				|| buffer.getInt(4) != VERSION
+				|| !buffer.slice(8, 32).equals(ByteBuffer.wrap(Checksum.sha256(source.toFile())))) {
+			return null;
+		}
+
+		return new BinaryMappingTree(buffer);
+	}
+
+	/**
+	 * Writes the mappings in the binary format, recording the hash of the source mappings.
+	 */
+	public static void write(MappingTreeView tree, Path path, Path source) throws IOException {
+		final StringPool strings = new StringPool();
+		final int namespaceCount = tree.getMaxNamespaceId() + 1;
+		final int[] namespaceIds = new int[namespaceCount];
+
+		for (int ns = MappingTreeView.SRC_NAMESPACE_ID; ns < tree.getMaxNamespaceId(); ns++) {
+			namespaceIds[ns + 1] = strings.add(tree.getNamespaceName(ns));
+		}
+
+		// The string pool is written before the classes, so the classes are written to a separate buffer first.
+		final Collection<? extends MappingTreeView.ClassMappingView> classes = tree.getClasses();
+		final int[] classOffsets = new int[classes.size()];
+		final ByteArrayOutputStream classBytes = new ByteArrayOutputStream();
+		final DataOutputStream classOut = new DataOutputStream(classBytes);
+		int classIndex = 0;
+
+		for (MappingTreeView.ClassMappingView classDef : classes) {
+			classOffsets[classIndex++] = classOut.size();
+			writeNames(classOut, strings, namespaceCount, classDef::getName);
+
+			classOut.writeInt(classDef.getFields().size());
+
+			for (MappingTreeView.FieldMappingView field : classDef.getFields()) {
+				writeNames(classOut, strings, namespaceCount, field::getName);
+				writeNames(classOut, strings, namespaceCount, field::getDesc);
+			}
+
+			classOut.writeInt(classDef.getMethods().size());
+
+			for (MappingTreeView.MethodMappingView method : classDef.getMethods()) {
+				writeNames(classOut, strings, namespaceCount, method::getName);
+				writeNames(classOut, strings, namespaceCount, method::getDesc);
+
+				classOut.writeInt(method.getArgs().size());
+
+				for (MappingTreeView.MethodArgMappingView arg : method.getArgs()) {
+					classOut.writeInt(arg.getLvIndex());
+					classOut.writeInt(arg.getArgPosition());
+					writeNames(classOut, strings, namespaceCount, arg::getName);
+				}
+
+				classOut.writeInt(method.getVars().size());
+
+				for (MappingTreeView.MethodVarMappingView var : method.getVars()) {
+					classOut.writeInt(var.getLvIndex());
+					classOut.writeInt(var.getLvtRowIndex());
+					classOut.writeInt(var.getStartOpIdx());
+					classOut.writeInt(var.getEndOpIdx());
+					writeNames(classOut, strings, namespaceCount, var::getName);
+				}
+			}
+		}
+
+		final Path tempFile = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.write(Checksum.sha256(source.toFile()));
+
+			out.writeInt(namespaceCount);
+
+			for (int id : namespaceIds) {
+				out.writeInt(id);
+			}
+
+			strings.write(out);
+
+			out.writeInt(classOffsets.length);
+
+			for (int offset : classOffsets) {
+				// Offsets are relative to the end of the class offsets table
+				out.writeInt(offset);
+			}
+
+			classBytes.writeTo(out);
+		}
+
+		try {
+			Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+	private static void writeNames(DataOutputStream out, StringPool strings, int namespaceCount, NameGetter getter) throws IOException {
+		for (int ns = MappingTreeView.SRC_NAMESPACE_ID; ns < namespaceCount - 1; ns++) {
+			final String name = getter.get(ns);
+			out.writeInt(name == null ? NULL_STRING : strings.add(name));
+		}
+	}
+
+	public String getSrcNamespace() {
+		return namespaces[0];
+	}
+
+	public List<String> getDstNamespaces() {
+		return List.of(namespaces).subList(1, namespaceCount);
+	}
+
+	public int getNamespaceId(String namespace) {
+		for (int i = 0; i < namespaceCount; i++) {
+			if (namespaces[i].equals(namespace)) {
+				return i - 1;
+			}
+		}
+
+		return MappingTreeView.NULL_NAMESPACE_ID;
+	}
+
+	public int getClassCount() {
+		return classCount;
+	}
+
+	public ClassView getClass(int index) {
+		final int classesStart = classOffsetsStart + classCount * 4;
+		return new ClassView(classesStart + buffer.getInt(classOffsetsStart + index * 4));
+	}
+
+	/**
+	 * @return the class with the given name in the source namespace, or null if it is not mapped
+	 */
+	@Nullable
+	public ClassView getClass(String srcName) {
+		final Integer index = getClassIndex().get(srcName);
+		return index != null ? getClass(index) : null;
+	}
+
+	/**
+	 * Finds a field by its names in the source namespace, like {@link MappingTreeView#getField(String, String, String)}.
+	 *
+	 * @param srcDesc the descriptor, or null to match any descriptor
+	 * @return the field, or null if it is not mapped
+	 */
+	@Nullable
+	public MemberView getField(String srcOwner, String srcName, @Nullable String srcDesc) {
+		final ClassView owner = getClass(srcOwner);
+
+		if (owner == null) {
+			return null;
+		}
+
+		for (MemberView field : owner.getFields()) {
+			if (!srcName.equals(field.getName(MappingTreeView.SRC_NAMESPACE_ID))) {
+				continue;
+			}
+
+			final String desc = field.getDesc(MappingTreeView.SRC_NAMESPACE_ID);
+
+			if (srcDesc == null || desc == null || srcDesc.equals(desc)) {
+				return field;
+			}
+		}
+
+		return null;
+	}
+
+	private Map<String, Integer> getClassIndex() {
+		Map<String, Integer> index = classIndex;
+
+		if (index == null) {
+			synchronized (this) {
+				index = classIndex;
+
+				if (index == null) {
+					index = new HashMap<>(classCount * 4 / 3 + 1);
+
+					for (int i = 0; i < classCount; i++) {
+						index.put(getClass(i).getName(MappingTreeView.SRC_NAMESPACE_ID), i);
+					}
+
+					classIndex = index;
+				}
+			}
+		}
+
+		return index;
+	}
+
+	@Nullable
+	private String getString(int id) {
+		if (id == NULL_STRING) {
+			return null;
+		}
+
+		final int start = buffer.getInt(stringOffsetsStart + id * 4);
+		final int end = buffer.getInt(stringOffsetsStart + (id + 1) * 4);
+		final byte[] bytes = new byte[end - start];
+		buffer.get(stringDataStart + start, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	@Nullable
+	private String getName(int namesStart, int namespace) {
+		return getString(buffer.getInt(namesStart + (namespace + 1) * 4));
+	}
+
+	private int namesSize() {
+		return namespaceCount * 4;
+	}
+
+	private int fieldSize() {
+		return namesSize() * 2;
+	}
+
+	private int argSize() {
+		return 8 + namesSize();
+	}
+
+	private int varSize() {
+		return 16 + namesSize();
+	}
+
+	public final class ClassView {
+		private final int start;
+
+		private ClassView(int start) {
+			this.start = start;
+		}
+
+		@Nullable
+		public String getName(int namespace) {
+			return BinaryMappingTree.this.getName(start, namespace);
+		}
+
+		public List<MemberView> getFields() {
+			final int fieldsStart = start + namesSize();
+			final int count = buffer.getInt(fieldsStart);
+			final List<MemberView> fields = new ArrayList<>(count);
+
+			for (int i = 0; i < count; i++) {
+				fields.add(new MemberView(fieldsStart + 4 + i * fieldSize()));
+			}
+
+			return fields;
+		}
+
+		public List<MethodView> getMethods() {
+			final int fieldsStart = start + namesSize();
+			int pos = fieldsStart + 4 + buffer.getInt(fieldsStart) * fieldSize();
+			final int count = buffer.getInt(pos);
+			pos += 4;
+			final List<MethodView> methods = new ArrayList<>(count);
+
+			for (int i = 0; i < count; i++) {
+				final MethodView method = new MethodView(pos);
+				methods.add(method);
+				pos = method.end();
+			}
+
+			return methods;
+		}
+	}
+
+	public class MemberView {
+		protected final int start;
+
+		private MemberView(int start) {
+			this.start = start;
+		}
+
+		@Nullable
+		public String getName(int namespace) {
+			return BinaryMappingTree.this.getName(start, namespace);
+		}
+
+		@Nullable
+		public String getDesc(int namespace) {
+			return BinaryMappingTree.this.getName(start + namesSize(), namespace);
+		}
+	}
+
+	public final class MethodView extends MemberView {
+		private MethodView(int start) {
+			super(start);
+		}
+
+		private int argsStart() {
+			return start + fieldSize();
+		}
+
+		private int varsStart() {
+			final int argsStart = argsStart();
+			return argsStart + 4 + buffer.getInt(argsStart) * argSize();
+		}
+
+		private int end() {
+			final int varsStart = varsStart();
+			return varsStart + 4 + buffer.getInt(varsStart) * varSize();
+		}
+
+		public List<ArgView> getArgs() {
+			final int argsStart = argsStart();
+			final int count = buffer.getInt(argsStart);
+			final List<ArgView> args = new ArrayList<>(count);
+
+			for (int i = 0; i < count; i++) {
+				args.add(new ArgView(argsStart + 4 + i * argSize()));
+			}
+
+			return args;
+		}
+
+		public List<VarView> getVars() {
+			final int varsStart = varsStart();
+			final int count = buffer.getInt(varsStart);
+			final List<VarView> vars = new ArrayList<>(count);
+
+			for (int i = 0; i < count; i++) {
+				vars.add(new VarView(varsStart + 4 + i * varSize()));
+			}
+
+			return vars;
+		}
+	}
+
+	public final class ArgView {
+		private final int start;
+
+		private ArgView(int start) {
+			this.start = start;
+		}
+
+		public int getLvIndex() {
+			return buffer.getInt(start);
+		}
+
+		public int getArgPosition() {
+			return buffer.getInt(start + 4);
+		}
+
+		@Nullable
+		public String getName(int namespace) {
+			return BinaryMappingTree.this.getName(start + 8, namespace);
+		}
+	}
+
+	public final class VarView {
+		private final int start;
+
+		private VarView(int start) {
+			this.start = start;
+		}
+
+		public int getLvIndex() {
+			return buffer.getInt(start);
+		}
+
+		public int getLvtRowIndex() {
+			return buffer.getInt(start + 4);
+		}
+
+		public int getStartOpIdx() {
+			return buffer.getInt(start + 8);
+		}
+
+		public int getEndOpIdx() {
+			return buffer.getInt(start + 12);
+		}
+
+		@Nullable
+		public String getName(int namespace) {
+			return BinaryMappingTree.this.getName(start + 16, namespace);
+		}
+	}
+
+	@FunctionalInterface
+	private interface NameGetter {
+		@Nullable
+		String get(int namespace);
+	}
+
+	private static final class StringPool {
+		private final Map<String, Integer> ids = new HashMap<>();
+		private final List<byte[]> strings = new ArrayList<>();
+
+		int add(String string) {
+			return ids.computeIfAbsent(string, s -> {
+				strings.add(s.getBytes(StandardCharsets.UTF_8));
+				return strings.size() - 1;
+			});
+		}
+
+		void write(DataOutputStream out) throws IOException {
+			out.writeInt(strings.size());
+			int offset = 0;
+
+			for (byte[] string : strings) {
+				out.writeInt(offset);
+				offset += string.length;
+			}
+
+			out.writeInt(offset);
+
+			for (byte[] string : strings) {
+				out.write(string);
+			}
+		}
+	}
+}
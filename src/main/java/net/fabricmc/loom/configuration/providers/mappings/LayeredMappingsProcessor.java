@@ -25,12 +25,16 @@
 package net.fabricmc.loom.configuration.providers.mappings;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import org.jetbrains.annotations.Nullable;
 
@@ -38,12 +42,29 @@ import net.fabricmc.loom.api.mappings.layered.MappingContext;
 import net.fabricmc.loom.api.mappings.layered.MappingLayer;
 import net.fabricmc.loom.api.mappings.layered.MappingsNamespace;
 import net.fabricmc.loom.api.mappings.layered.spec.MappingsSpec;
+import net.fabricmc.loom.configuration.providers.mappings.crane.CraneMappingLayer;
 import net.fabricmc.loom.configuration.providers.mappings.extras.signatures.SignatureFixesLayer;
+import net.fabricmc.loom.configuration.providers.mappings.extras.signatures.SignatureFixesLayerImpl;
 import net.fabricmc.loom.configuration.providers.mappings.extras.unpick.UnpickLayer;
+import net.fabricmc.loom.configuration.providers.mappings.file.FileMappingsLayer;
+import net.fabricmc.loom.configuration.providers.mappings.intermediary.IntermediaryMappingLayer;
+import net.fabricmc.loom.configuration.providers.mappings.mojmap.MojangMappingLayer;
+import net.fabricmc.loom.configuration.providers.mappings.parchment.ParchmentMappingLayer;
+import net.fabricmc.loom.util.service.SharedExecutorService;
 import net.fabricmc.mappingio.adapter.MappingSourceNsSwitch;
 import net.fabricmc.mappingio.tree.MemoryMappingTree;
 
 public class LayeredMappingsProcessor {
+	// The layers that only read files resolved when the layer is created, or by resolveInputs
+	private static final Set<Class<? extends MappingLayer>> PARSE_ONLY_LAYERS = Set.of(
+			IntermediaryMappingLayer.class,
+			MojangMappingLayer.class,
+			FileMappingsLayer.class,
+			ParchmentMappingLayer.class,
+			CraneMappingLayer.class,
+			SignatureFixesLayerImpl.class
+	);
+
 	private final LayeredMappingSpec layeredMappingSpec;
 
 	public LayeredMappingsProcessor(LayeredMappingSpec spec) {
@@ -71,40 +92,105 @@ public class LayeredMappingsProcessor {
 	}
 
 	public MemoryMappingTree getMappings(List<MappingLayer> layers) throws IOException {
+		final List<MemoryMappingTree> layerTrees = readLayers(layers);
+
+		// The namespace the working tree is keyed by, layers are merged into a tree keyed by their source namespace
+		MappingsNamespace namespace = MappingsNamespace.NAMED;
 		MemoryMappingTree mappingTree = new MemoryMappingTree();
 
-		for (MappingLayer layer : layers) {
-			// We have to rebuild a new tree to work on when a layer doesnt merge into layered
-			boolean rebuild = layer.getSourceNamespace() != MappingsNamespace.NAMED;
-			MemoryMappingTree workingTree;
+		for (int i = 0; i < layers.size(); i++) {
+			final MappingsNamespace layerNamespace = layers.get(i).getSourceNamespace();
+
+			// Only rebuild the tree when the source namespace changes,
+			// consecutive layers with the same source namespace (such as intermediary and Mojang mappings) share one rebuild.
+			if (layerNamespace != namespace) {
+				mappingTree = switchNamespace(mappingTree, layerNamespace);
+				namespace = layerNamespace;
+			}
 
-			if (rebuild) {
-				var tempTree = new MemoryMappingTree();
+			layerTrees.get(i).accept(mappingTree);
+		}
 
-				// This can be null on the first layer
-				if (mappingTree.getSrcNamespace() != null) {
-					var sourceNsSwitch = new MappingSourceNsSwitch(tempTree, layer.getSourceNamespace().toString());
-					mappingTree.accept(sourceNsSwitch);
-				}
+		if (namespace != MappingsNamespace.NAMED) {
+			mappingTree = switchNamespace(mappingTree, MappingsNamespace.NAMED);
+		}
 
-				workingTree = tempTree;
+		return mappingTree;
+	}
+
+	/**
+	 * Reads every layer into its own tree. The built-in layers only parse inputs that have been resolved on this thread, so they are read in parallel.
+	 * Other layers may use the project when they are visited, so they are read on this thread.
+	 */
+	private static List<MemoryMappingTree> readLayers(List<MappingLayer> layers) throws IOException {
+		final List<CompletableFuture<MemoryMappingTree>> futures = new ArrayList<>(layers.size());
+
+		for (MappingLayer layer : layers) {
+			final MappingLayer resolved = resolveInputs(layer);
+
+			if (PARSE_ONLY_LAYERS.contains(resolved.getClass())) {
+				futures.add(CompletableFuture.supplyAsync(() -> {
+					try {
+						return visit(resolved);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}, SharedExecutorService.get().cpu()));
 			} else {
-				workingTree = mappingTree;
+				futures.add(CompletableFuture.completedFuture(visit(resolved)));
 			}
+		}
 
+		final List<MemoryMappingTree> layerTrees = new ArrayList<>(layers.size());
+
+		for (CompletableFuture<MemoryMappingTree> future : futures) {
 			try {
-				layer.visit(workingTree);
-			} catch (IOException e) {
-				throw new IOException("Failed to visit: " + layer.getClass(), e);
-			}
+				layerTrees.add(future.join());
+			} catch (CompletionException e) {
+				if (e.getCause() instanceof UncheckedIOException uncheckedIOException) {
+					throw uncheckedIOException.getCause();
+				}
 
-			if (rebuild) {
-				mappingTree = new MemoryMappingTree();
-				workingTree.accept(new MappingSourceNsSwitch(mappingTree, MappingsNamespace.NAMED.toString()));
+				throw e;
 			}
 		}
 
-		return mappingTree;
+		return layerTrees;
+	}
+
+	/**
+	 * Resolves the inputs of the layer that are only resolved when it is visited, as resolving them uses the project.
+	 */
+	private static MappingLayer resolveInputs(MappingLayer layer) {
+		if (layer instanceof IntermediaryMappingLayer intermediaryLayer) {
+			final MemoryMappingTree intermediaryTree = intermediaryLayer.memoryMappingTree().get();
+			return new IntermediaryMappingLayer(() -> intermediaryTree);
+		}
+
+		return layer;
+	}
+
+	private static MemoryMappingTree visit(MappingLayer layer) throws IOException {
+		final MemoryMappingTree layerTree = new MemoryMappingTree();
+
+		try {
+			layer.visit(layerTree);
+		} catch (IOException e) {
+			throw new IOException("Failed to visit: " + layer.getClass(), e);
+		}
+
+		return layerTree;
+	}
+
+	private static MemoryMappingTree switchNamespace(MemoryMappingTree mappingTree, MappingsNamespace namespace) throws IOException {
+		final MemoryMappingTree switched = new MemoryMappingTree();
+
+		// This can be null on the first layer
+		if (mappingTree.getSrcNamespace() != null) {
+			mappingTree.accept(new MappingSourceNsSwitch(switched, namespace.toString()));
+		}
+
+		return switched;
 	}
 
 	@Nullable
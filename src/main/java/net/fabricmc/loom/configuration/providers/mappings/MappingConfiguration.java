@@ -207,25 +207,39 @@ public class MappingConfiguration {
 
 	public void setupPost(Project project) throws IOException {
 		LoomGradleExtension extension = LoomGradleExtension.get(project);
+		final MergedMappingsCache mergedMappingsCache = MergedMappingsCache.create(project);
+		final String minecraftVersion = extension.getMinecraftProvider().minecraftVersion();
 
 		if (extension.isNeoForge()) {
 			// Generate the Mojmap-merged mappings if needed.
 			// Note that this needs to happen before manipulateMappings for FieldMigratedMappingConfiguration.
 			if (Files.notExists(tinyMappingsWithMojang) || extension.refreshDeps()) {
-				mergeMojang(project, tinyMappings, tinyMappingsWithMojang);
+				// The Mojang mappings are fixed for a Minecraft version, so the version stands in for them
+				MergedMappingsCache.getOrMerge(mergedMappingsCache, tinyMappingsWithMojang, List.of("mojang", minecraftVersion, tinyMappings),
+						() -> mergeMojang(project, tinyMappings, tinyMappingsWithMojang));
 			}
 		}
 
 		if (extension.shouldGenerateSrgTiny()) {
 			if (Files.notExists(tinyMappingsWithSrg) || extension.refreshDeps()) {
-				if (extension.isForge() && extension.getForgeProvider().usesMojangAtRuntime()) {
-					Path tmp = Files.createTempFile("mappings", ".tiny");
-					mergeMojang(project, tinyMappings, tmp);
-					mergeSrg(project, tmp, tinyMappingsWithSrg);
-					Files.deleteIfExists(tmp);
-				} else {
-					mergeSrg(project, tinyMappings, tinyMappingsWithSrg);
-				}
+				final boolean mergeMojangFirst = extension.isForge() && extension.getForgeProvider().usesMojangAtRuntime();
+				final Path rawSrg = getRawSrgFile(project);
+				final ForgeMappingsMerger.ExtraMappings extraMappings = getSrgExtraMappings(project);
+				final List<Object> inputs = List.of(
+						"srg", mergeMojangFirst, minecraftVersion, tinyMappings, rawSrg,
+						extraMappings != null ? extraMappings.path() : "none"
+				);
+
+				MergedMappingsCache.getOrMerge(mergedMappingsCache, tinyMappingsWithSrg, inputs, () -> {
+					if (mergeMojangFirst) {
+						Path tmp = Files.createTempFile("mappings", ".tiny");
+						mergeMojang(project, tinyMappings, tmp);
+						mergeSrg(project, rawSrg, extraMappings, tmp, tinyMappingsWithSrg);
+						Files.deleteIfExists(tmp);
+					} else {
+						mergeSrg(project, rawSrg, extraMappings, tinyMappings, tinyMappingsWithSrg);
+					}
+				});
 			}
 		}
 
@@ -292,18 +306,21 @@ public class MappingConfiguration {
 		project.getLogger().info(":merged mojang mappings in {}", stopwatch.stop());
 	}
 
-	private static void mergeSrg(Project project, Path source, Path target) throws IOException {
+	@Nullable
+	private static ForgeMappingsMerger.ExtraMappings getSrgExtraMappings(Project project) {
 		LoomGradleExtension extension = LoomGradleExtension.get(project);
 
-		Stopwatch stopwatch = Stopwatch.createStarted();
-
 		// FIXME why is this special case necessary?
-		ForgeMappingsMerger.ExtraMappings extraMappings = extension.isLegacyForge()
+		return extension.isLegacyForge()
 				? null
 				: ForgeMappingsMerger.ExtraMappings.ofMojmapTsrg(getMojmapSrgFileIfPossible(project));
+	}
+
+	private static void mergeSrg(Project project, Path rawSrg, @Nullable ForgeMappingsMerger.ExtraMappings extraMappings, Path source, Path target) throws IOException {
+		Stopwatch stopwatch = Stopwatch.createStarted();
 
 		try (Tiny2FileWriter writer = new Tiny2FileWriter(Files.newBufferedWriter(target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING), false)) {
-			ForgeMappingsMerger.mergeSrg(getRawSrgFile(project), source, extraMappings, true).accept(writer);
+			ForgeMappingsMerger.mergeSrg(rawSrg, source, extraMappings, true).accept(writer);
 		}
 
 		project.getLogger().info(":merged srg mappings in " + stopwatch.stop());
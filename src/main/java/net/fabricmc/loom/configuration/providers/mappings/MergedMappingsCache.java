@@ -0,0 +1,141 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.configuration.providers.mappings;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.gradle.api.Project;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.fabricmc.loom.LoomGradleExtension;
+import net.fabricmc.loom.LoomGradlePlugin;
+import net.fabricmc.loom.util.Checksum;
+import net.fabricmc.loom.util.Constants;
+import net.fabricmc.loom.util.gradle.GradleUtils;
+
+/**
+ * A cache of the SRG and Mojang merged mappings in the Gradle user home, keyed by the hashes of the merge inputs.
+ *
+ * <p>The merged mappings are stored per Forge version, but most Forge updates do not change the mappings,
+ * so the merge is only run again when one of its inputs has changed.
+ */
+public final class MergedMappingsCache {
+	private static final Logger LOGGER = LoggerFactory.getLogger(MergedMappingsCache.class);
+	// Bump when the merge changes in a way that changes the output.
+	private static final int VERSION = 1;
+
+	private final Path root;
+
+	private MergedMappingsCache(Path root) {
+		this.root = root;
+	}
+
+	/**
+	 * @return the cache, or null when it has been disabled or the dependencies are being refreshed
+	 */
+	@Nullable
+	public static MergedMappingsCache create(Project project) {
+		final LoomGradleExtension extension = LoomGradleExtension.get(project);
+
+		if (extension.refreshDeps() || GradleUtils.getBooleanProperty(project, Constants.Properties.DISABLE_GLOBAL_MAPPINGS_CACHE)) {
+			return null;
+		}
+
+		return new MergedMappingsCache(extension.getFiles().getGlobalMergedMappingsCache().toPath());
+	}
+
+	/**
+	 * Runs the merge when the cache does not contain its output, or copies the cached output to the target otherwise.
+	 *
+	 * @param cache  the cache, or null to always merge
+	 * @param inputs everything the merge output depends on, files are hashed by their contents
+	 */
+	public static void getOrMerge(@Nullable MergedMappingsCache cache, Path target, List<Object> inputs, Merger merger) throws IOException {
+		if (cache == null) {
+			merger.merge();
+			return;
+		}
+
+		final Path cached = cache.getCachePath(inputs);
+
+		if (Files.exists(cached)) {
+			LOGGER.info("Using cached merged mappings {} for {}", cached, target);
+			Files.copy(cached, target, StandardCopyOption.REPLACE_EXISTING);
+
+			// Record the last use, so old entries can be found and removed
+			Files.setLastModifiedTime(cached, FileTime.from(Instant.now()));
+			return;
+		}
+
+		merger.merge();
+
+		Files.createDirectories(cached.getParent());
+		final Path temp = Files.createTempFile(cached.getParent(), cached.getFileName().toString(), ".tmp");
+
+		try {
+			Files.copy(target, temp, StandardCopyOption.REPLACE_EXISTING);
+			Files.move(temp, cached, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	private Path getCachePath(List<Object> inputs) throws IOException {
+		final Hasher hasher = Hashing.sha256().newHasher();
+		putString(hasher, Integer.toString(VERSION));
+		putString(hasher, LoomGradlePlugin.LOOM_VERSION);
+
+		for (Object input : inputs) {
+			if (input instanceof Path path) {
+				putString(hasher, Files.exists(path) ? Checksum.sha256HexMemoized(path) : "missing");
+			} else {
+				putString(hasher, String.valueOf(input));
+			}
+		}
+
+		final String key = hasher.hash().toString();
+		return root.resolve(key.substring(0, 2)).resolve(key + ".tiny");
+	}
+
+	private static void putString(Hasher hasher, String value) {
+		hasher.putString(value, StandardCharsets.UTF_8).putByte((byte) 0);
+	}
+
+	@FunctionalInterface
+	public interface Merger {
+		void merge() throws IOException;
+	}
+}
@@ -27,6 +27,11 @@ package net.fabricmc.loom.configuration.providers.mappings;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.file.Path;
+import java.util.function.Supplier;
+
+import com.google.common.base.Suppliers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import net.fabricmc.loom.util.service.SharedService;
 import net.fabricmc.loom.util.service.SharedServiceManager;
@@ -34,22 +39,62 @@ import net.fabricmc.mappingio.MappingReader;
 import net.fabricmc.mappingio.tree.MemoryMappingTree;
 
 public final class TinyMappingsService implements SharedService {
-	private final MemoryMappingTree mappingTree;
+	private static final Logger LOGGER = LoggerFactory.getLogger(TinyMappingsService.class);
+
+	private final Path tinyMappings;
+	// Both are loaded on first use, most remapping only needs the binary mappings and never parses the text mappings.
+	private final Supplier<MemoryMappingTree> mappingTree = Suppliers.memoize(this::readMappingTree);
+	private final Supplier<BinaryMappingTree> binaryMappings = Suppliers.memoize(this::readBinaryMappings);
 
 	public TinyMappingsService(Path tinyMappings) {
+		this.tinyMappings = tinyMappings;
+	}
+
+	public static synchronized TinyMappingsService create(SharedServiceManager serviceManager, Path tinyMappings) {
+		return serviceManager.getOrCreateService("TinyMappingsService:" + tinyMappings.toAbsolutePath(), () -> new TinyMappingsService(tinyMappings));
+	}
+
+	public MemoryMappingTree getMappingTree() {
+		return mappingTree.get();
+	}
+
+	/**
+	 * Gets a compact view of the mappings, which is written next to the text mappings the first time it is needed.
+	 * Prefer this over {@link #getMappingTree()} when only the names and descriptors are needed.
+	 */
+	public BinaryMappingTree getBinaryMappings() {
+		return binaryMappings.get();
+	}
+
+	private MemoryMappingTree readMappingTree() {
 		try {
-			this.mappingTree = new MemoryMappingTree();
+			MemoryMappingTree mappingTree = new MemoryMappingTree();
 			MappingReader.read(tinyMappings, mappingTree);
+			return mappingTree;
 		} catch (IOException e) {
 			throw new UncheckedIOException("Failed to read mappings", e);
 		}
 	}
 
-	public static synchronized TinyMappingsService create(SharedServiceManager serviceManager, Path tinyMappings) {
-		return serviceManager.getOrCreateService("TinyMappingsService:" + tinyMappings.toAbsolutePath(), () -> new TinyMappingsService(tinyMappings));
-	}
+	private BinaryMappingTree readBinaryMappings() {
+		final Path binaryPath = tinyMappings.resolveSibling(tinyMappings.getFileName() + ".bin");
 
-	public MemoryMappingTree getMappingTree() {
-		return mappingTree;
+		try {
+			BinaryMappingTree binaryMappings = BinaryMappingTree.open(binaryPath, tinyMappings);
+
+			if (binaryMappings == null) {
+				LOGGER.info("Writing binary mappings for {}", tinyMappings);
+				BinaryMappingTree.write(getMappingTree(), binaryPath, tinyMappings);
+				binaryMappings = BinaryMappingTree.open(binaryPath, tinyMappings);
+			}
+
+			if (binaryMappings == null) {
+				throw new IllegalStateException("Binary mappings written for " + tinyMappings + " could not be read back");
+			}
+
+			return binaryMappings;
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to read binary mappings", e);
+		}
 	}
 }
@@ -36,6 +36,8 @@ import org.slf4j.LoggerFactory;
 
 import net.fabricmc.loom.api.mappings.layered.MappingsNamespace;
 import net.fabricmc.loom.configuration.ConfigContext;
+import net.fabricmc.loom.util.telemetry.Span;
+import net.fabricmc.loom.util.telemetry.Telemetry;
 
 public class MergedMinecraftProvider extends MinecraftProvider {
 	private static final Logger LOGGER = LoggerFactory.getLogger(MergedMinecraftProvider.class);
@@ -105,9 +107,16 @@ public class MergedMinecraftProvider extends MinecraftProvider {
 		Objects.requireNonNull(clientJar, "Cannot merge null client jar?");
 		Objects.requireNonNull(serverJar, "Cannot merge null server jar?");
 
-		try (var jarMerger = new MinecraftJarMerger(clientJar, serverJar, mergedJar)) {
-			jarMerger.enableSyntheticParamsOffset();
-			jarMerger.merge();
+		try (Span span = Telemetry.span("mergeJars")) {
+			span.bytesRead(clientJar.length() + serverJar.length());
+
+			try (var jarMerger = new MinecraftJarMerger(clientJar, serverJar, mergedJar)) {
+				jarMerger.enableSyntheticParamsOffset();
+				jarMerger.merge();
+			}
+
+			// Only measured once the merger is closed, as the output may not be flushed until then
+			span.bytesWritten(mergedJar.length());
 		}
 	}
 
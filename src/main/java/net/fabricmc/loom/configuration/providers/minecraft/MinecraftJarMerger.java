@@ -26,6 +26,8 @@ package net.fabricmc.loom.configuration.providers.minecraft;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
@@ -34,6 +36,7 @@ import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributeView;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -41,19 +44,31 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 
+import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
 
 import net.fabricmc.loom.util.Constants;
 import net.fabricmc.loom.util.FileSystemUtil;
+import net.fabricmc.loom.util.RawZipReader;
+import net.fabricmc.loom.util.RawZipWriter;
 import net.fabricmc.loom.util.SnowmanClassVisitor;
 import net.fabricmc.loom.util.SyntheticParameterClassVisitor;
+import net.fabricmc.loom.util.service.SharedExecutorService;
 
+/**
+ * Merges the client and server jars.
+ *
+ * <p>Both jars are walked in the sorted order of their central directories. Entries that are the same on both sides or only
+ * present on one side are copied across without being decompressed, unless they are Minecraft classes that need to be rewritten.
+ * Only classes that differ between the sides are merged. At most a bounded number of entries are held in memory at once.
+ * Jars that cannot be read directly (such as zip64 jars) are merged in memory through zip file systems instead.
+ */
 public class MinecraftJarMerger implements AutoCloseable {
 	public static class Entry {
 		public final Path path;
@@ -68,10 +83,13 @@ public class MinecraftJarMerger implements AutoCloseable {
 	}
 
 	private static final MinecraftClassMerger CLASS_MERGER = new MinecraftClassMerger();
-	private final FileSystemUtil.Delegate inputClientFs, inputServerFs, outputFs;
-	private final Path inputClient, inputServer;
-	private final Map<String, Entry> entriesClient, entriesServer;
-	private final Set<String> entriesAll;
+	private static final String MANIFEST_PATH = "META-INF/MANIFEST.MF";
+	private static final byte[] MANIFEST = "Manifest-Version: 1.0\nMain-Class: net.minecraft.client.Main\n".getBytes(StandardCharsets.UTF_8);
+	// The number of entries that may be read and transformed ahead of being written
+	private static final int MAX_PENDING_ENTRIES = Math.max(16, Runtime.getRuntime().availableProcessors() * 4);
+	private final File inputClientJar, inputServerJar, outputJar;
+	@Nullable
+	private final RawZipReader inputClient, inputServer;
 	private boolean removeSnowmen = false;
 	private boolean offsetSyntheticsParams = false;
 
@@ -84,13 +102,20 @@ public class MinecraftJarMerger implements AutoCloseable {
 
 		Files.createDirectories(output.toPath().getParent());
 
-		this.inputClient = (inputClientFs = FileSystemUtil.getJarFileSystem(inputClient, false)).get().getPath("/");
-		this.inputServer = (inputServerFs = FileSystemUtil.getJarFileSystem(inputServer, false)).get().getPath("/");
-		this.outputFs = FileSystemUtil.getJarFileSystem(output, true);
+		this.inputClientJar = inputClient;
+		this.inputServerJar = inputServer;
+		this.outputJar = output;
+		this.inputClient = RawZipReader.open(inputClient.toPath());
 
-		this.entriesClient = new HashMap<>();
-		this.entriesServer = new HashMap<>();
-		this.entriesAll = new TreeSet<>();
+		try {
+			this.inputServer = RawZipReader.open(inputServer.toPath());
+		} catch (IOException e) {
+			if (this.inputClient != null) {
+				this.inputClient.close();
+			}
+
+			throw e;
+		}
 	}
 
 	public void enableSnowmanRemoval() {
@@ -103,9 +128,250 @@ public class MinecraftJarMerger implements AutoCloseable {
 
 	@Override
 	public void close() throws IOException {
-		inputClientFs.close();
-		inputServerFs.close();
-		outputFs.close();
+		if (inputClient != null) {
+			inputClient.close();
+		}
+
+		if (inputServer != null) {
+			inputServer.close();
+		}
+	}
+
+	public void merge() throws IOException {
+		if (inputClient == null || inputServer == null) {
+			mergeWithFileSystem();
+			return;
+		}
+
+		final Set<String> names = new TreeSet<>();
+		addEntryNames(inputClient, names);
+		addEntryNames(inputServer, names);
+
+		final ExecutorService executor = SharedExecutorService.get().cpu();
+		final ArrayDeque<PendingEntry> pending = new ArrayDeque<>();
+
+		try (FileChannel output = FileChannel.open(outputJar.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			final RawZipWriter writer = new RawZipWriter(output);
+
+			for (String name : names) {
+				final PendingEntry entry = submit(name, executor);
+
+				if (entry == null) {
+					continue;
+				}
+
+				pending.add(entry);
+
+				if (pending.size() >= MAX_PENDING_ENTRIES) {
+					write(writer, pending.remove());
+				}
+			}
+
+			while (!pending.isEmpty()) {
+				write(writer, pending.remove());
+			}
+
+			writer.finish();
+		}
+	}
+
+	private static void addEntryNames(RawZipReader input, Set<String> names) {
+		for (String name : input.entries().keySet()) {
+			if (name.endsWith("/")) {
+				continue;
+			}
+
+			if (name.startsWith("META-INF/") && (name.endsWith(".SF") || name.endsWith(".RSA"))) {
+				continue;
+			}
+
+			names.add(name);
+		}
+	}
+
+	@Nullable
+	private PendingEntry submit(String name, ExecutorService executor) {
+		final RawZipReader.Entry client = inputClient.get(name);
+		final RawZipReader.Entry server = inputServer.get(name);
+		final RawZipReader source = client != null ? inputClient : inputServer;
+		final RawZipReader.Entry entry = client != null ? client : server;
+
+		if (name.equals(MANIFEST_PATH)) {
+			return new PendingEntry(name, source, entry, CompletableFuture.completedFuture(RawZipWriter.encode(MANIFEST, RawZipReader.METHOD_DEFLATED)));
+		}
+
+		if (!name.endsWith(".class")) {
+			// FIXME: More heuristics?
+			return new PendingEntry(name, source, entry, null);
+		}
+
+		final boolean isMinecraft = client != null || name.startsWith("net/minecraft") || !name.contains("/");
+
+		if (!isMinecraft && client == null) {
+			// Server bundles libraries, client doesn't - skip them
+			return null;
+		}
+
+		return new PendingEntry(name, source, entry, CompletableFuture.supplyAsync(() -> {
+			try {
+				final byte[] data = mergeClass(client, server, isMinecraft);
+				return data != null ? RawZipWriter.encode(data, RawZipReader.METHOD_DEFLATED) : null;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}, executor));
+	}
+
+	/**
+	 * @return the merged class, or null when it can be copied from its jar as it is
+	 */
+	private byte @Nullable [] mergeClass(RawZipReader.@Nullable Entry client, RawZipReader.@Nullable Entry server, boolean isMinecraft) throws IOException {
+		final String side = client == null ? "SERVER" : server == null ? "CLIENT" : null;
+		byte[] data = null;
+
+		if (client != null && server != null && !contentEquals(client, server)) {
+			data = CLASS_MERGER.merge(inputClient.read(client), inputServer.read(server));
+		}
+
+		if (isMinecraft && needsTransform(side)) {
+			if (data == null) {
+				data = client != null ? inputClient.read(client) : inputServer.read(server);
+			}
+
+			data = transformClass(data, side);
+		}
+
+		return data;
+	}
+
+	private boolean contentEquals(RawZipReader.Entry client, RawZipReader.Entry server) throws IOException {
+		if (client.crc() != server.crc() || client.size() != server.size()) {
+			return false;
+		}
+
+		if (client.method() == server.method() && client.compressedSize() == server.compressedSize()
+				&& Arrays.equals(inputClient.readCompressed(client), inputServer.readCompressed(server))) {
+			return true;
+		}
+
+		return Arrays.equals(inputClient.read(client), inputServer.read(server));
+	}
+
+	private static void write(RawZipWriter writer, PendingEntry entry) throws IOException {
+		final RawZipWriter.Encoded encoded = entry.encoded() != null ? join(entry.encoded()) : null;
+		writer.writeParentDirectories(entry.name());
+
+		if (encoded != null) {
+			writer.write(entry.name(), encoded, entry.entry());
+		} else {
+			writer.copy(entry.source(), entry.entry());
+		}
+	}
+
+	private static <T> T join(CompletableFuture<T> future) throws IOException {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof UncheckedIOException uncheckedIOException) {
+				throw uncheckedIOException.getCause();
+			}
+
+			throw e;
+		}
+	}
+
+	private boolean needsTransform(@Nullable String side) {
+		return side != null || removeSnowmen || offsetSyntheticsParams;
+	}
+
+	private byte[] transformClass(byte[] data, @Nullable String side) {
+		ClassReader reader = new ClassReader(data);
+		ClassWriter writer = new ClassWriter(0);
+		ClassVisitor visitor = writer;
+
+		if (side != null) {
+			visitor = new MinecraftClassMerger.SidedClassVisitor(Constants.ASM_VERSION, visitor, side);
+		}
+
+		if (removeSnowmen) {
+			visitor = new SnowmanClassVisitor(Constants.ASM_VERSION, visitor);
+		}
+
+		if (offsetSyntheticsParams) {
+			visitor = new SyntheticParameterClassVisitor(Constants.ASM_VERSION, visitor);
+		}
+
+		if (visitor == writer) {
+			return data;
+		}
+
+		reader.accept(visitor, 0);
+		return writer.toByteArray();
+	}
+
+	private void mergeWithFileSystem() throws IOException {
+		try (FileSystemUtil.Delegate inputClientFs = FileSystemUtil.getJarFileSystem(inputClientJar, false);
+				FileSystemUtil.Delegate inputServerFs = FileSystemUtil.getJarFileSystem(inputServerJar, false);
+				FileSystemUtil.Delegate outputFs = FileSystemUtil.getJarFileSystem(outputJar, true)) {
+			final Map<String, Entry> entriesClient = new HashMap<>();
+			final Map<String, Entry> entriesServer = new HashMap<>();
+			final Set<String> entriesAll = new TreeSet<>();
+
+			final ExecutorService io = SharedExecutorService.get().io();
+			CompletableFuture.allOf(
+					CompletableFuture.runAsync(() -> readToMap(entriesClient, inputClientFs.get().getPath("/")), io),
+					CompletableFuture.runAsync(() -> readToMap(entriesServer, inputServerFs.get().getPath("/")), io)
+			).join();
+
+			entriesAll.addAll(entriesClient.keySet());
+			entriesAll.addAll(entriesServer.keySet());
+
+			List<Entry> entries = entriesAll.parallelStream().map((entry) -> {
+				boolean isClass = entry.endsWith(".class");
+				boolean isMinecraft = entriesClient.containsKey(entry) || entry.startsWith("net/minecraft") || !entry.contains("/");
+				Entry result;
+				String side = null;
+
+				Entry entry1 = entriesClient.get(entry);
+				Entry entry2 = entriesServer.get(entry);
+
+				if (entry1 != null && entry2 != null) {
+					if (Arrays.equals(entry1.data, entry2.data)) {
+						result = entry1;
+					} else {
+						if (isClass) {
+							result = new Entry(entry1.path, entry1.metadata, CLASS_MERGER.merge(entry1.data, entry2.data));
+						} else {
+							// FIXME: More heuristics?
+							result = entry1;
+						}
+					}
+				} else if ((result = entry1) != null) {
+					side = "CLIENT";
+				} else if ((result = entry2) != null) {
+					side = "SERVER";
+				}
+
+				if (isClass && !isMinecraft && "SERVER".equals(side)) {
+					// Server bundles libraries, client doesn't - skip them
+					return null;
+				}
+
+				if (result != null) {
+					if (isMinecraft && isClass && needsTransform(side)) {
+						result = new Entry(result.path, result.metadata, transformClass(result.data, side));
+					}
+
+					return result;
+				} else {
+					return null;
+				}
+			}).filter(Objects::nonNull).toList();
+
+			for (Entry e : entries) {
+				add(outputFs, e);
+			}
+		}
 	}
 
 	private void readToMap(Map<String, Entry> map, Path input) {
@@ -118,9 +384,8 @@ public class MinecraftJarMerger implements AutoCloseable {
 					}
 
 					if (!path.getFileName().toString().endsWith(".class")) {
-						if (path.toString().equals("/META-INF/MANIFEST.MF")) {
-							map.put("META-INF/MANIFEST.MF", new Entry(path, attr,
-									"Manifest-Version: 1.0\nMain-Class: net.minecraft.client.Main\n".getBytes(StandardCharsets.UTF_8)));
+						if (path.toString().equals("/" + MANIFEST_PATH)) {
+							map.put(MANIFEST_PATH, new Entry(path, attr, MANIFEST));
 						} else {
 							if (path.toString().startsWith("/META-INF/")) {
 								if (path.toString().endsWith(".SF") || path.toString().endsWith(".RSA")) {
@@ -144,7 +409,7 @@ public class MinecraftJarMerger implements AutoCloseable {
 		}
 	}
 
-	private void add(Entry entry) throws IOException {
+	private static void add(FileSystemUtil.Delegate outputFs, Entry entry) throws IOException {
 		Path outPath = outputFs.get().getPath(entry.path.toString());
 
 		if (outPath.getParent() != null) {
@@ -165,86 +430,9 @@ public class MinecraftJarMerger implements AutoCloseable {
 				);
 	}
 
-	public void merge() throws IOException {
-		ExecutorService service = Executors.newFixedThreadPool(2);
-		service.submit(() -> readToMap(entriesClient, inputClient));
-		service.submit(() -> readToMap(entriesServer, inputServer));
-		service.shutdown();
-
-		try {
-			service.awaitTermination(1, TimeUnit.HOURS);
-		} catch (InterruptedException e) {
-			e.printStackTrace();
-		}
-
-		entriesAll.addAll(entriesClient.keySet());
-		entriesAll.addAll(entriesServer.keySet());
-
-		List<Entry> entries = entriesAll.parallelStream().map((entry) -> {
-			boolean isClass = entry.endsWith(".class");
-			boolean isMinecraft = entriesClient.containsKey(entry) || entry.startsWith("net/minecraft") || !entry.contains("/");
-			Entry result;
-			String side = null;
-
-			Entry entry1 = entriesClient.get(entry);
-			Entry entry2 = entriesServer.get(entry);
-
-			if (entry1 != null && entry2 != null) {
-				if (Arrays.equals(entry1.data, entry2.data)) {
-					result = entry1;
-				} else {
-					if (isClass) {
-						result = new Entry(entry1.path, entry1.metadata, CLASS_MERGER.merge(entry1.data, entry2.data));
-					} else {
-						// FIXME: More heuristics?
-						result = entry1;
-					}
-				}
-			} else if ((result = entry1) != null) {
-				side = "CLIENT";
-			} else if ((result = entry2) != null) {
-				side = "SERVER";
-			}
-
-			if (isClass && !isMinecraft && "SERVER".equals(side)) {
-				// Server bundles libraries, client doesn't - skip them
-				return null;
-			}
-
-			if (result != null) {
-				if (isMinecraft && isClass) {
-					byte[] data = result.data;
-					ClassReader reader = new ClassReader(data);
-					ClassWriter writer = new ClassWriter(0);
-					ClassVisitor visitor = writer;
-
-					if (side != null) {
-						visitor = new MinecraftClassMerger.SidedClassVisitor(Constants.ASM_VERSION, visitor, side);
-					}
-
-					if (removeSnowmen) {
-						visitor = new SnowmanClassVisitor(Constants.ASM_VERSION, visitor);
-					}
-
-					if (offsetSyntheticsParams) {
-						visitor = new SyntheticParameterClassVisitor(Constants.ASM_VERSION, visitor);
-					}
-
-					if (visitor != writer) {
-						reader.accept(visitor, 0);
-						data = writer.toByteArray();
-						result = new Entry(result.path, result.metadata, data);
-					}
-				}
-
-				return result;
-			} else {
-				return null;
-			}
-		}).filter(Objects::nonNull).toList();
-
-		for (Entry e : entries) {
-			add(e);
-		}
+	/**
+	 * @param encoded the entry's new contents, or null (or completing with null) to copy the entry from the source as it is
+	 */
+	private record PendingEntry(String name, RawZipReader source, RawZipReader.Entry entry, @Nullable CompletableFuture<RawZipWriter.Encoded> encoded) {
 	}
 }
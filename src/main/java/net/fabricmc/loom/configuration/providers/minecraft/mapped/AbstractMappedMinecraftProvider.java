@@ -59,6 +59,8 @@ import net.fabricmc.loom.util.TinyRemapperHelper;
 import net.fabricmc.loom.util.service.ScopedSharedServiceManager;
 import net.fabricmc.loom.util.srg.InnerClassRemapper;
 import net.fabricmc.loom.util.srg.RemapObjectHolderVisitor;
+import net.fabricmc.loom.util.telemetry.Span;
+import net.fabricmc.loom.util.telemetry.Telemetry;
 import net.fabricmc.mappingio.tree.MemoryMappingTree;
 import net.fabricmc.tinyremapper.extension.mixin.MixinExtension;
 import net.fabricmc.tinyremapper.OutputConsumerPath;
@@ -89,6 +91,8 @@ public abstract class AbstractMappedMinecraftProvider<M extends MinecraftProvide
 		assert !remappedJars.isEmpty();
 
 		if (!areOutputsValid(remappedJars) || context.refreshOutputs()) {
+			Telemetry.current().cacheMiss();
+
 			try {
 				remapInputs(remappedJars, context.configContext());
 			} catch (Throwable t) {
@@ -96,6 +100,8 @@ public abstract class AbstractMappedMinecraftProvider<M extends MinecraftProvide
 
 				throw new RuntimeException("Failed to remap minecraft", t);
 			}
+		} else {
+			Telemetry.current().cacheHit();
 		}
 
 		if (context.applyDependencies()) {
@@ -216,7 +222,10 @@ public abstract class AbstractMappedMinecraftProvider<M extends MinecraftProvide
 			configureRemapper(remappedJars, builder);
 		}, classNames);
 
-		try (OutputConsumerPath outputConsumer = new OutputConsumerPath.Builder(remappedJars.outputJarPath()).build()) {
+		try (Span span = Telemetry.span("remapJar");
+				OutputConsumerPath outputConsumer = new OutputConsumerPath.Builder(remappedJars.outputJarPath()).build()) {
+			span.attribute("type", remappedJars.type().toString());
+			span.bytesRead(Files.size(remappedJars.inputJar()));
 			outputConsumer.addNonClassFiles(remappedJars.inputJar());
 
 			for (Path path : remappedJars.remapClasspath()) {
@@ -27,15 +27,20 @@ package net.fabricmc.loom.configuration.providers.minecraft.mapped;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.jetbrains.annotations.Nullable;
 
 import net.fabricmc.loom.configuration.ConfigContext;
 import net.fabricmc.loom.configuration.mods.dependency.LocalMavenHelper;
 import net.fabricmc.loom.configuration.processors.MinecraftJarProcessorManager;
+import net.fabricmc.loom.configuration.processors.ProcessedJarManifest;
 import net.fabricmc.loom.configuration.processors.ProcessorContextImpl;
 import net.fabricmc.loom.configuration.providers.minecraft.LegacyMergedMinecraftProvider;
 import net.fabricmc.loom.configuration.providers.minecraft.MergedMinecraftProvider;
@@ -45,6 +50,9 @@ import net.fabricmc.loom.configuration.providers.minecraft.MinecraftSourceSets;
 import net.fabricmc.loom.configuration.providers.minecraft.SingleJarEnvType;
 import net.fabricmc.loom.configuration.providers.minecraft.SingleJarMinecraftProvider;
 import net.fabricmc.loom.configuration.providers.minecraft.SplitMinecraftProvider;
+import net.fabricmc.loom.util.Checksum;
+import net.fabricmc.loom.util.telemetry.Span;
+import net.fabricmc.loom.util.telemetry.Telemetry;
 
 public abstract class ProcessedNamedMinecraftProvider<M extends MinecraftProvider, P extends NamedMinecraftProvider<M>> extends NamedMinecraftProvider<M> {
 	private final P parentMinecraftProvider;
@@ -68,7 +76,10 @@ public abstract class ProcessedNamedMinecraftProvider<M extends MinecraftProvide
 				.collect(Collectors.toMap(Function.identity(), this::getProcessedJar));
 
 		if (requiresProcessing) {
-			processJars(minecraftJarOutputMap, context.configContext());
+			Telemetry.current().cacheMiss();
+			processJars(minecraftJarOutputMap, context.configContext(), !context.refreshOutputs());
+		} else {
+			Telemetry.current().cacheHit();
 		}
 
 		if (context.applyDependencies()) {
@@ -83,19 +94,118 @@ public abstract class ProcessedNamedMinecraftProvider<M extends MinecraftProvide
 		return MavenScope.LOCAL;
 	}
 
-	private void processJars(Map<MinecraftJar, MinecraftJar> minecraftJarMap, ConfigContext configContext) throws IOException {
+	private void processJars(Map<MinecraftJar, MinecraftJar> minecraftJarMap, ConfigContext configContext, boolean incremental) throws IOException {
 		for (Map.Entry<MinecraftJar, MinecraftJar> entry : minecraftJarMap.entrySet()) {
 			final MinecraftJar minecraftJar = entry.getKey();
 			final MinecraftJar outputJar = entry.getValue();
 			deleteSimilarJars(outputJar.getPath());
 
-			final LocalMavenHelper mavenHelper = getMavenHelper(minecraftJar.getType());
-			final Path outputPath = mavenHelper.copyToMaven(minecraftJar.getPath(), null);
+			final ProcessorContextImpl processorContext = new ProcessorContextImpl(configContext, minecraftJar);
+			final String inputHash = Checksum.sha256Hex(minecraftJar.getPath());
+			List<ProcessedJarManifest.Processor> processors = null;
+
+			try (Span span = Telemetry.span("processJar")) {
+				span.attribute("type", minecraftJar.getType().toString());
+
+				if (incremental) {
+					processors = processJarIncrementally(minecraftJar, outputJar.getPath(), inputHash, processorContext);
+				}
+
+				span.attribute("incremental", processors != null);
+
+				if (processors == null) {
+					final LocalMavenHelper mavenHelper = getMavenHelper(minecraftJar.getType());
+					final Path outputPath = mavenHelper.copyToMaven(minecraftJar.getPath(), null);
+
+					assert outputJar.getPath().equals(outputPath);
+
+					processors = jarProcessorManager.processJar(outputPath, processorContext);
+				}
+
+				span.bytesWritten(Files.size(outputJar.getPath()));
+			}
+
+			new ProcessedJarManifest(inputHash, processors).write(getManifestPath(outputJar.getPath()));
+		}
+	}
+
+	/**
+	 * Creates the processed jar from a jar processed with different specs, when only some processors have changed.
+	 */
+	@Nullable
+	private List<ProcessedJarManifest.Processor> processJarIncrementally(MinecraftJar minecraftJar, Path outputPath, String inputHash, ProcessorContextImpl processorContext) throws IOException {
+		final PreviousJar previous = findPreviousJar(outputPath, minecraftJar.getType(), inputHash);
+
+		if (previous == null) {
+			return null;
+		}
+
+		getMavenHelper(minecraftJar.getType()).copyToMaven(previous.jar(), null);
+		final List<ProcessedJarManifest.Processor> processors = jarProcessorManager.processJarIncrementally(minecraftJar.getPath(), outputPath, previous.manifest().processors(), processorContext);
+
+		if (processors != null) {
+			getProject().getLogger().info("Updated {} from {}", outputPath, previous.jar());
+		} else {
+			getProject().getLogger().info("Unable to update {} from {}, processing from scratch", outputPath, previous.jar());
+		}
+
+		return processors;
+	}
+
+	/**
+	 * Finds the most recent jar that was processed from the same input with other processor specs.
+	 */
+	@Nullable
+	private PreviousJar findPreviousJar(Path outputPath, MinecraftJar.Type type, String inputHash) throws IOException {
+		// The jars are stored as <group>/<name>/<version>/<name>-<version>.jar, where the name contains the processor hash
+		final String version = outputPath.getParent().getFileName().toString();
+		final Path groupDirectory = outputPath.getParent().getParent().getParent();
+		final String namePrefix = getNamePrefix(type);
+		PreviousJar latest = null;
+		FileTime latestTime = null;
+
+		if (Files.notExists(groupDirectory)) {
+			return null;
+		}
+
+		try (Stream<Path> directories = Files.list(groupDirectory)) {
+			for (Path directory : directories.toList()) {
+				final String name = directory.getFileName().toString();
+
+				if (!name.startsWith(namePrefix) || name.indexOf('-', namePrefix.length()) >= 0 || name.equals(getName(type))) {
+					continue;
+				}
+
+				final Path jar = directory.resolve(version).resolve("%s-%s.jar".formatted(name, version));
+				final Path manifestPath = getManifestPath(jar);
+
+				if (Files.notExists(jar)) {
+					continue;
+				}
+
+				final ProcessedJarManifest manifest = ProcessedJarManifest.read(manifestPath);
+
+				if (manifest == null || !inputHash.equals(manifest.inputHash())) {
+					continue;
+				}
 
-			assert outputJar.getPath().equals(outputPath);
+				final FileTime time = Files.getLastModifiedTime(manifestPath);
 
-			jarProcessorManager.processJar(outputPath, new ProcessorContextImpl(configContext, minecraftJar));
+				if (latestTime == null || time.compareTo(latestTime) > 0) {
+					latest = new PreviousJar(jar, manifest);
+					latestTime = time;
+				}
+			}
 		}
+
+		return latest;
+	}
+
+	private static Path getManifestPath(Path jar) {
+		return jar.resolveSibling(jar.getFileName().toString().replace(".jar", ".processed.json"));
+	}
+
+	private record PreviousJar(Path jar, ProcessedJarManifest manifest) {
 	}
 
 	@Override
@@ -132,9 +242,13 @@ public abstract class ProcessedNamedMinecraftProvider<M extends MinecraftProvide
 
 	@Override
 	protected String getName(MinecraftJar.Type type) {
-		final String jarPrefix = parentMinecraftProvider.getMinecraftProvider().getJarPrefix();
 		// Hash the cache value so that we don't have to process the same JAR multiple times for many projects
-		return jarPrefix + "minecraft-%s-%s".formatted(type.toString(), jarProcessorManager.getJarHash());
+		return getNamePrefix(type) + jarProcessorManager.getJarHash();
+	}
+
+	private String getNamePrefix(MinecraftJar.Type type) {
+		final String jarPrefix = parentMinecraftProvider.getMinecraftProvider().getJarPrefix();
+		return jarPrefix + "minecraft-%s-".formatted(type.toString());
 	}
 
 	@Override
@@ -24,29 +24,27 @@
 
 package net.fabricmc.loom.configuration.sources;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.PrintStream;
+import java.io.StringReader;
 import java.io.UncheckedIOException;
-import java.nio.file.FileVisitResult;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardOpenOption;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import dev.architectury.loom.util.MappingOption;
-import org.apache.commons.io.output.NullOutputStream;
 import org.cadixdev.lorenz.MappingSet;
 import org.cadixdev.mercury.Mercury;
 import org.cadixdev.mercury.remapper.MercuryRemapper;
@@ -62,11 +60,11 @@ import net.fabricmc.loom.util.DeletingFileVisitor;
 import net.fabricmc.loom.util.DependencyDownloader;
 import net.fabricmc.loom.util.FileSystemUtil;
 import net.fabricmc.loom.util.ForgeToolExecutor;
+import net.fabricmc.loom.util.LoggerFilter;
 import net.fabricmc.loom.util.LoomVersions;
 import net.fabricmc.loom.util.SourceRemapper;
 import net.fabricmc.loom.util.ThreadingUtils;
 import net.fabricmc.loom.util.TinyRemapperHelper;
-import net.fabricmc.loom.util.ZipUtils;
 import net.fabricmc.loom.util.service.ScopedSharedServiceManager;
 import net.fabricmc.loom.util.service.SharedServiceManager;
 import net.fabricmc.lorenztiny.TinyMappingsReader;
@@ -148,75 +146,54 @@ public class ForgeSourcesRemapper {
 		forgeSources.forEach(consumer);
 	}
 
+	/**
+	 * Remaps the sources in place, sources that fail to remap are removed.
+	 *
+	 * <p>Mercury parses the sources from the file system, so they are written once to a temporary directory.
+	 * The output is read straight back into the map, with the line numbers fixed up in memory.
+	 */
 	private static void remapSources(Project project, SharedServiceManager serviceManager, Map<String, byte[]> sources) throws IOException {
-		File tmpInput = File.createTempFile("tmpInputForgeSources", null);
-		tmpInput.delete();
-		tmpInput.deleteOnExit();
-		File tmpOutput = File.createTempFile("tmpOutputForgeSources", null);
-		tmpOutput.delete();
-		tmpOutput.deleteOnExit();
-
-		try (FileSystemUtil.Delegate delegate = FileSystemUtil.getJarFileSystem(tmpInput, true)) {
-			ThreadingUtils.TaskCompleter taskCompleter = ThreadingUtils.taskCompleter();
-
-			for (Map.Entry<String, byte[]> entry : sources.entrySet()) {
-				Path path = delegate.get().getPath(entry.getKey());
-
-				if (path.getParent() != null) {
-					Files.createDirectories(path.getParent());
-				}
+		final Path tmpInput = Files.createTempDirectory("loom-forge-sources-input");
+		final Path tmpOutput = Files.createTempDirectory("loom-forge-sources-output");
+
+		try {
+			ThreadingUtils.run(sources.entrySet(), entry -> {
+				final Path path = resolve(tmpInput, entry.getKey());
+				Files.createDirectories(path.getParent());
+				Files.write(path, entry.getValue());
+			});
 
-				taskCompleter.add(() -> {
-					Files.write(path, entry.getValue(), StandardOpenOption.CREATE);
-				});
+			if (ForgeToolExecutor.shouldShowVerboseStderr(project)) {
+				remapForgeSourcesInner(project, serviceManager, tmpInput, tmpOutput);
+			} else {
+				LoggerFilter.withCurrentThreadOutputSuppressed(() -> remapForgeSourcesInner(project, serviceManager, tmpInput, tmpOutput));
 			}
 
-			taskCompleter.complete();
-		}
+			final AtomicInteger failedToRemap = new AtomicInteger();
 
-		PrintStream out = System.out;
-		PrintStream err = System.err;
+			ThreadingUtils.run(new ArrayList<>(sources.keySet()), name -> {
+				final Path path = resolve(tmpOutput, name);
 
-		if (!ForgeToolExecutor.shouldShowVerboseStderr(project)) {
-			System.setOut(new PrintStream(NullOutputStream.NULL_OUTPUT_STREAM));
-			System.setErr(new PrintStream(NullOutputStream.NULL_OUTPUT_STREAM));
-		}
-
-		remapForgeSourcesInner(project, serviceManager, tmpInput.toPath(), tmpOutput.toPath());
-
-		if (!ForgeToolExecutor.shouldShowVerboseStderr(project)) {
-			System.setOut(out);
-			System.setErr(err);
-		}
-
-		tmpInput.delete();
-		int[] failedToRemap = {0};
-
-		try (FileSystemUtil.Delegate delegate = FileSystemUtil.getJarFileSystem(tmpOutput, false)) {
-			ThreadingUtils.TaskCompleter taskCompleter = ThreadingUtils.taskCompleter();
+				if (Files.exists(path)) {
+					sources.put(name, fixupLineNumbers(sources.get(name), Files.readAllBytes(path)));
+				} else {
+					sources.remove(name);
+					project.getLogger().error("Failed to remap sources for " + name);
+					failedToRemap.incrementAndGet();
+				}
+			});
 
-			for (Map.Entry<String, byte[]> entry : new HashSet<>(sources.entrySet())) {
-				taskCompleter.add(() -> {
-					Path path = delegate.get().getPath(entry.getKey());
-
-					if (Files.exists(path)) {
-						sources.put(entry.getKey(), Files.readAllBytes(path));
-					} else {
-						sources.remove(entry.getKey());
-						project.getLogger().error("Failed to remap sources for " + entry.getKey());
-						failedToRemap[0]++;
-					}
-				});
+			if (failedToRemap.get() > 0) {
+				project.getLogger().error("Failed to remap {} forge sources", failedToRemap.get());
 			}
-
-			taskCompleter.complete();
+		} finally {
+			Files.walkFileTree(tmpInput, new DeletingFileVisitor());
+			Files.walkFileTree(tmpOutput, new DeletingFileVisitor());
 		}
+	}
 
-		tmpOutput.delete();
-
-		if (failedToRemap[0] > 0) {
-			project.getLogger().error("Failed to remap {} forge sources", failedToRemap[0]);
-		}
+	private static Path resolve(Path root, String name) {
+		return root.resolve(name.startsWith("/") ? name.substring(1) : name);
 	}
 
 	private static void remapForgeSourcesInner(Project project, SharedServiceManager serviceManager, Path tmpInput, Path tmpOutput) throws IOException {
@@ -252,27 +229,12 @@ public class ForgeSourcesRemapper {
 		mercury.getClassPath().addAll(newClassPath);
 
 		mercury.getProcessors().add(MercuryRemapper.create(mappings));
-		boolean isSrcTmp = false;
-
-		if (!Files.isDirectory(tmpInput)) {
-			Path tmpInput1 = tmpInput;
-			// create tmp directory
-			isSrcTmp = true;
-			tmpInput = Files.createTempDirectory("fabric-loom-src");
-			ZipUtils.unpackAll(tmpInput1, tmpInput);
-		}
 
-		try (FileSystemUtil.Delegate outputFs = FileSystemUtil.getJarFileSystem(tmpOutput, true)) {
-			Path outputFsRoot = outputFs.get().getPath("/");
-			mercury.rewrite(tmpInput, outputFsRoot);
-			fixupLineNumbers(tmpInput, outputFsRoot);
+		try {
+			mercury.rewrite(tmpInput, tmpOutput);
 		} catch (Exception e) {
 			project.getLogger().warn("Could not remap " + tmpInput + " fully!", e);
 		}
-
-		if (isSrcTmp) {
-			Files.walkFileTree(tmpInput, new DeletingFileVisitor());
-		}
 	}
 
 	private static Map<String, byte[]> extractSources(List<Path> forgeInstallerSources) throws IOException {
@@ -296,38 +258,45 @@ public class ForgeSourcesRemapper {
 
 	/**
 	 * Mercury re-organizes imports during remapping, which can result in mismatching line information when debugging.
-	 * This method works around the issue by forcefully re-aligning the output files with the input files by inserting
+	 * This method works around the issue by forcefully re-aligning the output file with the input file by inserting
 	 * empty lines or joining multiple lines into one.
 	 */
-	private static void fixupLineNumbers(Path srcRoot, Path outRoot) throws IOException {
-		Files.walkFileTree(srcRoot, new SimpleFileVisitor<>() {
-			@Override
-			public FileVisitResult visitFile(Path srcPath, BasicFileAttributes attrs) throws IOException {
-				Path outPath = outRoot.resolve(srcRoot.relativize(srcPath).toString());
-				List<String> src = Files.readAllLines(srcPath);
-				List<String> out = Files.readAllLines(outPath);
-				int lastSrc = IntStream.range(0, src.size()).filter(i -> src.get(i).startsWith("import")).max().orElse(0);
-				int lastOut = IntStream.range(0, out.size()).filter(i -> out.get(i).startsWith("import")).max().orElse(0);
-
-				if (lastSrc == lastOut) {
-					return FileVisitResult.CONTINUE;
-				}
+	private static byte[] fixupLineNumbers(byte[] srcBytes, byte[] outBytes) {
+		List<String> src = readLines(srcBytes);
+		List<String> out = readLines(outBytes);
+		int lastSrc = IntStream.range(0, src.size()).filter(i -> src.get(i).startsWith("import")).max().orElse(0);
+		int lastOut = IntStream.range(0, out.size()).filter(i -> out.get(i).startsWith("import")).max().orElse(0);
+
+		if (lastSrc == lastOut) {
+			return outBytes;
+		}
 
-				while (lastOut < lastSrc) {
-					out.add(lastOut + 1, "");
-					lastOut++;
-				}
+		while (lastOut < lastSrc) {
+			out.add(lastOut + 1, "");
+			lastOut++;
+		}
 
-				while (lastSrc < lastOut && lastOut > 0) {
-					out.set(lastOut - 1, out.get(lastOut - 1) + out.get(lastOut));
-					out.remove(lastOut);
-					lastOut--;
-				}
+		while (lastSrc < lastOut && lastOut > 0) {
+			out.set(lastOut - 1, out.get(lastOut - 1) + out.get(lastOut));
+			out.remove(lastOut);
+			lastOut--;
+		}
 
-				Files.write(outPath, out);
+		// Matches Files.write(Path, Iterable), which this used to be written with
+		final StringBuilder builder = new StringBuilder(outBytes.length + 16);
 
-				return FileVisitResult.CONTINUE;
-			}
-		});
+		for (String line : out) {
+			builder.append(line).append(System.lineSeparator());
+		}
+
+		return builder.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static List<String> readLines(byte[] bytes) {
+		try (BufferedReader reader = new BufferedReader(new StringReader(new String(bytes, StandardCharsets.UTF_8)))) {
+			return reader.lines().collect(Collectors.toCollection(ArrayList::new));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
 	}
 }
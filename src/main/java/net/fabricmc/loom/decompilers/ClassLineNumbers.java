@@ -26,20 +26,36 @@ package net.fabricmc.loom.decompilers;
 
 import static java.text.MessageFormat.format;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.Set;
 
 import org.jetbrains.annotations.Nullable;
 
 public record ClassLineNumbers(Map<String, ClassLineNumbers.Entry> lineMap) {
+	// Matches the id of the binary line numbers chunk in the decompile cache, the text format uses LNUM
+	private static final int BINARY_MAGIC = 0x4C4E4D42; // LNMB
+	private static final int BINARY_VERSION = 1;
+
 	public ClassLineNumbers {
 		Objects.requireNonNull(lineMap, "lineMap");
 
@@ -68,8 +84,8 @@ public record ClassLineNumbers(Map<String, ClassLineNumbers.Entry> lineMap) {
 		int lineNumber = 0;
 
 		record CurrentClass(String className, int maxLine, int maxLineDest) {
-			void putEntry(Map<String, ClassLineNumbers.Entry> entries, Map<Integer, Integer> mappings) {
-				var entry = new ClassLineNumbers.Entry(className(), maxLine(), maxLineDest(), Collections.unmodifiableMap(mappings));
+			void putEntry(Map<String, ClassLineNumbers.Entry> entries, LineMap.Builder mappings) {
+				var entry = new ClassLineNumbers.Entry(className(), maxLine(), maxLineDest(), mappings.build());
 
 				final ClassLineNumbers.Entry previous = entries.put(className(), entry);
 
@@ -80,7 +96,7 @@ public record ClassLineNumbers(Map<String, ClassLineNumbers.Entry> lineMap) {
 		}
 
 		CurrentClass currentClass = null;
-		Map<Integer, Integer> currentMappings = new HashMap<>();
+		LineMap.Builder currentMappings = new LineMap.Builder();
 
 		try {
 			while ((line = reader.readLine()) != null) {
@@ -93,7 +109,7 @@ public record ClassLineNumbers(Map<String, ClassLineNumbers.Entry> lineMap) {
 				if (line.charAt(0) != '\t') {
 					if (currentClass != null) {
 						currentClass.putEntry(lineMap, currentMappings);
-						currentMappings = new HashMap<>();
+						currentMappings = new LineMap.Builder();
 					}
 
 					currentClass = new CurrentClass(segments[0], Integer.parseInt(segments[1]), Integer.parseInt(segments[2]));
@@ -120,6 +136,61 @@ public record ClassLineNumbers(Map<String, ClassLineNumbers.Entry> lineMap) {
 		}
 	}
 
+	/**
+	 * Reads line numbers written with {@link #writeBinary(Path)}.
+	 */
+	public static ClassLineNumbers readBinary(Path lineMappingsPath) throws IOException {
+		try (var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(lineMappingsPath)))) {
+			return readBinary(input);
+		}
+	}
+
+	public static ClassLineNumbers readBinary(DataInput input) throws IOException {
+		final int magic = input.readInt();
+
+		if (magic != BINARY_MAGIC) {
+			throw new IOException("Invalid binary line mappings header: " + Integer.toHexString(magic));
+		}
+
+		final int version = input.readUnsignedByte();
+
+		if (version != BINARY_VERSION) {
+			throw new IOException("Unsupported binary line mappings version: " + version);
+		}
+
+		final int count = readVarInt(input);
+		final var lineMap = new HashMap<String, ClassLineNumbers.Entry>(count * 4 / 3 + 1);
+
+		for (int i = 0; i < count; i++) {
+			final Entry entry = Entry.readBinary(input);
+
+			if (lineMap.put(entry.className(), entry) != null) {
+				throw new IOException("Duplicate class line mappings for " + entry.className());
+			}
+		}
+
+		return new ClassLineNumbers(Collections.unmodifiableMap(lineMap));
+	}
+
+	/**
+	 * Writes the line numbers in a compact binary format, which is much faster to read than the text format.
+	 */
+	public void writeBinary(Path lineMappingsPath) throws IOException {
+		try (var output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(lineMappingsPath)))) {
+			writeBinary(output);
+		}
+	}
+
+	public void writeBinary(DataOutput output) throws IOException {
+		output.writeInt(BINARY_MAGIC);
+		output.writeByte(BINARY_VERSION);
+		writeVarInt(output, lineMap.size());
+
+		for (Entry entry : lineMap.values()) {
+			entry.writeBinary(output);
+		}
+	}
+
 	/**
 	 * Merge two ClassLineNumbers together, throwing an exception if there are any duplicate class line mappings.
 	 */
@@ -142,7 +213,76 @@ public record ClassLineNumbers(Map<String, ClassLineNumbers.Entry> lineMap) {
 		return new ClassLineNumbers(Collections.unmodifiableMap(lineMap));
 	}
 
+	/**
+	 * The line map is always stored as a {@link LineMap}, use {@link #lines()} to look up lines without boxing.
+	 */
 	public record Entry(String className, int maxLine, int maxLineDest, Map<Integer, Integer> lineMap) {
+		public Entry {
+			Objects.requireNonNull(className, "className");
+			Objects.requireNonNull(lineMap, "lineMap");
+			lineMap = LineMap.of(lineMap);
+		}
+
+		public LineMap lines() {
+			return (LineMap) lineMap;
+		}
+
+		/**
+		 * Finds the line that the given source line is remapped to, this is the destination of the first mapped line at or after it.
+		 */
+		public int remap(int line) {
+			if (line >= maxLine) {
+				return maxLineDest;
+			}
+
+			final LineMap lines = lines();
+			final int index = lines.ceilingIndex(line);
+
+			if (index < 0 || lines.sourceLine(index) > maxLine) {
+				return maxLineDest;
+			}
+
+			return lines.destLine(index);
+		}
+
+		public static Entry readBinary(DataInput input) throws IOException {
+			final String className = input.readUTF();
+			final int maxLine = readVarInt(input);
+			final int maxLineDest = readVarInt(input);
+			final int size = readVarInt(input);
+			final int[] sourceLines = new int[size];
+			final int[] destLines = new int[size];
+			int sourceLine = 0;
+			int destLine = 0;
+
+			for (int i = 0; i < size; i++) {
+				// Source lines are sorted so are stored as the gap to the previous line, destination lines can go backwards.
+				sourceLine += readVarInt(input);
+				destLine += zigZagDecode(readVarInt(input));
+				sourceLines[i] = sourceLine;
+				destLines[i] = destLine;
+			}
+
+			return new Entry(className, maxLine, maxLineDest, new LineMap(sourceLines, destLines));
+		}
+
+		public void writeBinary(DataOutput output) throws IOException {
+			output.writeUTF(className);
+			writeVarInt(output, maxLine);
+			writeVarInt(output, maxLineDest);
+			final LineMap lines = lines();
+			writeVarInt(output, lines.size());
+			int sourceLine = 0;
+			int destLine = 0;
+
+			for (int i = 0; i < lines.size(); i++) {
+				writeVarInt(output, lines.sourceLine(i) - sourceLine);
+				writeVarInt(output, zigZagEncode(lines.destLine(i) - destLine));
+				sourceLine = lines.sourceLine(i);
+				destLine = lines.destLine(i);
+			}
+		}
+
 		public void write(Writer writer) throws IOException {
 			writer.write(className);
 			writer.write('\t');
@@ -151,13 +291,232 @@ public record ClassLineNumbers(Map<String, ClassLineNumbers.Entry> lineMap) {
 			writer.write(Integer.toString(maxLineDest));
 			writer.write('\n');
 
-			for (Map.Entry<Integer, Integer> lineEntry : lineMap.entrySet()) {
+			final LineMap lines = lines();
+
+			for (int i = 0; i < lines.size(); i++) {
 				writer.write('\t');
-				writer.write(Integer.toString(lineEntry.getKey()));
+				writer.write(Integer.toString(lines.sourceLine(i)));
 				writer.write('\t');
-				writer.write(Integer.toString(lineEntry.getValue()));
+				writer.write(Integer.toString(lines.destLine(i)));
 				writer.write('\n');
 			}
 		}
 	}
+
+	/**
+	 * An immutable map of source lines to destination lines, stored as two arrays sorted by the source line.
+	 */
+	public static final class LineMap extends AbstractMap<Integer, Integer> {
+		private static final LineMap EMPTY = new LineMap(new int[0], new int[0]);
+
+		private final int[] sourceLines;
+		private final int[] destLines;
+
+		private LineMap(int[] sourceLines, int[] destLines) {
+			this.sourceLines = sourceLines;
+			this.destLines = destLines;
+		}
+
+		public static LineMap of(Map<Integer, Integer> lines) {
+			if (lines instanceof LineMap lineMap) {
+				return lineMap;
+			}
+
+			final Builder builder = new Builder();
+
+			for (Map.Entry<Integer, Integer> entry : lines.entrySet()) {
+				builder.put(entry.getKey(), entry.getValue());
+			}
+
+			return builder.build();
+		}
+
+		@Override
+		public int size() {
+			return sourceLines.length;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return sourceLines.length == 0;
+		}
+
+		public int sourceLine(int index) {
+			return sourceLines[index];
+		}
+
+		public int destLine(int index) {
+			return destLines[index];
+		}
+
+		/**
+		 * @return the destination of the source line, or -1 if the line is not mapped
+		 */
+		public int getDestLine(int sourceLine) {
+			final int index = Arrays.binarySearch(sourceLines, sourceLine);
+			return index >= 0 ? destLines[index] : -1;
+		}
+
+		@Override
+		public Integer get(Object key) {
+			if (!(key instanceof Integer sourceLine)) {
+				return null;
+			}
+
+			final int index = Arrays.binarySearch(sourceLines, sourceLine);
+			return index >= 0 ? destLines[index] : null;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return key instanceof Integer sourceLine && Arrays.binarySearch(sourceLines, sourceLine) >= 0;
+		}
+
+		@Override
+		public Set<Map.Entry<Integer, Integer>> entrySet() {
+			return new AbstractSet<>() {
+				@Override
+				public Iterator<Map.Entry<Integer, Integer>> iterator() {
+					return new Iterator<>() {
+						private int index = 0;
+
+						@Override
+						public boolean hasNext() {
+							return index < sourceLines.length;
+						}
+
+						@Override
+						public Map.Entry<Integer, Integer> next() {
+							if (!hasNext()) {
+								throw new NoSuchElementException();
+							}
+
+							final Map.Entry<Integer, Integer> entry = new SimpleImmutableEntry<>(sourceLines[index], destLines[index]);
+							index++;
+							return entry;
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return sourceLines.length;
+				}
+			};
+		}
+
+		/**
+		 * @return the index of the lowest source line greater than or equal to the given line, or -1 if there is none
+		 */
+		public int ceilingIndex(int sourceLine) {
+			int index = Arrays.binarySearch(sourceLines, sourceLine);
+
+			if (index < 0) {
+				index = -index - 1;
+			}
+
+			return index < sourceLines.length ? index : -1;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof LineMap other) {
+				return Arrays.equals(sourceLines, other.sourceLines) && Arrays.equals(destLines, other.destLines);
+			}
+
+			return super.equals(obj);
+		}
+
+		@Override
+		public int hashCode() {
+			// Matches the hash code of any other map with the same lines
+			int hashCode = 0;
+
+			for (int i = 0; i < sourceLines.length; i++) {
+				hashCode += Integer.hashCode(sourceLines[i]) ^ Integer.hashCode(destLines[i]);
+			}
+
+			return hashCode;
+		}
+
+		public static final class Builder {
+			// Each line is packed as the source line in the high bits and the insertion order in the low bits,
+			// so sorting keeps the order of duplicate source lines and the last one can be kept, like Map.put.
+			private long[] keys = new long[16];
+			private int[] values = new int[16];
+			private int size = 0;
+
+			public Builder put(int sourceLine, int destLine) {
+				if (size == keys.length) {
+					keys = Arrays.copyOf(keys, size * 2);
+					values = Arrays.copyOf(values, size * 2);
+				}
+
+				keys[size] = ((long) sourceLine << 32) | size;
+				values[size] = destLine;
+				size++;
+				return this;
+			}
+
+			public LineMap build() {
+				if (size == 0) {
+					return EMPTY;
+				}
+
+				final long[] sorted = Arrays.copyOf(keys, size);
+				Arrays.sort(sorted);
+
+				final int[] sourceLines = new int[size];
+				final int[] destLines = new int[size];
+				int count = 0;
+
+				for (long key : sorted) {
+					final int sourceLine = (int) (key >> 32);
+
+					if (count > 0 && sourceLines[count - 1] == sourceLine) {
+						// Replace the earlier mapping of the same line
+						count--;
+					}
+
+					sourceLines[count] = sourceLine;
+					destLines[count] = values[(int) key];
+					count++;
+				}
+
+				return new LineMap(Arrays.copyOf(sourceLines, count), Arrays.copyOf(destLines, count));
+			}
+		}
+	}
+
+	private static int readVarInt(DataInput input) throws IOException {
+		int value = 0;
+
+		for (int shift = 0; shift < 35; shift += 7) {
+			final int b = input.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+
+		throw new IOException("VarInt is too long");
+	}
+
+	private static void writeVarInt(DataOutput output, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			output.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+
+		output.writeByte(value);
+	}
+
+	private static int zigZagEncode(int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	private static int zigZagDecode(int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
 }
@@ -106,20 +106,10 @@ public record LineNumberRemapper(ClassLineNumbers lineNumbers) {
 			return new MethodVisitor(api, super.visitMethod(access, name, descriptor, signature, exceptions)) {
 				@Override
 				public void visitLineNumber(int line, Label start) {
-					int tLine = line;
-
-					if (tLine <= 0) {
+					if (line <= 0) {
 						super.visitLineNumber(line, start);
-					} else if (tLine >= lineNumbers.maxLine()) {
-						super.visitLineNumber(lineNumbers.maxLineDest(), start);
 					} else {
-						Integer matchedLine = null;
-
-						while (tLine <= lineNumbers.maxLine() && ((matchedLine = lineNumbers.lineMap().get(tLine)) == null)) {
-							tLine++;
-						}
-
-						super.visitLineNumber(matchedLine != null ? matchedLine : lineNumbers.maxLineDest(), start);
+						super.visitLineNumber(lineNumbers.remap(line), start);
 					}
 				}
 			};
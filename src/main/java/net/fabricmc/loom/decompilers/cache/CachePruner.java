@@ -0,0 +1,227 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.decompilers.cache;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Prunes the files in a {@link CachedFileStoreImpl} without holding the whole cache in memory.
+ *
+ * <p>The cache is walked once, files over the max age are deleted straight away and the rest are counted into fixed width
+ * buckets by their last modified time. Only when the cache is over the max file count or size are more walks needed,
+ * each one deletes every file in the buckets older than the one that straddles the limit and splits that bucket into finer buckets.
+ * Once the straddling bucket is small enough its files are sorted, so at most {@link #MAX_SORTED_ENTRIES} paths are held at once.
+ *
+ * <p>Files are deleted on the pruning thread as they are visited, which is safe while walking the tree.
+ * Pruning runs in the background on the shared IO executor, so it must not wait on other tasks of that executor.
+ */
+final class CachePruner {
+	private static final int BUCKET_COUNT = 4096;
+	private static final int MAX_SORTED_ENTRIES = 16384;
+
+	private final Path root;
+	private final CachedFileStoreImpl.CacheRules cacheRules;
+	private final long oldest;
+	private final long[] bucketCounts = new long[BUCKET_COUNT];
+	private final long[] bucketBytes = new long[BUCKET_COUNT];
+
+	CachePruner(Path root, CachedFileStoreImpl.CacheRules cacheRules) {
+		this.root = root;
+		this.cacheRules = cacheRules;
+		this.oldest = Instant.now().minus(cacheRules.maxAge()).toEpochMilli();
+	}
+
+	CachedFileStore.PruneResult prune() throws IOException {
+		final Deleter deleter = new Deleter();
+
+		long rangeStart = oldest;
+		long bucketWidth = bucketWidth(System.currentTimeMillis() - oldest + 1);
+		final long bucketStart = rangeStart;
+		final long width = bucketWidth;
+
+		// Delete the files that are too old, and count the others into buckets
+		walk((path, lastModified, size) -> {
+			if (lastModified < oldest) {
+				deleter.delete(path, size);
+				return;
+			}
+
+			count(lastModified, size, bucketStart, width);
+		});
+
+		long totalCount = 0;
+		long totalBytes = 0;
+
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			totalCount += bucketCounts[i];
+			totalBytes += bucketBytes[i];
+		}
+
+		long excessCount = Math.max(0, totalCount - cacheRules.maxFiles());
+		long excessBytes = Math.max(0, totalBytes - cacheRules.maxBytes());
+
+		if (excessCount == 0 && excessBytes == 0) {
+			return deleter.finish();
+		}
+
+		// Files older than this have already been deleted by an earlier walk
+		long deletedBefore = oldest;
+
+		while (true) {
+			// Find the bucket that straddles the limit, every bucket older than it can be deleted.
+			int boundary = 0;
+
+			while (boundary < BUCKET_COUNT - 1 && (bucketCounts[boundary] < excessCount || bucketBytes[boundary] < excessBytes)) {
+				excessCount = Math.max(0, excessCount - bucketCounts[boundary]);
+				excessBytes = Math.max(0, excessBytes - bucketBytes[boundary]);
+				boundary++;
+			}
+
+			final long deleteFrom = deletedBefore;
+			final long boundaryStart = rangeStart + boundary * bucketWidth;
+			// The last bucket also holds any files modified after the walk started
+			final long boundaryEnd = boundary == BUCKET_COUNT - 1 ? Long.MAX_VALUE : boundaryStart + bucketWidth;
+
+			if (bucketCounts[boundary] <= MAX_SORTED_ENTRIES || bucketWidth == 1) {
+				pruneBoundary(deleter, deleteFrom, boundaryStart, boundaryEnd, bucketWidth == 1, excessCount, excessBytes);
+				return deleter.finish();
+			}
+
+			// Too many files to sort, split the boundary bucket into finer buckets and walk again
+			final long subWidth = bucketWidth(bucketWidth);
+			Arrays.fill(bucketCounts, 0);
+			Arrays.fill(bucketBytes, 0);
+
+			walk((path, lastModified, size) -> {
+				if (lastModified >= deleteFrom && lastModified < boundaryStart) {
+					deleter.delete(path, size);
+				} else if (lastModified >= boundaryStart && lastModified < boundaryEnd) {
+					count(lastModified, size, boundaryStart, subWidth);
+				}
+			});
+
+			deletedBefore = boundaryStart;
+			rangeStart = boundaryStart;
+			bucketWidth = subWidth;
+		}
+	}
+
+	/**
+	 * Delete the files older than the boundary bucket, and the oldest files in it until the limits are met.
+	 *
+	 * @param sameAge when every file in the boundary bucket has the same last modified time, so they do not need sorting
+	 */
+	private void pruneBoundary(Deleter deleter, long deleteFrom, long boundaryStart, long boundaryEnd, boolean sameAge, long excessCount, long excessBytes) throws IOException {
+		final List<PathEntry> boundaryEntries = new ArrayList<>();
+		final long[] excess = {excessCount, excessBytes};
+
+		walk((path, lastModified, size) -> {
+			if (lastModified >= deleteFrom && lastModified < boundaryStart) {
+				deleter.delete(path, size);
+			} else if (lastModified >= boundaryStart && lastModified < boundaryEnd) {
+				if (!sameAge) {
+					boundaryEntries.add(new PathEntry(path, lastModified, size));
+				} else if (excess[0] > 0 || excess[1] > 0) {
+					deleter.delete(path, size);
+					excess[0]--;
+					excess[1] -= size;
+				}
+			}
+		});
+
+		// Sorted oldest -> newest
+		boundaryEntries.sort(Comparator.comparingLong(PathEntry::lastModified));
+
+		for (PathEntry entry : boundaryEntries) {
+			if (excess[0] <= 0 && excess[1] <= 0) {
+				break;
+			}
+
+			deleter.delete(entry.path(), entry.size());
+			excess[0]--;
+			excess[1] -= entry.size();
+		}
+	}
+
+	private void count(long lastModified, long size, long rangeStart, long bucketWidth) {
+		final int bucket = (int) Math.min(BUCKET_COUNT - 1, (lastModified - rangeStart) / bucketWidth);
+		bucketCounts[bucket]++;
+		bucketBytes[bucket] += size;
+	}
+
+	private static long bucketWidth(long range) {
+		return Math.max(1, (range + BUCKET_COUNT - 1) / BUCKET_COUNT);
+	}
+
+	private void walk(FileConsumer consumer) throws IOException {
+		Files.walkFileTree(root, new SimpleFileVisitor<>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				if (attrs.isRegularFile()) {
+					consumer.accept(file, attrs.lastModifiedTime().toMillis(), attrs.size());
+				}
+
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	@FunctionalInterface
+	private interface FileConsumer {
+		void accept(Path path, long lastModified, long size) throws IOException;
+	}
+
+	private record PathEntry(Path path, long lastModified, long size) {
+	}
+
+	/**
+	 * Deletes files on the pruning thread, counting what was removed.
+	 */
+	private static final class Deleter {
+		private long deletedCount = 0;
+		private long deletedBytes = 0;
+
+		void delete(Path path, long size) throws IOException {
+			if (Files.deleteIfExists(path)) {
+				deletedCount++;
+				deletedBytes += size;
+			}
+		}
+
+		CachedFileStore.PruneResult finish() {
+			return new CachedFileStore.PruneResult(deletedCount, deletedBytes);
+		}
+	}
+}
@@ -27,11 +27,15 @@ package net.fabricmc.loom.decompilers.cache;
 import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.StringWriter;
+import java.io.StringReader;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
@@ -49,12 +53,16 @@ import net.fabricmc.loom.decompilers.ClassLineNumbers;
 // Uses the RIFF format, allows for appending the line numbers to the end of the file
 // Stores the source code and line numbers for the class
 public record CachedData(String className, String sources, @Nullable ClassLineNumbers.Entry lineNumbers) {
-	public static final CachedFileStore.EntrySerializer<CachedData> SERIALIZER = new EntrySerializer();
+	private static final EntrySerializer ENTRY_SERIALIZER = new EntrySerializer();
+	public static final CachedFileStore.EntrySerializer<CachedData> SERIALIZER = ENTRY_SERIALIZER;
+	public static final CachedFileStore.BufferSerializer<CachedData> BUFFER_SERIALIZER = ENTRY_SERIALIZER;
 
 	private static final String HEADER_ID = "LOOM";
 	private static final String NAME_ID = "NAME";
 	private static final String SOURCES_ID = "SRC ";
+	// Line numbers in the text format, only read for entries written by older versions
 	private static final String LINE_NUMBERS_ID = "LNUM";
+	private static final String BINARY_LINE_NUMBERS_ID = "LNMB";
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(CachedData.class);
 
@@ -97,10 +105,14 @@ public record CachedData(String className, String sources, @Nullable ClassLineNu
 	private void writeLineNumbers(FileChannel fileChannel) throws IOException {
 		Objects.requireNonNull(lineNumbers);
 
-		try (var c = new RiffChunk(LINE_NUMBERS_ID, fileChannel);
-				StringWriter stringWriter = new StringWriter()) {
-			lineNumbers.write(stringWriter);
-			fileChannel.write(ByteBuffer.wrap(stringWriter.toString().getBytes(StandardCharsets.UTF_8)));
+		try (var c = new RiffChunk(BINARY_LINE_NUMBERS_ID, fileChannel)) {
+			final var bytes = new ByteArrayOutputStream();
+
+			try (var output = new DataOutputStream(bytes)) {
+				lineNumbers.writeBinary(output);
+			}
+
+			fileChannel.write(ByteBuffer.wrap(bytes.toByteArray()));
 		}
 	}
 
@@ -154,6 +166,13 @@ public record CachedData(String className, String sources, @Nullable ClassLineNu
 					lineNumbers = classLineNumbers.lineMap().values().iterator().next();
 				}
 			}
+			case BINARY_LINE_NUMBERS_ID -> {
+				if (lineNumbers != null) {
+					throw new IOException("Duplicate line numbers chunk");
+				}
+
+				lineNumbers = ClassLineNumbers.Entry.readBinary(new DataInputStream(new ByteArrayInputStream(chunkData)));
+			}
 			default -> {
 				// Skip unknown chunk
 				LOGGER.warn("Skipping unknown chunk: {} of size {}", chunkHeader, chunkLength);
@@ -169,6 +188,95 @@ public record CachedData(String className, String sources, @Nullable ClassLineNu
 		return new CachedData(className, sources, lineNumbers);
 	}
 
+	/**
+	 * Read the cached data directly from the buffer, without first copying it to the heap.
+	 * The buffer's position is advanced to the end of the entry.
+	 */
+	public static CachedData read(ByteBuffer buffer) throws IOException {
+		buffer.order(ByteOrder.BIG_ENDIAN);
+
+		final String header = readHeader(buffer);
+
+		if (!header.equals(HEADER_ID)) {
+			throw new IOException("Invalid RIFF header: " + header + ", expected " + HEADER_ID);
+		}
+
+		final ByteBuffer data = readChunk(buffer, buffer.getInt());
+
+		String className = null;
+		String sources = null;
+		ClassLineNumbers.Entry lineNumbers = null;
+
+		while (data.hasRemaining()) {
+			String chunkHeader = readHeader(data);
+			int chunkLength = data.getInt();
+			ByteBuffer chunkData = readChunk(data, chunkLength);
+
+			switch (chunkHeader) {
+			case NAME_ID -> {
+				if (className != null) {
+					throw new IOException("Duplicate name chunk");
+				}
+
+				className = StandardCharsets.UTF_8.decode(chunkData).toString();
+			}
+			case SOURCES_ID -> {
+				if (sources != null) {
+					throw new IOException("Duplicate sources chunk");
+				}
+
+				sources = StandardCharsets.UTF_8.decode(chunkData).toString();
+			}
+			case LINE_NUMBERS_ID -> {
+				if (lineNumbers != null) {
+					throw new IOException("Duplicate line numbers chunk");
+				}
+
+				try (var br = new BufferedReader(new StringReader(StandardCharsets.UTF_8.decode(chunkData).toString()))) {
+					ClassLineNumbers classLineNumbers = ClassLineNumbers.readMappings(br);
+
+					if (classLineNumbers.lineMap().size() != 1) {
+						throw new IOException("Expected exactly one class line numbers entry got " + classLineNumbers.lineMap().size() + " entries");
+					}
+
+					lineNumbers = classLineNumbers.lineMap().values().iterator().next();
+				}
+			}
+			case BINARY_LINE_NUMBERS_ID -> {
+				if (lineNumbers != null) {
+					throw new IOException("Duplicate line numbers chunk");
+				}
+
+				final byte[] bytes = new byte[chunkData.remaining()];
+				chunkData.get(bytes);
+				lineNumbers = ClassLineNumbers.Entry.readBinary(new DataInputStream(new ByteArrayInputStream(bytes)));
+			}
+			default -> LOGGER.warn("Skipping unknown chunk: {} of size {}", chunkHeader, chunkLength);
+			}
+		}
+
+		if (sources == null) {
+			throw new IOException("Missing sources");
+		}
+
+		return new CachedData(className, sources, lineNumbers);
+	}
+
+	private static String readHeader(ByteBuffer buffer) throws IOException {
+		return StandardCharsets.US_ASCII.decode(readChunk(buffer, 4)).toString();
+	}
+
+	// Returns a view of the next length bytes, and advances the buffer past them
+	private static ByteBuffer readChunk(ByteBuffer buffer, int length) throws IOException {
+		if (length < 0 || length > buffer.remaining()) {
+			throw new IOException("Failed to read bytes expected " + length + " bytes but got " + buffer.remaining() + " bytes");
+		}
+
+		final ByteBuffer chunk = buffer.slice(buffer.position(), length);
+		buffer.position(buffer.position() + length);
+		return chunk;
+	}
+
 	private static String readHeader(InputStream inputStream) throws IOException {
 		byte[] header = readBytes(inputStream, 4);
 		return new String(header, StandardCharsets.US_ASCII);
@@ -191,7 +299,7 @@ public record CachedData(String className, String sources, @Nullable ClassLineNu
 		return bytes;
 	}
 
-	static class EntrySerializer implements CachedFileStore.EntrySerializer<CachedData> {
+	static class EntrySerializer implements CachedFileStore.EntrySerializer<CachedData>, CachedFileStore.BufferSerializer<CachedData> {
 		@Override
 		public CachedData read(Path path) throws IOException {
 			try (var inputStream = new BufferedInputStream(Files.newInputStream(path))) {
@@ -205,5 +313,15 @@ public record CachedData(String className, String sources, @Nullable ClassLineNu
 				entry.write(fileChannel);
 			}
 		}
+
+		@Override
+		public CachedData read(ByteBuffer buffer) throws IOException {
+			return CachedData.read(buffer);
+		}
+
+		@Override
+		public void write(CachedData entry, FileChannel fileChannel) {
+			entry.write(fileChannel);
+		}
 	}
 }
@@ -24,19 +24,53 @@
 
 package net.fabricmc.loom.decompilers.cache;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 
 import org.jetbrains.annotations.Nullable;
 
-public interface CachedFileStore<T> {
+public interface CachedFileStore<T> extends Closeable {
 	@Nullable T getEntry(String key) throws IOException;
 
 	void putEntry(String key, T entry) throws IOException;
 
+	/**
+	 * Remove entries from the store that no longer satisfy its cache rules.
+	 */
+	PruneResult prune() throws IOException;
+
+	@Override
+	default void close() throws IOException {
+	}
+
+	/**
+	 * @param removedEntries The number of entries removed from the store
+	 * @param removedBytes The size of the entries removed from the store
+	 */
+	record PruneResult(long removedEntries, long removedBytes) {
+	}
+
 	interface EntrySerializer<T> {
 		T read(Path path) throws IOException;
 
 		void write(T entry, Path path) throws IOException;
 	}
+
+	/**
+	 * A serializer that reads entries directly from a (possibly memory mapped) buffer, used by {@link PackedCachedFileStore}.
+	 */
+	interface BufferSerializer<T> {
+		/**
+		 * @param buffer A buffer positioned at the start of the entry, limited to the end of the entry
+		 */
+		T read(ByteBuffer buffer) throws IOException;
+
+		/**
+		 * Write the entry to the channel starting at its current position.
+		 */
+		void write(T entry, FileChannel fileChannel) throws IOException;
+	}
 }
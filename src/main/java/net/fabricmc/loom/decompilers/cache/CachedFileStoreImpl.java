@@ -30,13 +30,7 @@ import java.nio.file.Path;
 import java.nio.file.attribute.FileTime;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.Iterator;
-import java.util.List;
 import java.util.Objects;
-import java.util.stream.Stream;
 
 import org.jetbrains.annotations.Nullable;
 
@@ -69,73 +63,21 @@ public record CachedFileStoreImpl<T>(Path root, EntrySerializer<T> entrySerializ
 		return root.resolve(key);
 	}
 
-	public void prune() throws IOException {
-		// Sorted oldest -> newest
-		List<PathEntry> entries = new ArrayList<>();
-
-		// Iterate over all the files in the cache, and store them into the sorted list.
-		try (Stream<Path> walk = Files.walk(root)) {
-			Iterator<Path> iterator = walk.iterator();
-
-			while (iterator.hasNext()) {
-				final Path entry = iterator.next();
-
-				if (!Files.isRegularFile(entry)) {
-					continue;
-				}
-
-				insertSorted(entries, new PathEntry(entry));
-			}
-		}
-
-		// Delete the oldest files to get under the max file limit
-		if (entries.size() > cacheRules.maxFiles) {
-			for (int i = 0; i < cacheRules.maxFiles; i++) {
-				PathEntry toRemove = entries.remove(0);
-				Files.delete(toRemove.path);
-			}
-		}
-
-		final Instant maxAge = Instant.now().minus(cacheRules().maxAge());
-		Iterator<PathEntry> iterator = entries.iterator();
-
-		while (iterator.hasNext()) {
-			final PathEntry entry = iterator.next();
-
-			if (entry.lastModified().toInstant().isAfter(maxAge)) {
-				// File is not longer than the max age
-				// As this is a sorted list we don't need to keep checking
-				break;
-			}
-
-			// Remove all files over the max age
-			iterator.remove();
-			Files.delete(entry.path);
-		}
-	}
-
-	private void insertSorted(List<PathEntry> list, PathEntry entry) {
-		int index = Collections.binarySearch(list, entry, Comparator.comparing(PathEntry::lastModified));
-
-		if (index < 0) {
-			index = -index - 1;
-		}
-
-		list.add(index, entry);
+	@Override
+	public PruneResult prune() throws IOException {
+		return new CachePruner(root, cacheRules).prune();
 	}
 
 	/**
 	 * The rules for the cache.
 	 *
 	 * @param maxFiles The maximum number of files in the cache
+	 * @param maxBytes The maximum total size of the files in the cache
 	 * @param maxAge  The maximum age of a file in the cache
 	 */
-	public record CacheRules(long maxFiles, Duration maxAge) {
-	}
-
-	record PathEntry(Path path, FileTime lastModified) {
-		PathEntry(Path path) throws IOException {
-			this(path, Files.getLastModifiedTime(path));
+	public record CacheRules(long maxFiles, long maxBytes, Duration maxAge) {
+		public CacheRules(long maxFiles, Duration maxAge) {
+			this(maxFiles, Long.MAX_VALUE, maxAge);
 		}
 	}
 }
@@ -24,15 +24,30 @@
 
 package net.fabricmc.loom.decompilers.cache;
 
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
 
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
@@ -40,63 +55,49 @@ import org.slf4j.LoggerFactory;
 
 import net.fabricmc.loom.decompilers.ClassLineNumbers;
 import net.fabricmc.loom.util.FileSystemUtil;
+import net.fabricmc.loom.util.service.SharedExecutorService;
 
 public record CachedJarProcessor(CachedFileStore<CachedData> fileStore, String baseHash) {
 	private static final Logger LOGGER = LoggerFactory.getLogger(CachedJarProcessor.class);
+	private static final int LOOKUP_BATCH_SIZE = 64;
 
 	public WorkRequest prepareJob(Path inputJar) throws IOException {
-		boolean isIncomplete = false;
-		boolean hasSomeExisting = false;
+		final long startTime = System.nanoTime();
 
 		Path incompleteJar = Files.createTempFile("loom-cache-incomplete", ".jar");
 		Path existingJar = Files.createTempFile("loom-cache-existing", ".jar");
 
-		// We must delete the empty files, so they can be created as a zip
-		Files.delete(incompleteJar);
-		Files.delete(existingJar);
-
-		// Sources name -> hash
-		Map<String, String> outputNameMap = new HashMap<>();
-		Map<String, ClassLineNumbers.Entry> lineNumbersMap = new HashMap<>();
-
-		int hits = 0;
-		int misses = 0;
-
-		try (FileSystemUtil.Delegate inputFs = FileSystemUtil.getJarFileSystem(inputJar, false);
-				FileSystemUtil.Delegate incompleteFs = FileSystemUtil.getJarFileSystem(incompleteJar, true);
-				FileSystemUtil.Delegate existingFs = FileSystemUtil.getJarFileSystem(existingJar, true)) {
-			final List<ClassEntry> inputClasses = JarWalker.findClasses(inputFs);
-
-			for (ClassEntry entry : inputClasses) {
-				String outputFileName = entry.sourcesFileName();
-				String fullHash = baseHash + "/" + entry.hash(inputFs.getRoot());
-
-				final CachedData entryData = fileStore.getEntry(fullHash);
-
-				if (entryData == null) {
-					// Cached entry was not found, so copy the input to the incomplete jar to be processed
-					entry.copyTo(inputFs.getRoot(), incompleteFs.getRoot());
-					isIncomplete = true;
-					outputNameMap.put(outputFileName, fullHash);
-
-					LOGGER.debug("Cached entry ({}) not found, going to process {}", fullHash, outputFileName);
-					misses++;
-				} else {
-					final Path outputPath = existingFs.getPath(outputFileName);
-					Files.createDirectories(outputPath.getParent());
-					Files.writeString(outputPath, entryData.sources());
-
-					if (entryData.lineNumbers() != null) {
-						lineNumbersMap.put(entryData.className(), entryData.lineNumbers());
-					} else {
-						LOGGER.info("Cached entry ({}) does not have line numbers", outputFileName);
+		final var job = new PrepareJobState();
+		final SharedExecutorService executors = SharedExecutorService.get();
+		final ExecutorService executor = executors.cpu();
+		final int maxPending = executors.getCpuThreads() * 4;
+
+		try (ZipFile inputZip = new ZipFile(inputJar.toFile());
+				JarOutput incompleteOutput = new JarOutput(incompleteJar);
+				JarOutput existingOutput = new JarOutput(existingJar)) {
+			long stageStart = System.nanoTime();
+			final List<ClassEntry> inputClasses = JarWalker.findClasses(inputZip);
+			job.findClassesNanos = System.nanoTime() - stageStart;
+
+			// Hash and look up batches of classes on the worker threads.
+			// The results are written to the jars in the input order, limiting the number of batches held in memory.
+			final Deque<Future<List<LookupResult>>> pending = new ArrayDeque<>();
+
+			try {
+				for (int i = 0; i < inputClasses.size(); i += LOOKUP_BATCH_SIZE) {
+					final List<ClassEntry> batch = inputClasses.subList(i, Math.min(i + LOOKUP_BATCH_SIZE, inputClasses.size()));
+					pending.add(executor.submit(() -> lookup(inputZip, batch, job)));
+
+					if (pending.size() >= maxPending) {
+						job.write(await(pending.poll()), incompleteOutput, existingOutput);
 					}
+				}
 
-					hasSomeExisting = true;
-
-					LOGGER.debug("Cached entry ({}) found: {}", fullHash, outputFileName);
-					hits++;
+				while (!pending.isEmpty()) {
+					job.write(await(pending.poll()), incompleteOutput, existingOutput);
 				}
+			} finally {
+				pending.forEach(future -> future.cancel(true));
 			}
 		}
 
@@ -104,8 +105,18 @@ public record CachedJarProcessor(CachedFileStore<CachedData> fileStore, String b
 		Path outputJar = Files.createTempFile("loom-cache-output", ".jar");
 		Files.delete(outputJar);
 
-		final ClassLineNumbers lineNumbers = lineNumbersMap.isEmpty() ? null : new ClassLineNumbers(Collections.unmodifiableMap(lineNumbersMap));
-		final var stats = new CacheStats(hits, misses);
+		final ClassLineNumbers lineNumbers = job.lineNumbersMap.isEmpty() ? null : new ClassLineNumbers(Collections.unmodifiableMap(job.lineNumbersMap));
+		final var stats = new CacheStats(
+				job.hits,
+				job.misses,
+				Duration.ofNanos(job.findClassesNanos),
+				Duration.ofNanos(job.hashNanos.sum()),
+				Duration.ofNanos(job.lookupNanos.sum()),
+				Duration.ofNanos(job.writeNanos),
+				Duration.ofNanos(System.nanoTime() - startTime)
+		);
+		final boolean isIncomplete = job.misses > 0;
+		final boolean hasSomeExisting = job.hits > 0;
 
 		if (isIncomplete && !hasSomeExisting) {
 			// The cache contained nothing of use, fully process the input jar
@@ -113,12 +124,12 @@ public record CachedJarProcessor(CachedFileStore<CachedData> fileStore, String b
 			Files.delete(existingJar);
 
 			LOGGER.info("No cached entries found, going to process the whole jar");
-			return new FullWorkJob(inputJar, outputJar, outputNameMap)
+			return new FullWorkJob(inputJar, outputJar, job.outputNameMap)
 					.asRequest(stats, lineNumbers);
 		} else if (isIncomplete) {
 			// The cache did not contain everything so we have some work to do
 			LOGGER.info("Some cached entries found, using partial work job");
-			return new PartialWorkJob(incompleteJar, existingJar, outputJar, outputNameMap)
+			return new PartialWorkJob(incompleteJar, existingJar, outputJar, job.outputNameMap)
 					.asRequest(stats, lineNumbers);
 		} else {
 			// The cached contained everything we need, so the existing jar is the output
@@ -129,6 +140,135 @@ public record CachedJarProcessor(CachedFileStore<CachedData> fileStore, String b
 		}
 	}
 
+	// Runs on a worker thread
+	private List<LookupResult> lookup(ZipFile inputZip, List<ClassEntry> batch, PrepareJobState job) throws IOException {
+		final List<LookupResult> results = new ArrayList<>(batch.size());
+
+		for (ClassEntry entry : batch) {
+			long stageStart = System.nanoTime();
+			final List<byte[]> classes = entry.read(inputZip);
+			final String fullHash = baseHash + "/" + ClassEntry.hash(classes);
+			job.hashNanos.add(System.nanoTime() - stageStart);
+
+			stageStart = System.nanoTime();
+			final CachedData entryData = fileStore.getEntry(fullHash);
+			job.lookupNanos.add(System.nanoTime() - stageStart);
+
+			// Only keep hold of the class bytes when they need to be processed
+			results.add(new LookupResult(entry, fullHash, entryData, entryData == null ? classes : null));
+		}
+
+		return results;
+	}
+
+	private static <T> T await(Future<T> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while reading the decompile cache", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException ioException) {
+				throw ioException;
+			}
+
+			throw new RuntimeException("Failed to read the decompile cache", e.getCause());
+		}
+	}
+
+	private record LookupResult(ClassEntry entry, String fullHash, @Nullable CachedData data, @Nullable List<byte[]> classes) {
+	}
+
+	private static final class PrepareJobState {
+		// Sources name -> hash
+		final Map<String, String> outputNameMap = new HashMap<>();
+		final Map<String, ClassLineNumbers.Entry> lineNumbersMap = new HashMap<>();
+		final LongAdder hashNanos = new LongAdder();
+		final LongAdder lookupNanos = new LongAdder();
+		long findClassesNanos;
+		long writeNanos;
+		int hits;
+		int misses;
+
+		void write(List<LookupResult> results, JarOutput incompleteOutput, JarOutput existingOutput) throws IOException {
+			final long stageStart = System.nanoTime();
+
+			for (LookupResult result : results) {
+				final ClassEntry entry = result.entry();
+				final String outputFileName = entry.sourcesFileName();
+				final CachedData entryData = result.data();
+
+				if (entryData == null) {
+					// Cached entry was not found, so copy the input to the incomplete jar to be processed
+					final List<String> classNames = entry.allClasses();
+
+					for (int i = 0; i < classNames.size(); i++) {
+						incompleteOutput.write(classNames.get(i), result.classes().get(i));
+					}
+
+					outputNameMap.put(outputFileName, result.fullHash());
+
+					LOGGER.debug("Cached entry ({}) not found, going to process {}", result.fullHash(), outputFileName);
+					misses++;
+				} else {
+					existingOutput.write(outputFileName, entryData.sources().getBytes(StandardCharsets.UTF_8));
+
+					if (entryData.lineNumbers() != null) {
+						lineNumbersMap.put(entryData.className(), entryData.lineNumbers());
+					} else {
+						LOGGER.info("Cached entry ({}) does not have line numbers", outputFileName);
+					}
+
+					LOGGER.debug("Cached entry ({}) found: {}", result.fullHash(), outputFileName);
+					hits++;
+				}
+			}
+
+			writeNanos += System.nanoTime() - stageStart;
+		}
+	}
+
+	/**
+	 * Streams entries into a new jar file, replacing any existing file.
+	 */
+	private static final class JarOutput implements Closeable {
+		// The end of central directory record of a zip file with no entries
+		private static final byte[] EMPTY_ZIP = new byte[] {0x50, 0x4B, 0x05, 0x06, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0};
+
+		private final Path path;
+		private final ZipOutputStream zipOutputStream;
+		private boolean empty = true;
+
+		private JarOutput(Path path) throws IOException {
+			this.path = path;
+			this.zipOutputStream = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(path)));
+		}
+
+		void write(String name, byte[] bytes) throws IOException {
+			zipOutputStream.putNextEntry(new ZipEntry(name));
+			zipOutputStream.write(bytes);
+			zipOutputStream.closeEntry();
+			empty = false;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (!empty) {
+				zipOutputStream.close();
+				return;
+			}
+
+			// ZipOutputStream refuses to write a zip without any entries
+			try {
+				zipOutputStream.close();
+			} catch (ZipException ignored) {
+				// Expected
+			}
+
+			Files.write(path, EMPTY_ZIP);
+		}
+	}
+
 	public void completeJob(Path output, WorkJob workJob, ClassLineNumbers lineNumbers) throws IOException {
 		if (workJob instanceof CompletedWorkJob completedWorkJob) {
 			// Fully complete, nothing new to cache
@@ -221,7 +361,16 @@ public record CachedJarProcessor(CachedFileStore<CachedData> fileStore, String b
 	public record WorkRequest(WorkJob job, CacheStats stats, @Nullable ClassLineNumbers lineNumbers) {
 	}
 
-	public record CacheStats(int hits, int misses) {
+	/**
+	 * @param hits The number of classes restored from the cache
+	 * @param misses The number of classes that need to be processed
+	 * @param findClassesTime Time spent listing the classes in the input jar
+	 * @param hashTime Time spent reading and hashing the classes, summed across the worker threads
+	 * @param lookupTime Time spent reading entries from the cache, summed across the worker threads
+	 * @param writeTime Time spent writing the hits and misses to their jars
+	 * @param totalTime The total time taken to prepare the job
+	 */
+	public record CacheStats(int hits, int misses, Duration findClassesTime, Duration hashTime, Duration lookupTime, Duration writeTime, Duration totalTime) {
 	}
 
 	public sealed interface WorkJob permits CompletedWorkJob, WorkToDoJob {
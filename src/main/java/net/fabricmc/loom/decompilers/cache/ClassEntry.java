@@ -25,10 +25,15 @@
 package net.fabricmc.loom.decompilers.cache;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.StringJoiner;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import net.fabricmc.loom.util.Checksum;
 
@@ -58,17 +63,67 @@ public record ClassEntry(String parentClass, List<String> innerClasses) {
 	 * @throws IOException If an error occurs while hashing the files
 	 */
 	public String hash(Path root) throws IOException {
-		StringJoiner joiner = new StringJoiner(",");
+		List<byte[]> classes = new ArrayList<>();
 
-		joiner.add(Checksum.sha256Hex(Files.readAllBytes(root.resolve(parentClass))));
+		for (String className : allClasses()) {
+			classes.add(Files.readAllBytes(root.resolve(className)));
+		}
 
-		for (String innerClass : innerClasses) {
-			joiner.add(Checksum.sha256Hex(Files.readAllBytes(root.resolve(innerClass))));
+		return hash(classes);
+	}
+
+	/**
+	 * Read the class and its inner classes from the jar, in the order of {@link #allClasses()}.
+	 * @param zipFile The jar to read from
+	 * @return The contents of the class and its inner classes
+	 *
+	 * @throws IOException If an error occurs while reading the jar
+	 */
+	public List<byte[]> read(ZipFile zipFile) throws IOException {
+		List<byte[]> classes = new ArrayList<>();
+
+		for (String className : allClasses()) {
+			ZipEntry zipEntry = zipFile.getEntry(className);
+
+			if (zipEntry == null) {
+				throw new NoSuchFileException(className);
+			}
+
+			try (InputStream inputStream = zipFile.getInputStream(zipEntry)) {
+				classes.add(inputStream.readAllBytes());
+			}
+		}
+
+		return classes;
+	}
+
+	/**
+	 * Hash the contents of a class and its inner classes using sha256.
+	 * @param classes The contents of the class and its inner classes, as returned by {@link #read(ZipFile)}
+	 * @return The hash of the class and its inner classes
+	 *
+	 * @throws IOException If an error occurs while hashing the files
+	 */
+	public static String hash(List<byte[]> classes) throws IOException {
+		StringJoiner joiner = new StringJoiner(",");
+
+		for (byte[] bytes : classes) {
+			joiner.add(Checksum.sha256Hex(bytes));
 		}
 
 		return Checksum.sha256Hex(joiner.toString().getBytes());
 	}
 
+	/**
+	 * @return The parent class followed by its inner classes
+	 */
+	public List<String> allClasses() {
+		List<String> classes = new ArrayList<>(innerClasses.size() + 1);
+		classes.add(parentClass);
+		classes.addAll(innerClasses);
+		return classes;
+	}
+
 	public String sourcesFileName() {
 		return parentClass.replace(".class", ".java");
 	}
@@ -34,6 +34,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -53,10 +55,9 @@ public final class JarWalker {
 	}
 
 	public static List<ClassEntry> findClasses(FileSystemUtil.Delegate fs) throws IOException {
-		List<String> outerClasses = new ArrayList<>();
-		Map<String, List<String>> innerClasses = new HashMap<>();
+		List<String> fileNames = new ArrayList<>();
 
-		// Iterate over all the classes in the jar, and store them into the sorted list.
+		// Iterate over all the classes in the jar
 		try (Stream<Path> walk = Files.walk(fs.getRoot())) {
 			Iterator<Path> iterator = walk.iterator();
 
@@ -67,20 +68,38 @@ public final class JarWalker {
 					continue;
 				}
 
-				final String fileName = entry.toString().substring(fs.getRoot().toString().length());
+				fileNames.add(entry.toString().substring(fs.getRoot().toString().length()));
+			}
+		}
 
-				if (!fileName.endsWith(".class")) {
-					continue;
-				}
+		return findClasses(fileNames);
+	}
 
-				boolean isInnerClass = fileName.contains("$");
+	public static List<ClassEntry> findClasses(ZipFile zipFile) {
+		List<String> fileNames = zipFile.stream()
+				.filter(entry -> !entry.isDirectory())
+				.map(ZipEntry::getName)
+				.toList();
 
-				if (isInnerClass) {
-					String outerClassName = fileName.substring(0, fileName.indexOf('$')) + ".class";
-					innerClasses.computeIfAbsent(outerClassName, k -> new ArrayList<>()).add(fileName);
-				} else {
-					outerClasses.add(fileName);
-				}
+		return findClasses(fileNames);
+	}
+
+	private static List<ClassEntry> findClasses(List<String> fileNames) {
+		List<String> outerClasses = new ArrayList<>();
+		Map<String, List<String>> innerClasses = new HashMap<>();
+
+		for (String fileName : fileNames) {
+			if (!fileName.endsWith(".class")) {
+				continue;
+			}
+
+			boolean isInnerClass = fileName.contains("$");
+
+			if (isInnerClass) {
+				String outerClassName = fileName.substring(0, fileName.indexOf('$')) + ".class";
+				innerClasses.computeIfAbsent(outerClassName, k -> new ArrayList<>()).add(fileName);
+			} else {
+				outerClasses.add(fileName);
 			}
 		}
 
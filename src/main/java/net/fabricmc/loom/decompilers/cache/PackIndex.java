@@ -0,0 +1,391 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.decompilers.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A memory mapped, open addressing hash table used by {@link PackedCachedFileStore} to locate records in its pack file.
+ *
+ * <p>Each slot stores the 64-bit hash of the key, the offset and length of the record in the pack and the time the entry was last accessed.
+ * The keys themselves are only stored in the pack, so callers must confirm a match against the record.
+ *
+ * <p>The backing file only ever grows, so it can be remapped while old mappings are still alive.
+ */
+final class PackIndex implements Closeable {
+	private static final int MAGIC = 0x4C504958; // LPIX
+	private static final int VERSION = 1;
+	private static final int MIN_CAPACITY = 1024;
+	private static final float MAX_LOAD_FACTOR = 0.6F;
+
+	// Header layout
+	private static final int HEADER_SIZE = 48;
+	private static final int MAGIC_OFFSET = 0;
+	private static final int VERSION_OFFSET = 4;
+	private static final int CAPACITY_OFFSET = 8;
+	private static final int CLEAN_OFFSET = 12;
+	private static final int GENERATION_OFFSET = 16;
+	private static final int SIZE_OFFSET = 20;
+	private static final int USED_OFFSET = 24;
+	private static final int PACK_LENGTH_OFFSET = 32;
+	private static final int LIVE_BYTES_OFFSET = 40;
+
+	// Slot layout
+	private static final int SLOT_SIZE = 32;
+	private static final int SLOT_HASH = 0;
+	private static final int SLOT_OFFSET = 8;
+	private static final int SLOT_LENGTH = 16;
+	private static final int SLOT_STATE = 20;
+	private static final int SLOT_LAST_ACCESS = 24;
+
+	private static final int STATE_EMPTY = 0;
+	private static final int STATE_LIVE = 1;
+	private static final int STATE_REMOVED = 2;
+
+	// Slots are 8 byte aligned in a page aligned mapping, so atomic access is supported
+	private static final VarHandle LONG_VIEW = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+	private final FileChannel channel;
+	private final boolean wasClean;
+	private MappedByteBuffer buffer;
+	private int capacity;
+
+	private PackIndex(FileChannel channel) throws IOException {
+		this.channel = channel;
+
+		final long fileSize = channel.size();
+		boolean valid = false;
+
+		if (fileSize >= HEADER_SIZE) {
+			final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			channel.read(header, 0);
+			final int headerCapacity = header.getInt(CAPACITY_OFFSET);
+
+			valid = header.getInt(MAGIC_OFFSET) == MAGIC
+					&& header.getInt(VERSION_OFFSET) == VERSION
+					&& headerCapacity >= MIN_CAPACITY
+					&& Integer.bitCount(headerCapacity) == 1
+					&& fileSize >= fileSize(headerCapacity);
+		}
+
+		if (valid) {
+			this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+			this.capacity = buffer.getInt(CAPACITY_OFFSET);
+			this.wasClean = buffer.getInt(CLEAN_OFFSET) != 0;
+		} else {
+			this.capacity = MIN_CAPACITY;
+			this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(capacity));
+			this.wasClean = false;
+			clear(0);
+		}
+	}
+
+	static PackIndex open(Path path) throws IOException {
+		return new PackIndex(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE));
+	}
+
+	/**
+	 * @return true when the index was closed cleanly by the last process to use it, and can be trusted
+	 */
+	boolean wasClean() {
+		return wasClean;
+	}
+
+	/**
+	 * Remove all entries from the index.
+	 */
+	void clear(int generation) {
+		buffer.putInt(MAGIC_OFFSET, MAGIC);
+		buffer.putInt(VERSION_OFFSET, VERSION);
+		buffer.putInt(CAPACITY_OFFSET, capacity);
+		buffer.putInt(CLEAN_OFFSET, 0);
+		buffer.putInt(GENERATION_OFFSET, generation);
+		buffer.putInt(SIZE_OFFSET, 0);
+		buffer.putInt(USED_OFFSET, 0);
+		buffer.putLong(PACK_LENGTH_OFFSET, 0);
+		buffer.putLong(LIVE_BYTES_OFFSET, 0);
+
+		for (int slot = 0; slot < capacity; slot++) {
+			buffer.putInt(slotPosition(slot) + SLOT_STATE, STATE_EMPTY);
+		}
+	}
+
+	/**
+	 * Find the live slot for the given key.
+	 *
+	 * @return the slot index, or -1 when the key is not present
+	 */
+	int find(long hash, KeyMatcher matcher) throws IOException {
+		final int mask = capacity - 1;
+
+		for (int slot = (int) (hash ^ (hash >>> 32)) & mask; ; slot = (slot + 1) & mask) {
+			final int position = slotPosition(slot);
+			final int state = buffer.getInt(position + SLOT_STATE);
+
+			if (state == STATE_EMPTY) {
+				return -1;
+			}
+
+			if (state == STATE_LIVE && buffer.getLong(position + SLOT_HASH) == hash && matcher.matches(offset(slot), length(slot))) {
+				return slot;
+			}
+		}
+	}
+
+	/**
+	 * Insert or replace the entry for the given key.
+	 */
+	void put(long hash, long offset, int length, long lastAccess, KeyMatcher matcher) throws IOException {
+		final int existing = find(hash, matcher);
+
+		if (existing >= 0) {
+			setLiveBytes(liveBytes() - length(existing) + length);
+			writeSlot(existing, hash, offset, length, lastAccess);
+			return;
+		}
+
+		final int mask = capacity - 1;
+		int slot = (int) (hash ^ (hash >>> 32)) & mask;
+
+		while (buffer.getInt(slotPosition(slot) + SLOT_STATE) == STATE_LIVE) {
+			slot = (slot + 1) & mask;
+		}
+
+		if (buffer.getInt(slotPosition(slot) + SLOT_STATE) == STATE_EMPTY) {
+			buffer.putInt(USED_OFFSET, buffer.getInt(USED_OFFSET) + 1);
+		}
+
+		writeSlot(slot, hash, offset, length, lastAccess);
+		buffer.putInt(SIZE_OFFSET, size() + 1);
+		setLiveBytes(liveBytes() + length);
+
+		if (buffer.getInt(USED_OFFSET) > capacity * MAX_LOAD_FACTOR) {
+			rehash();
+		}
+	}
+
+	void remove(int slot) {
+		final int position = slotPosition(slot);
+
+		if (buffer.getInt(position + SLOT_STATE) != STATE_LIVE) {
+			throw new IllegalStateException("Slot " + slot + " is not live");
+		}
+
+		buffer.putInt(position + SLOT_STATE, STATE_REMOVED);
+		buffer.putInt(SIZE_OFFSET, size() - 1);
+		setLiveBytes(liveBytes() - length(slot));
+	}
+
+	/**
+	 * Update the last access time of the slot, never moving it backwards.
+	 *
+	 * <p>This is called by concurrent readers, so the write is atomic rather than a plain put.
+	 */
+	void touch(int slot, long lastAccess) {
+		final int position = slotPosition(slot) + SLOT_LAST_ACCESS;
+		long current;
+
+		do {
+			current = (long) LONG_VIEW.getVolatile(buffer, position);
+
+			if (current >= lastAccess) {
+				return;
+			}
+		} while (!LONG_VIEW.compareAndSet(buffer, position, current, lastAccess));
+	}
+
+	void setOffset(int slot, long offset) {
+		buffer.putLong(slotPosition(slot) + SLOT_OFFSET, offset);
+	}
+
+	long offset(int slot) {
+		return buffer.getLong(slotPosition(slot) + SLOT_OFFSET);
+	}
+
+	int length(int slot) {
+		return buffer.getInt(slotPosition(slot) + SLOT_LENGTH);
+	}
+
+	long lastAccess(int slot) {
+		return buffer.getLong(slotPosition(slot) + SLOT_LAST_ACCESS);
+	}
+
+	/**
+	 * @return the indexes of all the live slots
+	 */
+	int[] liveSlots() {
+		final int[] slots = new int[size()];
+		int i = 0;
+
+		for (int slot = 0; slot < capacity; slot++) {
+			if (buffer.getInt(slotPosition(slot) + SLOT_STATE) == STATE_LIVE) {
+				slots[i++] = slot;
+			}
+		}
+
+		return slots;
+	}
+
+	/**
+	 * Rebuild the table without any removed slots, growing it when needed.
+	 * Slot indexes are not stable across a rehash.
+	 */
+	void rehash() throws IOException {
+		final int[] slots = liveSlots();
+		final long[] hashes = new long[slots.length];
+		final long[] offsets = new long[slots.length];
+		final int[] lengths = new int[slots.length];
+		final long[] lastAccesses = new long[slots.length];
+
+		for (int i = 0; i < slots.length; i++) {
+			hashes[i] = buffer.getLong(slotPosition(slots[i]) + SLOT_HASH);
+			offsets[i] = offset(slots[i]);
+			lengths[i] = length(slots[i]);
+			lastAccesses[i] = lastAccess(slots[i]);
+		}
+
+		final int generation = generation();
+		final long packLength = packLength();
+		final long liveBytes = liveBytes();
+		int newCapacity = MIN_CAPACITY;
+
+		while (slots.length * 4L > newCapacity) {
+			newCapacity <<= 1;
+		}
+
+		if (fileSize(newCapacity) > buffer.capacity()) {
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(newCapacity));
+		}
+
+		capacity = newCapacity;
+		clear(generation);
+
+		final int mask = capacity - 1;
+
+		for (int i = 0; i < slots.length; i++) {
+			int slot = (int) (hashes[i] ^ (hashes[i] >>> 32)) & mask;
+
+			while (buffer.getInt(slotPosition(slot) + SLOT_STATE) != STATE_EMPTY) {
+				slot = (slot + 1) & mask;
+			}
+
+			writeSlot(slot, hashes[i], offsets[i], lengths[i], lastAccesses[i]);
+		}
+
+		buffer.putInt(SIZE_OFFSET, slots.length);
+		buffer.putInt(USED_OFFSET, slots.length);
+		buffer.putLong(PACK_LENGTH_OFFSET, packLength);
+		setLiveBytes(liveBytes);
+	}
+
+	int size() {
+		return buffer.getInt(SIZE_OFFSET);
+	}
+
+	int generation() {
+		return buffer.getInt(GENERATION_OFFSET);
+	}
+
+	void setGeneration(int generation) {
+		buffer.putInt(GENERATION_OFFSET, generation);
+	}
+
+	/**
+	 * @return the length of the pack file covered by this index, anything after this is not indexed
+	 */
+	long packLength() {
+		return buffer.getLong(PACK_LENGTH_OFFSET);
+	}
+
+	void setPackLength(long packLength) {
+		buffer.putLong(PACK_LENGTH_OFFSET, packLength);
+	}
+
+	/**
+	 * @return the total length of the live records in the pack
+	 */
+	long liveBytes() {
+		return buffer.getLong(LIVE_BYTES_OFFSET);
+	}
+
+	private void setLiveBytes(long liveBytes) {
+		buffer.putLong(LIVE_BYTES_OFFSET, liveBytes);
+	}
+
+	/**
+	 * Mark the index as in use, if the process exits before {@link #markClean()} the index will be rebuilt next time.
+	 */
+	void markInUse() {
+		buffer.putInt(CLEAN_OFFSET, 0);
+		buffer.force();
+	}
+
+	/**
+	 * Mark the index as consistent with the pack file.
+	 */
+	void markClean() {
+		buffer.putInt(CLEAN_OFFSET, 1);
+	}
+
+	@Override
+	public void close() throws IOException {
+		buffer.force();
+		channel.close();
+	}
+
+	private void writeSlot(int slot, long hash, long offset, int length, long lastAccess) {
+		final int position = slotPosition(slot);
+		buffer.putLong(position + SLOT_HASH, hash);
+		buffer.putLong(position + SLOT_OFFSET, offset);
+		buffer.putInt(position + SLOT_LENGTH, length);
+		buffer.putInt(position + SLOT_STATE, STATE_LIVE);
+		buffer.putLong(position + SLOT_LAST_ACCESS, lastAccess);
+	}
+
+	private static int slotPosition(int slot) {
+		return HEADER_SIZE + slot * SLOT_SIZE;
+	}
+
+	private static long fileSize(int capacity) {
+		return HEADER_SIZE + (long) capacity * SLOT_SIZE;
+	}
+
+	@FunctionalInterface
+	interface KeyMatcher {
+		/**
+		 * @return true when the record at the given offset in the pack has the key being looked up
+		 */
+		boolean matches(long offset, int length) throws IOException;
+	}
+}
@@ -0,0 +1,522 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.decompilers.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.OptionalInt;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import com.google.common.hash.Hashing;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link CachedFileStore} that appends every entry to a single pack file, located through a memory mapped hash index.
+ *
+ * <p>Unlike {@link CachedFileStoreImpl} this does not create a file per entry, and a cache hit does not touch the file system.
+ * Access times are recorded in the mapped index and written back to disk together when the store is closed.
+ *
+ * <p>The pack is append only, entries that are replaced or pruned are dropped when the pack is compacted into a new generation.
+ * Each record in the pack is stored as {@code [int keyLength][key][int dataLength][data]}.
+ */
+public final class PackedCachedFileStore<T> implements CachedFileStore<T> {
+	private static final Logger LOGGER = LoggerFactory.getLogger(PackedCachedFileStore.class);
+	private static final String INDEX_FILE_NAME = "index.bin";
+	private static final String LOCK_FILE_NAME = "store.lock";
+	private static final String PACK_FILE_PREFIX = "pack-";
+	private static final String PACK_FILE_SUFFIX = ".bin";
+	private static final int PACK_MAGIC = 0x4C504B31; // LPK1
+	private static final int PACK_HEADER_SIZE = Integer.BYTES;
+	// Compact the pack once less than half of it is used by live entries
+	private static final double MIN_LIVE_RATIO = 0.5;
+
+	private final Path root;
+	private final BufferSerializer<T> serializer;
+	private final CachedFileStoreImpl.CacheRules cacheRules;
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private final FileChannel lockChannel;
+	private final FileLock fileLock;
+	private final PackIndex index;
+	private FileChannel packChannel;
+	// May only cover part of the pack, remapped on demand once entries have been appended
+	private volatile @Nullable MappedByteBuffer packBuffer;
+	private boolean loaded = false;
+	private boolean closed = false;
+
+	private PackedCachedFileStore(Path root, BufferSerializer<T> serializer, CachedFileStoreImpl.CacheRules cacheRules, FileChannel lockChannel, FileLock fileLock, PackIndex index) {
+		this.root = root;
+		this.serializer = serializer;
+		this.cacheRules = cacheRules;
+		this.lockChannel = lockChannel;
+		this.fileLock = fileLock;
+		this.index = index;
+	}
+
+	/**
+	 * Open the store in the given directory, creating it if needed. The store is locked until it is closed.
+	 */
+	public static <T> PackedCachedFileStore<T> open(Path root, BufferSerializer<T> serializer, CachedFileStoreImpl.CacheRules cacheRules) throws IOException {
+		Objects.requireNonNull(root, "root");
+		Objects.requireNonNull(serializer, "serializer");
+		Objects.requireNonNull(cacheRules, "cacheRules");
+
+		Files.createDirectories(root);
+
+		final FileChannel lockChannel = FileChannel.open(root.resolve(LOCK_FILE_NAME), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		final FileLock fileLock;
+
+		try {
+			fileLock = lockChannel.lock();
+		} catch (IOException e) {
+			lockChannel.close();
+			throw e;
+		}
+
+		final PackIndex index = PackIndex.open(root.resolve(INDEX_FILE_NAME));
+		final var store = new PackedCachedFileStore<>(root, serializer, cacheRules, lockChannel, fileLock, index);
+
+		try {
+			store.load();
+		} catch (IOException e) {
+			store.close();
+			throw e;
+		}
+
+		return store;
+	}
+
+	private void load() throws IOException {
+		int generation = index.generation();
+
+		if (!index.wasClean()) {
+			// The index cannot be trusted, use the newest complete pack file.
+			generation = findNewestPackGeneration().orElse(0);
+		}
+
+		final Path packPath = packPath(generation);
+		packChannel = FileChannel.open(packPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+		if (packChannel.size() < PACK_HEADER_SIZE || readInt(packChannel, 0) != PACK_MAGIC) {
+			// New or unreadable pack, start again.
+			packChannel.truncate(0);
+			packChannel.write(ByteBuffer.allocate(PACK_HEADER_SIZE).putInt(0, PACK_MAGIC), 0);
+			index.clear(generation);
+			index.setPackLength(PACK_HEADER_SIZE);
+		} else if (!index.wasClean() || index.packLength() > packChannel.size()) {
+			LOGGER.warn("Decompile cache index at {} was not closed cleanly, rebuilding", root);
+			rebuildIndex(generation);
+		} else if (packChannel.size() > index.packLength()) {
+			// Drop any partially written entry
+			packChannel.truncate(index.packLength());
+		}
+
+		index.markInUse();
+		loaded = true;
+
+		// Remove any pack files left behind by an interrupted compaction
+		try (Stream<Path> files = Files.list(root)) {
+			for (Path path : (Iterable<Path>) files::iterator) {
+				final String fileName = path.getFileName().toString();
+
+				if (fileName.startsWith(PACK_FILE_PREFIX) && !path.equals(packPath)) {
+					deleteQuietly(path);
+				}
+			}
+		}
+	}
+
+	// Scan the pack file and index every complete record, later records replace earlier ones with the same key.
+	private void rebuildIndex(int generation) throws IOException {
+		final long lastAccess = Files.getLastModifiedTime(packPath(generation)).toMillis();
+		final long end = findEndOfRecords();
+
+		// Drop any partially written entry, this must be done before anything is mapped
+		packChannel.truncate(end);
+
+		index.clear(generation);
+		index.setPackLength(end);
+
+		long position = PACK_HEADER_SIZE;
+
+		while (position < end) {
+			final int keyLength = readInt(packChannel, position);
+			final long dataPosition = position + Integer.BYTES + keyLength;
+			final long recordEnd = dataPosition + Integer.BYTES + readInt(packChannel, dataPosition);
+
+			final ByteBuffer key = ByteBuffer.allocate(keyLength);
+			packChannel.read(key, position + Integer.BYTES);
+			final byte[] keyBytes = key.array();
+
+			index.put(hash(keyBytes), position, (int) (recordEnd - position), lastAccess, (offset, length) -> keyMatches(offset, length, keyBytes));
+			position = recordEnd;
+		}
+	}
+
+	private long findEndOfRecords() throws IOException {
+		final long size = packChannel.size();
+		long position = PACK_HEADER_SIZE;
+
+		while (position + Integer.BYTES <= size) {
+			final int keyLength = readInt(packChannel, position);
+			final long dataPosition = position + Integer.BYTES + keyLength;
+
+			if (keyLength <= 0 || dataPosition + Integer.BYTES > size) {
+				break;
+			}
+
+			final int dataLength = readInt(packChannel, dataPosition);
+			final long end = dataPosition + Integer.BYTES + dataLength;
+
+			// The data length is only written once the entry is complete
+			if (dataLength <= 0 || end > size || end - position > Integer.MAX_VALUE) {
+				break;
+			}
+
+			position = end;
+		}
+
+		return position;
+	}
+
+	@Override
+	public @Nullable T getEntry(String key) throws IOException {
+		final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		final long hash = hash(keyBytes);
+
+		lock.readLock().lock();
+
+		try {
+			ensureOpen();
+
+			final int slot = index.find(hash, (offset, length) -> keyMatches(offset, length, keyBytes));
+
+			if (slot < 0) {
+				return null;
+			}
+
+			// Update the access time, so recently used entries stay in the cache. Only the read lock is held, so this is an atomic update
+			index.touch(slot, System.currentTimeMillis());
+
+			final ByteBuffer record = record(index.offset(slot), index.length(slot));
+			final int dataPosition = Integer.BYTES + keyBytes.length;
+			final int dataLength = record.getInt(dataPosition);
+
+			try {
+				return serializer.read(record.slice(dataPosition + Integer.BYTES, dataLength));
+			} catch (IOException | RuntimeException e) {
+				LOGGER.warn("Failed to read decompile cache entry {}, ignoring", key, e);
+				return null;
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void putEntry(String key, T entry) throws IOException {
+		final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		final long hash = hash(keyBytes);
+
+		lock.writeLock().lock();
+
+		try {
+			ensureOpen();
+
+			final long offset = index.packLength();
+			final long dataLengthPosition = offset + Integer.BYTES + keyBytes.length;
+
+			// Write the key and reserve space for the data length
+			final ByteBuffer header = ByteBuffer.allocate(Integer.BYTES + keyBytes.length + Integer.BYTES);
+			header.putInt(keyBytes.length).put(keyBytes).putInt(0).flip();
+			writeFully(packChannel, header, offset);
+
+			packChannel.position(dataLengthPosition + Integer.BYTES);
+			serializer.write(entry, packChannel);
+
+			final long end = packChannel.position();
+			final long dataLength = end - dataLengthPosition - Integer.BYTES;
+
+			if (end - offset > Integer.MAX_VALUE) {
+				throw new IOException("Cache entry " + key + " is too large");
+			}
+
+			writeFully(packChannel, ByteBuffer.allocate(Integer.BYTES).putInt(0, (int) dataLength), dataLengthPosition);
+
+			index.put(hash, offset, (int) (end - offset), System.currentTimeMillis(), (o, length) -> keyMatches(o, length, keyBytes));
+			index.setPackLength(end);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Remove entries over the max age, and then the least recently used entries until the store is within the max file count and size.
+	 * The pack is compacted when enough of it is no longer in use.
+	 */
+	@Override
+	public PruneResult prune() throws IOException {
+		lock.writeLock().lock();
+
+		try {
+			ensureOpen();
+
+			final long maxAge = Instant.now().minus(cacheRules.maxAge()).toEpochMilli();
+			final int[] slots = index.liveSlots();
+			final long[] lastAccess = new long[slots.length];
+			final Integer[] order = new Integer[slots.length];
+
+			for (int i = 0; i < slots.length; i++) {
+				lastAccess[i] = index.lastAccess(slots[i]);
+				order[i] = i;
+			}
+
+			// Sorted oldest -> newest
+			Arrays.sort(order, Comparator.comparingLong(i -> lastAccess[i]));
+
+			final long overflow = Math.max(0, slots.length - cacheRules.maxFiles());
+			int removedEntries = 0;
+			long removedBytes = 0;
+
+			for (Integer i : order) {
+				if (removedEntries >= overflow && index.liveBytes() <= cacheRules.maxBytes() && lastAccess[i] >= maxAge) {
+					break;
+				}
+
+				removedBytes += index.length(slots[i]);
+				index.remove(slots[i]);
+				removedEntries++;
+			}
+
+			if (index.liveBytes() < (index.packLength() - PACK_HEADER_SIZE) * MIN_LIVE_RATIO) {
+				compact();
+			} else if (removedEntries > 0) {
+				index.rehash();
+			}
+
+			return new PruneResult(removedEntries, removedBytes);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Copy the live records into a new pack file, and switch the index over to it.
+	 */
+	private void compact() throws IOException {
+		final int generation = index.generation() + 1;
+		final Path oldPackPath = packPath(index.generation());
+		final Path newPackPath = packPath(generation);
+		final Path tempPackPath = newPackPath.resolveSibling(newPackPath.getFileName() + ".tmp");
+
+		// Copy in pack order to keep the reads sequential
+		final int[] slots = index.liveSlots();
+		final long[] newOffsets = new long[slots.length];
+		final Integer[] order = new Integer[slots.length];
+
+		for (int i = 0; i < slots.length; i++) {
+			order[i] = i;
+		}
+
+		Arrays.sort(order, Comparator.comparingLong(i -> index.offset(slots[i])));
+
+		long position = PACK_HEADER_SIZE;
+
+		try (FileChannel out = FileChannel.open(tempPackPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			writeFully(out, ByteBuffer.allocate(PACK_HEADER_SIZE).putInt(0, PACK_MAGIC), 0);
+			out.position(position);
+
+			for (Integer i : order) {
+				final int slot = slots[i];
+				final long offset = index.offset(slot);
+				final int length = index.length(slot);
+				long transferred = 0;
+
+				while (transferred < length) {
+					transferred += packChannel.transferTo(offset + transferred, length - transferred, out);
+				}
+
+				newOffsets[i] = position;
+				position += length;
+			}
+
+			out.force(true);
+		}
+
+		Files.move(tempPackPath, newPackPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+		for (int i = 0; i < slots.length; i++) {
+			index.setOffset(slots[i], newOffsets[i]);
+		}
+
+		final long oldLength = index.packLength();
+		index.setGeneration(generation);
+		index.setPackLength(position);
+		index.rehash();
+		index.markInUse();
+
+		packBuffer = null;
+		packChannel.close();
+		packChannel = FileChannel.open(newPackPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		deleteQuietly(oldPackPath);
+
+		LOGGER.info("Compacted decompile cache from {} to {} bytes", oldLength, position);
+	}
+
+	@Override
+	public void close() throws IOException {
+		lock.writeLock().lock();
+
+		try {
+			if (closed) {
+				return;
+			}
+
+			closed = true;
+			packBuffer = null;
+
+			try (lockChannel; fileLock; index) {
+				if (packChannel != null) {
+					packChannel.force(true);
+					packChannel.close();
+				}
+
+				if (loaded) {
+					index.markClean();
+				}
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private ByteBuffer record(long offset, int length) throws IOException {
+		MappedByteBuffer buffer = packBuffer;
+
+		if (buffer == null || offset + length > buffer.capacity()) {
+			buffer = remapPack(offset + length);
+		}
+
+		if (buffer == null) {
+			// Too large to be mapped in one go
+			return packChannel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+		}
+
+		return buffer.slice((int) offset, length);
+	}
+
+	private synchronized @Nullable MappedByteBuffer remapPack(long required) throws IOException {
+		MappedByteBuffer buffer = packBuffer;
+
+		if (buffer != null && required <= buffer.capacity()) {
+			return buffer;
+		}
+
+		final long packLength = index.packLength();
+
+		if (packLength > Integer.MAX_VALUE) {
+			return null;
+		}
+
+		buffer = packChannel.map(FileChannel.MapMode.READ_ONLY, 0, packLength);
+		packBuffer = buffer;
+		return buffer;
+	}
+
+	private boolean keyMatches(long offset, int length, byte[] keyBytes) throws IOException {
+		if (length < Integer.BYTES + keyBytes.length) {
+			return false;
+		}
+
+		final ByteBuffer record = record(offset, length);
+		return record.getInt(0) == keyBytes.length && record.slice(Integer.BYTES, keyBytes.length).equals(ByteBuffer.wrap(keyBytes));
+	}
+
+	private OptionalInt findNewestPackGeneration() throws IOException {
+		try (Stream<Path> files = Files.list(root)) {
+			return files.map(path -> path.getFileName().toString())
+					.filter(name -> name.startsWith(PACK_FILE_PREFIX) && name.endsWith(PACK_FILE_SUFFIX))
+					.map(name -> name.substring(PACK_FILE_PREFIX.length(), name.length() - PACK_FILE_SUFFIX.length()))
+					.filter(generation -> generation.matches("\\d+"))
+					.mapToInt(Integer::parseInt)
+					.max();
+		}
+	}
+
+	private Path packPath(int generation) {
+		return root.resolve(PACK_FILE_PREFIX + generation + PACK_FILE_SUFFIX);
+	}
+
+	private void ensureOpen() {
+		if (closed) {
+			throw new IllegalStateException("Cache store has been closed");
+		}
+	}
+
+	private static long hash(byte[] keyBytes) {
+		return Hashing.murmur3_128().hashBytes(keyBytes).asLong();
+	}
+
+	private static int readInt(FileChannel channel, long position) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES);
+
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				return -1;
+			}
+		}
+
+		return buffer.getInt(0);
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+	}
+
+	private static void deleteQuietly(Path path) {
+		try {
+			Files.deleteIfExists(path);
+		} catch (IOException e) {
+			// Most likely still mapped by this process on Windows, will be removed next time the store is opened.
+			LOGGER.debug("Failed to delete {}", path, e);
+		}
+	}
+}
@@ -51,5 +51,12 @@ public interface LoomFiles {
 	File getGlobalMinecraftRepo();
 	File getLocalMinecraftRepo();
 	File getDecompileCache(String version);
+	File getPackedDecompileCache(String version);
 	File getForgeDependencyRepo();
+	File getBlobStore();
+	File getGlobalRemappedModCache();
+	File getGlobalRemappedSourcesCache();
+	File getGlobalMergedMappingsCache();
+	File getGlobalMcpStepCache();
+	File getGlobalClasspathIndexCache();
 }
@@ -113,8 +113,43 @@ public abstract class LoomFilesBaseImpl implements LoomFiles {
 		return new File(getUserCache(), "decompile/" + version + ".zip");
 	}
 
+	@Override
+	public File getPackedDecompileCache(String version) {
+		return new File(getUserCache(), "decompile/" + version + "-packed");
+	}
+
 	@Override
 	public File getForgeDependencyRepo() {
 		return new File(getUserCache(), "forge/transformed-dependencies-v1");
 	}
+
+	@Override
+	public File getBlobStore() {
+		return new File(getUserCache(), "blobs");
+	}
+
+	@Override
+	public File getGlobalRemappedModCache() {
+		return new File(getUserCache(), "remapped_mods");
+	}
+
+	@Override
+	public File getGlobalRemappedSourcesCache() {
+		return new File(getUserCache(), "remapped_sources");
+	}
+
+	@Override
+	public File getGlobalMergedMappingsCache() {
+		return new File(getUserCache(), "merged_mappings");
+	}
+
+	@Override
+	public File getGlobalMcpStepCache() {
+		return new File(getUserCache(), "mcp_steps");
+	}
+
+	@Override
+	public File getGlobalClasspathIndexCache() {
+		return new File(getUserCache(), "classpath_index");
+	}
 }
@@ -68,6 +68,7 @@ import net.fabricmc.loom.build.IntermediaryNamespaces;
 import net.fabricmc.loom.task.service.JarManifestService;
 import net.fabricmc.loom.util.Constants;
 import net.fabricmc.loom.util.ZipReprocessorUtil;
+import net.fabricmc.loom.util.ZipRewriter;
 import net.fabricmc.loom.util.ZipUtils;
 import net.fabricmc.loom.util.gradle.SourceSetHelper;
 
@@ -206,18 +207,29 @@ public abstract class AbstractRemapJarTask extends Jar {
 		}
 
 		protected void modifyJarManifest() throws IOException {
-			int count = ZipUtils.transform(outputFile, Map.of(Constants.Manifest.PATH, bytes -> {
-				var manifest = new Manifest(new ByteArrayInputStream(bytes));
+			int count = ZipUtils.transform(outputFile, Map.of(Constants.Manifest.PATH, this::modifyManifest));
 
-				getParameters().getJarManifestService().get().apply(manifest, getParameters().getManifestAttributes().get());
-				manifest.getMainAttributes().putValue(Constants.Manifest.MAPPING_NAMESPACE, getParameters().getTargetNamespace().get());
+			Preconditions.checkState(count > 0, "Did not transform any jar manifest");
+		}
 
-				ByteArrayOutputStream out = new ByteArrayOutputStream();
-				manifest.write(out);
-				return out.toByteArray();
-			}));
+		/**
+		 * Same as {@link #modifyJarManifest()}, as part of a larger rewrite of the output jar.
+		 */
+		protected void modifyJarManifest(ZipRewriter rewriter) throws IOException {
+			Preconditions.checkState(rewriter.contains(Constants.Manifest.PATH), "Did not transform any jar manifest");
 
-			Preconditions.checkState(count > 0, "Did not transform any jar manifest");
+			rewriter.transform(Constants.Manifest.PATH, this::modifyManifest);
+		}
+
+		private byte[] modifyManifest(byte[] bytes) throws IOException {
+			var manifest = new Manifest(new ByteArrayInputStream(bytes));
+
+			getParameters().getJarManifestService().get().apply(manifest, getParameters().getManifestAttributes().get());
+			manifest.getMainAttributes().putValue(Constants.Manifest.MAPPING_NAMESPACE, getParameters().getTargetNamespace().get());
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			manifest.write(out);
+			return out.toByteArray();
 		}
 
 		protected void rewriteJar() throws IOException {
@@ -34,6 +34,7 @@ import javax.inject.Inject;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.OutputDirectory;
 import org.gradle.api.tasks.TaskAction;
 
@@ -53,9 +54,18 @@ public abstract class DownloadAssetsTask extends AbstractLoomTask {
 	@Input
 	public abstract Property<String> getAssetsHash();
 
+	/**
+	 * The maximum number of downloads to run at once, when virtual threads are unavailable.
+	 */
 	@Input
 	public abstract Property<Integer> getDownloadThreads();
 
+	/**
+	 * The upper bound on the number of requests in flight to each host, the actual limit adapts to the observed latency.
+	 */
+	@Internal
+	public abstract Property<Integer> getMaxConcurrentRequests();
+
 	@Input
 	public abstract Property<String> getMinecraftVersion();
 
@@ -73,6 +83,7 @@ public abstract class DownloadAssetsTask extends AbstractLoomTask {
 		getAssetsDirectory().set(assetsDir);
 		getAssetsHash().set(versionInfo.assetIndex().sha1());
 		getDownloadThreads().convention(Math.min(Runtime.getRuntime().availableProcessors(), 10));
+		getMaxConcurrentRequests().convention(256);
 		getMinecraftVersion().set(versionInfo.id());
 		getMinecraftVersion().finalizeValue();
 
@@ -94,7 +105,7 @@ public abstract class DownloadAssetsTask extends AbstractLoomTask {
 		final AssetIndex assetIndex = getAssetIndex();
 
 		try (ProgressGroup progressGroup = new ProgressGroup(getProject(), "Download Assets");
-				DownloadExecutor executor = new DownloadExecutor(getDownloadThreads().get())) {
+				DownloadExecutor executor = DownloadExecutor.adaptive(getMaxConcurrentRequests().get(), getDownloadThreads().get())) {
 			for (AssetIndex.Object object : assetIndex.getObjects()) {
 				final String sha1 = object.hash();
 				final String url = MirrorUtil.getResourcesBase(getProject()) + sha1.substring(0, 2) + "/" + sha1;
@@ -0,0 +1,56 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.task;
+
+import java.io.IOException;
+
+import javax.inject.Inject;
+
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+
+import net.fabricmc.loom.util.BlobStore;
+
+/**
+ * Deletes the blobs in the shared {@link BlobStore} that are no longer linked to by any cache file.
+ */
+public abstract class GcBlobStoreTask extends AbstractLoomTask {
+	@Internal
+	public abstract DirectoryProperty getBlobStoreDirectory();
+
+	@Inject
+	public GcBlobStoreTask() {
+		getBlobStoreDirectory().set(getExtension().getFiles().getBlobStore());
+		getOutputs().upToDateWhen(t -> false);
+	}
+
+	@TaskAction
+	public void run() throws IOException {
+		final BlobStore blobStore = new BlobStore(getBlobStoreDirectory().get().getAsFile().toPath());
+		final BlobStore.GcResult result = blobStore.gc();
+		getLogger().lifecycle("Removed {} unreferenced blobs ({} KiB), kept {}", result.removed(), result.removedBytes() / 1024, result.kept());
+	}
+}
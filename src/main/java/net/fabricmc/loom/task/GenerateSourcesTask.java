@@ -50,12 +50,14 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.StringJoiner;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import javax.inject.Inject;
 
 import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.provider.Property;
@@ -95,8 +97,10 @@ import net.fabricmc.loom.configuration.sources.ForgeSourcesRemapper;
 import net.fabricmc.loom.decompilers.ClassLineNumbers;
 import net.fabricmc.loom.decompilers.LineNumberRemapper;
 import net.fabricmc.loom.decompilers.cache.CachedData;
+import net.fabricmc.loom.decompilers.cache.CachedFileStore;
 import net.fabricmc.loom.decompilers.cache.CachedFileStoreImpl;
 import net.fabricmc.loom.decompilers.cache.CachedJarProcessor;
+import net.fabricmc.loom.decompilers.cache.PackedCachedFileStore;
 import net.fabricmc.loom.util.Checksum;
 import net.fabricmc.loom.util.Constants;
 import net.fabricmc.loom.util.ExceptionUtil;
@@ -110,6 +114,7 @@ import net.fabricmc.loom.util.gradle.WorkerDaemonClientsManagerHelper;
 import net.fabricmc.loom.util.ipc.IPCClient;
 import net.fabricmc.loom.util.ipc.IPCServer;
 import net.fabricmc.loom.util.service.ScopedSharedServiceManager;
+import net.fabricmc.loom.util.service.SharedExecutorService;
 import net.fabricmc.mappingio.MappingReader;
 import net.fabricmc.mappingio.adapter.MappingSourceNsSwitch;
 import net.fabricmc.mappingio.format.tiny.Tiny2FileWriter;
@@ -118,7 +123,9 @@ import net.fabricmc.mappingio.tree.MemoryMappingTree;
 @DisableCachingByDefault
 public abstract class GenerateSourcesTask extends AbstractLoomTask {
 	private static final Logger LOGGER = LoggerFactory.getLogger(GenerateSourcesTask.class);
-	private static final String CACHE_VERSION = "v1";
+	// Bump when the format of the cached data changes, as the cache is shared with other versions of Loom
+	private static final String CACHE_VERSION = "v2";
+	private static final CachedFileStoreImpl.CacheRules CACHE_RULES = new CachedFileStoreImpl.CacheRules(50_000, 2L * 1024 * 1024 * 1024, Duration.ofDays(90));
 	private final DecompilerOptions decompilerOptions;
 
 	/**
@@ -160,11 +167,20 @@ public abstract class GenerateSourcesTask extends AbstractLoomTask {
 	@ApiStatus.Experimental
 	public abstract Property<Boolean> getUseCache();
 
+	@Input
+	@Option(option = "cache-format", description = "The format of the decompile cache")
+	@ApiStatus.Experimental
+	public abstract Property<CacheFormat> getCacheFormat();
+
 	// Internal outputs
 	@ApiStatus.Internal
 	@Internal
 	protected abstract RegularFileProperty getDecompileCacheFile();
 
+	@ApiStatus.Internal
+	@Internal
+	protected abstract DirectoryProperty getPackedDecompileCacheDirectory();
+
 	// Injects
 	@Inject
 	public abstract WorkerExecutor getWorkerExecutor();
@@ -189,9 +205,11 @@ public abstract class GenerateSourcesTask extends AbstractLoomTask {
 
 		LoomGradleExtension extension = LoomGradleExtension.get(getProject());
 		getDecompileCacheFile().set(extension.getFiles().getDecompileCache(CACHE_VERSION));
+		getPackedDecompileCacheDirectory().set(extension.getFiles().getPackedDecompileCache(CACHE_VERSION));
 		getUnpickRuntimeClasspath().from(getProject().getConfigurations().getByName(Constants.Configurations.UNPICK_CLASSPATH));
 
 		getUseCache().convention(true);
+		getCacheFormat().convention(CacheFormat.ZIP);
 	}
 
 	@TaskAction
@@ -216,6 +234,16 @@ public abstract class GenerateSourcesTask extends AbstractLoomTask {
 		LOGGER.info("Using decompile cache.");
 
 		try (var timer = new Timer("Decompiled sources with cache")) {
+			if (getCacheFormat().get() == CacheFormat.PACKED) {
+				final Path cacheDir = getPackedDecompileCacheDirectory().get().getAsFile().toPath();
+
+				try (var decompileCache = PackedCachedFileStore.open(cacheDir, CachedData.BUFFER_SERIALIZER, CACHE_RULES)) {
+					runWithCache(decompileCache);
+				}
+
+				return;
+			}
+
 			final Path cacheFile = getDecompileCacheFile().getAsFile().get().toPath();
 
 			// TODO ensure we have a lock on this file to prevent multiple tasks from running at the same time
@@ -223,7 +251,7 @@ public abstract class GenerateSourcesTask extends AbstractLoomTask {
 			Files.createDirectories(cacheFile.getParent());
 
 			try (FileSystemUtil.Delegate fs = FileSystemUtil.getJarFileSystem(cacheFile, true)) {
-				runWithCache(fs.getRoot());
+				runWithCache(new CachedFileStoreImpl<>(fs.getRoot(), CachedData.SERIALIZER, CACHE_RULES));
 			}
 		} catch (Exception e) {
 			ExceptionUtil.printFileLocks(e, getProject());
@@ -231,10 +259,8 @@ public abstract class GenerateSourcesTask extends AbstractLoomTask {
 		}
 	}
 
-	private void runWithCache(Path cacheRoot) throws IOException {
+	private void runWithCache(CachedFileStore<CachedData> decompileCache) throws IOException {
 		final MinecraftJar minecraftJar = rebuildInputJar();
-		final var cacheRules = new CachedFileStoreImpl.CacheRules(50_000, Duration.ofDays(90));
-		final var decompileCache = new CachedFileStoreImpl<>(cacheRoot, CachedData.SERIALIZER, cacheRules);
 		final String cacheKey = getCacheKey();
 		final CachedJarProcessor cachedJarProcessor = new CachedJarProcessor(decompileCache, cacheKey);
 		final CachedJarProcessor.WorkRequest workRequest;
@@ -249,6 +275,12 @@ public abstract class GenerateSourcesTask extends AbstractLoomTask {
 		final CachedJarProcessor.CacheStats cacheStats = workRequest.stats();
 
 		getProject().getLogger().lifecycle("Decompile cache stats: {} hits, {} misses", cacheStats.hits(), cacheStats.misses());
+		getProject().getLogger().info("Decompile cache timings: find classes {}ms, hash {}ms, lookup {}ms, write {}ms, total {}ms",
+				cacheStats.findClassesTime().toMillis(),
+				cacheStats.hashTime().toMillis(),
+				cacheStats.lookupTime().toMillis(),
+				cacheStats.writeTime().toMillis(),
+				cacheStats.totalTime().toMillis());
 
 		ClassLineNumbers outputLineNumbers = null;
 
@@ -283,32 +315,47 @@ public abstract class GenerateSourcesTask extends AbstractLoomTask {
 			cachedJarProcessor.completeJob(sourcesJar, job, outputLineNumbers);
 		}
 
-		// This is the minecraft jar used at runtime.
-		final Path classesJar = minecraftJar.getPath();
+		// Nothing else will be added to the cache, so prune it while the line numbers are remapped
+		final CompletableFuture<CachedFileStore.PruneResult> pruneFuture = pruneInBackground(decompileCache);
 
-		// Remap the line numbers with the new and existing numbers
-		final ClassLineNumbers existingLinenumbers = workRequest.lineNumbers();
-		final ClassLineNumbers lineNumbers = ClassLineNumbers.merge(existingLinenumbers, outputLineNumbers);
+		try {
+			// This is the minecraft jar used at runtime.
+			final Path classesJar = minecraftJar.getPath();
 
-		if (lineNumbers == null) {
-			LOGGER.info("No line numbers to remap, skipping remapping");
-			return;
-		}
+			// Remap the line numbers with the new and existing numbers
+			final ClassLineNumbers existingLinenumbers = workRequest.lineNumbers();
+			final ClassLineNumbers lineNumbers = ClassLineNumbers.merge(existingLinenumbers, outputLineNumbers);
 
-		Path tempJar = Files.createTempFile("loom", "linenumber-remap.jar");
-		Files.delete(tempJar);
+			if (lineNumbers == null) {
+				LOGGER.info("No line numbers to remap, skipping remapping");
+				return;
+			}
 
-		try (var timer = new Timer("Remap line numbers")) {
-			remapLineNumbers(lineNumbers, classesJar, tempJar);
-		}
+			Path tempJar = Files.createTempFile("loom", "linenumber-remap.jar");
+			Files.delete(tempJar);
 
-		Files.move(tempJar, classesJar, StandardCopyOption.REPLACE_EXISTING);
+			try (var timer = new Timer("Remap line numbers")) {
+				remapLineNumbers(lineNumbers, classesJar, tempJar);
+			}
 
-		try (var timer = new Timer("Prune cache")) {
-			decompileCache.prune();
+			Files.move(tempJar, classesJar, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			// The cache store must not be closed until the prune has finished
+			final CachedFileStore.PruneResult pruneResult = pruneFuture.join();
+			LOGGER.info("Pruned {} entries ({} bytes) from the decompile cache", pruneResult.removedEntries(), pruneResult.removedBytes());
 		}
 	}
 
+	private CompletableFuture<CachedFileStore.PruneResult> pruneInBackground(CachedFileStore<CachedData> decompileCache) {
+		return CompletableFuture.supplyAsync(() -> {
+			try (var timer = new Timer("Prune cache")) {
+				return decompileCache.prune();
+			} catch (IOException e) {
+				throw new UncheckedIOException("Failed to prune decompile cache", e);
+			}
+		}, SharedExecutorService.get().io());
+	}
+
 	private void runWithoutCache() throws IOException {
 		final MinecraftJar minecraftJar = rebuildInputJar();
 
@@ -850,6 +897,17 @@ public abstract class GenerateSourcesTask extends AbstractLoomTask {
 		boolean transform(MemoryMappingTree mappings);
 	}
 
+	public enum CacheFormat {
+		/**
+		 * One file per class, stored in a zip file.
+		 */
+		ZIP,
+		/**
+		 * A single append only pack file with a memory mapped index, see {@link PackedCachedFileStore}.
+		 */
+		PACKED
+	}
+
 	private final class Timer implements AutoCloseable {
 		private final String name;
 		private final long start;
@@ -0,0 +1,518 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.task;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.Property;
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.fabricmc.loom.LoomGradlePlugin;
+import net.fabricmc.loom.util.Checksum;
+import net.fabricmc.loom.util.RawZipReader;
+import net.fabricmc.loom.util.RawZipWriter;
+import net.fabricmc.tinyremapper.InputTag;
+import net.fabricmc.tinyremapper.TinyRemapper;
+
+/**
+ * The state of an incremental {@link RemapJarTask}, kept in a directory of the task.
+ *
+ * <p>After each remap the remapped classes are stored along with the hash and the output name of each input class.
+ * The next remap only reads the changed classes as remap inputs, together with the classes whose hierarchy contains a changed class
+ * and the classes that reference either of them. The other classes are read as inputs with a tag that is never applied,
+ * so the hierarchy stays complete without remapping them, and their previously remapped output is reused.
+ * They are not read as classpath, as the remapper may be shared with other projects.
+ *
+ * <p>The whole jar is remapped when the key changes, which covers the mappings, the remapper setup and the remap classpath.
+ */
+public final class IncrementalRemapState {
+	private static final Logger LOGGER = LoggerFactory.getLogger(IncrementalRemapState.class);
+	// Bump when the stored state or the way classes are selected changes.
+	private static final int VERSION = 2;
+	private static final String INDEX_ENTRY = "loom-incremental-remap.index";
+	private static final String CLASS_SUFFIX = ".class";
+	private static final int CONSTANT_UTF8 = 1;
+
+	private final Path directory;
+	private final String key;
+
+	/**
+	 * @param key the key of the remap, see {@link #createKey}
+	 */
+	public IncrementalRemapState(Path directory, String key) {
+		this.directory = directory;
+		this.key = key;
+	}
+
+	/**
+	 * @return the state, or null when the remap is not incremental
+	 */
+	@Nullable
+	public static IncrementalRemapState fromParameters(DirectoryProperty directory, Property<String> key) {
+		if (!directory.isPresent()) {
+			return null;
+		}
+
+		return new IncrementalRemapState(directory.get().getAsFile().toPath(), key.get());
+	}
+
+	/**
+	 * Creates the key of the remap, the stored state is only reused when the key is unchanged.
+	 *
+	 * @param remapperId the id of the remapper, which covers the mappings and the remapper setup
+	 * @param classpath the remap classpath
+	 */
+	public static String createKey(String remapperId, Collection<File> classpath) throws IOException {
+		final Hasher hasher = Hashing.sha256().newHasher();
+		hasher.putInt(VERSION);
+		hasher.putString(LoomGradlePlugin.LOOM_VERSION, StandardCharsets.UTF_8);
+		hasher.putString(remapperId, StandardCharsets.UTF_8);
+
+		for (File file : classpath) {
+			final Path path = file.toPath().toAbsolutePath();
+			hasher.putString(path.toString(), StandardCharsets.UTF_8);
+
+			if (Files.isRegularFile(path)) {
+				hasher.putString(Checksum.sha256HexMemoized(path), StandardCharsets.UTF_8);
+			} else if (Files.isDirectory(path)) {
+				// Class directories of other projects, their files are only compared by size and last modified time
+				try (Stream<Path> stream = Files.walk(path)) {
+					for (Path child : stream.filter(Files::isRegularFile).sorted().toList()) {
+						hasher.putString(path.relativize(child).toString(), StandardCharsets.UTF_8);
+						hasher.putLong(Files.size(child));
+						hasher.putLong(Files.getLastModifiedTime(child).toMillis());
+					}
+				}
+			}
+		}
+
+		return hasher.hash().toString();
+	}
+
+	/**
+	 * Reads the input jar into the remapper: the classes to remap as inputs with the tag, and the other classes as classpath.
+	 */
+	public void readInputs(TinyRemapper tinyRemapper, InputTag tag, Path inputJar) throws IOException {
+		final Plan plan = plan(inputJar);
+		Files.createDirectories(directory);
+		Files.deleteIfExists(getInputsJar());
+		Files.deleteIfExists(getReusedJar());
+		writePending(plan);
+
+		if (plan.full()) {
+			LOGGER.info("Remapping all classes of {}", inputJar);
+			tinyRemapper.readInputsAsync(tag, inputJar);
+			return;
+		}
+
+		LOGGER.info("Incrementally remapping {} of {} classes of {}", plan.remap().size(), plan.hashes().size(), inputJar);
+		final List<String> inputs = new ArrayList<>();
+		final List<String> reused = new ArrayList<>();
+
+		for (String name : plan.hashes().keySet()) {
+			(plan.remap().contains(name) ? inputs : reused).add(name);
+		}
+
+		try (ZipFile zipFile = new ZipFile(inputJar.toFile())) {
+			writeClasses(zipFile, inputs, getInputsJar());
+			writeClasses(zipFile, reused, getReusedJar());
+		}
+
+		tinyRemapper.readInputsAsync(tag, getInputsJar());
+		// Only the classes with the tag are applied, so the reused classes are never remapped
+		tinyRemapper.readInputsAsync(tinyRemapper.createInputTag(), getReusedJar());
+	}
+
+	/**
+	 * Works out which classes of the input jar have to be remapped, comparing them with the stored state.
+	 */
+	public Plan plan(Path inputJar) throws IOException {
+		final Map<String, byte[]> classes = readClasses(inputJar);
+		final Map<String, String> hashes = new LinkedHashMap<>();
+
+		for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+			hashes.put(entry.getKey(), Checksum.sha256Hex(entry.getValue()));
+		}
+
+		final @Nullable Index previous = readIndex();
+
+		// Multi-release classes are remapped under a different name, so they are not tracked
+		if (previous == null || !previous.key().equals(key) || classes.keySet().stream().anyMatch(name -> name.startsWith("META-INF/"))) {
+			return new Plan(key, hashes, hashes.keySet(), true);
+		}
+
+		final Set<String> affected = new HashSet<>();
+
+		for (Map.Entry<String, String> entry : hashes.entrySet()) {
+			final Index.Entry previousEntry = previous.entries().get(entry.getKey());
+
+			if (previousEntry == null || !previousEntry.hash().equals(entry.getValue())) {
+				affected.add(entry.getKey());
+			}
+		}
+
+		for (String name : previous.entries().keySet()) {
+			if (!hashes.containsKey(name)) {
+				affected.add(name);
+			}
+		}
+
+		// Classes that extend or implement an affected class, directly or not, may resolve their members differently
+		final Map<String, List<String>> parents = new HashMap<>();
+
+		for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+			final ClassReader reader = new ClassReader(entry.getValue());
+			final List<String> classParents = new ArrayList<>();
+
+			if (reader.getSuperName() != null) {
+				classParents.add(reader.getSuperName());
+			}
+
+			Collections.addAll(classParents, reader.getInterfaces());
+			parents.put(entry.getKey(), classParents);
+		}
+
+		boolean changed = !affected.isEmpty();
+
+		while (changed) {
+			changed = false;
+
+			for (Map.Entry<String, List<String>> entry : parents.entrySet()) {
+				if (!affected.contains(entry.getKey()) && entry.getValue().stream().anyMatch(affected::contains)) {
+					affected.add(entry.getKey());
+					changed = true;
+				}
+			}
+		}
+
+		final Set<String> remap = new HashSet<>();
+
+		for (String name : affected) {
+			if (hashes.containsKey(name)) {
+				remap.add(name);
+			}
+		}
+
+		// Classes that mention an affected class in their constant pool, as a class or in a descriptor or signature
+		for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+			if (!remap.contains(entry.getKey()) && !Collections.disjoint(referencedClasses(entry.getValue()), affected)) {
+				remap.add(entry.getKey());
+			}
+		}
+
+		return new Plan(key, hashes, remap, false);
+	}
+
+	/**
+	 * Remaps the classes read by {@link #readInputs}, passes them and the reused classes to the output, and stores them for the next remap.
+	 */
+	public void apply(TinyRemapper tinyRemapper, InputTag tag, BiConsumer<String, byte[]> output) throws IOException {
+		final Plan plan = readPending();
+		final Map<String, byte[]> remapped = new ConcurrentHashMap<>();
+
+		tinyRemapper.apply((name, bytes) -> {
+			remapped.put(name, bytes);
+			output.accept(name, bytes);
+		}, tag);
+
+		final Map<String, Index.Entry> entries = new LinkedHashMap<>();
+		final Map<String, byte[]> outputClasses = new HashMap<>(remapped);
+		final @Nullable Index previous = plan.full() ? null : readIndex();
+
+		try (RawZipReader previousJar = previous != null ? openRemappedJar() : null) {
+			for (Map.Entry<String, String> entry : plan.hashes().entrySet()) {
+				final String name = entry.getKey();
+
+				if (plan.remap().contains(name)) {
+					final String outputName = tinyRemapper.getEnvironment().getRemapper().map(name);
+
+					if (remapped.containsKey(outputName)) {
+						entries.put(name, new Index.Entry(entry.getValue(), outputName));
+					}
+
+					continue;
+				}
+
+				final Index.Entry previousEntry = previous != null ? previous.entries().get(name) : null;
+				final RawZipReader.Entry zipEntry = previousEntry != null ? previousJar.get(previousEntry.outputName() + CLASS_SUFFIX) : null;
+
+				if (zipEntry == null) {
+					Files.deleteIfExists(getRemappedJar());
+					throw new IOException("The incremental remap state of " + directory + " has no output for " + name + ", the next remap will remap all classes");
+				}
+
+				final byte[] bytes = previousJar.read(zipEntry);
+				output.accept(previousEntry.outputName(), bytes);
+				outputClasses.put(previousEntry.outputName(), bytes);
+				entries.put(name, previousEntry);
+			}
+		}
+
+		writeRemappedJar(new Index(plan.key(), entries), outputClasses);
+		Files.deleteIfExists(getPendingFile());
+		Files.deleteIfExists(getInputsJar());
+		Files.deleteIfExists(getReusedJar());
+	}
+
+	private static Map<String, byte[]> readClasses(Path jar) throws IOException {
+		final Map<String, byte[]> classes = new LinkedHashMap<>();
+
+		try (ZipFile zipFile = new ZipFile(jar.toFile())) {
+			for (ZipEntry entry : Collections.list(zipFile.entries())) {
+				if (entry.isDirectory() || !entry.getName().endsWith(CLASS_SUFFIX)) {
+					continue;
+				}
+
+				try (InputStream inputStream = zipFile.getInputStream(entry)) {
+					classes.put(entry.getName().substring(0, entry.getName().length() - CLASS_SUFFIX.length()), inputStream.readAllBytes());
+				}
+			}
+		}
+
+		return classes;
+	}
+
+	private static void writeClasses(ZipFile zipFile, List<String> names, Path output) throws IOException {
+		try (FileChannel channel = FileChannel.open(output, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			final RawZipWriter writer = new RawZipWriter(channel);
+
+			for (String name : names) {
+				try (InputStream inputStream = zipFile.getInputStream(zipFile.getEntry(name + CLASS_SUFFIX))) {
+					writer.write(name + CLASS_SUFFIX, RawZipWriter.encode(inputStream.readAllBytes(), RawZipReader.METHOD_STORED), null);
+				}
+			}
+
+			writer.finish();
+		}
+	}
+
+	/**
+	 * Collects the class names in the constant pool of a class, including the classes of descriptors and signatures.
+	 * Every {@code L...;} sequence of a string is taken as a class name, so a few names may be found that are not classes.
+	 */
+	static Set<String> referencedClasses(byte[] bytes) throws IOException {
+		final ClassReader reader = new ClassReader(bytes);
+		final Set<String> names = new HashSet<>();
+
+		for (int i = 1; i < reader.getItemCount(); i++) {
+			final int offset = reader.getItem(i);
+
+			// The second slot of long and double constants has no offset
+			if (offset == 0 || bytes[offset - 1] != CONSTANT_UTF8) {
+				continue;
+			}
+
+			// Class names are stored in modified UTF-8, as read by DataInput
+			final String value = new DataInputStream(new ByteArrayInputStream(bytes, offset, reader.readUnsignedShort(offset) + 2)).readUTF();
+			names.add(value);
+
+			for (int start = value.indexOf('L'); start >= 0; start = value.indexOf('L', start + 1)) {
+				int end = start + 1;
+
+				while (end < value.length() && value.charAt(end) != ';' && value.charAt(end) != '<') {
+					end++;
+				}
+
+				if (end == value.length()) {
+					break;
+				}
+
+				names.add(value.substring(start + 1, end));
+				start = end;
+			}
+		}
+
+		return names;
+	}
+
+	@Nullable
+	private Index readIndex() throws IOException {
+		if (Files.notExists(getRemappedJar())) {
+			return null;
+		}
+
+		try (RawZipReader reader = openRemappedJar()) {
+			final RawZipReader.Entry entry = reader.get(INDEX_ENTRY);
+
+			if (entry == null) {
+				return null;
+			}
+
+			final List<String> lines = new String(reader.read(entry), StandardCharsets.UTF_8).lines().toList();
+
+			if (lines.size() < 2 || !lines.get(0).equals(Integer.toString(VERSION))) {
+				return null;
+			}
+
+			final Map<String, Index.Entry> entries = new HashMap<>();
+
+			for (String line : lines.subList(2, lines.size())) {
+				final String[] parts = line.split("\t");
+				entries.put(parts[0], new Index.Entry(parts[1], parts[2]));
+			}
+
+			return new Index(lines.get(1), entries);
+		} catch (IOException | RuntimeException e) {
+			LOGGER.warn("Failed to read the incremental remap state in {}, remapping all classes", directory, e);
+			return null;
+		}
+	}
+
+	private RawZipReader openRemappedJar() throws IOException {
+		final RawZipReader reader = RawZipReader.open(getRemappedJar());
+
+		if (reader == null) {
+			throw new IOException("Unsupported incremental remap state " + getRemappedJar());
+		}
+
+		return reader;
+	}
+
+	private void writeRemappedJar(Index index, Map<String, byte[]> classes) throws IOException {
+		final StringBuilder builder = new StringBuilder().append(VERSION).append('\n').append(index.key()).append('\n');
+
+		for (Map.Entry<String, Index.Entry> entry : index.entries().entrySet()) {
+			builder.append(entry.getKey()).append('\t').append(entry.getValue().hash()).append('\t').append(entry.getValue().outputName()).append('\n');
+		}
+
+		final Path tempJar = Files.createTempFile(directory, "remapped", ".tmp");
+
+		try {
+			try (FileChannel channel = FileChannel.open(tempJar, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				final RawZipWriter writer = new RawZipWriter(channel);
+				writer.write(INDEX_ENTRY, RawZipWriter.encode(builder.toString().getBytes(StandardCharsets.UTF_8), RawZipReader.METHOD_DEFLATED), null);
+
+				for (Index.Entry entry : index.entries().values()) {
+					final String name = entry.outputName() + CLASS_SUFFIX;
+
+					if (!writer.contains(name)) {
+						writer.write(name, RawZipWriter.encode(classes.get(entry.outputName()), RawZipReader.METHOD_STORED), null);
+					}
+				}
+
+				writer.finish();
+			}
+
+			Files.move(tempJar, getRemappedJar(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tempJar);
+		}
+	}
+
+	private void writePending(Plan plan) throws IOException {
+		final StringBuilder builder = new StringBuilder().append(VERSION).append('\n').append(plan.key()).append('\n').append(plan.full()).append('\n');
+
+		for (Map.Entry<String, String> entry : plan.hashes().entrySet()) {
+			builder.append(plan.remap().contains(entry.getKey()) ? 'R' : 'C').append('\t').append(entry.getKey()).append('\t').append(entry.getValue()).append('\n');
+		}
+
+		Files.writeString(getPendingFile(), builder);
+	}
+
+	private Plan readPending() throws IOException {
+		if (Files.notExists(getPendingFile())) {
+			throw new IOException("The inputs of the incremental remap in " + directory + " have not been read");
+		}
+
+		final List<String> lines = Files.readAllLines(getPendingFile());
+
+		if (lines.size() < 3 || !lines.get(0).equals(Integer.toString(VERSION))) {
+			throw new IOException("Unsupported incremental remap inputs in " + directory);
+		}
+
+		final Map<String, String> hashes = new LinkedHashMap<>();
+		final Set<String> remap = new HashSet<>();
+
+		for (String line : lines.subList(3, lines.size())) {
+			final String[] parts = line.split("\t");
+			hashes.put(parts[1], parts[2]);
+
+			if (parts[0].equals("R")) {
+				remap.add(parts[1]);
+			}
+		}
+
+		return new Plan(lines.get(1), hashes, remap, Boolean.parseBoolean(lines.get(2)));
+	}
+
+	private Path getRemappedJar() {
+		return directory.resolve("remapped.jar");
+	}
+
+	private Path getPendingFile() {
+		return directory.resolve("pending.txt");
+	}
+
+	private Path getInputsJar() {
+		return directory.resolve("inputs.jar");
+	}
+
+	private Path getReusedJar() {
+		return directory.resolve("reused.jar");
+	}
+
+	/**
+	 * @param hashes the hash of each input class, by class name
+	 * @param remap the classes to remap, the other classes reuse their previous output
+	 * @param full whether all classes are remapped as there is no usable state
+	 */
+	public record Plan(String key, Map<String, String> hashes, Set<String> remap, boolean full) {
+	}
+
+	private record Index(String key, Map<String, Entry> entries) {
+		private record Entry(String hash, String outputName) {
+		}
+	}
+}
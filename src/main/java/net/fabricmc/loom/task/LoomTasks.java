@@ -86,6 +86,10 @@ public abstract class LoomTasks implements Runnable {
 
 		getTasks().named("check").configure(task -> task.dependsOn(validateAccessWidener));
 
+		getTasks().register("gcBlobStore", GcBlobStoreTask.class, t -> {
+			t.setDescription("Deletes the unreferenced files in the shared blob store, see the loom.blobStore property.");
+		});
+
 		registerIDETasks();
 		registerRunTasks();
 
@@ -24,10 +24,13 @@
 
 package net.fabricmc.loom.task;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 
 import javax.inject.Inject;
 
+import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.InputFile;
@@ -36,6 +39,7 @@ import org.gradle.workers.WorkAction;
 import org.gradle.workers.WorkParameters;
 import org.gradle.workers.WorkQueue;
 import org.gradle.workers.WorkerExecutor;
+import org.jetbrains.annotations.Nullable;
 
 import net.fabricmc.loom.task.service.TinyRemapperService;
 import net.fabricmc.loom.util.service.UnsafeWorkQueueHelper;
@@ -75,14 +79,23 @@ public abstract class PrepareJarRemapTask extends AbstractLoomTask {
 		final WorkQueue workQueue = getWorkerExecutor().noIsolation();
 
 		workQueue.submit(ReadInputsAction.class, params -> {
-			params.getTinyRemapperBuildServiceUuid().set(UnsafeWorkQueueHelper.create(remapJarTask.getTinyRemapperService()));
+			final TinyRemapperService tinyRemapperService = remapJarTask.getTinyRemapperService();
+			params.getTinyRemapperBuildServiceUuid().set(UnsafeWorkQueueHelper.create(tinyRemapperService));
 			params.getInputFile().set(getInputFile());
+
+			if (remapJarTask.isIncrementalRemap()) {
+				params.getIncrementalRemapDirectory().set(remapJarTask.getIncrementalRemapDirectory());
+				params.getIncrementalRemapKey().set(remapJarTask.getIncrementalRemapKey(tinyRemapperService));
+			}
 		});
 	}
 
 	public interface ReadInputsParams extends WorkParameters {
 		Property<String> getTinyRemapperBuildServiceUuid();
 		RegularFileProperty getInputFile();
+
+		DirectoryProperty getIncrementalRemapDirectory();
+		Property<String> getIncrementalRemapKey();
 	}
 
 	public abstract static class ReadInputsAction implements WorkAction<ReadInputsParams> {
@@ -95,11 +108,21 @@ public abstract class PrepareJarRemapTask extends AbstractLoomTask {
 		@Override
 		public void execute() {
 			final Path inputFile = getParameters().getInputFile().getAsFile().get().toPath();
-			prepare(tinyRemapperService, inputFile);
+			prepare(tinyRemapperService, inputFile, IncrementalRemapState.fromParameters(getParameters().getIncrementalRemapDirectory(), getParameters().getIncrementalRemapKey()));
 		}
 	}
 
-	static void prepare(TinyRemapperService tinyRemapperService, Path inputFile) {
+	static void prepare(TinyRemapperService tinyRemapperService, Path inputFile, @Nullable IncrementalRemapState incrementalRemapState) {
+		if (incrementalRemapState != null) {
+			try {
+				incrementalRemapState.readInputs(tinyRemapperService.getTinyRemapperForInputs(), tinyRemapperService.getOrCreateTag(inputFile), inputFile);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Failed to read the inputs of " + inputFile, e);
+			}
+
+			return;
+		}
+
 		tinyRemapperService.getTinyRemapperForInputs().readInputsAsync(tinyRemapperService.getOrCreateTag(inputFile), inputFile);
 	}
 }
@@ -27,6 +27,7 @@ package net.fabricmc.loom.task;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
@@ -34,11 +35,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import javax.inject.Inject;
 
@@ -47,6 +45,7 @@ import dev.architectury.loom.extensions.ModBuildExtensions;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.artifacts.ConfigurationContainer;
 import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.plugins.JavaPlugin;
@@ -83,11 +82,14 @@ import net.fabricmc.loom.util.ExceptionUtil;
 import net.fabricmc.loom.util.ModPlatform;
 import net.fabricmc.loom.util.Pair;
 import net.fabricmc.loom.util.SidedClassVisitor;
+import net.fabricmc.loom.util.ZipRewriter;
 import net.fabricmc.loom.util.ZipUtils;
 import net.fabricmc.loom.util.fmj.FabricModJson;
 import net.fabricmc.loom.util.fmj.FabricModJsonFactory;
 import net.fabricmc.loom.util.fmj.FabricModJsonUtils;
+import net.fabricmc.loom.util.gradle.GradleUtils;
 import net.fabricmc.loom.util.service.BuildSharedServiceManager;
+import net.fabricmc.loom.util.service.SharedExecutorService;
 import net.fabricmc.loom.util.service.UnsafeWorkQueueHelper;
 import net.fabricmc.tinyremapper.OutputConsumerPath;
 import net.fabricmc.tinyremapper.TinyRemapper;
@@ -145,6 +147,16 @@ public abstract class RemapJarTask extends AbstractRemapJarTask {
 	@ApiStatus.Internal
 	public abstract Property<Boolean> getUseMixinAP();
 
+	/**
+	 * Whether to only remap the classes that changed since the previous remap, reusing the remapped output of the other classes.
+	 *
+	 * <p>This is disabled by default, and can be enabled for all remap jar tasks with the {@code loom.incrementalRemapJar} Gradle property.
+	 *
+	 * @return the property
+	 */
+	@Input
+	public abstract Property<Boolean> getIncrementalRemap();
+
 	private final Provider<BuildSharedServiceManager> serviceManagerProvider;
 
 	@Inject
@@ -157,6 +169,7 @@ public abstract class RemapJarTask extends AbstractRemapJarTask {
 		getOptimizeFabricModJson().convention(false).finalizeValueOnRead();
 		getReadMixinConfigsFromManifest().convention(LoomGradleExtension.get(getProject()).isForgeLike()).finalizeValueOnRead();
 		getInjectAccessWidener().convention(false);
+		getIncrementalRemap().convention(GradleUtils.getBooleanPropertyProvider(getProject(), Constants.Properties.INCREMENTAL_REMAP_JAR)).finalizeValueOnRead();
 
 		Configuration includeConfiguration = configurations.getByName(Constants.Configurations.INCLUDE);
 		IncludedJarFactory factory = new IncludedJarFactory(getProject());
@@ -218,6 +231,11 @@ public abstract class RemapJarTask extends AbstractRemapJarTask {
 
 				params.getMultiProjectOptimisation().set(getLoomExtension().multiProjectOptimisation());
 
+				if (isIncrementalRemap()) {
+					params.getIncrementalRemapDirectory().set(getIncrementalRemapDirectory());
+					params.getIncrementalRemapKey().set(getIncrementalRemapKey(getTinyRemapperService()));
+				}
+
 				final boolean mixinAp = getUseMixinAP().get();
 				params.getUseMixinExtension().set(!mixinAp);
 
@@ -312,18 +330,23 @@ public abstract class RemapJarTask extends AbstractRemapJarTask {
 
 		Property<String> getTinyRemapperBuildServiceUuid();
 		Property<String> getMappingBuildServiceUuid();
+
+		DirectoryProperty getIncrementalRemapDirectory();
+		Property<String> getIncrementalRemapKey();
 	}
 
 	public abstract static class RemapAction extends AbstractRemapAction<RemapParams> {
 		private static final Logger LOGGER = LoggerFactory.getLogger(RemapAction.class);
 
 		private final @Nullable TinyRemapperService tinyRemapperService;
+		private final @Nullable IncrementalRemapState incrementalRemapState;
 		private @Nullable TinyRemapper tinyRemapper;
 
 		public RemapAction() {
 			this.tinyRemapperService = getParameters().getTinyRemapperBuildServiceUuid().isPresent()
 					? UnsafeWorkQueueHelper.get(getParameters().getTinyRemapperBuildServiceUuid(), TinyRemapperService.class)
 					: null;
+			this.incrementalRemapState = IncrementalRemapState.fromParameters(getParameters().getIncrementalRemapDirectory(), getParameters().getIncrementalRemapKey());
 		}
 
 		@Override
@@ -343,28 +366,34 @@ public abstract class RemapJarTask extends AbstractRemapJarTask {
 					Files.copy(inputFile, outputFile, StandardCopyOption.REPLACE_EXISTING);
 				}
 
-				if (getParameters().getClientOnlyEntries().isPresent()) {
-					markClientOnlyClasses();
-				}
+				addNestedJars();
 
-				if (!injectAccessWidener()) {
-					remapAccessWidener();
-				}
+				// Apply the other changes to the remapped jar in a single pass over it
+				try (ZipRewriter rewriter = ZipRewriter.open(outputFile).parallel(SharedExecutorService.get().cpu())) {
+					if (getParameters().getClientOnlyEntries().isPresent()) {
+						markClientOnlyClasses(rewriter);
+					}
 
-				addRefmaps();
-				addNestedJars();
-				ModBuildExtensions.convertAwToAt(getParameters().getAtAccessWideners(), outputFile, getParameters().getMappingBuildServiceUuid());
+					if (!injectAccessWidener(rewriter)) {
+						remapAccessWidener(rewriter);
+					}
 
-				if (!getParameters().getPlatform().get().isForgeLike()) {
-					modifyJarManifest();
-				}
+					addRefmaps(rewriter);
 
-				rewriteJar();
+					if (!getParameters().getPlatform().get().isForgeLike()) {
+						modifyJarManifest(rewriter);
+					}
+
+					if (getParameters().getOptimizeFmj().get()) {
+						optimizeFMJ(rewriter);
+					}
 
-				if (getParameters().getOptimizeFmj().get()) {
-					optimizeFMJ();
+					rewriter.apply();
 				}
 
+				ModBuildExtensions.convertAwToAt(getParameters().getAtAccessWideners(), outputFile, getParameters().getMappingBuildServiceUuid());
+				rewriteJar();
+
 				if (tinyRemapperService != null && !getParameters().getMultiProjectOptimisation().get()) {
 					tinyRemapperService.close();
 				}
@@ -385,7 +414,7 @@ public abstract class RemapJarTask extends AbstractRemapJarTask {
 			final Path inputFile = getParameters().getInputFile().getAsFile().get().toPath();
 
 			if (tinyRemapperService != null) {
-				PrepareJarRemapTask.prepare(tinyRemapperService, inputFile);
+				PrepareJarRemapTask.prepare(tinyRemapperService, inputFile, incrementalRemapState);
 			}
 		}
 
@@ -395,37 +424,41 @@ public abstract class RemapJarTask extends AbstractRemapJarTask {
 
 			try (OutputConsumerPath outputConsumer = new OutputConsumerPath.Builder(outputFile).build()) {
 				outputConsumer.addNonClassFiles(inputFile);
-				tinyRemapper.apply(outputConsumer, tinyRemapperService.getOrCreateTag(inputFile));
+
+				if (incrementalRemapState != null) {
+					incrementalRemapState.apply(tinyRemapper, tinyRemapperService.getOrCreateTag(inputFile), outputConsumer);
+				} else {
+					tinyRemapper.apply(outputConsumer, tinyRemapperService.getOrCreateTag(inputFile));
+				}
 			}
 		}
 
-		private void markClientOnlyClasses() throws IOException {
-			final Stream<Pair<String, ZipUtils.UnsafeUnaryOperator<byte[]>>> tranformers = getParameters().getClientOnlyEntries().get().stream()
-					.map(s -> new Pair<>(s,
-							(ZipUtils.AsmClassOperator) classVisitor -> SidedClassVisitor.CLIENT.insertApplyVisitor(null, classVisitor)
-					));
+		private void markClientOnlyClasses(ZipRewriter rewriter) {
+			final ZipUtils.AsmClassOperator transformer = classVisitor -> SidedClassVisitor.CLIENT.insertApplyVisitor(null, classVisitor);
 
-			ZipUtils.transform(outputFile, tranformers);
+			for (String entry : getParameters().getClientOnlyEntries().get()) {
+				rewriter.transform(entry, transformer);
+			}
 		}
 
-		private boolean injectAccessWidener() throws IOException {
+		private boolean injectAccessWidener(ZipRewriter rewriter) throws IOException {
 			if (!getParameters().getInjectAccessWidener().isPresent()) return false;
 
 			Path path = getParameters().getInjectAccessWidener().getAsFile().get().toPath();
 
 			byte[] remapped = remapAccessWidener(Files.readAllBytes(path));
 
-			ZipUtils.add(outputFile, path.getFileName().toString(), remapped);
+			rewriter.put(path.getFileName().toString(), remapped);
 
 			if (getParameters().getPlatform().get() == ModPlatform.QUILT) {
-				ZipUtils.transformJson(JsonObject.class, outputFile, Map.of("quilt.mod.json", json -> {
+				rewriter.transform("quilt.mod.json", ZipUtils.jsonTransformer(JsonObject.class, json -> {
 					json.addProperty("access_widener", path.getFileName().toString());
 					return json;
 				}));
 				return true;
 			}
 
-			ZipUtils.transformJson(JsonObject.class, outputFile, Map.of("fabric.mod.json", json -> {
+			rewriter.transform("fabric.mod.json", ZipUtils.jsonTransformer(JsonObject.class, json -> {
 				json.addProperty("accessWidener", path.getFileName().toString());
 				return json;
 			}));
@@ -433,7 +466,7 @@ public abstract class RemapJarTask extends AbstractRemapJarTask {
 			return true;
 		}
 
-		private void remapAccessWidener() throws IOException {
+		private void remapAccessWidener(ZipRewriter rewriter) throws IOException {
 			if (getParameters().namespacesMatch()) {
 				return;
 			}
@@ -447,7 +480,7 @@ public abstract class RemapJarTask extends AbstractRemapJarTask {
 			byte[] remapped = remapAccessWidener(accessWidenerFile.content());
 
 			// Finally, replace the output with the remaped aw
-			ZipUtils.replace(outputFile, accessWidenerFile.path(), remapped);
+			rewriter.replace(accessWidenerFile.path(), remapped);
 		}
 
 		private byte[] remapAccessWidener(byte[] input) {
@@ -482,30 +515,32 @@ public abstract class RemapJarTask extends AbstractRemapJarTask {
 			JarNester.nestJars(jars, forgeNestedJars.getOrElse(List.of()), outputFile.toFile(), getParameters().getPlatform().get(), LOGGER);
 		}
 
-		private void addRefmaps() throws IOException {
+		private void addRefmaps(ZipRewriter rewriter) throws IOException {
 			if (getParameters().getUseMixinExtension().getOrElse(false)) {
 				return;
 			}
 
 			for (RemapParams.RefmapData refmapData : getParameters().getMixinData().get()) {
-				if (ZipUtils.contains(outputFile, refmapData.refmapName())) {
-					int transformed = ZipUtils.transformJson(JsonObject.class, outputFile, refmapData.mixinConfigs().stream().collect(Collectors.toMap(s -> s, s -> json -> {
-						if (!json.has("refmap")) {
-							json.addProperty("refmap", refmapData.refmapName());
-						}
-
-						return json;
-					})));
+				if (rewriter.contains(refmapData.refmapName())) {
+					for (String mixinConfig : refmapData.mixinConfigs()) {
+						rewriter.transform(mixinConfig, ZipUtils.jsonTransformer(JsonObject.class, json -> {
+							if (!json.has("refmap")) {
+								json.addProperty("refmap", refmapData.refmapName());
+							}
+
+							return json;
+						}));
+					}
 				}
 			}
 		}
 
-		private void optimizeFMJ() throws IOException {
-			if (!ZipUtils.contains(outputFile, FabricModJsonFactory.FABRIC_MOD_JSON)) {
+		private void optimizeFMJ(ZipRewriter rewriter) throws IOException {
+			if (!rewriter.contains(FabricModJsonFactory.FABRIC_MOD_JSON)) {
 				return;
 			}
 
-			ZipUtils.transformJson(JsonObject.class, outputFile, FabricModJsonFactory.FABRIC_MOD_JSON, FabricModJsonUtils::optimizeFmj);
+			rewriter.transform(FabricModJsonFactory.FABRIC_MOD_JSON, ZipUtils.jsonTransformer(JsonObject.class, FabricModJsonUtils::optimizeFmj));
 		}
 	}
 
@@ -529,4 +564,20 @@ public abstract class RemapJarTask extends AbstractRemapJarTask {
 	public TinyRemapperService getTinyRemapperService() {
 		return TinyRemapperService.getOrCreate(serviceManagerProvider.get().get(), this);
 	}
+
+	boolean isIncrementalRemap() {
+		return getIncrementalRemap().get() && !getSourceNamespace().get().equals(getTargetNamespace().get());
+	}
+
+	File getIncrementalRemapDirectory() {
+		return new File(getTemporaryDir(), "incremental");
+	}
+
+	String getIncrementalRemapKey(TinyRemapperService tinyRemapperService) {
+		try {
+			return IncrementalRemapState.createKey(tinyRemapperService.getId(), getClasspath().getFiles());
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to hash the remap classpath", e);
+		}
+	}
 }
@@ -0,0 +1,290 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.task.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.Project;
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.fabricmc.loom.LoomGradleExtension;
+import net.fabricmc.loom.util.Checksum;
+import net.fabricmc.loom.util.Constants;
+import net.fabricmc.loom.util.RawZipReader;
+import net.fabricmc.loom.util.RawZipWriter;
+import net.fabricmc.loom.util.gradle.GradleUtils;
+import net.fabricmc.loom.util.service.SharedService;
+import net.fabricmc.loom.util.service.SharedServiceManager;
+
+/**
+ * An index of the classes on the remap classpath, shared by every remapper in the build.
+ *
+ * <p>Tiny remapper only needs the class hierarchy and member signatures of classpath classes, so each classpath jar
+ * is reduced to its class files without code or debug info, stored uncompressed. The reduced jars are kept in the Gradle user home
+ * keyed by the hash of the jar contents, so the same library used by many projects, remap tasks or Kotlin versions
+ * is only reduced once and every remapper reads the much smaller copy.
+ *
+ * <p>Only jars from the Gradle user home, such as dependencies and the global Minecraft jars, are kept between builds.
+ * Jars of the build itself, like the jars of other projects and the processed Minecraft jars, change with every edit
+ * so they are reduced into a directory that is deleted at the end of the build. Kept jars that have not been used for
+ * {@link #MAX_AGE} are deleted when the build finishes.
+ */
+public final class ClasspathIndexService implements SharedService {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ClasspathIndexService.class);
+	// Bump when the contents of the reduced jars change.
+	private static final int VERSION = 1;
+	private static final Duration MAX_AGE = Duration.ofDays(30);
+
+	private final Path root;
+	private final Path gradleUserHome;
+	private final Path buildRoot;
+	// The indexed jar of each jar hash, for this build
+	private final Map<String, Path> indexedJars = new ConcurrentHashMap<>();
+	// Holds the indexes of the jars of the build, created when first needed
+	@Nullable
+	private volatile Path buildIndexRoot;
+
+	/**
+	 * @param root the directory to keep the indexes in between builds
+	 * @param gradleUserHome jars in this directory are kept between builds
+	 * @param buildRoot jars in this directory are part of the build, their indexes are removed when the build finishes
+	 */
+	public ClasspathIndexService(Path root, Path gradleUserHome, Path buildRoot) {
+		this.root = root.resolve("v" + VERSION);
+		this.gradleUserHome = gradleUserHome.toAbsolutePath().normalize();
+		this.buildRoot = buildRoot.toAbsolutePath().normalize();
+	}
+
+	/**
+	 * @return the index, or null when it has been disabled
+	 */
+	@Nullable
+	public static synchronized ClasspathIndexService getOrCreate(SharedServiceManager serviceManager, Project project) {
+		if (GradleUtils.getBooleanProperty(project, Constants.Properties.DISABLE_CLASSPATH_INDEX)) {
+			return null;
+		}
+
+		final Path root = LoomGradleExtension.get(project).getFiles().getGlobalClasspathIndexCache().toPath();
+		final Path gradleUserHome = project.getGradle().getGradleUserHomeDir().toPath();
+		final Path buildRoot = project.getRootDir().toPath();
+		return serviceManager.getOrCreateService("classpathIndex:" + root + ":" + buildRoot, () -> new ClasspathIndexService(root, gradleUserHome, buildRoot));
+	}
+
+	/**
+	 * Replaces the jars on the classpath with their indexed copies, dropping jars with the same contents.
+	 * Directories and files that can't be indexed are kept as they are.
+	 */
+	public List<Path> index(List<Path> classpath) {
+		final Set<Path> indexed = new LinkedHashSet<>();
+
+		for (Path path : classpath) {
+			indexed.add(indexJar(path));
+		}
+
+		return new ArrayList<>(indexed);
+	}
+
+	private Path indexJar(Path jar) {
+		if (!Files.isRegularFile(jar)) {
+			return jar;
+		}
+
+		try {
+			final String hash = Checksum.sha256HexMemoized(jar);
+			return indexedJars.computeIfAbsent(hash, h -> createIndex(jar, h, isKept(jar) ? root : getBuildIndexRoot()));
+		} catch (IOException | RuntimeException e) {
+			LOGGER.debug("Failed to index classpath jar {}, reading it directly", jar, e);
+			return jar;
+		}
+	}
+
+	/**
+	 * @return whether the jar's index can be kept between builds, jars of the build itself are rebuilt on every change
+	 */
+	private boolean isKept(Path jar) {
+		final Path path = jar.toAbsolutePath().normalize();
+		return path.startsWith(gradleUserHome) && !path.startsWith(buildRoot);
+	}
+
+	private Path getBuildIndexRoot() {
+		Path buildIndexRoot = this.buildIndexRoot;
+
+		if (buildIndexRoot == null) {
+			synchronized (this) {
+				buildIndexRoot = this.buildIndexRoot;
+
+				if (buildIndexRoot == null) {
+					try {
+						buildIndexRoot = Files.createTempDirectory("loom-classpath-index");
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+
+					this.buildIndexRoot = buildIndexRoot;
+				}
+			}
+		}
+
+		return buildIndexRoot;
+	}
+
+	private static Path createIndex(Path jar, String hash, Path root) {
+		final Path indexedJar = root.resolve(hash + ".jar");
+
+		try {
+			if (Files.exists(indexedJar)) {
+				// Record the last use, so old entries can be found and removed
+				Files.setLastModifiedTime(indexedJar, FileTime.from(Instant.now()));
+				return indexedJar;
+			}
+
+			Files.createDirectories(root);
+			final Path tempJar = Files.createTempFile(root, hash, ".tmp");
+
+			try {
+				writeIndex(jar, tempJar);
+				publish(tempJar, indexedJar);
+			} catch (FileAlreadyExistsException e) {
+				// Another build indexed the same jar at the same time
+			} finally {
+				Files.deleteIfExists(tempJar);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		return indexedJar;
+	}
+
+	/**
+	 * Moves the temp file to the index path, without replacing an index written concurrently that may already be read.
+	 * An atomic move silently replaces the target on most platforms, so the index is created as a link to the temp file instead.
+	 *
+	 * @throws FileAlreadyExistsException when the index already exists
+	 */
+	private static void publish(Path temp, Path indexedJar) throws IOException {
+		try {
+			Files.createLink(indexedJar, temp);
+		} catch (FileAlreadyExistsException e) {
+			throw e;
+		} catch (UnsupportedOperationException | FileSystemException e) {
+			// Without links, fall back to a move that fails when the target exists
+			Files.move(temp, indexedJar);
+		}
+	}
+
+	/**
+	 * Deletes the indexes of the jars of this build, and the kept indexes that have not been used for {@link #MAX_AGE}.
+	 */
+	@Override
+	public void close() throws IOException {
+		final Path buildIndexRoot = this.buildIndexRoot;
+
+		if (buildIndexRoot != null) {
+			FileUtils.deleteDirectory(buildIndexRoot.toFile());
+		}
+
+		if (!Files.isDirectory(root)) {
+			return;
+		}
+
+		final FileTime oldest = FileTime.from(Instant.now().minus(MAX_AGE));
+
+		try (Stream<Path> files = Files.list(root)) {
+			for (Path file : (Iterable<Path>) files::iterator) {
+				try {
+					if (Files.getLastModifiedTime(file).compareTo(oldest) < 0) {
+						Files.deleteIfExists(file);
+					}
+				} catch (IOException e) {
+					LOGGER.debug("Failed to delete old classpath index {}", file, e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes the class files of the jar without their code, sorted by name so the output only depends on the contents.
+	 */
+	static void writeIndex(Path jar, Path output) throws IOException {
+		try (ZipFile zipFile = new ZipFile(jar.toFile());
+				FileChannel channel = FileChannel.open(output, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.CREATE)) {
+			final List<? extends ZipEntry> entries = Collections.list(zipFile.entries()).stream()
+					.filter(entry -> !entry.isDirectory() && entry.getName().endsWith(".class"))
+					.sorted((a, b) -> a.getName().compareTo(b.getName()))
+					.toList();
+			final RawZipWriter writer = new RawZipWriter(channel);
+
+			for (ZipEntry entry : entries) {
+				if (writer.contains(entry.getName())) {
+					continue;
+				}
+
+				final byte[] bytes;
+
+				try (InputStream inputStream = zipFile.getInputStream(entry)) {
+					bytes = stripClass(inputStream.readAllBytes());
+				}
+
+				writer.write(entry.getName(), RawZipWriter.encode(bytes, RawZipReader.METHOD_STORED), null);
+			}
+
+			writer.finish();
+		}
+	}
+
+	static byte[] stripClass(byte[] bytes) {
+		final ClassReader reader = new ClassReader(bytes);
+		final ClassWriter writer = new ClassWriter(0);
+		reader.accept(writer, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG);
+		return writer.toByteArray();
+	}
+}
@@ -25,18 +25,20 @@
 package net.fabricmc.loom.task.service;
 
 import java.io.IOException;
-import java.io.UncheckedIOException;
 import java.util.Objects;
 
 import dev.architectury.loom.util.MappingOption;
 import org.cadixdev.lorenz.MappingSet;
+import org.cadixdev.lorenz.model.ClassMapping;
+import org.cadixdev.lorenz.model.MethodMapping;
+import org.jetbrains.annotations.Nullable;
 
 import net.fabricmc.loom.api.mappings.layered.MappingsNamespace;
+import net.fabricmc.loom.configuration.providers.mappings.BinaryMappingTree;
 import net.fabricmc.loom.configuration.providers.mappings.MappingConfiguration;
 import net.fabricmc.loom.util.service.SharedService;
 import net.fabricmc.loom.util.service.SharedServiceManager;
-import net.fabricmc.lorenztiny.TinyMappingsReader;
-import net.fabricmc.mappingio.tree.MemoryMappingTree;
+import net.fabricmc.mappingio.tree.MappingTreeView;
 
 public final class LorenzMappingService implements SharedService {
 	private MappingSet mappings;
@@ -55,16 +57,70 @@ public final class LorenzMappingService implements SharedService {
 				mappingOption = MappingOption.WITH_MOJANG;
 			}
 
-			MemoryMappingTree m = mappingConfiguration.getMappingsService(sharedServiceManager, mappingOption).getMappingTree();
+			BinaryMappingTree m = mappingConfiguration.getMappingsService(sharedServiceManager, mappingOption).getBinaryMappings();
+			return new LorenzMappingService(readMappings(m, from.toString(), to.toString()));
+		});
+	}
+
+	/**
+	 * Reads the binary mappings into a Lorenz {@link MappingSet}, the same way lorenz-tiny's {@code TinyMappingsReader} reads a mapping tree.
+	 */
+	private static MappingSet readMappings(BinaryMappingTree mappings, String from, String to) {
+		final int fromId = mappings.getNamespaceId(from);
+		final int toId = mappings.getNamespaceId(to);
+
+		if (fromId == MappingTreeView.NULL_NAMESPACE_ID || toId == MappingTreeView.NULL_NAMESPACE_ID) {
+			throw new IllegalArgumentException("Cannot read lorenz mappings from '%s' to '%s', available namespaces: [%s -> %s]"
+					.formatted(from, to, mappings.getSrcNamespace(), String.join(", ", mappings.getDstNamespaces())));
+		}
+
+		final MappingSet mappingSet = MappingSet.create();
+
+		for (int i = 0; i < mappings.getClassCount(); i++) {
+			final BinaryMappingTree.ClassView classDef = mappings.getClass(i);
+			final String className = classDef.getName(fromId);
 
-			try {
-				try (var reader = new TinyMappingsReader(m, from.toString(), to.toString())) {
-					return new LorenzMappingService(reader.read());
+			if (className == null) {
+				continue;
+			}
+
+			final ClassMapping<?, ?> classMapping = mappingSet.getOrCreateClassMapping(className)
+					.setDeobfuscatedName(nameOrDefault(classDef.getName(toId), className));
+
+			for (BinaryMappingTree.MemberView field : classDef.getFields()) {
+				final String fieldName = field.getName(fromId);
+
+				if (fieldName != null) {
+					classMapping.getOrCreateFieldMapping(fieldName, field.getDesc(fromId))
+							.setDeobfuscatedName(nameOrDefault(field.getName(toId), fieldName));
 				}
-			} catch (IOException e) {
-				throw new UncheckedIOException("Failed to read lorenz mappings", e);
 			}
-		});
+
+			for (BinaryMappingTree.MethodView method : classDef.getMethods()) {
+				final String methodName = method.getName(fromId);
+
+				if (methodName == null) {
+					continue;
+				}
+
+				final MethodMapping methodMapping = classMapping.getOrCreateMethodMapping(methodName, method.getDesc(fromId))
+						.setDeobfuscatedName(nameOrDefault(method.getName(toId), methodName));
+
+				for (BinaryMappingTree.ArgView arg : method.getArgs()) {
+					final String argName = arg.getName(toId);
+
+					if (argName != null) {
+						methodMapping.getOrCreateParameterMapping(arg.getLvIndex()).setDeobfuscatedName(argName);
+					}
+				}
+			}
+		}
+
+		return mappingSet;
+	}
+
+	private static String nameOrDefault(@Nullable String name, String fallback) {
+		return name != null ? name : fallback;
 	}
 
 	@Override
@@ -102,7 +102,7 @@ public class TinyRemapperService implements SharedService {
 				mappings.add(gradleMixinMappingProvider(serviceManager, project.getGradle(), extension.getMappingConfiguration().mappingsIdentifier, from, to));
 			}
 
-			return new TinyRemapperService(mappings, !legacyMixin, kotlinClasspathService, extension.getKnownIndyBsms().get(), extension.getRemapperExtensions().get(), from, to, project.getObjects());
+			return new TinyRemapperService(id, mappings, !legacyMixin, kotlinClasspathService, extension.getKnownIndyBsms().get(), extension.getRemapperExtensions().get(), from, to, project.getObjects());
 		});
 
 		final ConfigurationContainer configurations = project.getConfigurations();
@@ -132,7 +132,8 @@ public class TinyRemapperService implements SharedService {
 				.filter(Files::exists)
 				.toList();
 
-		service.readClasspath(classPath);
+		final ClasspathIndexService classpathIndex = ClasspathIndexService.getOrCreate(serviceManager, project);
+		service.readClasspath(classpathIndex != null ? classpathIndex.index(classPath) : classPath);
 		return service;
 	}
 
@@ -160,6 +161,7 @@ public class TinyRemapperService implements SharedService {
 		});
 	}
 
+	private final String id;
 	private TinyRemapper tinyRemapper;
 	@Nullable
 	private KotlinRemapperClassloader kotlinRemapperClassloader;
@@ -168,7 +170,8 @@ public class TinyRemapperService implements SharedService {
 	// Set to true once remapping has started, once set no inputs can be read.
 	private boolean isRemapping = false;
 
-	private TinyRemapperService(List<IMappingProvider> mappings, boolean useMixinExtension, @Nullable KotlinClasspath kotlinClasspath, Set<String> knownIndyBsms, List<RemapperExtensionHolder> remapperExtensions, String sourceNamespace, String targetNamespace, ObjectFactory objectFactory) {
+	private TinyRemapperService(String id, List<IMappingProvider> mappings, boolean useMixinExtension, @Nullable KotlinClasspath kotlinClasspath, Set<String> knownIndyBsms, List<RemapperExtensionHolder> remapperExtensions, String sourceNamespace, String targetNamespace, ObjectFactory objectFactory) {
+		this.id = id;
 		TinyRemapper.Builder builder = TinyRemapper.newRemapper().withKnownIndyBsm(knownIndyBsms);
 
 		for (IMappingProvider provider : mappings) {
@@ -191,6 +194,13 @@ public class TinyRemapperService implements SharedService {
 		tinyRemapper = builder.build();
 	}
 
+	/**
+	 * @return the id the remapper is shared by, it covers the mappings and the remapper setup
+	 */
+	public String getId() {
+		return id;
+	}
+
 	public synchronized InputTag getOrCreateTag(Path file) {
 		InputTag tag = inputTagMap.get(file.toAbsolutePath().toString());
 
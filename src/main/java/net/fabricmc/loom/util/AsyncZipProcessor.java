@@ -35,7 +35,8 @@ import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+
+import net.fabricmc.loom.util.service.SharedExecutorService;
 
 public interface AsyncZipProcessor {
 	static void processEntries(Path inputZip, Path outputZip, AsyncZipProcessor processor) throws IOException {
@@ -45,7 +46,7 @@ public interface AsyncZipProcessor {
 			final Path outRoot = outFs.get().getPath("/");
 
 			List<CompletableFuture<Void>> futures = new ArrayList<>();
-			final ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+			final ExecutorService executor = SharedExecutorService.get().cpu();
 
 			Files.walkFileTree(inRoot, new SimpleFileVisitor<>() {
 				@Override
@@ -79,8 +80,6 @@ public interface AsyncZipProcessor {
 					throw new RuntimeException("Failed to process zip", e.getCause());
 				}
 			}
-
-			executor.shutdown();
 		}
 	}
 
@@ -0,0 +1,295 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.gradle.api.Project;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.fabricmc.loom.LoomGradleExtension;
+import net.fabricmc.loom.util.gradle.GradleUtils;
+
+/**
+ * A content addressed store of files, keyed by their SHA-256 hash.
+ *
+ * <p>Files copied through the store are hard linked to a single blob, so identical jars written to several caches only take up
+ * disk space once. When the target cannot be linked to the blob, such as when it is on another file system, it is copied instead.
+ *
+ * <p>A blob is referenced by every file linked to it. Where the file system exposes the link count it is used directly,
+ * otherwise the linked paths are recorded next to the blob and checked with {@link Files#isSameFile(Path, Path)}.
+ * {@link #gc()} deletes the blobs that are no longer referenced.
+ *
+ * <p>Files linked to a blob must not be modified in place, they must be replaced instead. Zip file systems and
+ * {@link Files#copy(Path, Path, java.nio.file.CopyOption...)} with {@link StandardCopyOption#REPLACE_EXISTING} both do this.
+ * Outputs that are later modified in place, such as processed Minecraft jars, must be copied without a blob store.
+ */
+public final class BlobStore {
+	private static final Logger LOGGER = LoggerFactory.getLogger(BlobStore.class);
+	private static final String REFS_SUFFIX = ".refs";
+	private static final String TEMP_SUFFIX = ".tmp";
+	// Gives a blob that has just been stored time to be linked before it can be collected.
+	private static final Duration MIN_GC_AGE = Duration.ofHours(1);
+
+	private final Path root;
+
+	public BlobStore(Path root) {
+		this.root = root;
+	}
+
+	/**
+	 * @return the blob store for the project, or null when it has not been enabled with the {@code loom.blobStore} property
+	 */
+	@Nullable
+	public static BlobStore get(Project project) {
+		if (!GradleUtils.getBooleanProperty(project, Constants.Properties.BLOB_STORE)) {
+			return null;
+		}
+
+		return create(project);
+	}
+
+	public static BlobStore create(Project project) {
+		return new BlobStore(LoomGradleExtension.get(project).getFiles().getBlobStore().toPath());
+	}
+
+	/**
+	 * Copies the source file to the target, replacing the target if it exists.
+	 *
+	 * @return the target path
+	 */
+	public Path copy(Path source, Path target) throws IOException {
+		final Path blob = put(source);
+		Files.createDirectories(target.toAbsolutePath().getParent());
+		Files.deleteIfExists(target);
+
+		try {
+			Files.createLink(target, blob);
+		} catch (UnsupportedOperationException | IOException e) {
+			// Links are unsupported, the target is on a different file system, or the blob was collected since it was stored.
+			LOGGER.debug("Failed to link {} to {}, copying instead", target, blob, e);
+			Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+			return target;
+		}
+
+		addReference(blob, target);
+		return target;
+	}
+
+	/**
+	 * Stores the contents of the source file, if they are not already stored.
+	 *
+	 * @return the path of the blob
+	 */
+	public Path put(Path source) throws IOException {
+		final Path blob = getBlobPath(Checksum.sha256Hex(source));
+
+		if (Files.exists(blob)) {
+			return blob;
+		}
+
+		Files.createDirectories(blob.getParent());
+		final Path temp = Files.createTempFile(blob.getParent(), blob.getFileName().toString(), TEMP_SUFFIX);
+
+		try {
+			Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING);
+			publish(temp, blob);
+		} catch (FileAlreadyExistsException e) {
+			// Another process stored the same blob first, keep it as files may already be linked to it
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+
+		return blob;
+	}
+
+	/**
+	 * Moves the temp file to the blob path, without replacing a blob stored concurrently.
+	 * An atomic move silently replaces the target on most platforms, so the blob is created as a link to the temp file instead.
+	 *
+	 * @throws FileAlreadyExistsException when the blob already exists
+	 */
+	private static void publish(Path temp, Path blob) throws IOException {
+		try {
+			Files.createLink(blob, temp);
+		} catch (FileAlreadyExistsException e) {
+			throw e;
+		} catch (UnsupportedOperationException | FileSystemException e) {
+			// Without links, fall back to a move that fails when the target exists
+			Files.move(temp, blob);
+		}
+	}
+
+	private Path getBlobPath(String hash) {
+		return root.resolve(hash.substring(0, 2)).resolve(hash);
+	}
+
+	private void addReference(Path blob, Path target) throws IOException {
+		if (getLinkCount(blob) >= 0) {
+			// The link count tracks the references
+			return;
+		}
+
+		final String line = target.toAbsolutePath() + "\n";
+		Files.writeString(getRefsPath(blob), line, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+	}
+
+	private static Path getRefsPath(Path blob) {
+		return blob.resolveSibling(blob.getFileName() + REFS_SUFFIX);
+	}
+
+	/**
+	 * @return the number of links to the file, or -1 when the file system does not expose it
+	 */
+	private static int getLinkCount(Path path) throws IOException {
+		try {
+			return (Integer) Files.getAttribute(path, "unix:nlink");
+		} catch (UnsupportedOperationException | IllegalArgumentException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Deletes the blobs that are no longer linked to by any file.
+	 */
+	public GcResult gc() throws IOException {
+		if (!Files.isDirectory(root)) {
+			return new GcResult(0, 0, 0);
+		}
+
+		final FileTime minAge = FileTime.from(Instant.now().minus(MIN_GC_AGE));
+		long kept = 0;
+		long removed = 0;
+		long removedBytes = 0;
+
+		try (DirectoryStream<Path> prefixes = Files.newDirectoryStream(root, Files::isDirectory)) {
+			for (Path prefix : prefixes) {
+				final List<Path> files = new ArrayList<>();
+
+				try (DirectoryStream<Path> stream = Files.newDirectoryStream(prefix)) {
+					stream.forEach(files::add);
+				}
+
+				for (Path file : files) {
+					final String name = file.getFileName().toString();
+
+					if (name.endsWith(REFS_SUFFIX)) {
+						// Deleted along with the blob
+						continue;
+					}
+
+					if (Files.getLastModifiedTime(file).compareTo(minAge) > 0) {
+						kept++;
+						continue;
+					}
+
+					if (name.endsWith(TEMP_SUFFIX)) {
+						// Left over from an interrupted put
+						Files.deleteIfExists(file);
+						continue;
+					}
+
+					if (isReferenced(file)) {
+						kept++;
+						continue;
+					}
+
+					final long size = Files.size(file);
+					Files.deleteIfExists(file);
+					Files.deleteIfExists(getRefsPath(file));
+					removed++;
+					removedBytes += size;
+				}
+			}
+		}
+
+		return new GcResult(kept, removed, removedBytes);
+	}
+
+	private boolean isReferenced(Path blob) throws IOException {
+		final int linkCount = getLinkCount(blob);
+
+		if (linkCount >= 0) {
+			return linkCount > 1;
+		}
+
+		final Path refsPath = getRefsPath(blob);
+
+		if (!Files.exists(refsPath)) {
+			return false;
+		}
+
+		// Drop the references to files that have since been deleted or replaced
+		final Set<String> live = new LinkedHashSet<>();
+
+		for (String ref : Files.readAllLines(refsPath, StandardCharsets.UTF_8)) {
+			if (ref.isEmpty()) {
+				continue;
+			}
+
+			try {
+				if (Files.isSameFile(Path.of(ref), blob)) {
+					live.add(ref);
+				}
+			} catch (NoSuchFileException | InvalidPathException e) {
+				// Not referenced
+			}
+		}
+
+		if (live.isEmpty()) {
+			return false;
+		}
+
+		Files.write(refsPath, live, StandardCharsets.UTF_8);
+		return true;
+	}
+
+	/**
+	 * @param kept The number of blobs that are still referenced, or too new to be collected
+	 * @param removed The number of blobs deleted
+	 * @param removedBytes The total size of the deleted blobs
+	 */
+	public record GcResult(long kept, long removed, long removedBytes) {
+	}
+}
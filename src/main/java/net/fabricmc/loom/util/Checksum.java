@@ -29,18 +29,24 @@ import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.google.common.hash.HashCode;
 import com.google.common.hash.Hashing;
 import com.google.common.io.BaseEncoding;
 import com.google.common.io.ByteSource;
 import com.google.common.io.Files;
+import com.google.common.io.MoreFiles;
 import org.gradle.api.Project;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 
 public class Checksum {
 	private static final Logger log = Logging.getLogger(Checksum.class);
+	// Remembers the hashes of unchanged files, for inputs that are hashed over and over again such as the Minecraft jars.
+	private static final Map<Path, FileHash> FILE_HASHES = new ConcurrentHashMap<>();
 
 	public static boolean equals(File file, String checksum) {
 		if (file == null || !file.exists()) {
@@ -73,6 +79,29 @@ public class Checksum {
 		return Checksum.toHex(hash.asBytes());
 	}
 
+	public static String sha256Hex(Path path) throws IOException {
+		HashCode hash = MoreFiles.asByteSource(path).hash(Hashing.sha256());
+		return toHex(hash.asBytes());
+	}
+
+	/**
+	 * Same as {@link #sha256Hex(Path)}, but reuses the previous hash of the file when its size and last modified time are unchanged.
+	 */
+	public static String sha256HexMemoized(Path path) throws IOException {
+		final Path absolutePath = path.toAbsolutePath();
+		final long size = java.nio.file.Files.size(absolutePath);
+		final FileTime lastModified = java.nio.file.Files.getLastModifiedTime(absolutePath);
+		final FileHash cached = FILE_HASHES.get(absolutePath);
+
+		if (cached != null && cached.size() == size && cached.lastModified().equals(lastModified)) {
+			return cached.hash();
+		}
+
+		final String hash = sha256Hex(absolutePath);
+		FILE_HASHES.put(absolutePath, new FileHash(size, lastModified, hash));
+		return hash;
+	}
+
 	public static String sha1Hex(Path path) throws IOException {
 		HashCode hash = Files.asByteSource(path.toFile()).hash(Hashing.sha1());
 		return toHex(hash.asBytes());
@@ -110,4 +139,7 @@ public class Checksum {
 		String hex = sha1Hex(str.getBytes(StandardCharsets.UTF_8));
 		return hex.substring(hex.length() - 16);
 	}
+
+	private record FileHash(long size, FileTime lastModified, String hash) {
+	}
 }
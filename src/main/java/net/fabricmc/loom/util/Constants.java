@@ -152,6 +152,21 @@ public class Constants {
 		public static final String DISABLE_PROJECT_DEPENDENT_MODS = "fabric.loom.disableProjectDependentMods";
 		public static final String LIBRARY_PROCESSORS = "fabric.loom.libraryProcessors";
 		public static final String ALLOW_MISMATCHED_PLATFORM_VERSION = "loom.allowMismatchedPlatformVersion";
+		public static final String THREADS = "loom.threads";
+		public static final String BLOB_STORE = "loom.blobStore";
+		public static final String DISABLE_FUSED_JAR_PROCESSORS = "loom.disableFusedJarProcessors";
+		public static final String TELEMETRY = "loom.telemetry";
+		public static final String DISABLE_PARALLEL_MOD_REMAPPING = "loom.disableParallelModRemapping";
+		public static final String DISABLE_GLOBAL_MOD_CACHE = "loom.disableGlobalModCache";
+		public static final String DISABLE_PARALLEL_SOURCE_REMAPPING = "loom.disableParallelSourceRemapping";
+		public static final String DISABLE_GLOBAL_SOURCES_CACHE = "loom.disableGlobalSourcesCache";
+		public static final String DISABLE_GLOBAL_MAPPINGS_CACHE = "loom.disableGlobalMappingsCache";
+		public static final String DISABLE_IN_PROCESS_BINPATCHER = "loom.disableInProcessBinpatcher";
+		public static final String DISABLE_PARALLEL_MCP_STEPS = "loom.disableParallelMcpSteps";
+		public static final String DISABLE_GLOBAL_MCP_STEP_CACHE = "loom.disableGlobalMcpStepCache";
+		public static final String DISABLE_CLASSPATH_INDEX = "loom.disableClasspathIndex";
+		public static final String INCREMENTAL_REMAP_JAR = "loom.incrementalRemapJar";
+		public static final String DISABLE_IN_PROCESS_ACCESS_TRANSFORMERS = "loom.disableInProcessAccessTransformers";
 	}
 
 	public static final class Manifest {
@@ -35,6 +35,7 @@ import org.gradle.api.plugins.JavaPluginExtension;
 import org.gradle.jvm.toolchain.JavaLauncher;
 import org.gradle.jvm.toolchain.JavaToolchainService;
 import org.gradle.jvm.toolchain.JavaToolchainSpec;
+import org.gradle.process.ExecOperations;
 import org.gradle.process.ExecResult;
 import org.gradle.process.JavaExecSpec;
 import org.jetbrains.annotations.Nullable;
@@ -47,6 +48,9 @@ public abstract class ForgeToolExecutor {
 	@Inject
 	protected abstract JavaToolchainService getToolchainService();
 
+	@Inject
+	protected abstract ExecOperations getExecOperations();
+
 	@Inject
 	protected abstract Project getProject();
 
@@ -61,45 +65,30 @@ public abstract class ForgeToolExecutor {
 	}
 
 	/**
-	 * Executes a {@link Project#javaexec(Action) javaexec} action with suppressed output.
+	 * Executes a {@link ExecOperations#javaexec(Action) javaexec} action with suppressed output.
 	 *
 	 * @param project      the project
 	 * @param configurator the {@code javaexec} configuration action
 	 * @return the execution result
 	 */
 	public static ExecResult exec(Project project, Action<? super JavaExecSpec> configurator) {
-		return project.getObjects().newInstance(ForgeToolExecutor.class)
-				.exec(configurator);
+		return prepare(project).exec(configurator);
+	}
+
+	/**
+	 * Resolves the output streams and the Java toolchain for executing tools from the project.
+	 * The returned executor does not use the project, so it can execute tools from any thread.
+	 *
+	 * @param project the project
+	 * @return the prepared executor
+	 */
+	public static Prepared prepare(Project project) {
+		return project.getObjects().newInstance(ForgeToolExecutor.class).prepare();
 	}
 
-	private ExecResult exec(Action<? super JavaExecSpec> configurator) {
+	private Prepared prepare() {
 		final Project project = getProject();
-		return project.javaexec(spec -> {
-			configurator.execute(spec);
-
-			if (shouldShowVerboseStdout(project)) {
-				spec.setStandardOutput(System.out);
-			} else {
-				spec.setStandardOutput(NullOutputStream.NULL_OUTPUT_STREAM);
-			}
-
-			if (shouldShowVerboseStderr(project)) {
-				spec.setErrorOutput(System.err);
-			} else {
-				spec.setErrorOutput(NullOutputStream.NULL_OUTPUT_STREAM);
-			}
-
-			// Use project toolchain for executing if possible.
-			// Note: This feature cannot be tested using the test kit since
-			//  - Gradle disables native services in test kit environments.
-			//  - The only resolver plugin I could find, foojay-resolver,
-			//    requires the services for finding the OS architecture.
-			final @Nullable String executable = findJavaToolchainExecutable(project);
-
-			if (executable != null) {
-				spec.setExecutable(executable);
-			}
-		});
+		return new Prepared(getExecOperations(), shouldShowVerboseStdout(project), shouldShowVerboseStderr(project), findJavaToolchainExecutable(project));
 	}
 
 	private @Nullable String findJavaToolchainExecutable(Project project) {
@@ -114,4 +103,44 @@ public abstract class ForgeToolExecutor {
 		final JavaLauncher launcher = getToolchainService().launcherFor(toolchain).get();
 		return launcher.getExecutablePath().getAsFile().getAbsolutePath();
 	}
+
+	/**
+	 * A tool executor with the settings resolved from the project.
+	 *
+	 * @param executable the Java executable of the project toolchain, or {@code null} to use the runtime Java version
+	 */
+	public record Prepared(ExecOperations execOperations, boolean verboseStdout, boolean verboseStderr, @Nullable String executable) {
+		/**
+		 * Executes a {@link ExecOperations#javaexec(Action) javaexec} action with suppressed output.
+		 *
+		 * @param configurator the {@code javaexec} configuration action
+		 * @return the execution result
+		 */
+		public ExecResult exec(Action<? super JavaExecSpec> configurator) {
+			return execOperations.javaexec(spec -> {
+				configurator.execute(spec);
+
+				if (verboseStdout) {
+					spec.setStandardOutput(System.out);
+				} else {
+					spec.setStandardOutput(NullOutputStream.NULL_OUTPUT_STREAM);
+				}
+
+				if (verboseStderr) {
+					spec.setErrorOutput(System.err);
+				} else {
+					spec.setErrorOutput(NullOutputStream.NULL_OUTPUT_STREAM);
+				}
+
+				// Use project toolchain for executing if possible.
+				// Note: This feature cannot be tested using the test kit since
+				//  - Gradle disables native services in test kit environments.
+				//  - The only resolver plugin I could find, foojay-resolver,
+				//    requires the services for finding the OS architecture.
+				if (executable != null) {
+					spec.setExecutable(executable);
+				}
+			});
+		}
+	}
 }
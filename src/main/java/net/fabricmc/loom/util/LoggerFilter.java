@@ -24,12 +24,18 @@
 
 package net.fabricmc.loom.util;
 
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
 
 import org.apache.commons.io.output.NullOutputStream;
 import org.jetbrains.annotations.NotNull;
 
 public class LoggerFilter {
+	// How many times the output of each thread is currently suppressed, unset when it is not
+	private static final ThreadLocal<Integer> SUPPRESSED_DEPTH = new ThreadLocal<>();
+
 	public static void replaceSystemOut() {
 		try {
 			PrintStream previous = System.out;
@@ -71,6 +77,70 @@ public class LoggerFilter {
 		}
 	}
 
+	/**
+	 * Like {@link #withSystemOutAndErrSuppressed(CheckedRunnable)}, but only drops the output written by the current thread,
+	 * so output from other threads running at the same time is kept.
+	 *
+	 * <p>{@link System#out} and {@link System#err} are wrapped once with a filter that checks a per-thread flag,
+	 * and are not restored afterwards, so callers on different threads can overlap without undoing each other's suppression.
+	 */
+	public static <T extends Throwable> void withCurrentThreadOutputSuppressed(CheckedRunnable<T> block) throws T {
+		installThreadFilter();
+		final Integer depth = SUPPRESSED_DEPTH.get();
+		SUPPRESSED_DEPTH.set(depth == null ? 1 : depth + 1);
+
+		try {
+			block.run();
+		} finally {
+			if (depth == null) {
+				SUPPRESSED_DEPTH.remove();
+			} else {
+				SUPPRESSED_DEPTH.set(depth);
+			}
+		}
+	}
+
+	private static synchronized void installThreadFilter() {
+		try {
+			// Only wrapped again when something else has replaced the streams since
+			if (!(System.out instanceof ThreadFilteringPrintStream)) {
+				System.setOut(new ThreadFilteringPrintStream(System.out));
+			}
+
+			if (!(System.err instanceof ThreadFilteringPrintStream)) {
+				System.setErr(new ThreadFilteringPrintStream(System.err));
+			}
+		} catch (SecurityException ignored) {
+			// Failed to replace logger, just ignore
+		}
+	}
+
+	private static final class ThreadFilteringPrintStream extends PrintStream {
+		private ThreadFilteringPrintStream(PrintStream out) {
+			super(new ThreadFilteringOutputStream(out), true);
+		}
+	}
+
+	private static final class ThreadFilteringOutputStream extends FilterOutputStream {
+		private ThreadFilteringOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			if (SUPPRESSED_DEPTH.get() == null) {
+				out.write(b);
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (SUPPRESSED_DEPTH.get() == null) {
+				out.write(b, off, len);
+			}
+		}
+	}
+
 	public interface CheckedRunnable<T extends Throwable> {
 		void run() throws T;
 	}
@@ -0,0 +1,418 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Reads the entries of a zip file straight from its central directory, so they can be read individually
+ * or copied to a {@link RawZipWriter} without being decompressed.
+ *
+ * <p>Only zips without zip64 records, encryption, or compression methods other than stored or deflated are supported.
+ * Reads are positional, and may be done from multiple threads at once.
+ */
+public final class RawZipReader implements Closeable {
+	static final int LOCAL_HEADER_SIG = 0x04034b50;
+	static final int CENTRAL_HEADER_SIG = 0x02014b50;
+	static final int END_SIG = 0x06054b50;
+	static final int ZIP64_LOCATOR_SIG = 0x07064b50;
+	static final int LOCAL_HEADER_SIZE = 30;
+	static final int CENTRAL_HEADER_SIZE = 46;
+	static final int END_SIZE = 22;
+	static final int MAX_COMMENT_SIZE = 0xFFFF;
+	static final int FLAG_ENCRYPTED = 1;
+	static final int FLAG_DATA_DESCRIPTOR = 1 << 3;
+	static final int FLAG_UTF8 = 1 << 11;
+	public static final int METHOD_STORED = 0;
+	public static final int METHOD_DEFLATED = 8;
+
+	private final FileChannel channel;
+	private final Map<String, Entry> entries;
+
+	private RawZipReader(FileChannel channel, Map<String, Entry> entries) {
+		this.channel = channel;
+		this.entries = entries;
+	}
+
+	/**
+	 * @return the reader, or null when the zip is not supported and must be read through a zip file system instead
+	 */
+	@Nullable
+	public static RawZipReader open(Path zip) throws IOException {
+		final FileChannel channel = FileChannel.open(zip, StandardOpenOption.READ);
+
+		try {
+			final Map<String, Entry> entries = readCentralDirectory(channel);
+
+			if (entries == null) {
+				channel.close();
+				return null;
+			}
+
+			return new RawZipReader(channel, entries);
+		} catch (Throwable t) {
+			channel.close();
+			throw t;
+		}
+	}
+
+	/**
+	 * @return the entries in the order of the central directory
+	 */
+	public Map<String, Entry> entries() {
+		return entries;
+	}
+
+	@Nullable
+	public Entry get(String name) {
+		return entries.get(name);
+	}
+
+	/**
+	 * @return the decompressed contents of the entry
+	 */
+	public byte[] read(Entry entry) throws IOException {
+		final byte[] compressed = readCompressed(entry);
+
+		if (entry.method() == METHOD_STORED) {
+			return compressed;
+		}
+
+		final Inflater inflater = new Inflater(true);
+
+		try {
+			inflater.setInput(compressed);
+			final byte[] data = new byte[Math.toIntExact(entry.size())];
+			int read = 0;
+
+			while (read < data.length) {
+				final int count = inflater.inflate(data, read, data.length - read);
+
+				if (count == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+
+				read += count;
+			}
+
+			if (read != data.length) {
+				throw new ZipException("Unexpected size of inflated entry " + entry.name());
+			}
+
+			return data;
+		} catch (DataFormatException e) {
+			throw new ZipException("Failed to inflate entry " + entry.name() + ": " + e.getMessage());
+		} finally {
+			inflater.end();
+		}
+	}
+
+	/**
+	 * @return the contents of the entry as stored in the zip
+	 */
+	public byte[] readCompressed(Entry entry) throws IOException {
+		final ByteBuffer compressed = ByteBuffer.allocate(Math.toIntExact(entry.compressedSize()));
+		readFully(channel, compressed, getDataStart(entry));
+		return compressed.array();
+	}
+
+	/**
+	 * Copies the stored contents of the entry to the channel.
+	 */
+	void transferTo(Entry entry, FileChannel output) throws IOException {
+		final long position = getDataStart(entry);
+		final long count = entry.compressedSize();
+		long transferred = 0;
+
+		while (transferred < count) {
+			final long result = channel.transferTo(position + transferred, count - transferred, output);
+
+			if (result <= 0) {
+				throw new ZipException("Unexpected end of zip");
+			}
+
+			transferred += result;
+		}
+	}
+
+	private long getDataStart(Entry entry) throws IOException {
+		return entry.localHeader().dataStart();
+	}
+
+	@Nullable
+	private static Map<String, Entry> readCentralDirectory(FileChannel channel) throws IOException {
+		final long fileSize = channel.size();
+		final int tailSize = (int) Math.min(fileSize, END_SIZE + MAX_COMMENT_SIZE);
+		final ByteBuffer tail = ByteBuffer.allocate(tailSize).order(ByteOrder.LITTLE_ENDIAN);
+		readFully(channel, tail, fileSize - tailSize);
+
+		int endPos = -1;
+
+		for (int i = tailSize - END_SIZE; i >= 0; i--) {
+			if (tail.getInt(i) == END_SIG && i + END_SIZE + Short.toUnsignedInt(tail.getShort(i + 20)) == tailSize) {
+				endPos = i;
+				break;
+			}
+		}
+
+		if (endPos < 0) {
+			throw new ZipException("Failed to find the end of the central directory");
+		}
+
+		final int entryCount = Short.toUnsignedInt(tail.getShort(endPos + 10));
+		final long directorySize = Integer.toUnsignedLong(tail.getInt(endPos + 12));
+		final long directoryOffset = Integer.toUnsignedLong(tail.getInt(endPos + 16));
+
+		if (endPos >= 20 && tail.getInt(endPos - 20) == ZIP64_LOCATOR_SIG || entryCount == 0xFFFF || directorySize == 0xFFFFFFFFL || directoryOffset == 0xFFFFFFFFL) {
+			return null;
+		}
+
+		final ByteBuffer directory = ByteBuffer.allocate(Math.toIntExact(directorySize)).order(ByteOrder.LITTLE_ENDIAN);
+		readFully(channel, directory, directoryOffset);
+		directory.flip();
+
+		final Map<String, Entry> entries = new LinkedHashMap<>();
+
+		for (int i = 0; i < entryCount; i++) {
+			if (directory.remaining() < CENTRAL_HEADER_SIZE || directory.getInt() != CENTRAL_HEADER_SIG) {
+				throw new ZipException("Invalid central directory header");
+			}
+
+			final int versionMadeBy = Short.toUnsignedInt(directory.getShort());
+			final int versionNeeded = Short.toUnsignedInt(directory.getShort());
+			final int flags = Short.toUnsignedInt(directory.getShort());
+			final int method = Short.toUnsignedInt(directory.getShort());
+			final int time = Short.toUnsignedInt(directory.getShort());
+			final int date = Short.toUnsignedInt(directory.getShort());
+			final int crc = directory.getInt();
+			final long compressedSize = Integer.toUnsignedLong(directory.getInt());
+			final long size = Integer.toUnsignedLong(directory.getInt());
+			final int nameLength = Short.toUnsignedInt(directory.getShort());
+			final int extraLength = Short.toUnsignedInt(directory.getShort());
+			final int commentLength = Short.toUnsignedInt(directory.getShort());
+			directory.getShort(); // Disk number
+			final int internalAttributes = Short.toUnsignedInt(directory.getShort());
+			final int externalAttributes = directory.getInt();
+			final long localHeaderOffset = Integer.toUnsignedLong(directory.getInt());
+
+			final byte[] nameBytes = new byte[nameLength];
+			final byte[] extra = new byte[extraLength];
+			final byte[] comment = new byte[commentLength];
+			directory.get(nameBytes).get(extra).get(comment);
+
+			if (compressedSize == 0xFFFFFFFFL || size == 0xFFFFFFFFL || localHeaderOffset == 0xFFFFFFFFL
+					|| (method != METHOD_STORED && method != METHOD_DEFLATED) || (flags & FLAG_ENCRYPTED) != 0) {
+				return null;
+			}
+
+			final String name = new String(nameBytes, StandardCharsets.UTF_8);
+			entries.put(name, new Entry(channel, name, nameBytes, versionMadeBy, versionNeeded, flags, method, time, date, crc, compressedSize, size,
+					extra, comment, internalAttributes, externalAttributes, localHeaderOffset));
+		}
+
+		return entries;
+	}
+
+	private static LocalHeader readLocalHeader(FileChannel channel, long localHeaderOffset) throws IOException {
+		final ByteBuffer header = ByteBuffer.allocate(LOCAL_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		readFully(channel, header, localHeaderOffset);
+
+		if (header.getInt(0) != LOCAL_HEADER_SIG) {
+			throw new ZipException("Invalid local header at " + localHeaderOffset);
+		}
+
+		final int nameLength = Short.toUnsignedInt(header.getShort(26));
+		final int extraLength = Short.toUnsignedInt(header.getShort(28));
+		final long extraStart = localHeaderOffset + LOCAL_HEADER_SIZE + nameLength;
+		final ByteBuffer extra = ByteBuffer.allocate(extraLength);
+		readFully(channel, extra, extraStart);
+		return new LocalHeader(extra.array(), extraStart + extraLength);
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			final int read = channel.read(buffer, position + buffer.position());
+
+			if (read < 0) {
+				throw new ZipException("Unexpected end of zip");
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * An entry from the central directory. The local header is only read the first time it is needed.
+	 */
+	public static final class Entry {
+		private final FileChannel channel;
+		private final String name;
+		private final byte[] nameBytes;
+		private final int versionMadeBy;
+		private final int versionNeeded;
+		private final int flags;
+		private final int method;
+		private final int time;
+		private final int date;
+		private final int crc;
+		private final long compressedSize;
+		private final long size;
+		private final byte[] centralExtra;
+		private final byte[] comment;
+		private final int internalAttributes;
+		private final int externalAttributes;
+		private final long localHeaderOffset;
+		@Nullable
+		private volatile LocalHeader localHeader;
+
+		private Entry(FileChannel channel, String name, byte[] nameBytes, int versionMadeBy, int versionNeeded, int flags, int method, int time, int date, int crc,
+						long compressedSize, long size, byte[] centralExtra, byte[] comment, int internalAttributes, int externalAttributes, long localHeaderOffset) {
+			this.channel = channel;
+			this.name = name;
+			this.nameBytes = nameBytes;
+			this.versionMadeBy = versionMadeBy;
+			this.versionNeeded = versionNeeded;
+			this.flags = flags;
+			this.method = method;
+			this.time = time;
+			this.date = date;
+			this.crc = crc;
+			this.compressedSize = compressedSize;
+			this.size = size;
+			this.centralExtra = centralExtra;
+			this.comment = comment;
+			this.internalAttributes = internalAttributes;
+			this.externalAttributes = externalAttributes;
+			this.localHeaderOffset = localHeaderOffset;
+		}
+
+		public String name() {
+			return name;
+		}
+
+		public byte[] nameBytes() {
+			return nameBytes;
+		}
+
+		public int versionMadeBy() {
+			return versionMadeBy;
+		}
+
+		public int versionNeeded() {
+			return versionNeeded;
+		}
+
+		public int flags() {
+			return flags;
+		}
+
+		public int method() {
+			return method;
+		}
+
+		public int time() {
+			return time;
+		}
+
+		public int date() {
+			return date;
+		}
+
+		public int crc() {
+			return crc;
+		}
+
+		public long compressedSize() {
+			return compressedSize;
+		}
+
+		public long size() {
+			return size;
+		}
+
+		public byte[] centralExtra() {
+			return centralExtra;
+		}
+
+		/**
+		 * @return the extra field of the local header, which may differ from the central directory's
+		 */
+		public byte[] localExtra() throws IOException {
+			return localHeader().extra();
+		}
+
+		public byte[] comment() {
+			return comment;
+		}
+
+		public int internalAttributes() {
+			return internalAttributes;
+		}
+
+		public int externalAttributes() {
+			return externalAttributes;
+		}
+
+		public long localHeaderOffset() {
+			return localHeaderOffset;
+		}
+
+		public boolean isDirectory() {
+			return name.endsWith("/");
+		}
+
+		private LocalHeader localHeader() throws IOException {
+			LocalHeader header = localHeader;
+
+			if (header == null) {
+				// Racing threads read the same header, so either result can be kept
+				header = readLocalHeader(channel, localHeaderOffset);
+				localHeader = header;
+			}
+
+			return header;
+		}
+	}
+
+	private record LocalHeader(byte[] extra, long dataStart) {
+	}
+}
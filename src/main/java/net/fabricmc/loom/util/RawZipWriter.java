@@ -0,0 +1,247 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.util;
+
+import static net.fabricmc.loom.util.RawZipReader.CENTRAL_HEADER_SIG;
+import static net.fabricmc.loom.util.RawZipReader.CENTRAL_HEADER_SIZE;
+import static net.fabricmc.loom.util.RawZipReader.END_SIG;
+import static net.fabricmc.loom.util.RawZipReader.END_SIZE;
+import static net.fabricmc.loom.util.RawZipReader.FLAG_DATA_DESCRIPTOR;
+import static net.fabricmc.loom.util.RawZipReader.FLAG_UTF8;
+import static net.fabricmc.loom.util.RawZipReader.LOCAL_HEADER_SIG;
+import static net.fabricmc.loom.util.RawZipReader.LOCAL_HEADER_SIZE;
+import static net.fabricmc.loom.util.RawZipReader.METHOD_DEFLATED;
+import static net.fabricmc.loom.util.RawZipReader.METHOD_STORED;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipException;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Writes a zip file entry by entry, either from already compressed data or by copying entries from a {@link RawZipReader} as they are stored.
+ * The central directory is written by {@link #finish()}.
+ */
+public final class RawZipWriter {
+	private static final int VERSION_DEFAULT = 20;
+	private static final int DIRECTORY_ATTRIBUTE = 0x10;
+	// New entries get a constant time stamp so the output is reproducible, matching ZipReprocessorUtil
+	private static final int DOS_TIME = dosTime(LocalDateTime.of(1980, 1, 1, 0, 0));
+
+	private final FileChannel output;
+	private final List<WrittenEntry> written = new ArrayList<>();
+	private final Set<String> names = new HashSet<>();
+
+	public RawZipWriter(FileChannel output) {
+		this.output = output;
+	}
+
+	/**
+	 * Compresses the data of an entry, this can be done ahead of writing it and from any thread.
+	 */
+	public static Encoded encode(byte[] data, int method) {
+		final CRC32 crc32 = new CRC32();
+		crc32.update(data);
+		return new Encoded(method, method == METHOD_DEFLATED ? deflate(data) : data, (int) crc32.getValue(), data.length);
+	}
+
+	/**
+	 * @return whether an entry with the name has been written
+	 */
+	public boolean contains(String name) {
+		return names.contains(name);
+	}
+
+	/**
+	 * Copies the entry from the reader as it is stored, without decompressing it.
+	 */
+	public void copy(RawZipReader reader, RawZipReader.Entry entry) throws IOException {
+		final long localHeaderOffset = output.position();
+		final int flags = entry.flags() & ~FLAG_DATA_DESCRIPTOR;
+
+		writeLocalHeader(entry.versionNeeded(), flags, entry.method(), entry.time(), entry.date(), entry.crc(), entry.compressedSize(), entry.size(), entry.nameBytes(), entry.localExtra());
+		reader.transferTo(entry, output);
+
+		names.add(entry.name());
+		written.add(new WrittenEntry(entry.versionMadeBy(), entry.versionNeeded(), flags, entry.method(), entry.time(), entry.date(), entry.crc(), entry.compressedSize(), entry.size(),
+				entry.nameBytes(), entry.centralExtra(), entry.comment(), entry.internalAttributes(), entry.externalAttributes(), localHeaderOffset));
+	}
+
+	/**
+	 * Writes an entry, keeping the name, time and attributes of the original entry it replaces, if any.
+	 */
+	public void write(String name, Encoded encoded, RawZipReader.@Nullable Entry original) throws IOException {
+		final long localHeaderOffset = output.position();
+		final byte[] nameBytes = original != null ? original.nameBytes() : name.getBytes(StandardCharsets.UTF_8);
+		final int flags = original != null ? original.flags() & ~FLAG_DATA_DESCRIPTOR : FLAG_UTF8;
+		final int time = original != null ? original.time() : DOS_TIME & 0xFFFF;
+		final int date = original != null ? original.date() : DOS_TIME >>> 16;
+
+		writeLocalHeader(VERSION_DEFAULT, flags, encoded.method(), time, date, encoded.crc(), encoded.data().length, encoded.size(), nameBytes, original != null ? original.localExtra() : new byte[0]);
+		writeFully(ByteBuffer.wrap(encoded.data()));
+
+		final int externalAttributes = original != null ? original.externalAttributes() : (name.endsWith("/") ? DIRECTORY_ATTRIBUTE : 0);
+		names.add(name);
+		written.add(new WrittenEntry(original != null ? original.versionMadeBy() : VERSION_DEFAULT, VERSION_DEFAULT, flags, encoded.method(), time, date, encoded.crc(), encoded.data().length, encoded.size(),
+				nameBytes, original != null ? original.centralExtra() : new byte[0], original != null ? original.comment() : new byte[0],
+				original != null ? original.internalAttributes() : 0, externalAttributes, localHeaderOffset));
+	}
+
+	/**
+	 * Writes the directory entries leading up to the name that have not been written yet, like a zip file system creates them.
+	 */
+	public void writeParentDirectories(String name) throws IOException {
+		for (int i = name.indexOf('/'); i >= 0 && i < name.length() - 1; i = name.indexOf('/', i + 1)) {
+			final String directory = name.substring(0, i + 1);
+
+			if (!names.contains(directory)) {
+				write(directory, Encoded.EMPTY_DIRECTORY, null);
+			}
+		}
+	}
+
+	/**
+	 * Writes the central directory, after which no more entries can be written.
+	 */
+	public void finish() throws IOException {
+		final long start = output.position();
+
+		if (written.size() > 0xFFFF || start > 0xFFFFFFFFL) {
+			throw new ZipException("Written zip is too large, zip64 is not supported");
+		}
+
+		for (WrittenEntry entry : written) {
+			final ByteBuffer buffer = ByteBuffer.allocate(CENTRAL_HEADER_SIZE + entry.name().length + entry.extra().length + entry.comment().length).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(CENTRAL_HEADER_SIG)
+					.putShort((short) entry.versionMadeBy())
+					.putShort((short) entry.versionNeeded())
+					.putShort((short) entry.flags())
+					.putShort((short) entry.method())
+					.putShort((short) entry.time())
+					.putShort((short) entry.date())
+					.putInt(entry.crc())
+					.putInt((int) entry.compressedSize())
+					.putInt((int) entry.size())
+					.putShort((short) entry.name().length)
+					.putShort((short) entry.extra().length)
+					.putShort((short) entry.comment().length)
+					.putShort((short) 0)
+					.putShort((short) entry.internalAttributes())
+					.putInt(entry.externalAttributes())
+					.putInt((int) entry.localHeaderOffset())
+					.put(entry.name())
+					.put(entry.extra())
+					.put(entry.comment());
+			writeFully(buffer.flip());
+		}
+
+		final long size = output.position() - start;
+		final ByteBuffer end = ByteBuffer.allocate(END_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		end.putInt(END_SIG)
+				.putShort((short) 0)
+				.putShort((short) 0)
+				.putShort((short) written.size())
+				.putShort((short) written.size())
+				.putInt((int) size)
+				.putInt((int) start)
+				.putShort((short) 0);
+		writeFully(end.flip());
+	}
+
+	private void writeLocalHeader(int versionNeeded, int flags, int method, int time, int date, int crc, long compressedSize, long size, byte[] name, byte[] extra) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(LOCAL_HEADER_SIZE + name.length + extra.length).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(LOCAL_HEADER_SIG)
+				.putShort((short) versionNeeded)
+				.putShort((short) flags)
+				.putShort((short) method)
+				.putShort((short) time)
+				.putShort((short) date)
+				.putInt(crc)
+				.putInt((int) compressedSize)
+				.putInt((int) size)
+				.putShort((short) name.length)
+				.putShort((short) extra.length)
+				.put(name)
+				.put(extra);
+		writeFully(buffer.flip());
+	}
+
+	private void writeFully(ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			output.write(buffer);
+		}
+	}
+
+	private static byte[] deflate(byte[] data) {
+		final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+
+		try {
+			deflater.setInput(data);
+			deflater.finish();
+
+			final ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 2));
+			final byte[] buffer = new byte[8192];
+
+			while (!deflater.finished()) {
+				final int count = deflater.deflate(buffer);
+				out.write(buffer, 0, count);
+			}
+
+			return out.toByteArray();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	private static int dosTime(LocalDateTime time) {
+		if (time.getYear() < 1980) {
+			time = LocalDateTime.of(1980, 1, 1, 0, 0);
+		}
+
+		final int date = (time.getYear() - 1980) << 9 | time.getMonthValue() << 5 | time.getDayOfMonth();
+		final int dayTime = time.getHour() << 11 | time.getMinute() << 5 | time.getSecond() >> 1;
+		return date << 16 | dayTime;
+	}
+
+	private record WrittenEntry(int versionMadeBy, int versionNeeded, int flags, int method, int time, int date, int crc, long compressedSize, long size,
+								byte[] name, byte[] extra, byte[] comment, int internalAttributes, int externalAttributes, long localHeaderOffset) {
+	}
+
+	public record Encoded(int method, byte[] data, int crc, int size) {
+		public static final Encoded EMPTY_DIRECTORY = new Encoded(METHOD_STORED, new byte[0], 0, 0);
+	}
+}
@@ -26,23 +26,35 @@ package net.fabricmc.loom.util;
 
 import java.util.Objects;
 
+import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.FieldVisitor;
 import org.objectweb.asm.RecordComponentVisitor;
 
+import net.fabricmc.loom.configuration.providers.mappings.BinaryMappingTree;
 import net.fabricmc.mappingio.tree.MemoryMappingTree;
 
 public class RecordComponentFixVisitor extends ClassVisitor {
-	private final MemoryMappingTree mappings;
-	private final int intermediaryNsId;
+	private final FieldNameLookup intermediaryNames;
 
 	private String owner;
 	private boolean hasExistingComponents = false;
 
 	public RecordComponentFixVisitor(ClassVisitor classVisitor, MemoryMappingTree mappings, int intermediaryNsId) {
+		this(classVisitor, (owner, name, descriptor) -> requireField(mappings.getField(owner, name, descriptor), owner, name, descriptor).getName(intermediaryNsId));
+	}
+
+	public RecordComponentFixVisitor(ClassVisitor classVisitor, BinaryMappingTree mappings, int intermediaryNsId) {
+		this(classVisitor, (owner, name, descriptor) -> requireField(mappings.getField(owner, name, descriptor), owner, name, descriptor).getName(intermediaryNsId));
+	}
+
+	private RecordComponentFixVisitor(ClassVisitor classVisitor, FieldNameLookup intermediaryNames) {
 		super(Constants.ASM_VERSION, classVisitor);
-		this.mappings = mappings;
-		this.intermediaryNsId = intermediaryNsId;
+		this.intermediaryNames = intermediaryNames;
+	}
+
+	private static <T> T requireField(@Nullable T field, String owner, String name, String descriptor) {
+		return Objects.requireNonNull(field, "Could not get field for %s:%s%s".formatted(owner, name, descriptor));
 	}
 
 	@Override
@@ -62,7 +74,7 @@ public class RecordComponentFixVisitor extends ClassVisitor {
 
 	@Override
 	public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
-		String intermediaryName = Objects.requireNonNull(mappings.getField(owner, name, descriptor), "Could not get field for %s:%s%s".formatted(owner, name, descriptor)).getName(intermediaryNsId);
+		String intermediaryName = intermediaryNames.get(owner, name, descriptor);
 
 		if (!hasExistingComponents && intermediaryName != null && intermediaryName.startsWith("comp_")) {
 			super.visitRecordComponent(name, descriptor, signature);
@@ -70,4 +82,10 @@ public class RecordComponentFixVisitor extends ClassVisitor {
 
 		return super.visitField(access, name, descriptor, signature, value);
 	}
+
+	@FunctionalInterface
+	private interface FieldNameLookup {
+		@Nullable
+		String get(String owner, String name, String descriptor);
+	}
 }
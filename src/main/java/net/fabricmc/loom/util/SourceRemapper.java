@@ -26,15 +26,31 @@ package net.fabricmc.loom.util;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Queue;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import com.google.common.base.Stopwatch;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import org.cadixdev.lorenz.MappingSet;
 import org.cadixdev.mercury.Mercury;
 import org.cadixdev.mercury.remapper.MercuryRemapper;
@@ -45,24 +61,41 @@ import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.compile.JavaCompile;
 import org.gradle.internal.logging.progress.ProgressLogger;
 import org.gradle.internal.logging.progress.ProgressLoggerFactory;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 
 import net.fabricmc.loom.LoomGradleExtension;
+import net.fabricmc.loom.LoomGradlePlugin;
 import net.fabricmc.loom.api.RemapConfigurationSettings;
 import net.fabricmc.loom.api.mappings.layered.MappingsNamespace;
 import net.fabricmc.loom.build.IntermediaryNamespaces;
 import net.fabricmc.loom.configuration.providers.mappings.MappingConfiguration;
 import net.fabricmc.loom.task.service.LorenzMappingService;
+import net.fabricmc.loom.util.gradle.GradleUtils;
+import net.fabricmc.loom.util.service.SharedExecutorService;
 import net.fabricmc.loom.util.service.SharedServiceManager;
+import net.fabricmc.loom.util.telemetry.Span;
+import net.fabricmc.loom.util.telemetry.Telemetry;
 
 public class SourceRemapper {
+	// Bump when the remapping changes in a way that changes the output of cached sources.
+	private static final int CACHE_VERSION = 1;
+	// Rough heap used to parse and rewrite one source jar: the bindings of the shared classpath, plus the ASTs of the sources.
+	private static final long PARSE_BASE_BYTES = 64L * 1024 * 1024;
+	private static final int PARSE_BYTES_PER_SOURCE_BYTE = 32;
+
 	private final Project project;
 	private final SharedServiceManager serviceManager;
 	private String from;
 	private String to;
-	private final List<Consumer<ProgressLogger>> remapTasks = new ArrayList<>();
+	private final List<RemapTask> remapTasks = new ArrayList<>();
 
-	private Mercury mercury;
+	// Mercury instances are not thread safe, so each concurrent task borrows its own.
+	// They all share the same classpath, and copy the mappings, which are only resolved once.
+	private final Queue<Mercury> mercuryPool = new ConcurrentLinkedQueue<>();
+	private List<Path> classPath;
+	private MappingSet mappings;
+	private int javaCompileRelease;
 
 	public SourceRemapper(Project project, SharedServiceManager serviceManager, boolean toNamed) {
 		this(project, serviceManager, toNamed ? IntermediaryNamespaces.runtimeIntermediary(project) : "named", !toNamed ? IntermediaryNamespaces.runtimeIntermediary(project) : "named");
@@ -76,21 +109,7 @@ public class SourceRemapper {
 	}
 
 	public void scheduleRemapSources(File source, File destination, boolean reproducibleFileOrder, boolean preserveFileTimestamps, Runnable completionCallback) {
-		remapTasks.add((logger) -> {
-			try {
-				logger.progress("remapping sources - " + source.getName());
-				remapSourcesInner(source, destination);
-				ZipReprocessorUtil.reprocessZip(destination.toPath(), reproducibleFileOrder, preserveFileTimestamps);
-
-				// Set the remapped sources creation date to match the sources if we're likely succeeded in making it
-				destination.setLastModified(source.lastModified());
-				completionCallback.run();
-			} catch (Exception e) {
-				// Failed to remap, lets clean up to ensure we try again next time
-				destination.delete();
-				throw new RuntimeException("Failed to remap sources for " + source, e);
-			}
-		});
+		remapTasks.add(new RemapTask(source, destination, reproducibleFileOrder, preserveFileTimestamps, completionCallback));
 	}
 
 	public void remapAll() {
@@ -99,22 +118,143 @@ public class SourceRemapper {
 		}
 
 		project.getLogger().lifecycle(":remapping sources");
+		final Stopwatch stopwatch = Stopwatch.createStarted();
 
 		ProgressLoggerFactory progressLoggerFactory = ((ProjectInternal) project).getServices().get(ProgressLoggerFactory.class);
 		ProgressLogger progressLogger = progressLoggerFactory.newOperation(SourceRemapper.class.getName());
 		progressLogger.start("Remapping dependency sources", "sources");
 
-		remapTasks.forEach(consumer -> consumer.accept(progressLogger));
+		// Resolve everything that needs the project up front, the tasks may run on other threads.
+		prepareMercury();
+		final SourcesCache cache = createCache();
+		final boolean parallel = remapTasks.size() > 1 && !GradleUtils.getBooleanProperty(project, Constants.Properties.DISABLE_PARALLEL_SOURCE_REMAPPING);
 
-		progressLogger.completed();
+		try {
+			if (parallel) {
+				remapAllParallel(progressLogger, cache);
+			} else {
+				for (RemapTask task : remapTasks) {
+					remapSources(task, progressLogger, cache);
+					task.completionCallback().run();
+				}
+			}
+		} finally {
+			remapTasks.clear();
+			mercuryPool.clear();
+			progressLogger.completed();
+		}
+
+		project.getLogger().info(":remapped sources in {}", stopwatch.stop());
 
 		// TODO: FIXME - WORKAROUND https://github.com/FabricMC/fabric-loom/issues/45
 		System.gc();
 	}
 
-	private void remapSourcesInner(File source, File destination) throws Exception {
+	// The completion callbacks use the project, so they are run on this thread once the tasks have finished
+	private void remapAllParallel(ProgressLogger progressLogger, @Nullable SourcesCache cache) {
+		final List<CompletableFuture<Void>> futures = new ArrayList<>(remapTasks.size());
+		// Tasks are only submitted once there is enough heap for their estimated parse size, so large jars are not all parsed at once.
+		// The permits are taken on this thread rather than in the task, so waiting for memory does not block the shared pool.
+		final int budget = parseMemoryBudgetMiB();
+		final Semaphore memory = new Semaphore(budget);
+
+		for (RemapTask task : remapTasks) {
+			final int permits = Math.min(budget, estimateParseMemoryMiB(task.source()));
+			memory.acquireUninterruptibly(permits);
+
+			try {
+				futures.add(CompletableFuture.runAsync(() -> remapSources(task, progressLogger, cache), SharedExecutorService.get().cpu())
+						.whenComplete((result, throwable) -> memory.release(permits)));
+			} catch (RuntimeException e) {
+				memory.release(permits);
+				throw e;
+			}
+		}
+
+		// Wait for every task before failing, so no task is still writing once this returns
+		RuntimeException failure = null;
+
+		for (int i = 0; i < futures.size(); i++) {
+			try {
+				futures.get(i).join();
+			} catch (CompletionException e) {
+				final RuntimeException cause = e.getCause() instanceof RuntimeException re ? re : new RuntimeException(e.getCause());
+
+				if (failure == null) {
+					failure = cause;
+				} else {
+					failure.addSuppressed(cause);
+				}
+			}
+		}
+
+		for (int i = 0; i < futures.size(); i++) {
+			if (!futures.get(i).isCompletedExceptionally()) {
+				remapTasks.get(i).completionCallback().run();
+			}
+		}
+
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * @return the heap in MiB that concurrent parses may use, half the max heap so the rest of the build is left room
+	 */
+	private static int parseMemoryBudgetMiB() {
+		final long budget = Runtime.getRuntime().maxMemory() / 2 / (1024 * 1024);
+		return (int) Math.max(1, Math.min(Integer.MAX_VALUE, budget));
+	}
+
+	private static int estimateParseMemoryMiB(File source) {
+		final long sourceBytes = source.isFile() ? source.length() : 0;
+		final long estimate = (PARSE_BASE_BYTES + sourceBytes * PARSE_BYTES_PER_SOURCE_BYTE) / (1024 * 1024);
+		return (int) Math.max(1, Math.min(Integer.MAX_VALUE, estimate));
+	}
+
+	private void remapSources(RemapTask task, ProgressLogger progressLogger, @Nullable SourcesCache cache) {
+		final File source = task.source();
+		final File destination = task.destination();
+
+		synchronized (progressLogger) {
+			progressLogger.progress("remapping sources - " + source.getName());
+		}
+
+		try (Span span = Telemetry.span("remapSources")) {
+			span.attribute("source", source.getName());
+			final Path cached = cache != null ? cache.getCachePath(task) : null;
+
+			if (cached != null && Files.exists(cached)) {
+				span.cacheHit();
+				project.getLogger().info(":using cached remapped sources {} for {}", cached, source.getName());
+				Files.copy(cached, destination.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+				// Record the last use, so old entries can be found and removed
+				Files.setLastModifiedTime(cached, FileTime.from(Instant.now()));
+			} else {
+				span.cacheMiss();
+				final boolean complete = remapSourcesInner(source, destination, task.reproducibleFileOrder(), task.preserveFileTimestamps());
+
+				if (cached != null && complete) {
+					cache.store(destination.toPath(), cached);
+				}
+			}
+
+			// Set the remapped sources creation date to match the sources if we're likely succeeded in making it
+			destination.setLastModified(source.lastModified());
+		} catch (Exception e) {
+			// Failed to remap, lets clean up to ensure we try again next time
+			destination.delete();
+			throw new RuntimeException("Failed to remap sources for " + source, e);
+		}
+	}
+
+	/**
+	 * @return whether all the sources were remapped, partially remapped sources must not be cached
+	 */
+	private boolean remapSourcesInner(File source, File destination, boolean reproducibleFileOrder, boolean preserveFileTimestamps) throws Exception {
 		project.getLogger().info(":remapping source jar");
-		Mercury mercury = getMercuryInstance();
 
 		if (source.equals(destination)) {
 			if (source.isDirectory()) {
@@ -140,48 +280,102 @@ public class SourceRemapper {
 			ZipUtils.unpackAll(source.toPath(), srcPath);
 		}
 
-		if (!destination.isDirectory() && destination.exists()) {
-			if (!destination.delete()) {
+		try {
+			if (destination.isDirectory()) {
+				final boolean complete = rewrite(srcPath, destination.toPath(), source);
+				copyNonJavaFiles(srcPath, destination.toPath(), project.getLogger(), source.toPath());
+				return complete;
+			}
+
+			if (destination.exists() && !destination.delete()) {
 				throw new RuntimeException("Could not delete " + destination.getName() + "!");
 			}
+
+			// Remap into a plain directory and zip it once, instead of writing through a zip file system and then reprocessing the zip.
+			final Path dstPath = Files.createTempDirectory("fabric-loom-src-remapped");
+
+			try {
+				final boolean complete = rewrite(srcPath, dstPath, source);
+				ZipReprocessorUtil.writeZip(destination.toPath(), collectEntries(srcPath, dstPath), reproducibleFileOrder, preserveFileTimestamps);
+				return complete;
+			} finally {
+				Files.walkFileTree(dstPath, new DeletingFileVisitor());
+			}
+		} finally {
+			if (isSrcTmp) {
+				Files.walkFileTree(srcPath, new DeletingFileVisitor());
+			}
 		}
+	}
 
-		FileSystemUtil.Delegate dstFs = destination.isDirectory() ? null : FileSystemUtil.getJarFileSystem(destination, true);
-		Path dstPath = dstFs != null ? dstFs.get().getPath("/") : destination.toPath();
+	/**
+	 * @return false when Mercury failed part way through, leaving some of the sources unmapped
+	 */
+	private boolean rewrite(Path srcPath, Path dstPath, File source) {
+		Mercury mercury = mercuryPool.poll();
+
+		if (mercury == null) {
+			mercury = createPooledMercury();
+		}
 
 		try {
 			mercury.rewrite(srcPath, dstPath);
+			return true;
 		} catch (Exception e) {
 			project.getLogger().warn("Could not remap " + source.getName() + " fully!", e);
+			return false;
+		} finally {
+			mercuryPool.offer(mercury);
 		}
+	}
 
-		copyNonJavaFiles(srcPath, dstPath, project.getLogger(), source.toPath());
+	/**
+	 * Collects the zip entries of the remapped sources, the remapped files along with the non-java files of the original sources.
+	 */
+	private static Map<String, Path> collectEntries(Path srcPath, Path dstPath) throws IOException {
+		final Map<String, Path> entries = new LinkedHashMap<>();
 
-		if (dstFs != null) {
-			dstFs.close();
+		try (Stream<Path> stream = Files.walk(dstPath)) {
+			stream.forEach(path -> addEntry(entries, dstPath, path));
 		}
 
-		if (isSrcTmp) {
-			Files.walkFileTree(srcPath, new DeletingFileVisitor());
+		try (Stream<Path> stream = Files.walk(srcPath)) {
+			stream.filter(path -> !isJavaFile(path)).forEach(path -> addEntry(entries, srcPath, path));
 		}
+
+		return entries;
 	}
 
-	private Mercury getMercuryInstance() {
-		if (this.mercury != null) {
-			return this.mercury;
+	private static void addEntry(Map<String, Path> entries, Path root, Path path) {
+		if (path.equals(root)) {
+			return;
+		}
+
+		String name = root.relativize(path).toString().replace(File.separatorChar, '/');
+
+		if (Files.isDirectory(path)) {
+			name += "/";
+		}
+
+		entries.putIfAbsent(name, path);
+	}
+
+	private void prepareMercury() {
+		if (this.classPath != null) {
+			return;
 		}
 
 		LoomGradleExtension extension = LoomGradleExtension.get(project);
 		MappingConfiguration mappingConfiguration = extension.getMappingConfiguration();
 
-		MappingSet mappings = LorenzMappingService.create(serviceManager,
-															mappingConfiguration,
-															Objects.requireNonNull(MappingsNamespace.of(from)),
-															Objects.requireNonNull(MappingsNamespace.of(to))
+		this.mappings = LorenzMappingService.create(serviceManager,
+													mappingConfiguration,
+													Objects.requireNonNull(MappingsNamespace.of(from)),
+													Objects.requireNonNull(MappingsNamespace.of(to))
 		).mappings();
+		this.javaCompileRelease = getJavaCompileRelease(project);
 
 		Mercury mercury = createMercuryWithClassPath(project, MappingsNamespace.of(to) == MappingsNamespace.NAMED);
-		mercury.setSourceCompatibilityFromRelease(getJavaCompileRelease(project));
 
 		for (File file : extension.getUnmappedModCollection()) {
 			Path path = file.toPath();
@@ -217,10 +411,103 @@ public class SourceRemapper {
 			mercury.getClassPath().add(file.toPath());
 		}
 
-		mercury.getProcessors().add(MercuryRemapper.create(mappings));
+		this.classPath = List.copyOf(mercury.getClassPath());
+	}
+
+	private Mercury createPooledMercury() {
+		// The remapper completes the class mappings as it finds them, so each Mercury needs its own copy of the mappings
+		final MappingSet mercuryMappings;
+
+		synchronized (mappings) {
+			mercuryMappings = mappings.copy();
+		}
+
+		Mercury mercury = new Mercury();
+		mercury.setGracefulClasspathChecks(true);
+		mercury.setSourceCompatibilityFromRelease(javaCompileRelease);
+		mercury.getClassPath().addAll(classPath);
+		mercury.getProcessors().add(MercuryRemapper.create(mercuryMappings));
+		return mercury;
+	}
+
+	@Nullable
+	private SourcesCache createCache() {
+		if (GradleUtils.getBooleanProperty(project, Constants.Properties.DISABLE_GLOBAL_SOURCES_CACHE)) {
+			return null;
+		}
+
+		final LoomGradleExtension extension = LoomGradleExtension.get(project);
+		final MappingConfiguration mappingConfiguration = extension.getMappingConfiguration();
+		final Hasher hasher = Hashing.sha256().newHasher();
 
-		this.mercury = mercury;
-		return this.mercury;
+		try {
+			putString(hasher, "version", Integer.toString(CACHE_VERSION));
+			putString(hasher, "loom", LoomGradlePlugin.LOOM_VERSION);
+			putString(hasher, "from", from);
+			putString(hasher, "to", to);
+			putString(hasher, "release", Integer.toString(javaCompileRelease));
+
+			for (Path mappingsFile : new Path[] {mappingConfiguration.tinyMappings, mappingConfiguration.tinyMappingsWithSrg, mappingConfiguration.tinyMappingsWithMojang}) {
+				putString(hasher, "mappings", mappingsFile != null && Files.exists(mappingsFile) ? Checksum.sha256HexMemoized(mappingsFile) : "none");
+			}
+
+			// Mercury uses the classpath to resolve references, sorted as the order does not change the output.
+			final TreeSet<String> hashes = new TreeSet<>();
+
+			for (Path path : classPath) {
+				if (Files.isRegularFile(path)) {
+					hashes.add(Checksum.sha256HexMemoized(path));
+				}
+			}
+
+			putString(hasher, "classpath", String.join(",", hashes));
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to hash the sources remapping environment", e);
+		}
+
+		return new SourcesCache(extension.getFiles().getGlobalRemappedSourcesCache().toPath(), hasher.hash().toString());
+	}
+
+	private static void putString(Hasher hasher, String key, String value) {
+		hasher.putString(key, StandardCharsets.UTF_8).putByte((byte) 0);
+		hasher.putString(value, StandardCharsets.UTF_8).putByte((byte) 0);
+	}
+
+	private record RemapTask(File source, File destination, boolean reproducibleFileOrder, boolean preserveFileTimestamps, Runnable completionCallback) {
+	}
+
+	/**
+	 * A cache of remapped sources jars in the Gradle user home, shared by every project.
+	 * Entries are keyed by the hash of the sources jar and of everything else the remapped output depends on.
+	 */
+	private record SourcesCache(Path root, String environmentHash) {
+		@Nullable
+		Path getCachePath(RemapTask task) throws IOException {
+			if (!task.source().isFile() || task.source().equals(task.destination())) {
+				return null;
+			}
+
+			final Hasher hasher = Hashing.sha256().newHasher();
+			putString(hasher, "environment", environmentHash);
+			putString(hasher, "input", Checksum.sha256Hex(task.source().toPath()));
+			putString(hasher, "reproducibleFileOrder", Boolean.toString(task.reproducibleFileOrder()));
+			putString(hasher, "preserveFileTimestamps", Boolean.toString(task.preserveFileTimestamps()));
+			final String key = hasher.hash().toString();
+
+			return root.resolve(key.substring(0, 2)).resolve(key + "-sources.jar");
+		}
+
+		void store(Path output, Path cached) throws IOException {
+			Files.createDirectories(cached.getParent());
+			final Path temp = Files.createTempFile(cached.getParent(), cached.getFileName().toString(), ".tmp");
+
+			try {
+				Files.copy(output, temp, StandardCopyOption.REPLACE_EXISTING);
+				Files.move(temp, cached, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(temp);
+			}
+		}
 	}
 
 	public static int getJavaCompileRelease(Project project) {
@@ -27,18 +27,17 @@ package net.fabricmc.loom.util;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import com.google.common.base.Stopwatch;
 
+import net.fabricmc.loom.util.service.SharedExecutorService;
+
 public class ThreadingUtils {
 	public static <T> void run(T[] values, UnsafeConsumer<T> action) {
 		run(Arrays.stream(values)
@@ -57,27 +56,20 @@ public class ThreadingUtils {
 	}
 
 	public static void run(Collection<UnsafeRunnable> jobs) {
-		try {
-			ExecutorService service = Executors.newFixedThreadPool(Math.max(1, Math.min(jobs.size(), Runtime.getRuntime().availableProcessors())));
-			List<Future<?>> futures = new LinkedList<>();
-
-			for (UnsafeRunnable runnable : jobs) {
-				futures.add(service.submit(() -> {
-					try {
-						runnable.run();
-					} catch (Throwable throwable) {
-						throw new RuntimeException(throwable);
-					}
-				}));
-			}
+		List<CompletableFuture<Void>> futures = new ArrayList<>();
 
-			for (Future<?> future : futures) {
-				future.get();
-			}
+		for (UnsafeRunnable runnable : jobs) {
+			futures.add(CompletableFuture.runAsync(() -> {
+				try {
+					runnable.run();
+				} catch (Throwable throwable) {
+					throw new RuntimeException(throwable);
+				}
+			}, executor()));
+		}
 
-			service.shutdownNow();
-		} catch (InterruptedException | ExecutionException e) {
-			throw new RuntimeException(e);
+		for (CompletableFuture<Void> future : futures) {
+			join(future);
 		}
 	}
 
@@ -93,30 +85,36 @@ public class ThreadingUtils {
 	}
 
 	public static <T> List<T> get(Collection<UnsafeCallable<T>> jobs) {
-		try {
-			ExecutorService service = Executors.newFixedThreadPool(Math.max(1, Math.min(jobs.size(), Runtime.getRuntime().availableProcessors())));
-			List<Future<T>> futures = new LinkedList<>();
-			List<T> result = new ArrayList<>();
-
-			for (UnsafeCallable<T> runnable : jobs) {
-				futures.add(service.submit(() -> {
-					try {
-						return runnable.call();
-					} catch (Throwable throwable) {
-						throw new RuntimeException(throwable);
-					}
-				}));
-			}
+		List<CompletableFuture<T>> futures = new ArrayList<>();
+		List<T> result = new ArrayList<>();
 
-			for (Future<T> future : futures) {
-				result.add(future.get());
-			}
+		for (UnsafeCallable<T> runnable : jobs) {
+			futures.add(CompletableFuture.supplyAsync(() -> {
+				try {
+					return runnable.call();
+				} catch (Throwable throwable) {
+					throw new RuntimeException(throwable);
+				}
+			}, executor()));
+		}
 
-			service.shutdownNow();
-			return result;
-		} catch (InterruptedException | ExecutionException e) {
-			throw new RuntimeException(e);
+		for (CompletableFuture<T> future : futures) {
+			result.add(join(future));
 		}
+
+		return result;
+	}
+
+	private static <T> T join(CompletableFuture<T> future) {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	private static ExecutorService executor() {
+		return SharedExecutorService.get().cpu();
 	}
 
 	public interface UnsafeRunnable {
@@ -138,7 +136,7 @@ public class ThreadingUtils {
 	public static class TaskCompleter implements Function<Throwable, Void> {
 		Stopwatch stopwatch = Stopwatch.createUnstarted();
 		List<CompletableFuture<?>> tasks = new ArrayList<>();
-		ExecutorService service = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors()));
+		ExecutorService service = executor();
 		List<UnsafeConsumer<Stopwatch>> completionListener = new ArrayList<>();
 
 		public TaskCompleter add(UnsafeRunnable job) {
@@ -165,7 +163,6 @@ public class ThreadingUtils {
 		public void complete() {
 			try {
 				CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).exceptionally(this).get();
-				service.shutdownNow();
 
 				if (stopwatch.isRunning()) {
 					stopwatch.stop();
@@ -26,10 +26,12 @@ package net.fabricmc.loom.util;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Consumer;
 import java.util.regex.Pattern;
+import java.util.stream.IntStream;
 
 import com.google.common.collect.ImmutableMap;
 import dev.architectury.loom.util.MappingOption;
@@ -37,6 +39,8 @@ import org.gradle.api.Project;
 
 import net.fabricmc.loom.LoomGradleExtension;
 import net.fabricmc.loom.api.mappings.layered.MappingsNamespace;
+import net.fabricmc.loom.configuration.providers.mappings.BinaryMappingTree;
+import net.fabricmc.loom.configuration.providers.mappings.TinyMappingsService;
 import net.fabricmc.loom.util.service.SharedServiceManager;
 import net.fabricmc.loom.util.srg.InnerClassRemapper;
 import net.fabricmc.mappingio.MappingReader;
@@ -71,18 +75,21 @@ public final class TinyRemapperHelper {
 	public static TinyRemapper getTinyRemapper(Project project, SharedServiceManager serviceManager, String fromM, String toM, boolean fixRecords, Consumer<TinyRemapper.Builder> builderConsumer, Set<String> fromClassNames) throws IOException {
 		LoomGradleExtension extension = LoomGradleExtension.get(project);
 		final MappingOption mappingOption = MappingOption.forPlatform(extension);
-		MemoryMappingTree mappingTree = extension.getMappingConfiguration().getMappingsService(serviceManager, mappingOption).getMappingTree();
+		final TinyMappingsService mappingsService = extension.getMappingConfiguration().getMappingsService(serviceManager, mappingOption);
+		final BinaryMappingTree binaryMappings = mappingsService.getBinaryMappings();
 
-		if (fixRecords && !mappingTree.getSrcNamespace().equals(fromM)) {
-			throw new IllegalStateException("Mappings src namespace must match remap src namespace, expected " + fromM + " but got " + mappingTree.getSrcNamespace());
+		if (fixRecords && !binaryMappings.getSrcNamespace().equals(fromM)) {
+			throw new IllegalStateException("Mappings src namespace must match remap src namespace, expected " + fromM + " but got " + binaryMappings.getSrcNamespace());
 		}
 
-		int intermediaryNsId = mappingTree.getNamespaceId(MappingsNamespace.INTERMEDIARY.toString());
+		// Only parse the full mapping tree for the Forge inner class remapper, record fixes are looked up in the binary mappings
+		final MemoryMappingTree mappingTree = extension.isForgeLike() && !fromClassNames.isEmpty() ? mappingsService.getMappingTree() : null;
+		int intermediaryNsId = binaryMappings.getNamespaceId(MappingsNamespace.INTERMEDIARY.toString());
 
 		TinyRemapper.Builder builder = TinyRemapper.newRemapper()
 				.ignoreConflicts(extension.isForgeLike())
 				.threads(Runtime.getRuntime().availableProcessors())
-				.withMappings(create(mappingTree, fromM, toM, true))
+				.withMappings(create(binaryMappings, fromM, toM, true))
 				.renameInvalidLocals(true)
 				.rebuildSourceFilenames(true)
 				.invalidLvNamePattern(MC_LV_PATTERN)
@@ -90,7 +97,7 @@ public final class TinyRemapperHelper {
 				.withKnownIndyBsm(extension.getKnownIndyBsms().get())
 				.extraPreApplyVisitor((cls, next) -> {
 					if (fixRecords && !cls.isRecord() && "java/lang/Record".equals(cls.getSuperName())) {
-						return new RecordComponentFixVisitor(next, mappingTree, intermediaryNsId);
+						return new RecordComponentFixVisitor(next, binaryMappings, intermediaryNsId);
 					}
 
 					return next;
@@ -118,7 +125,18 @@ public final class TinyRemapperHelper {
 		return create(mappingTree, from, to, remapLocalVariables);
 	}
 
+	/**
+	 * Same as {@link #create(MappingTree, String, String, boolean)}, reading the names straight from the binary mappings.
+	 */
+	public static IMappingProvider create(BinaryMappingTree mappings, String from, String to, boolean remapLocalVariables) {
+		return create(new BinaryMappingsAccessor(mappings), from, to, remapLocalVariables);
+	}
+
 	public static IMappingProvider create(MappingTree mappings, String from, String to, boolean remapLocalVariables) {
+		return create(new TreeMappingsAccessor(mappings), from, to, remapLocalVariables);
+	}
+
+	private static <C, E, M extends E, A, V> IMappingProvider create(MappingsAccessor<C, E, M, A, V> mappings, String from, String to, boolean remapLocalVariables) {
 		return (acceptor) -> {
 			final int fromId = mappings.getNamespaceId(from);
 			final int toId = mappings.getNamespaceId(to);
@@ -130,9 +148,9 @@ public final class TinyRemapperHelper {
 				);
 			}
 
-			for (MappingTree.ClassMapping classDef : mappings.getClasses()) {
-				String className = classDef.getName(fromId);
-				String dstName = classDef.getName(toId);
+			for (C classDef : mappings.getClasses()) {
+				String className = mappings.getClassName(classDef, fromId);
+				String dstName = mappings.getClassName(classDef, toId);
 
 				if (dstName == null) {
 					// Unsure if this is correct, should be better than crashing tho.
@@ -141,33 +159,252 @@ public final class TinyRemapperHelper {
 
 				acceptor.acceptClass(className, dstName);
 
-				for (MappingTree.FieldMapping field : classDef.getFields()) {
-					acceptor.acceptField(memberOf(className, field.getName(fromId), field.getDesc(fromId)), field.getName(toId));
+				for (E field : mappings.getFields(classDef)) {
+					acceptor.acceptField(memberOf(className, mappings.getMemberName(field, fromId), mappings.getMemberDesc(field, fromId)), mappings.getMemberName(field, toId));
 				}
 
-				for (MappingTree.MethodMapping method : classDef.getMethods()) {
-					IMappingProvider.Member methodIdentifier = memberOf(className, method.getName(fromId), method.getDesc(fromId));
-					acceptor.acceptMethod(methodIdentifier, method.getName(toId));
+				for (M method : mappings.getMethods(classDef)) {
+					IMappingProvider.Member methodIdentifier = memberOf(className, mappings.getMemberName(method, fromId), mappings.getMemberDesc(method, fromId));
+					acceptor.acceptMethod(methodIdentifier, mappings.getMemberName(method, toId));
 
 					if (remapLocalVariables) {
-						for (MappingTree.MethodArgMapping parameter : method.getArgs()) {
-							String name = parameter.getName(toId);
+						for (A parameter : mappings.getArgs(method)) {
+							String name = mappings.getArgName(parameter, toId);
 
 							if (name == null) {
 								continue;
 							}
 
-							acceptor.acceptMethodArg(methodIdentifier, parameter.getLvIndex(), name);
+							acceptor.acceptMethodArg(methodIdentifier, mappings.getArgLvIndex(parameter), name);
 						}
 
-						for (MappingTree.MethodVarMapping localVariable : method.getVars()) {
-							acceptor.acceptMethodVar(methodIdentifier, localVariable.getLvIndex(),
-									localVariable.getStartOpIdx(), localVariable.getLvtRowIndex(),
-									localVariable.getName(toId));
+						for (V localVariable : mappings.getVars(method)) {
+							acceptor.acceptMethodVar(methodIdentifier, mappings.getVarLvIndex(localVariable),
+									mappings.getVarStartOpIdx(localVariable), mappings.getVarLvtRowIndex(localVariable),
+									mappings.getVarName(localVariable, toId));
 						}
 					}
 				}
 			}
 		};
 	}
+
+	/**
+	 * Reads the names of a mapping tree, so the full and the binary mappings share one implementation of {@link #create}.
+	 *
+	 * @param <C> the class type
+	 * @param <E> the member type, the fields and methods
+	 * @param <M> the method type
+	 * @param <A> the method argument type
+	 * @param <V> the method variable type
+	 */
+	private interface MappingsAccessor<C, E, M extends E, A, V> {
+		int getNamespaceId(String namespace);
+
+		String getSrcNamespace();
+
+		List<String> getDstNamespaces();
+
+		Iterable<? extends C> getClasses();
+
+		String getClassName(C classDef, int namespace);
+
+		Iterable<? extends E> getFields(C classDef);
+
+		Iterable<? extends M> getMethods(C classDef);
+
+		String getMemberName(E member, int namespace);
+
+		String getMemberDesc(E member, int namespace);
+
+		Iterable<? extends A> getArgs(M method);
+
+		int getArgLvIndex(A arg);
+
+		String getArgName(A arg, int namespace);
+
+		Iterable<? extends V> getVars(M method);
+
+		int getVarLvIndex(V var);
+
+		int getVarStartOpIdx(V var);
+
+		int getVarLvtRowIndex(V var);
+
+		String getVarName(V var, int namespace);
+	}
+
+	private record TreeMappingsAccessor(MappingTree mappings) implements MappingsAccessor<MappingTree.ClassMapping, MappingTree.MemberMapping, MappingTree.MethodMapping, MappingTree.MethodArgMapping, MappingTree.MethodVarMapping> {
+		@Override
+		public int getNamespaceId(String namespace) {
+			return mappings.getNamespaceId(namespace);
+		}
+
+		@Override
+		public String getSrcNamespace() {
+			return mappings.getSrcNamespace();
+		}
+
+		@Override
+		public List<String> getDstNamespaces() {
+			return mappings.getDstNamespaces();
+		}
+
+		@Override
+		public Iterable<? extends MappingTree.ClassMapping> getClasses() {
+			return mappings.getClasses();
+		}
+
+		@Override
+		public String getClassName(MappingTree.ClassMapping classDef, int namespace) {
+			return classDef.getName(namespace);
+		}
+
+		@Override
+		public Iterable<? extends MappingTree.MemberMapping> getFields(MappingTree.ClassMapping classDef) {
+			return classDef.getFields();
+		}
+
+		@Override
+		public Iterable<? extends MappingTree.MethodMapping> getMethods(MappingTree.ClassMapping classDef) {
+			return classDef.getMethods();
+		}
+
+		@Override
+		public String getMemberName(MappingTree.MemberMapping member, int namespace) {
+			return member.getName(namespace);
+		}
+
+		@Override
+		public String getMemberDesc(MappingTree.MemberMapping member, int namespace) {
+			return member.getDesc(namespace);
+		}
+
+		@Override
+		public Iterable<? extends MappingTree.MethodArgMapping> getArgs(MappingTree.MethodMapping method) {
+			return method.getArgs();
+		}
+
+		@Override
+		public int getArgLvIndex(MappingTree.MethodArgMapping arg) {
+			return arg.getLvIndex();
+		}
+
+		@Override
+		public String getArgName(MappingTree.MethodArgMapping arg, int namespace) {
+			return arg.getName(namespace);
+		}
+
+		@Override
+		public Iterable<? extends MappingTree.MethodVarMapping> getVars(MappingTree.MethodMapping method) {
+			return method.getVars();
+		}
+
+		@Override
+		public int getVarLvIndex(MappingTree.MethodVarMapping var) {
+			return var.getLvIndex();
+		}
+
+		@Override
+		public int getVarStartOpIdx(MappingTree.MethodVarMapping var) {
+			return var.getStartOpIdx();
+		}
+
+		@Override
+		public int getVarLvtRowIndex(MappingTree.MethodVarMapping var) {
+			return var.getLvtRowIndex();
+		}
+
+		@Override
+		public String getVarName(MappingTree.MethodVarMapping var, int namespace) {
+			return var.getName(namespace);
+		}
+	}
+
+	private record BinaryMappingsAccessor(BinaryMappingTree mappings) implements MappingsAccessor<BinaryMappingTree.ClassView, BinaryMappingTree.MemberView, BinaryMappingTree.MethodView, BinaryMappingTree.ArgView, BinaryMappingTree.VarView> {
+		@Override
+		public int getNamespaceId(String namespace) {
+			return mappings.getNamespaceId(namespace);
+		}
+
+		@Override
+		public String getSrcNamespace() {
+			return mappings.getSrcNamespace();
+		}
+
+		@Override
+		public List<String> getDstNamespaces() {
+			return mappings.getDstNamespaces();
+		}
+
+		@Override
+		public Iterable<? extends BinaryMappingTree.ClassView> getClasses() {
+			return () -> IntStream.range(0, mappings.getClassCount()).mapToObj(mappings::getClass).iterator();
+		}
+
+		@Override
+		public String getClassName(BinaryMappingTree.ClassView classDef, int namespace) {
+			return classDef.getName(namespace);
+		}
+
+		@Override
+		public Iterable<? extends BinaryMappingTree.MemberView> getFields(BinaryMappingTree.ClassView classDef) {
+			return classDef.getFields();
+		}
+
+		@Override
+		public Iterable<? extends BinaryMappingTree.MethodView> getMethods(BinaryMappingTree.ClassView classDef) {
+			return classDef.getMethods();
+		}
+
+		@Override
+		public String getMemberName(BinaryMappingTree.MemberView member, int namespace) {
+			return member.getName(namespace);
+		}
+
+		@Override
+		public String getMemberDesc(BinaryMappingTree.MemberView member, int namespace) {
+			return member.getDesc(namespace);
+		}
+
+		@Override
+		public Iterable<? extends BinaryMappingTree.ArgView> getArgs(BinaryMappingTree.MethodView method) {
+			return method.getArgs();
+		}
+
+		@Override
+		public int getArgLvIndex(BinaryMappingTree.ArgView arg) {
+			return arg.getLvIndex();
+		}
+
+		@Override
+		public String getArgName(BinaryMappingTree.ArgView arg, int namespace) {
+			return arg.getName(namespace);
+		}
+
+		@Override
+		public Iterable<? extends BinaryMappingTree.VarView> getVars(BinaryMappingTree.MethodView method) {
+			return method.getVars();
+		}
+
+		@Override
+		public int getVarLvIndex(BinaryMappingTree.VarView var) {
+			return var.getLvIndex();
+		}
+
+		@Override
+		public int getVarStartOpIdx(BinaryMappingTree.VarView var) {
+			return var.getStartOpIdx();
+		}
+
+		@Override
+		public int getVarLvtRowIndex(BinaryMappingTree.VarView var) {
+			return var.getLvtRowIndex();
+		}
+
+		@Override
+		public String getVarName(BinaryMappingTree.VarView var, int namespace) {
+			return var.getName(namespace);
+		}
+	}
 }
@@ -32,6 +32,8 @@ import java.nio.file.StandardCopyOption;
 import java.util.Calendar;
 import java.util.Comparator;
 import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Map;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
@@ -97,37 +99,85 @@ public class ZipReprocessorUtil {
 
 		final Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
 
-		try (var zipFile = new ZipFile(file.toFile());
-				var fileOutputStream = Files.newOutputStream(tempFile)) {
-			ZipEntry[] entries;
-
-			if (reproducibleFileOrder) {
-				entries = zipFile.stream()
-						.sorted(Comparator.comparing(ZipEntry::getName, ZipReprocessorUtil::specialOrdering))
-						.toArray(ZipEntry[]::new);
-			} else {
-				entries = zipFile.stream()
-						.toArray(ZipEntry[]::new);
+		try {
+			try (var zipFile = new ZipFile(file.toFile());
+					var fileOutputStream = Files.newOutputStream(tempFile)) {
+				ZipEntry[] entries;
+
+				if (reproducibleFileOrder) {
+					entries = zipFile.stream()
+							.sorted(Comparator.comparing(ZipEntry::getName, ZipReprocessorUtil::specialOrdering))
+							.toArray(ZipEntry[]::new);
+				} else {
+					entries = zipFile.stream()
+							.toArray(ZipEntry[]::new);
+				}
+
+				try (var zipOutputStream = new ZipOutputStream(fileOutputStream)) {
+					zipOutputStream.setMethod(zipOutputStreamCompressionMethod(zipEntryCompression));
+
+					for (ZipEntry entry : entries) {
+						ZipEntry newEntry = entry;
+
+						if (!preserveFileTimestamps) {
+							newEntry = new ZipEntry(entry.getName());
+							setConstantFileTime(newEntry);
+						}
+
+						newEntry.setMethod(zipEntryCompressionMethod(zipEntryCompression));
+						copyZipEntry(zipOutputStream, newEntry, zipFile.getInputStream(entry));
+					}
+				}
 			}
 
-			try (var zipOutputStream = new ZipOutputStream(fileOutputStream)) {
-				zipOutputStream.setMethod(zipOutputStreamCompressionMethod(zipEntryCompression));
+			Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			// Only left behind when writing failed
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+	/**
+	 * Writes a new zip file from files on disk, with the same entry order and time stamps {@link #reprocessZip} would produce.
+	 * This avoids writing a zip only to read and write it again when the entries are already on disk.
+	 *
+	 * @param entries the entry names mapped to the file or directory to write for them, directory entry names must end with a {@code /}
+	 */
+	public static void writeZip(Path file, Map<String, Path> entries, boolean reproducibleFileOrder, boolean preserveFileTimestamps) throws IOException {
+		final List<String> names = reproducibleFileOrder
+				? entries.keySet().stream().sorted(ZipReprocessorUtil::specialOrdering).toList()
+				: List.copyOf(entries.keySet());
+		final Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+
+		try {
+			try (var zipOutputStream = new ZipOutputStream(Files.newOutputStream(tempFile))) {
+				for (String name : names) {
+					final Path path = entries.get(name);
+					final var entry = new ZipEntry(name);
 
-				for (ZipEntry entry : entries) {
-					ZipEntry newEntry = entry;
+					if (preserveFileTimestamps) {
+						entry.setTime(Files.getLastModifiedTime(path).toMillis());
+					} else {
+						setConstantFileTime(entry);
+					}
 
-					if (!preserveFileTimestamps) {
-						newEntry = new ZipEntry(entry.getName());
-						setConstantFileTime(newEntry);
+					if (Files.isDirectory(path)) {
+						zipOutputStream.putNextEntry(entry);
+						zipOutputStream.closeEntry();
+						continue;
 					}
 
-					newEntry.setMethod(zipEntryCompressionMethod(zipEntryCompression));
-					copyZipEntry(zipOutputStream, newEntry, zipFile.getInputStream(entry));
+					try (InputStream inputStream = Files.newInputStream(path)) {
+						copyZipEntry(zipOutputStream, entry, inputStream);
+					}
 				}
 			}
-		}
 
-		Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+			Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			// Only left behind when writing failed
+			Files.deleteIfExists(tempFile);
+		}
 	}
 
 	/**
@@ -138,30 +188,35 @@ public class ZipReprocessorUtil {
 	public static void appendZipEntry(Path file, String path, byte[] data) throws IOException {
 		final Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
 
-		try (var zipFile = new ZipFile(file.toFile());
-				var fileOutputStream = Files.newOutputStream(tempFile)) {
-			ZipEntry[] entries = zipFile.stream().toArray(ZipEntry[]::new);
+		try {
+			try (var zipFile = new ZipFile(file.toFile());
+					var fileOutputStream = Files.newOutputStream(tempFile)) {
+				ZipEntry[] entries = zipFile.stream().toArray(ZipEntry[]::new);
+
+				try (var zipOutputStream = new ZipOutputStream(fileOutputStream)) {
+					// Copy existing entries
+					for (ZipEntry entry : entries) {
+						if (entry.getName().equals(path)) {
+							throw new IllegalArgumentException("Zip file (%s) already contains entry (%s)".formatted(file.getFileName().toString(), path));
+						}
 
-			try (var zipOutputStream = new ZipOutputStream(fileOutputStream)) {
-				// Copy existing entries
-				for (ZipEntry entry : entries) {
-					if (entry.getName().equals(path)) {
-						throw new IllegalArgumentException("Zip file (%s) already contains entry (%s)".formatted(file.getFileName().toString(), path));
+						copyZipEntry(zipOutputStream, entry, zipFile.getInputStream(entry));
 					}
 
-					copyZipEntry(zipOutputStream, entry, zipFile.getInputStream(entry));
+					// Append the new entry
+					var entry = new ZipEntry(path);
+					setConstantFileTime(entry);
+					zipOutputStream.putNextEntry(entry);
+					zipOutputStream.write(data, 0, data.length);
+					zipOutputStream.closeEntry();
 				}
-
-				// Append the new entry
-				var entry = new ZipEntry(path);
-				setConstantFileTime(entry);
-				zipOutputStream.putNextEntry(entry);
-				zipOutputStream.write(data, 0, data.length);
-				zipOutputStream.closeEntry();
 			}
-		}
 
-		Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+			Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			// Only left behind when writing failed
+			Files.deleteIfExists(tempFile);
+		}
 	}
 
 	private static void copyZipEntry(ZipOutputStream zipOutputStream, ZipEntry entry, InputStream inputStream) throws IOException {
@@ -176,7 +231,7 @@ public class ZipReprocessorUtil {
 		zipOutputStream.closeEntry();
 	}
 
-	private static void setConstantFileTime(ZipEntry entry) {
+	public static void setConstantFileTime(ZipEntry entry) {
 		// See https://github.com/openjdk/jdk/blob/master/test/jdk/java/util/zip/ZipFile/ZipEntryTimeBounds.java
 		entry.setTime(new GregorianCalendar(1980, Calendar.JANUARY, 1, 0, 0, 0).getTimeInMillis());
 	}
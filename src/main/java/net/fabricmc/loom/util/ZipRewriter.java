@@ -0,0 +1,400 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Applies a set of entry transforms to a zip file in a single pass.
+ *
+ * <p>Transforms are queued against entry names and run in the order they were added when {@link #apply()} is called.
+ * The zip is read once and written once to a temporary file that then replaces it, or replaces the output when it is
+ * {@linkplain #open(Path, Path) written to another file}. Entries without a transform are copied across without being decompressed.
+ *
+ * <p>Zip64 archives and entries using compression methods other than stored or deflated fall back to applying the
+ * transforms through a zip file system.
+ */
+public final class ZipRewriter implements Closeable {
+	private static final int MAX_PENDING_ENTRIES = Math.max(16, Runtime.getRuntime().availableProcessors() * 4);
+
+	private final Path zip;
+	private final Path output;
+	// Null when the zip does not exist, or cannot be rewritten directly
+	@Nullable
+	private final RawZipReader reader;
+	// Null when the zip cannot be rewritten directly, see fallback
+	@Nullable
+	private final Map<String, RawZipReader.Entry> entries;
+	private final Map<String, List<Operation>> operations = new LinkedHashMap<>();
+	@Nullable
+	private Executor executor;
+	private boolean applied = false;
+
+	private ZipRewriter(Path zip, Path output, @Nullable RawZipReader reader, @Nullable Map<String, RawZipReader.Entry> entries) {
+		this.zip = zip;
+		this.output = output;
+		this.reader = reader;
+		this.entries = entries;
+	}
+
+	/**
+	 * Opens a zip to be rewritten, a zip that does not exist is treated as empty but must have entries added to it.
+	 */
+	public static ZipRewriter open(Path zip) throws IOException {
+		return open(zip, zip);
+	}
+
+	/**
+	 * Opens a zip to be rewritten to the output, which is replaced if it exists. The input is left unchanged,
+	 * and the output is written even when no transforms have been queued.
+	 */
+	public static ZipRewriter open(Path input, Path output) throws IOException {
+		if (Files.notExists(input)) {
+			return new ZipRewriter(input, output, null, new LinkedHashMap<>());
+		}
+
+		final RawZipReader reader = RawZipReader.open(input);
+		return new ZipRewriter(input, output, reader, reader != null ? reader.entries() : null);
+	}
+
+	/**
+	 * @return whether the zip contains the entry, before any transforms are applied
+	 */
+	public boolean contains(String path) throws IOException {
+		path = normalize(path);
+
+		if (entries == null) {
+			try (FileSystemUtil.Delegate fs = FileSystemUtil.getJarFileSystem(zip, false)) {
+				return Files.exists(fs.getPath(path));
+			}
+		}
+
+		return entries.containsKey(path);
+	}
+
+	/**
+	 * @return the contents of the entry before any transforms are applied, or null when it does not exist
+	 */
+	public byte @Nullable [] read(String path) throws IOException {
+		path = normalize(path);
+
+		if (entries == null) {
+			try (FileSystemUtil.Delegate fs = FileSystemUtil.getJarFileSystem(zip, false)) {
+				final Path fsPath = fs.getPath(path);
+				return Files.exists(fsPath) ? Files.readAllBytes(fsPath) : null;
+			}
+		}
+
+		final RawZipReader.Entry entry = entries.get(path);
+		return entry != null ? reader.read(entry) : null;
+	}
+
+	/**
+	 * Runs the transforms of existing entries on the given executor, the entries are still written out in order.
+	 * Only a bounded number of transformed entries are held in memory ahead of being written.
+	 * Transforms must be thread safe when this is used.
+	 */
+	public ZipRewriter parallel(Executor executor) {
+		this.executor = executor;
+		return this;
+	}
+
+	/**
+	 * Transforms the entry if it exists.
+	 */
+	public ZipRewriter transform(String path, ZipUtils.UnsafeUnaryOperator<byte[]> transformer) {
+		return addOperation(path, new Operation(Operation.Kind.TRANSFORM, transformer, null));
+	}
+
+	/**
+	 * Replaces the contents of an existing entry, {@link #apply()} throws {@link NoSuchFileException} if it does not exist.
+	 */
+	public ZipRewriter replace(String path, byte[] bytes) {
+		return addOperation(path, new Operation(Operation.Kind.REPLACE, null, bytes));
+	}
+
+	/**
+	 * Adds the entry, replacing it if it exists.
+	 */
+	public ZipRewriter put(String path, byte[] bytes) {
+		return addOperation(path, new Operation(Operation.Kind.PUT, null, bytes));
+	}
+
+	/**
+	 * Deletes the entry if it exists.
+	 */
+	public ZipRewriter delete(String path) {
+		return addOperation(path, new Operation(Operation.Kind.DELETE, null, null));
+	}
+
+	private ZipRewriter addOperation(String path, Operation operation) {
+		if (applied) {
+			throw new IllegalStateException("Zip has already been rewritten");
+		}
+
+		operations.computeIfAbsent(normalize(path), p -> new ArrayList<>()).add(operation);
+		return this;
+	}
+
+	/**
+	 * Rewrites the zip with the queued transforms, does nothing to a zip rewritten in place if none have been queued.
+	 *
+	 * @return the number of transforms that ran, not counting transforms of entries that do not exist
+	 */
+	public int apply() throws IOException {
+		if (applied) {
+			throw new IllegalStateException("Zip has already been rewritten");
+		}
+
+		applied = true;
+
+		if (operations.isEmpty()) {
+			if (!zip.equals(output)) {
+				close();
+				Files.copy(zip, output, StandardCopyOption.REPLACE_EXISTING);
+			}
+
+			return 0;
+		}
+
+		if (entries != null && reader == null && operations.values().stream().flatMap(List::stream).noneMatch(o -> o.kind() == Operation.Kind.PUT)) {
+			throw new NoSuchFileException(zip.toString());
+		}
+
+		if (entries == null) {
+			if (!zip.equals(output)) {
+				Files.copy(zip, output, StandardCopyOption.REPLACE_EXISTING);
+			}
+
+			return applyWithFileSystem();
+		}
+
+		final Path parent = output.toAbsolutePath().getParent();
+		Files.createDirectories(parent);
+		final Path tempFile = Files.createTempFile(parent, output.getFileName().toString(), ".tmp");
+		final int transformed;
+
+		try {
+			try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				transformed = write(new RawZipWriter(channel));
+			}
+
+			close();
+			Files.move(tempFile, output, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+
+		return transformed;
+	}
+
+	private int write(RawZipWriter writer) throws IOException {
+		final AtomicInteger transformed = new AtomicInteger();
+		final List<RawZipReader.Entry> ordered = new ArrayList<>(entries.values());
+		// Modified entries that are being transformed and compressed ahead of being written out in order
+		final Map<String, CompletableFuture<RawZipWriter.Encoded>> pending = new HashMap<>();
+		// Set when writing fails part way through
+		final AtomicBoolean aborted = new AtomicBoolean();
+		int ahead = 0;
+
+		try {
+			for (RawZipReader.Entry entry : ordered) {
+				final List<Operation> entryOperations = operations.get(entry.name());
+
+				if (entryOperations == null) {
+					writer.copy(reader, entry);
+					continue;
+				}
+
+				final RawZipWriter.Encoded encoded;
+
+				if (executor != null) {
+					// Only keep a bounded number of entries in memory at once
+					while (pending.size() < MAX_PENDING_ENTRIES && ahead < ordered.size()) {
+						final RawZipReader.Entry next = ordered.get(ahead++);
+						final List<Operation> nextOperations = operations.get(next.name());
+
+						if (nextOperations != null) {
+							pending.put(next.name(), CompletableFuture.supplyAsync(() -> {
+								if (aborted.get()) {
+									return null;
+								}
+
+								try {
+									return encode(next.name(), nextOperations, reader.read(next), next.method(), transformed);
+								} catch (IOException e) {
+									throw new UncheckedIOException(e);
+								}
+							}, executor));
+						}
+					}
+
+					encoded = join(pending.remove(entry.name()));
+				} else {
+					encoded = encode(entry.name(), entryOperations, reader.read(entry), entry.method(), transformed);
+				}
+
+				if (encoded != null) {
+					writer.write(entry.name(), encoded, entry);
+				}
+			}
+		} finally {
+			if (!pending.isEmpty()) {
+				// Skip the entries that have not started yet, and wait for the rest to finish reading before the zip is closed
+				aborted.set(true);
+				CompletableFuture.allOf(pending.values().toArray(CompletableFuture[]::new))
+						.exceptionally(t -> null)
+						.join();
+			}
+		}
+
+		// Entries that are being added to the zip
+		for (Map.Entry<String, List<Operation>> entry : operations.entrySet()) {
+			if (entries.containsKey(entry.getKey())) {
+				continue;
+			}
+
+			final RawZipWriter.Encoded encoded = encode(entry.getKey(), entry.getValue(), null, RawZipReader.METHOD_DEFLATED, transformed);
+
+			if (encoded == null) {
+				continue;
+			}
+
+			// Match the zip file system, which creates the parent directories
+			writer.writeParentDirectories(entry.getKey());
+			writer.write(entry.getKey(), encoded, null);
+		}
+
+		writer.finish();
+		return transformed.get();
+	}
+
+	@Nullable
+	private static RawZipWriter.Encoded encode(String name, List<Operation> operations, byte @Nullable [] bytes, int method, AtomicInteger transformed) throws IOException {
+		final byte[] data = run(name, operations, bytes, transformed);
+		return data != null ? RawZipWriter.encode(data, method) : null;
+	}
+
+	private static <T> T join(CompletableFuture<T> future) throws IOException {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof UncheckedIOException uncheckedIOException) {
+				throw uncheckedIOException.getCause();
+			}
+
+			throw e;
+		}
+	}
+
+	private static byte @Nullable [] run(String name, List<Operation> operations, byte @Nullable [] bytes, AtomicInteger transformed) throws IOException {
+		for (Operation operation : operations) {
+			switch (operation.kind()) {
+			case TRANSFORM -> {
+				if (bytes != null) {
+					bytes = operation.transformer().apply(bytes);
+					transformed.incrementAndGet();
+				}
+			}
+			case REPLACE -> {
+				if (bytes == null) {
+					throw new NoSuchFileException(name);
+				}
+
+				bytes = operation.bytes();
+			}
+			case PUT -> bytes = operation.bytes();
+			case DELETE -> bytes = null;
+			}
+		}
+
+		return bytes;
+	}
+
+	/**
+	 * Applies the transforms through a zip file system, for zips that cannot be rewritten directly.
+	 */
+	private int applyWithFileSystem() throws IOException {
+		final AtomicInteger transformed = new AtomicInteger();
+
+		try (FileSystemUtil.Delegate fs = FileSystemUtil.getJarFileSystem(output, true)) {
+			for (Map.Entry<String, List<Operation>> entry : operations.entrySet()) {
+				final Path fsPath = fs.getPath(entry.getKey());
+				final byte[] input = Files.exists(fsPath) ? Files.readAllBytes(fsPath) : null;
+				final byte[] output = run(entry.getKey(), entry.getValue(), input, transformed);
+
+				if (output == null) {
+					Files.deleteIfExists(fsPath);
+				} else if (output != input) {
+					final Path fsPathParent = fsPath.getParent();
+					if (fsPathParent != null) Files.createDirectories(fsPathParent);
+					Files.write(fsPath, output, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+				}
+			}
+		}
+
+		return transformed.get();
+	}
+
+	private static String normalize(String path) {
+		return path.startsWith("/") ? path.substring(1) : path;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (reader != null) {
+			reader.close();
+		}
+	}
+
+	private record Operation(Kind kind, ZipUtils.@Nullable UnsafeUnaryOperator<byte[]> transformer, byte @Nullable [] bytes) {
+		enum Kind {
+			TRANSFORM,
+			REPLACE,
+			PUT,
+			DELETE
+		}
+	}
+}
@@ -34,7 +34,6 @@ import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
-import java.nio.file.StandardOpenOption;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -162,31 +161,24 @@ public class ZipUtils {
 	}
 
 	public static void add(Path zip, Iterable<Pair<String, byte[]>> files) throws IOException {
-		try (FileSystemUtil.Delegate fs = FileSystemUtil.getJarFileSystem(zip, true)) {
+		try (ZipRewriter rewriter = ZipRewriter.open(zip)) {
 			for (Pair<String, byte[]> pair : files) {
-				Path fsPath = fs.get().getPath(pair.left());
-				Path fsPathParent = fsPath.getParent();
-				if (fsPathParent != null) Files.createDirectories(fsPathParent);
-				Files.write(fsPath, pair.right(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+				rewriter.put(pair.left(), pair.right());
 			}
+
+			rewriter.apply();
 		}
 	}
 
 	public static void replace(Path zip, String path, byte[] bytes) throws IOException {
-		try (FileSystemUtil.Delegate fs = FileSystemUtil.getJarFileSystem(zip, true)) {
-			Path fsPath = fs.get().getPath(path);
-
-			if (Files.exists(fsPath)) {
-				Files.write(fsPath, bytes, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-			} else {
-				throw new NoSuchFileException(fsPath.toString());
-			}
+		try (ZipRewriter rewriter = ZipRewriter.open(zip)) {
+			rewriter.replace(path, bytes).apply();
 		}
 	}
 
 	public static void deleteIfExists(Path zip, String path) throws IOException {
-		try (FileSystemUtil.Delegate fs = FileSystemUtil.getJarFileSystem(zip, false)) {
-			Files.deleteIfExists(fs.getPath(path));
+		try (ZipRewriter rewriter = ZipRewriter.open(zip)) {
+			rewriter.delete(path).apply();
 		}
 	}
 
@@ -211,8 +203,14 @@ public class ZipUtils {
 	}
 
 	public static <T> int transformJson(Class<T> typeOfT, Path zip, Map<String, UnsafeUnaryOperator<T>> transforms) throws IOException {
-		return transformMapped(zip, transforms, bytes -> LoomGradlePlugin.GSON.fromJson(new InputStreamReader(new ByteArrayInputStream(bytes)), typeOfT),
-				s -> LoomGradlePlugin.GSON.toJson(s, typeOfT).getBytes(StandardCharsets.UTF_8));
+		return transformMapped(zip, transforms, jsonDeserializer(typeOfT), jsonSerializer(typeOfT));
+	}
+
+	/**
+	 * Wraps a json transformer so that it can be applied to the raw bytes of an entry, for use with {@link ZipRewriter}.
+	 */
+	public static <T> UnsafeUnaryOperator<byte[]> jsonTransformer(Class<T> typeOfT, UnsafeUnaryOperator<T> transformer) {
+		return mapped(transformer, jsonDeserializer(typeOfT), jsonSerializer(typeOfT));
 	}
 
 	public static <T> void transformJson(Class<T> typeOfT, Path zip, String path, UnsafeUnaryOperator<T> transformer) throws IOException {
@@ -236,30 +234,39 @@ public class ZipUtils {
 
 		for (Map.Entry<String, UnsafeUnaryOperator<T>> entry : transforms.entrySet()) {
 			if (entry.getValue() != null) {
-				newTransforms.put(entry.getKey(), bytes -> {
-					return serializer.apply(entry.getValue().apply(deserializer.apply(bytes)));
-				});
+				newTransforms.put(entry.getKey(), mapped(entry.getValue(), deserializer, serializer));
 			}
 		}
 
 		return transform(zip, newTransforms);
 	}
 
+	private static <T> UnsafeUnaryOperator<byte[]> mapped(UnsafeUnaryOperator<T> transformer, Function<byte[], T> deserializer, Function<T, byte[]> serializer) {
+		return bytes -> serializer.apply(transformer.apply(deserializer.apply(bytes)));
+	}
+
+	private static <T> Function<byte[], T> jsonDeserializer(Class<T> typeOfT) {
+		return bytes -> LoomGradlePlugin.GSON.fromJson(new InputStreamReader(new ByteArrayInputStream(bytes)), typeOfT);
+	}
+
+	private static <T> Function<T, byte[]> jsonSerializer(Class<T> typeOfT) {
+		return s -> LoomGradlePlugin.GSON.toJson(s, typeOfT).getBytes(StandardCharsets.UTF_8);
+	}
+
 	public static int transform(Path zip, Map<String, UnsafeUnaryOperator<byte[]>> transforms) throws IOException {
-		int replacedCount = 0;
+		if (Files.notExists(zip)) {
+			throw new NoSuchFileException(zip.toString());
+		}
 
-		try (FileSystemUtil.Delegate fs = FileSystemUtil.getJarFileSystem(zip, false)) {
+		try (ZipRewriter rewriter = ZipRewriter.open(zip)) {
 			for (Map.Entry<String, UnsafeUnaryOperator<byte[]>> entry : transforms.entrySet()) {
-				Path fsPath = fs.get().getPath(entry.getKey());
-
-				if (Files.exists(fsPath) && entry.getValue() != null) {
-					Files.write(fsPath, entry.getValue().apply(Files.readAllBytes(fsPath)), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-					replacedCount++;
+				if (entry.getValue() != null) {
+					rewriter.transform(entry.getKey(), entry.getValue());
 				}
 			}
-		}
 
-		return replacedCount;
+			return rewriter.apply();
+		}
 	}
 
 	@FunctionalInterface
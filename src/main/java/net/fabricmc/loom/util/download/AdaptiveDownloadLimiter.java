@@ -0,0 +1,167 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.util.download;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * A {@link DownloadLimiter} for a single host that adjusts its limit from the observed latency and errors.
+ *
+ * <p>The limit grows by one per successful response until the first sign of congestion, and then by roughly one per round trip.
+ * It is cut back when a request fails, the server returns 429 or a 5xx status, or the time to the response headers exceeds
+ * {@link #LATENCY_TOLERANCE} times the fastest response seen. Only requests that started after the previous cut can cut it again,
+ * so a burst of slow responses from the same congested window only reduces the limit once.
+ */
+final class AdaptiveDownloadLimiter implements DownloadLimiter {
+	static final double LATENCY_TOLERANCE = 2.0;
+	private static final double BACKOFF = 0.75;
+	// Ignore small variations in latency, such as from a fast local server
+	private static final long LATENCY_SLACK = TimeUnit.MILLISECONDS.toNanos(5);
+	private static final int MIN_LIMIT = 1;
+
+	private final int maxLimit;
+	private final LongSupplier nanoTime;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition available = lock.newCondition();
+
+	// Guarded by lock
+	private double limit;
+	private int inFlight = 0;
+	private boolean slowStart = true;
+	private long minLatency = Long.MAX_VALUE;
+	private long lastDecrease;
+
+	AdaptiveDownloadLimiter(int initialLimit, int maxLimit) {
+		this(initialLimit, maxLimit, System::nanoTime);
+	}
+
+	// Visible for testing, to measure the latency without relying on the wall clock
+	AdaptiveDownloadLimiter(int initialLimit, int maxLimit, LongSupplier nanoTime) {
+		this.maxLimit = Math.max(MIN_LIMIT, maxLimit);
+		this.nanoTime = nanoTime;
+		this.limit = Math.max(MIN_LIMIT, Math.min(initialLimit, this.maxLimit));
+		this.lastDecrease = nanoTime.getAsLong();
+	}
+
+	@Override
+	public Permit acquire() throws InterruptedException {
+		lock.lockInterruptibly();
+
+		try {
+			while (inFlight >= getLimit()) {
+				available.await();
+			}
+
+			inFlight++;
+		} finally {
+			lock.unlock();
+		}
+
+		return new AdaptivePermit(nanoTime.getAsLong());
+	}
+
+	int getLimit() {
+		lock.lock();
+
+		try {
+			return (int) limit;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	void onSample(long start, long latency, boolean congested) {
+		lock.lock();
+
+		try {
+			if (!congested) {
+				minLatency = Math.min(minLatency, latency);
+				congested = latency > minLatency * LATENCY_TOLERANCE + LATENCY_SLACK;
+			}
+
+			if (congested) {
+				slowStart = false;
+
+				// Requests that started before the last decrease were sent at the old limit, so only later requests can cut it again
+				if (start - lastDecrease >= 0) {
+					limit = Math.max(MIN_LIMIT, limit * BACKOFF);
+					lastDecrease = nanoTime.getAsLong();
+				}
+			} else if (slowStart) {
+				limit = Math.min(maxLimit, limit + 1);
+			} else {
+				limit = Math.min(maxLimit, limit + 1 / limit);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void release() {
+		lock.lock();
+
+		try {
+			inFlight--;
+			available.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private static boolean isCongestion(int statusCode) {
+		return statusCode == 429 || statusCode >= 500;
+	}
+
+	private final class AdaptivePermit implements Permit {
+		private final long start;
+		private boolean sampled = false;
+
+		private AdaptivePermit(long start) {
+			this.start = start;
+		}
+
+		@Override
+		public void onResponse(int statusCode) {
+			if (!sampled) {
+				sampled = true;
+				onSample(start, nanoTime.getAsLong() - start, isCongestion(statusCode));
+			}
+		}
+
+		@Override
+		public void close() {
+			if (!sampled) {
+				// The request failed without a response, such as a timeout or a reset connection
+				sampled = true;
+				onSample(start, nanoTime.getAsLong() - start, true);
+			}
+
+			release();
+		}
+	}
+}
@@ -81,8 +81,9 @@ public final class Download {
 	private final DownloadProgressListener progressListener;
 	private final HttpClient.Version httpVersion;
 	private final int downloadAttempt;
+	private final DownloadLimiter limiter;
 
-	Download(URI url, String expectedHash, boolean useEtag, boolean forceDownload, boolean offline, Duration maxAge, DownloadProgressListener progressListener, HttpClient.Version httpVersion, int downloadAttempt) {
+	Download(URI url, String expectedHash, boolean useEtag, boolean forceDownload, boolean offline, Duration maxAge, DownloadProgressListener progressListener, HttpClient.Version httpVersion, int downloadAttempt, DownloadLimiter limiter) {
 		this.url = url;
 		this.expectedHash = expectedHash;
 		this.useEtag = useEtag;
@@ -92,6 +93,7 @@ public final class Download {
 		this.progressListener = progressListener;
 		this.httpVersion = httpVersion;
 		this.downloadAttempt = downloadAttempt;
+		this.limiter = limiter;
 	}
 
 	private HttpRequest.Builder requestBuilder() {
@@ -126,22 +128,33 @@ public final class Download {
 		}
 	}
 
-	String downloadString() throws DownloadException {
-		final HttpResponse<InputStream> response = send(getRequest(), HttpResponse.BodyHandlers.ofInputStream());
-		final int statusCode = response.statusCode();
-		final boolean successful = statusCode >= 200 && statusCode < 300;
-
-		if (!successful) {
-			progressListener.onEnd();
-			throw statusError("HTTP request to (%s) returned unsuccessful status".formatted(url) + "(%d)", statusCode);
+	private DownloadLimiter.Permit acquirePermit() throws DownloadException {
+		try {
+			return limiter.acquire();
+		} catch (InterruptedException e) {
+			throw error(e, "Interrupted while waiting to download (%s)", url);
 		}
+	}
 
-		try (InputStream inputStream = decodeOutput(response)) {
-			return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
-		} catch (IOException e) {
-			throw error(e, "Failed to decode download output");
-		} finally {
-			progressListener.onEnd();
+	String downloadString() throws DownloadException {
+		try (DownloadLimiter.Permit permit = acquirePermit()) {
+			final HttpResponse<InputStream> response = send(getRequest(), HttpResponse.BodyHandlers.ofInputStream());
+			final int statusCode = response.statusCode();
+			final boolean successful = statusCode >= 200 && statusCode < 300;
+			permit.onResponse(statusCode);
+
+			if (!successful) {
+				progressListener.onEnd();
+				throw statusError("HTTP request to (%s) returned unsuccessful status".formatted(url) + "(%d)", statusCode);
+			}
+
+			try (InputStream inputStream = decodeOutput(response)) {
+				return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+			} catch (IOException e) {
+				throw error(e, "Failed to decode download output");
+			} finally {
+				progressListener.onEnd();
+			}
 		}
 	}
 
@@ -181,32 +194,38 @@ public final class Download {
 				.map(this::getETagRequest)
 				.orElseGet(this::getRequest);
 
-		// Create a .lock file, this allows us to re-download if the download was forcefully aborted part way through.
-		createLock(output);
-		HttpResponse<InputStream> response = send(httpRequest, HttpResponse.BodyHandlers.ofInputStream());
-		getAndResetLock(output);
+		final HttpResponse<InputStream> response;
 
-		final int statusCode = response.statusCode();
-		boolean success = statusCode == HttpURLConnection.HTTP_NOT_MODIFIED || (statusCode >= 200 && statusCode < 300);
+		// Hold the permit until the body has been written, only the network part of the download is limited.
+		try (DownloadLimiter.Permit permit = acquirePermit()) {
+			// Create a .lock file, this allows us to re-download if the download was forcefully aborted part way through.
+			createLock(output);
+			response = send(httpRequest, HttpResponse.BodyHandlers.ofInputStream());
+			getAndResetLock(output);
 
-		if (statusCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
-			try {
-				// Update the last modified time so we don't retry the request until the max age has passed again.
-				Files.setLastModifiedTime(output, FileTime.from(Instant.now()));
-			} catch (IOException e) {
-				throw error(e, "Failed to update last modified time");
+			final int statusCode = response.statusCode();
+			boolean success = statusCode == HttpURLConnection.HTTP_NOT_MODIFIED || (statusCode >= 200 && statusCode < 300);
+			permit.onResponse(statusCode);
+
+			if (statusCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+				try {
+					// Update the last modified time so we don't retry the request until the max age has passed again.
+					Files.setLastModifiedTime(output, FileTime.from(Instant.now()));
+				} catch (IOException e) {
+					throw error(e, "Failed to update last modified time");
+				}
+
+				// Success, etag matched.
+				return;
 			}
 
-			// Success, etag matched.
-			return;
-		}
+			if (!success) {
+				throw statusError("HTTP request returned unsuccessful status (%d)", statusCode);
+			}
 
-		if (!success) {
-			throw statusError("HTTP request returned unsuccessful status (%d)", statusCode);
+			downloadToPath(output, response);
 		}
 
-		downloadToPath(output, response);
-
 		if (useEtag) {
 			final HttpHeaders headers = response.headers();
 			final String responseETag = headers.firstValue(E_TAG.toLowerCase(Locale.ROOT)).orElse(null);
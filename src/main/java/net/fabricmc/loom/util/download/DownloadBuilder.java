@@ -107,20 +107,25 @@ public class DownloadBuilder {
 		return this;
 	}
 
-	private Download build(int downloadAttempt) {
+	private Download build(int downloadAttempt, DownloadLimiter limiter) {
 		if (!allowInsecureProtocol && !isSecureUrl(url)) {
 			throw new IllegalArgumentException("Cannot create download for url (%s) with insecure protocol".formatted(url.toString()));
 		}
 
-		return new Download(this.url, this.expectedHash, this.useEtag, this.forceDownload, this.offline, maxAge, progressListener, httpVersion, downloadAttempt);
+		return new Download(this.url, this.expectedHash, this.useEtag, this.forceDownload, this.offline, maxAge, progressListener, httpVersion, downloadAttempt, limiter);
 	}
 
 	public void downloadPathAsync(Path path, DownloadExecutor executor) {
-		executor.runAsync(() -> downloadPath(path));
+		final DownloadLimiter limiter = executor.getLimiter(url);
+		executor.runAsync(() -> downloadPath(path, limiter));
 	}
 
 	public void downloadPath(Path path) throws DownloadException {
-		withRetries((download) -> {
+		downloadPath(path, DownloadLimiter.NONE);
+	}
+
+	private void downloadPath(Path path, DownloadLimiter limiter) throws DownloadException {
+		withRetries(limiter, (download) -> {
 			download.downloadPath(path);
 			return null;
 		});
@@ -149,6 +154,10 @@ public class DownloadBuilder {
 	}
 
 	private <T> T withRetries(DownloadFunction<T> supplier) throws DownloadException {
+		return withRetries(DownloadLimiter.NONE, supplier);
+	}
+
+	private <T> T withRetries(DownloadLimiter limiter, DownloadFunction<T> supplier) throws DownloadException {
 		for (int i = 1; i <= maxRetries; i++) {
 			try {
 				if (i == maxRetries) {
@@ -156,7 +165,7 @@ public class DownloadBuilder {
 					httpVersion(HttpClient.Version.HTTP_1_1);
 				}
 
-				return supplier.get(build(i));
+				return supplier.get(build(i, limiter));
 			} catch (DownloadException e) {
 				if (e.getStatusCode() == 404) {
 					// Don't retry on 404's
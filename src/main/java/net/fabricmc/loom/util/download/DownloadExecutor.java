@@ -24,20 +24,95 @@
 
 package net.fabricmc.loom.util.download;
 
-import java.io.UncheckedIOException;
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.fabricmc.loom.util.service.SharedExecutorService;
+
+/**
+ * Runs downloads on the shared IO executor, with at most {@code threads} downloads running at once.
+ *
+ * <p>See {@link #adaptive(int, int)} for running many downloads at once with virtual threads.
+ */
 public class DownloadExecutor implements AutoCloseable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(DownloadExecutor.class);
+	private static final int INITIAL_HOST_LIMIT = 8;
+
 	private final ExecutorService executorService;
+	@Nullable
+	private final ExecutorService ownedExecutorService;
+	private final int maxConcurrent;
+	private final int maxConcurrentPerHost;
+	private final Map<String, AdaptiveDownloadLimiter> hostLimiters = new ConcurrentHashMap<>();
+	private final Queue<DownloadRunner> queue = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger running = new AtomicInteger();
+	private final Object lock = new Object();
+	private int pending = 0;
 	private final List<DownloadException> downloadExceptions = Collections.synchronizedList(new ArrayList<>());
 
 	public DownloadExecutor(int threads) {
-		executorService = Executors.newFixedThreadPool(threads);
+		this(SharedExecutorService.get().io(), null, threads, 0);
+	}
+
+	private DownloadExecutor(ExecutorService executorService, @Nullable ExecutorService ownedExecutorService, int maxConcurrent, int maxConcurrentPerHost) {
+		this.executorService = executorService;
+		this.ownedExecutorService = ownedExecutorService;
+		this.maxConcurrent = Math.max(1, maxConcurrent);
+		this.maxConcurrentPerHost = maxConcurrentPerHost;
+	}
+
+	/**
+	 * Creates an executor that runs each download on its own virtual thread, and limits the requests in flight to each host
+	 * with a limit that adapts to the observed latency and errors.
+	 *
+	 * <p>Virtual threads require Java 21, on older versions the downloads run on the shared IO executor instead.
+	 *
+	 * @param maxConcurrentPerHost the upper bound of the adaptive limit for each host
+	 * @param platformThreads the maximum number of downloads to run at once when virtual threads are unavailable
+	 */
+	public static DownloadExecutor adaptive(int maxConcurrentPerHost, int platformThreads) {
+		final ExecutorService virtualThreadExecutor = newVirtualThreadExecutor();
+
+		if (virtualThreadExecutor == null) {
+			LOGGER.debug("Virtual threads are unavailable, using {} platform threads", platformThreads);
+			return new DownloadExecutor(SharedExecutorService.get().io(), null, platformThreads, maxConcurrentPerHost);
+		}
+
+		// Allow some downloads to check their existing files while others are waiting on the network.
+		return new DownloadExecutor(virtualThreadExecutor, virtualThreadExecutor, maxConcurrentPerHost * 2, maxConcurrentPerHost);
+	}
+
+	@Nullable
+	private static ExecutorService newVirtualThreadExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			// Running on a Java version before 21, or 19/20 without preview features enabled.
+			return null;
+		}
+	}
+
+	DownloadLimiter getLimiter(URI url) {
+		if (maxConcurrentPerHost <= 0) {
+			return DownloadLimiter.NONE;
+		}
+
+		final String host = Objects.requireNonNullElse(url.getAuthority(), "");
+		return hostLimiters.computeIfAbsent(host, h -> new AdaptiveDownloadLimiter(INITIAL_HOST_LIMIT, maxConcurrentPerHost));
 	}
 
 	void runAsync(DownloadRunner downloadRunner) {
@@ -45,27 +120,76 @@ public class DownloadExecutor implements AutoCloseable {
 			return;
 		}
 
-		executorService.execute(() -> {
-			try {
+		synchronized (lock) {
+			pending++;
+		}
+
+		queue.add(downloadRunner);
+		schedule();
+	}
+
+	private void schedule() {
+		while (!queue.isEmpty()) {
+			final int current = running.get();
+
+			if (current >= maxConcurrent) {
+				// A running download will schedule the next one when it completes
+				return;
+			}
+
+			if (!running.compareAndSet(current, current + 1)) {
+				continue;
+			}
+
+			final DownloadRunner next = queue.poll();
+
+			if (next == null) {
+				running.decrementAndGet();
+				continue;
+			}
+
+			executorService.execute(() -> run(next));
+		}
+	}
+
+	private void run(DownloadRunner downloadRunner) {
+		try {
+			// Skip any queued downloads once one has failed
+			if (downloadExceptions.isEmpty()) {
 				downloadRunner.run();
-			} catch (DownloadException e) {
-				executorService.shutdownNow();
-				downloadExceptions.add(e);
-				throw new UncheckedIOException(e);
 			}
-		});
+		} catch (DownloadException e) {
+			downloadExceptions.add(e);
+		} finally {
+			running.decrementAndGet();
+			schedule();
+
+			synchronized (lock) {
+				if (--pending == 0) {
+					lock.notifyAll();
+				}
+			}
+		}
 	}
 
 	@Override
 	public void close() throws DownloadException {
-		executorService.shutdown();
+		synchronized (lock) {
+			try {
+				while (pending > 0) {
+					lock.wait();
+				}
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		}
 
-		try {
-			executorService.awaitTermination(1, TimeUnit.DAYS);
-		} catch (InterruptedException e) {
-			throw new RuntimeException(e);
+		if (ownedExecutorService != null) {
+			ownedExecutorService.shutdown();
 		}
 
+		hostLimiters.forEach((host, limiter) -> LOGGER.debug("Finished downloading from {} with a limit of {} concurrent requests", host, limiter.getLimit()));
+
 		if (!downloadExceptions.isEmpty()) {
 			DownloadException downloadException = new DownloadException("Failed to download");
 
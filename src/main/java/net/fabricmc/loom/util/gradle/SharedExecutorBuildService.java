@@ -0,0 +1,96 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.util.gradle;
+
+import javax.inject.Inject;
+
+import org.gradle.api.Project;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.gradle.build.event.BuildEventsListenerRegistry;
+import org.gradle.tooling.events.FinishEvent;
+import org.gradle.tooling.events.OperationCompletionListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.fabricmc.loom.util.Constants;
+import net.fabricmc.loom.util.service.SharedExecutorService;
+
+/**
+ * Ties the lifetime of the {@link SharedExecutorService} pools to the build, and reports how busy they were once it has finished.
+ *
+ * <p>The service listens for task completion only so that Gradle creates it at the start of every build,
+ * configuration cache hits included, before any task can use {@link SharedExecutorService#get()}.
+ */
+public abstract class SharedExecutorBuildService implements BuildService<SharedExecutorBuildService.Params>, OperationCompletionListener, AutoCloseable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(SharedExecutorBuildService.class);
+	public static final String NAME = "loomSharedExecutors";
+
+	private final SharedExecutorService executors;
+
+	public static Provider<SharedExecutorBuildService> register(Project project) {
+		final Provider<Integer> threads = project.getProviders().gradleProperty(Constants.Properties.THREADS).map(Integer::parseInt);
+
+		final Provider<SharedExecutorBuildService> provider = project.getGradle().getSharedServices().registerIfAbsent(NAME, SharedExecutorBuildService.class, spec -> {
+			spec.getParameters().getThreads().set(threads.orElse(0));
+		});
+
+		project.getObjects().newInstance(ListenerRegistration.class).register(provider);
+		return provider;
+	}
+
+	public SharedExecutorBuildService() {
+		executors = SharedExecutorService.acquire(getParameters().getThreads().get());
+	}
+
+	@Override
+	public void onFinish(FinishEvent event) {
+		// Only registered as a listener so the service is created for every build
+	}
+
+	@Override
+	public void close() {
+		executors.getMetrics().forEach(metrics -> LOGGER.info("Loom shared executor {}", metrics));
+		SharedExecutorService.release();
+	}
+
+	public interface Params extends BuildServiceParameters {
+		/**
+		 * The number of threads to use for CPU bound work, 0 to use the number of available processors.
+		 */
+		Property<Integer> getThreads();
+	}
+
+	public abstract static class ListenerRegistration {
+		@Inject
+		protected abstract BuildEventsListenerRegistry getBuildEventsListenerRegistry();
+
+		void register(Provider<SharedExecutorBuildService> provider) {
+			getBuildEventsListenerRegistry().onTaskCompletion(provider);
+		}
+	}
+}
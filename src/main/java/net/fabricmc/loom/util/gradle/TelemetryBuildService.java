@@ -0,0 +1,93 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.util.gradle;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import org.gradle.api.Project;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import net.fabricmc.loom.util.Constants;
+import net.fabricmc.loom.util.telemetry.ChromeTraceWriter;
+import net.fabricmc.loom.util.telemetry.SpanRecord;
+import net.fabricmc.loom.util.telemetry.Telemetry;
+import net.fabricmc.loom.util.telemetry.TelemetryRecorder;
+
+/**
+ * Records {@link Telemetry} spans for the duration of the build and writes them out as a Chrome trace once it has finished.
+ * Enabled with the {@value Constants.Properties#TELEMETRY} property.
+ */
+public abstract class TelemetryBuildService implements BuildService<TelemetryBuildService.Params>, AutoCloseable {
+	private static final Logger LOGGER = Logging.getLogger(TelemetryBuildService.class);
+	private static final DateTimeFormatter FILE_NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+	public static final String NAME = "loomTelemetry";
+
+	private final TelemetryRecorder recorder;
+	private final String fileName;
+
+	public static void registerIfEnabled(Project project) {
+		if (!GradleUtils.getBooleanProperty(project, Constants.Properties.TELEMETRY)) {
+			return;
+		}
+
+		final Provider<TelemetryBuildService> provider = project.getGradle().getSharedServices().registerIfAbsent(NAME, TelemetryBuildService.class, spec -> {
+			spec.getParameters().getOutputDirectory().set(project.getRootProject().getLayout().getBuildDirectory().dir("loom-telemetry"));
+		});
+
+		// Start recording before anything is configured
+		provider.get();
+	}
+
+	public TelemetryBuildService() {
+		recorder = TelemetryRecorder.install();
+		fileName = "trace-%s.json".formatted(LocalDateTime.now().format(FILE_NAME_FORMAT));
+	}
+
+	@Override
+	public void close() {
+		final List<SpanRecord> spans = recorder.uninstall();
+		final Path output = getParameters().getOutputDirectory().get().getAsFile().toPath().resolve(fileName);
+
+		try {
+			ChromeTraceWriter.write(output, spans, recorder.getStartNanos());
+			LOGGER.lifecycle("Wrote {} Loom telemetry spans to {}", spans.size(), output);
+		} catch (IOException e) {
+			LOGGER.warn("Failed to write Loom telemetry to {}", output, e);
+		}
+	}
+
+	public interface Params extends BuildServiceParameters {
+		DirectoryProperty getOutputDirectory();
+	}
+}
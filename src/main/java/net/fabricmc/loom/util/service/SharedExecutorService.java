@@ -0,0 +1,268 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.util.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Owns the thread pools shared by every Loom subsystem, so concurrent tasks and subprojects do not each create their own.
+ *
+ * <p>CPU bound work runs on a {@link ForkJoinPool}, blocking work such as downloads runs on a separate I/O pool.
+ * The pools are sized from the {@code loom.threads} property by {@link net.fabricmc.loom.util.gradle.SharedExecutorBuildService},
+ * and are only resized between builds. Idle threads time out, so the pools cost nothing while no build is running.
+ *
+ * <p>The executors returned by {@link #cpu()} and {@link #io()} cannot be shut down by their users.
+ */
+public final class SharedExecutorService implements SharedService {
+	private static final Logger LOGGER = LoggerFactory.getLogger(SharedExecutorService.class);
+	private static final Object LOCK = new Object();
+	private static SharedExecutorService instance;
+	private static int users = 0;
+
+	private final int threads;
+	private final ForkJoinPool cpuPool;
+	private final ThreadPoolExecutor ioPool;
+	private final InstrumentedExecutor cpu;
+	private final InstrumentedExecutor io;
+
+	private SharedExecutorService(int threads) {
+		this.threads = threads;
+
+		final ClassLoader classLoader = SharedExecutorService.class.getClassLoader();
+		final AtomicInteger cpuThreadCount = new AtomicInteger();
+		final ForkJoinPool.ForkJoinWorkerThreadFactory cpuThreadFactory = pool -> {
+			ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+			thread.setName("Loom CPU " + cpuThreadCount.incrementAndGet());
+			thread.setContextClassLoader(classLoader);
+			thread.setDaemon(true);
+			return thread;
+		};
+
+		final AtomicInteger ioThreadCount = new AtomicInteger();
+		final ThreadFactory ioThreadFactory = runnable -> {
+			Thread thread = new Thread(runnable, "Loom IO " + ioThreadCount.incrementAndGet());
+			thread.setContextClassLoader(classLoader);
+			thread.setDaemon(true);
+			return thread;
+		};
+
+		// Blocking work needs more threads than there are cores
+		final int ioThreads = Math.max(4, threads * 2);
+
+		this.cpuPool = new ForkJoinPool(threads, cpuThreadFactory, null, false);
+		this.ioPool = new ThreadPoolExecutor(ioThreads, ioThreads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), ioThreadFactory);
+		this.ioPool.allowCoreThreadTimeOut(true);
+		this.cpu = new InstrumentedExecutor("cpu", threads, cpuPool);
+		this.io = new InstrumentedExecutor("io", ioThreads, ioPool);
+
+		LOGGER.debug("Created shared executors with {} cpu threads and {} io threads", threads, ioThreads);
+	}
+
+	/**
+	 * Returns the shared executors.
+	 *
+	 * <p>During a build these are the pools acquired by {@link net.fabricmc.loom.util.gradle.SharedExecutorBuildService}, which Gradle
+	 * creates at the start of every build, including configuration cache hits. Outside of a build, such as in tests, the default size is used.
+	 */
+	public static SharedExecutorService get() {
+		synchronized (LOCK) {
+			if (instance == null) {
+				instance = new SharedExecutorService(defaultThreads());
+			}
+
+			return instance;
+		}
+	}
+
+	/**
+	 * Called when a build starts using the shared executors.
+	 *
+	 * <p>The pools are only resized when no other build is using them. Idle pool threads time out,
+	 * so the pools are kept between builds rather than shut down while a caller may still hold them.
+	 *
+	 * @param threads the requested number of cpu threads, or a value less than 1 to use the default
+	 */
+	public static SharedExecutorService acquire(int threads) {
+		synchronized (LOCK) {
+			if (threads < 1) {
+				threads = defaultThreads();
+			}
+
+			if (users++ == 0 && (instance == null || instance.threads != threads)) {
+				if (instance != null) {
+					// Not in use by any other build, so it can be resized. Work already submitted to the old pools still completes.
+					instance.close();
+				}
+
+				instance = new SharedExecutorService(threads);
+			}
+
+			return instance;
+		}
+	}
+
+	/**
+	 * Called when a build has finished with the shared executors.
+	 */
+	public static void release() {
+		synchronized (LOCK) {
+			if (users == 0) {
+				throw new IllegalStateException("Shared executors released more times than acquired");
+			}
+
+			users--;
+		}
+	}
+
+	private static int defaultThreads() {
+		return Math.max(1, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @return an executor for CPU bound work, such as reading and transforming classes
+	 */
+	public ExecutorService cpu() {
+		return cpu;
+	}
+
+	/**
+	 * @return an executor for work that spends most of its time blocked, such as network requests
+	 */
+	public ExecutorService io() {
+		return io;
+	}
+
+	/**
+	 * @return the number of threads used for CPU bound work
+	 */
+	public int getCpuThreads() {
+		return threads;
+	}
+
+	public List<PoolMetrics> getMetrics() {
+		return List.of(cpu.metrics(), io.metrics());
+	}
+
+	@Override
+	public void close() {
+		LOGGER.debug("Shutting down shared executors");
+		cpuPool.shutdown();
+		ioPool.shutdown();
+	}
+
+	/**
+	 * @param name The name of the pool
+	 * @param threads The maximum number of threads in the pool
+	 * @param queueDepth The number of tasks currently waiting to run
+	 * @param peakQueueDepth The largest number of tasks that have been waiting to run at once
+	 * @param completedTasks The number of tasks that have finished running
+	 * @param busyTime The total time spent running tasks, summed across all threads
+	 */
+	public record PoolMetrics(String name, int threads, int queueDepth, int peakQueueDepth, long completedTasks, Duration busyTime) {
+		@Override
+		public String toString() {
+			return "%s: %d threads, %d queued (peak %d), %d tasks completed, %dms busy".formatted(name, threads, queueDepth, peakQueueDepth, completedTasks, busyTime.toMillis());
+		}
+	}
+
+	/**
+	 * Wraps a pool to record its queue depth and busy time, and to prevent users shutting it down.
+	 */
+	private static final class InstrumentedExecutor extends AbstractExecutorService {
+		private final String name;
+		private final int threads;
+		private final ExecutorService delegate;
+		private final AtomicInteger queued = new AtomicInteger();
+		private final AtomicInteger peakQueued = new AtomicInteger();
+		private final LongAdder completedTasks = new LongAdder();
+		private final LongAdder busyNanos = new LongAdder();
+
+		private InstrumentedExecutor(String name, int threads, ExecutorService delegate) {
+			this.name = name;
+			this.threads = threads;
+			this.delegate = delegate;
+		}
+
+		@Override
+		public void execute(Runnable command) {
+			peakQueued.accumulateAndGet(queued.incrementAndGet(), Math::max);
+
+			delegate.execute(() -> {
+				queued.decrementAndGet();
+				final long start = System.nanoTime();
+
+				try {
+					command.run();
+				} finally {
+					busyNanos.add(System.nanoTime() - start);
+					completedTasks.increment();
+				}
+			});
+		}
+
+		PoolMetrics metrics() {
+			return new PoolMetrics(name, threads, queued.get(), peakQueued.get(), completedTasks.sum(), Duration.ofNanos(busyNanos.sum()));
+		}
+
+		@Override
+		public void shutdown() {
+			throw new UnsupportedOperationException("Shared executors cannot be shut down");
+		}
+
+		@Override
+		public List<Runnable> shutdownNow() {
+			throw new UnsupportedOperationException("Shared executors cannot be shut down");
+		}
+
+		@Override
+		public boolean isShutdown() {
+			return delegate.isShutdown();
+		}
+
+		@Override
+		public boolean isTerminated() {
+			return delegate.isTerminated();
+		}
+
+		@Override
+		public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+			return delegate.awaitTermination(timeout, unit);
+		}
+	}
+}
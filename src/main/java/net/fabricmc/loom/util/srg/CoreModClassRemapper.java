@@ -25,12 +25,9 @@
 package net.fabricmc.loom.util.srg;
 
 import java.io.IOException;
-import java.io.Reader;
-import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -43,10 +40,11 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import org.gradle.api.Project;
 import org.gradle.api.logging.Logger;
+import org.jetbrains.annotations.Nullable;
 
 import net.fabricmc.loom.build.IntermediaryNamespaces;
-import net.fabricmc.loom.util.FileSystemUtil;
 import net.fabricmc.loom.util.ModPlatform;
+import net.fabricmc.loom.util.ZipRewriter;
 import net.fabricmc.loom.util.function.CollectionUtil;
 import net.fabricmc.mappingio.tree.MappingTree;
 
@@ -60,39 +58,54 @@ public final class CoreModClassRemapper {
 	private static final Pattern REDIRECT_FIELD_TO_METHOD_PATTERN = Pattern.compile("^(.*\\w+\\s*\\.\\s*redirectFieldToMethod\\s*\\(\\s*\\w+\\s*,\\s*')(\\w*)('\\s*,(?:\\s*'(\\w+)'\\s*|.*)\\).*)$");
 
 	public static void remapJar(Project project, ModPlatform platform, Path jar, MappingTree mappings) throws IOException {
-		final Logger logger = project.getLogger();
-		final String sourceNamespace = IntermediaryNamespaces.runtimeIntermediary(project);
-
-		try (FileSystemUtil.Delegate fs = FileSystemUtil.getJarFileSystem(jar, false)) {
-			Path coremodsJsonPath = fs.getPath("META-INF", "coremods.json");
+		try (ZipRewriter rewriter = ZipRewriter.open(jar)) {
+			remapJar(project.getLogger(), IntermediaryNamespaces.runtimeIntermediary(project), platform, rewriter, jar, mappings);
+			rewriter.apply();
+		}
+	}
 
-			if (Files.notExists(coremodsJsonPath)) {
-				logger.info(":no coremods in " + jar.getFileName());
-				return;
-			}
+	/**
+	 * Queues the coremod remapping on the rewriter, this does not use the project so it can be called from any thread.
+	 */
+	public static void remapJar(Logger logger, String sourceNamespace, ModPlatform platform, ZipRewriter rewriter, Path jar, MappingTree mappings) throws IOException {
+		final byte[] coremodsJsonBytes = rewriter.read("META-INF/coremods.json");
 
-			JsonObject coremodsJson;
+		if (coremodsJsonBytes == null) {
+			logger.info(":no coremods in " + jar.getFileName());
+			return;
+		}
 
-			try (Reader reader = Files.newBufferedReader(coremodsJsonPath)) {
-				coremodsJson = new Gson().fromJson(reader, JsonObject.class);
-			}
+		JsonObject coremodsJson = new Gson().fromJson(new String(coremodsJsonBytes, StandardCharsets.UTF_8), JsonObject.class);
 
-			for (Map.Entry<String, JsonElement> nameFileEntry : coremodsJson.entrySet()) {
-				String file = nameFileEntry.getValue().getAsString();
-				Path js = fs.getPath(file);
+		for (Map.Entry<String, JsonElement> nameFileEntry : coremodsJson.entrySet()) {
+			String file = nameFileEntry.getValue().getAsString();
 
-				if (Files.exists(js)) {
-					logger.info(":remapping coremod '" + file + "'");
-					remap(js, platform, mappings, sourceNamespace);
-				} else {
-					logger.warn("Coremod '" + file + "' listed in coremods.json but not found");
-				}
+			if (rewriter.contains(file)) {
+				logger.info(":remapping coremod '" + file + "'");
+				rewriter.transform(file, bytes -> {
+					final List<String> lines = new String(bytes, StandardCharsets.UTF_8).lines().toList();
+					final String remapped = remap(lines, platform, mappings, sourceNamespace);
+					return remapped != null ? remapped.getBytes(StandardCharsets.UTF_8) : bytes;
+				});
+			} else {
+				logger.warn("Coremod '" + file + "' listed in coremods.json but not found");
 			}
 		}
 	}
 
 	public static void remap(Path js, ModPlatform platform, MappingTree mappings, String sourceNamespace) throws IOException {
-		List<String> lines = Files.readAllLines(js);
+		final String remapped = remap(Files.readAllLines(js), platform, mappings, sourceNamespace);
+
+		if (remapped != null) {
+			Files.writeString(js, remapped, StandardCharsets.UTF_8);
+		}
+	}
+
+	/**
+	 * @return the remapped coremod, or null if nothing was remapped
+	 */
+	@Nullable
+	private static String remap(List<String> lines, ModPlatform platform, MappingTree mappings, String sourceNamespace) {
 		List<String> output = new ArrayList<>(lines);
 		String lastClassName = null;
 
@@ -138,10 +151,6 @@ public final class CoreModClassRemapper {
 			}
 		}
 
-		if (!lines.equals(output)) {
-			try (Writer writer = Files.newBufferedWriter(js, StandardCharsets.UTF_8, StandardOpenOption.WRITE)) {
-				writer.write(String.join("\n", output));
-			}
-		}
+		return lines.equals(output) ? null : String.join("\n", output);
 	}
 }
@@ -26,6 +26,7 @@ package net.fabricmc.loom.util.srg;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -33,11 +34,14 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.function.Consumer;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Multimaps;
 import org.jetbrains.annotations.Nullable;
 
 import net.fabricmc.loom.api.mappings.layered.MappingContext;
@@ -45,6 +49,7 @@ import net.fabricmc.loom.api.mappings.layered.MappingsNamespace;
 import net.fabricmc.loom.configuration.providers.forge.SrgProvider;
 import net.fabricmc.loom.util.MappingException;
 import net.fabricmc.loom.util.function.CollectionUtil;
+import net.fabricmc.loom.util.service.SharedExecutorService;
 import net.fabricmc.mappingio.FlatMappingVisitor;
 import net.fabricmc.mappingio.MappingReader;
 import net.fabricmc.mappingio.MappingVisitor;
@@ -73,6 +78,7 @@ public final class ForgeMappingsMerger {
 	private final boolean lenient;
 	private final @Nullable MemoryMappingTree extra;
 	private final ListMultimap<MethodKey, MethodData> methodsByNewNs;
+	private final int dstNamespaceCount;
 
 	private ForgeMappingsMerger(MemoryMappingTree newNs, MemoryMappingTree src, @Nullable ExtraMappings extraMappings, boolean lenient) throws IOException {
 		this.newNs = newNs;
@@ -104,6 +110,7 @@ public final class ForgeMappingsMerger {
 		newDstNamespaces.add(this.newNs.getDstNamespaces().get(0));
 		newDstNamespaces.addAll(this.src.getDstNamespaces());
 		this.output.visitNamespaces(this.src.getSrcNamespace(), newDstNamespaces);
+		this.dstNamespaceCount = newDstNamespaces.size();
 	}
 
 	private static MemoryMappingTree readInput(Path tiny) throws IOException {
@@ -124,7 +131,7 @@ public final class ForgeMappingsMerger {
 	 * will be the new namespace name of the mapping element.
 	 */
 	private String[] createDstNameArray(MappingTree.ElementMappingView newNs) {
-		String[] dstNames = new String[output.getDstNamespaces().size()];
+		String[] dstNames = new String[dstNamespaceCount];
 		dstNames[0] = newNs.getDstName(0);
 		return dstNames;
 	}
@@ -148,30 +155,17 @@ public final class ForgeMappingsMerger {
 	}
 
 	public MemoryMappingTree merge() throws IOException {
-		for (MappingTree.ClassMapping newNsClass : newNs.getClasses()) {
-			String[] dstNames = createDstNameArray(newNsClass);
-			MappingTree.ClassMapping tinyClass = src.getClass(newNsClass.getSrcName());
-			String comment = null;
-
-			if (tinyClass != null) {
-				copyDstNames(dstNames, tinyClass);
-				comment = tinyClass.getComment();
-			} else if (lenient) {
-				// Tiny class not found, we'll just use new namespace names
-				fillMappings(dstNames, newNsClass);
-			} else {
-				throw new MappingException("Could not find class " + newNsClass.getSrcName() + "|" + newNsClass.getDstName(0));
-			}
-
-			flatOutput.visitClass(newNsClass.getSrcName(), dstNames);
-			if (comment != null) flatOutput.visitClassComment(newNsClass.getSrcName(), comment);
+		// Classes are merged in parallel, as they only read the input trees.
+		// The results are then written to the output in the original class order, so the output does not depend on the thread count.
+		List<MergedClass> mergedClasses = mapInParallel(List.copyOf(newNs.getClasses()), this::mergeClass);
 
-			for (MappingTree.FieldMapping field : newNsClass.getFields()) {
-				mergeField(newNsClass, field, tinyClass);
+		for (MergedClass mergedClass : mergedClasses) {
+			for (FlatVisit visit : mergedClass.visits) {
+				visit.accept(flatOutput);
 			}
 
-			for (MappingTree.MethodMapping method : newNsClass.getMethods()) {
-				mergeMethod(newNsClass, method, tinyClass);
+			for (MethodEntry method : mergedClass.methods) {
+				methodsByNewNs.put(method.key(), method.data());
 			}
 		}
 
@@ -180,7 +174,41 @@ public final class ForgeMappingsMerger {
 		return output;
 	}
 
-	private void mergeField(MappingTree.ClassMapping newNsClass, MappingTree.FieldMapping newNsField, @Nullable MappingTree.ClassMapping tinyClass) throws IOException {
+	private MergedClass mergeClass(MappingTree.ClassMapping newNsClass) throws IOException {
+		MergedClass merged = new MergedClass();
+		String[] dstNames = createDstNameArray(newNsClass);
+		MappingTree.ClassMapping tinyClass = src.getClass(newNsClass.getSrcName());
+		String comment = null;
+
+		if (tinyClass != null) {
+			copyDstNames(dstNames, tinyClass);
+			comment = tinyClass.getComment();
+		} else if (lenient) {
+			// Tiny class not found, we'll just use new namespace names
+			fillMappings(dstNames, newNsClass);
+		} else {
+			throw new MappingException("Could not find class " + newNsClass.getSrcName() + "|" + newNsClass.getDstName(0));
+		}
+
+		merged.visit(visitor -> visitor.visitClass(newNsClass.getSrcName(), dstNames));
+
+		if (comment != null) {
+			final String classComment = comment;
+			merged.visit(visitor -> visitor.visitClassComment(newNsClass.getSrcName(), classComment));
+		}
+
+		for (MappingTree.FieldMapping field : newNsClass.getFields()) {
+			mergeField(merged, newNsClass, field, tinyClass);
+		}
+
+		for (MappingTree.MethodMapping method : newNsClass.getMethods()) {
+			mergeMethod(merged, newNsClass, method, tinyClass);
+		}
+
+		return merged;
+	}
+
+	private void mergeField(MergedClass merged, MappingTree.ClassMapping newNsClass, MappingTree.FieldMapping newNsField, @Nullable MappingTree.ClassMapping tinyClass) {
 		String[] dstNames = createDstNameArray(newNsField);
 		MappingTree.FieldMapping tinyField = null;
 		String srcDesc = newNsField.getSrcDesc();
@@ -205,14 +233,16 @@ public final class ForgeMappingsMerger {
 		}
 
 		if (srcDesc != null) {
-			flatOutput.visitField(newNsClass.getSrcName(), newNsField.getSrcName(), srcDesc, dstNames);
-			if (comment != null) flatOutput.visitFieldComment(newNsClass.getSrcName(), newNsField.getSrcName(), srcDesc, comment);
+			final String fieldDesc = srcDesc;
+			final String fieldComment = comment;
+			merged.visit(visitor -> visitor.visitField(newNsClass.getSrcName(), newNsField.getSrcName(), fieldDesc, dstNames));
+			if (fieldComment != null) merged.visit(visitor -> visitor.visitFieldComment(newNsClass.getSrcName(), newNsField.getSrcName(), fieldDesc, fieldComment));
 		} else if (!lenient) {
 			throw new MappingException("Could not find descriptor for field " + newNsClass.getDstName(0) + '.' + newNsField.getDstName(0));
 		}
 	}
 
-	private void mergeMethod(MappingTree.ClassMapping newNsClass, MappingTree.MethodMapping newNsMethod, @Nullable MappingTree.ClassMapping tinyClass) throws IOException {
+	private void mergeMethod(MergedClass merged, MappingTree.ClassMapping newNsClass, MappingTree.MethodMapping newNsMethod, @Nullable MappingTree.ClassMapping tinyClass) {
 		String[] dstNames = createDstNameArray(newNsMethod);
 		MappingTree.MethodMapping tinyMethod = null;
 		String intermediaryName, namedName;
@@ -258,30 +288,31 @@ public final class ForgeMappingsMerger {
 		}
 
 		if (!newNsMethod.getSrcName().equals(dstNames[0])) { // ignore <init> and the likes
-			methodsByNewNs.put(
+			merged.methods.add(new MethodEntry(
 					new MethodKey(dstNames[0], newNsMethod.getSrcDesc()),
 					new MethodData(newNsClass.getSrcName(), newNsMethod.getSrcName(), newNsMethod.getSrcDesc(), tinyMethod != null, intermediaryName, namedName)
-			);
+			));
 		}
 
-		flatOutput.visitMethod(newNsClass.getSrcName(), newNsMethod.getSrcName(), newNsMethod.getSrcDesc(), dstNames);
-		if (comment != null) flatOutput.visitMethodComment(newNsClass.getSrcName(), newNsMethod.getSrcName(), newNsMethod.getSrcDesc(), comment);
+		final String methodComment = comment;
+		merged.visit(visitor -> visitor.visitMethod(newNsClass.getSrcName(), newNsMethod.getSrcName(), newNsMethod.getSrcDesc(), dstNames));
+		if (methodComment != null) merged.visit(visitor -> visitor.visitMethodComment(newNsClass.getSrcName(), newNsMethod.getSrcName(), newNsMethod.getSrcDesc(), methodComment));
 
 		if (tinyMethod != null) {
 			for (MappingTree.MethodArgMapping arg : tinyMethod.getArgs()) {
-				String[] argDstNames = new String[output.getDstNamespaces().size()];
+				String[] argDstNames = new String[dstNamespaceCount];
 				copyDstNames(argDstNames, arg);
-				flatOutput.visitMethodArg(
+				merged.visit(visitor -> visitor.visitMethodArg(
 						newNsClass.getSrcName(), newNsMethod.getSrcName(), newNsMethod.getSrcDesc(),
 						arg.getArgPosition(), arg.getLvIndex(), arg.getSrcName(), argDstNames
-				);
+				));
 
 				if (arg.getComment() != null) {
-					flatOutput.visitMethodArgComment(
+					merged.visit(visitor -> visitor.visitMethodArgComment(
 							newNsClass.getSrcName(), newNsMethod.getSrcName(), newNsMethod.getSrcDesc(),
 							arg.getArgPosition(), arg.getLvIndex(), arg.getSrcName(),
 							arg.getComment()
-					);
+					));
 				}
 			}
 		}
@@ -290,36 +321,21 @@ public final class ForgeMappingsMerger {
 	/**
 	 * Resolves conflicts where multiple methods map to a method in the new namespace.
 	 * We will prefer the ones with the Tiny mappings.
+	 *
+	 * <p>The method groups are checked in parallel, and the non-preferred methods are then removed from the output in order.
 	 */
-	private void resolveConflicts() {
+	private void resolveConflicts() throws IOException {
 		List<String> conflicts = new ArrayList<>();
+		List<List<MethodData>> methodGroups = List.copyOf(Multimaps.asMap(methodsByNewNs).values());
+		List<Resolution> resolutions = mapInParallel(methodGroups, this::resolveConflict);
 
-		for (MethodKey methodKey : methodsByNewNs.keySet()) {
-			List<MethodData> methods = methodsByNewNs.get(methodKey);
-			if (methods.size() == 1) continue;
-
-			// Determine whether the names conflict
-			Set<String> foundNamedNames = new HashSet<>();
-
-			for (MethodData method : methods) {
-				foundNamedNames.add(method.namedName());
-			}
-
-			if (foundNamedNames.size() == 1) {
-				// No conflict, go on
-				continue;
-			}
-
-			// Find preferred method
-			@Nullable MethodData preferred = findPreferredMethod(methods, conflicts::add);
-			if (preferred == null) continue;
+		for (Resolution resolution : resolutions) {
+			conflicts.addAll(resolution.conflicts());
 
 			// Remove non-preferred methods
-			for (MethodData method : methods) {
-				if (method != preferred) {
-					MappingTree.ClassMapping clazz = output.getClass(method.obfOwner());
-					clazz.getMethods().removeIf(m -> m.getSrcName().equals(method.obfName()) && m.getSrcDesc().equals(method.obfDesc()));
-				}
+			for (MethodData method : resolution.removed()) {
+				MappingTree.ClassMapping clazz = output.getClass(method.obfOwner());
+				clazz.getMethods().removeIf(m -> m.getSrcName().equals(method.obfName()) && m.getSrcDesc().equals(method.obfDesc()));
 			}
 		}
 
@@ -328,6 +344,29 @@ public final class ForgeMappingsMerger {
 		}
 	}
 
+	private Resolution resolveConflict(List<MethodData> methods) {
+		if (methods.size() == 1) return Resolution.NONE;
+
+		// Determine whether the names conflict
+		Set<String> foundNamedNames = new HashSet<>();
+
+		for (MethodData method : methods) {
+			foundNamedNames.add(method.namedName());
+		}
+
+		if (foundNamedNames.size() == 1) {
+			// No conflict, go on
+			return Resolution.NONE;
+		}
+
+		// Find preferred method
+		List<String> conflicts = new ArrayList<>();
+		@Nullable MethodData preferred = findPreferredMethod(methods, conflicts::add);
+		if (preferred == null) return new Resolution(List.of(), conflicts);
+
+		return new Resolution(CollectionUtil.filter(methods, method -> method != preferred), conflicts);
+	}
+
 	private @Nullable MethodData findPreferredMethod(List<MethodData> methods, Consumer<String> conflictReporter) {
 		List<MethodData> hasTiny = CollectionUtil.filter(methods, MethodData::hasTiny);
 
@@ -414,6 +453,53 @@ public final class ForgeMappingsMerger {
 		}
 	}
 
+	/**
+	 * Applies the function to every item on the shared CPU pool, in chunks so that small items are not scheduled one by one.
+	 *
+	 * @return the results, in the same order as the items
+	 */
+	private static <T, R> List<R> mapInParallel(List<T> items, MergeFunction<T, R> function) throws IOException {
+		final SharedExecutorService executorService = SharedExecutorService.get();
+		final int chunkSize = Math.max(1, items.size() / (executorService.getCpuThreads() * 4));
+		final List<CompletableFuture<List<R>>> futures = new ArrayList<>();
+
+		for (int start = 0; start < items.size(); start += chunkSize) {
+			final List<T> chunk = items.subList(start, Math.min(start + chunkSize, items.size()));
+
+			futures.add(CompletableFuture.supplyAsync(() -> {
+				final List<R> results = new ArrayList<>(chunk.size());
+
+				for (T item : chunk) {
+					try {
+						results.add(function.apply(item));
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+
+				return results;
+			}, executorService.cpu()));
+		}
+
+		final List<R> results = new ArrayList<>(items.size());
+
+		for (CompletableFuture<List<R>> future : futures) {
+			try {
+				results.addAll(future.join());
+			} catch (CompletionException e) {
+				if (e.getCause() instanceof UncheckedIOException uncheckedIOException) {
+					throw uncheckedIOException.getCause();
+				} else if (e.getCause() instanceof RuntimeException runtimeException) {
+					throw runtimeException;
+				}
+
+				throw e;
+			}
+		}
+
+		return results;
+	}
+
 	public record ExtraMappings(Path path, MappingFormat format, String obfuscatedNamespace, String deobfuscatedNamespace) {
 		boolean hasCorrectNamespaces() {
 			return obfuscatedNamespace.equals(MappingsNamespace.OFFICIAL.toString()) && deobfuscatedNamespace.equals(MappingsNamespace.NAMED.toString());
@@ -431,6 +517,35 @@ public final class ForgeMappingsMerger {
 		}
 	}
 
+	@FunctionalInterface
+	private interface MergeFunction<T, R> {
+		R apply(T item) throws IOException;
+	}
+
+	@FunctionalInterface
+	private interface FlatVisit {
+		void accept(FlatMappingVisitor visitor) throws IOException;
+	}
+
+	/**
+	 * The output of merging a single class, applied to the output tree once every class has been merged.
+	 */
+	private static final class MergedClass {
+		private final List<FlatVisit> visits = new ArrayList<>();
+		private final List<MethodEntry> methods = new ArrayList<>();
+
+		void visit(FlatVisit visit) {
+			visits.add(visit);
+		}
+	}
+
+	private record MethodEntry(MethodKey key, MethodData data) {
+	}
+
+	private record Resolution(List<MethodData> removed, List<String> conflicts) {
+		static final Resolution NONE = new Resolution(List.of(), List.of());
+	}
+
 	private record MethodData(String obfOwner, String obfName, String obfDesc, boolean hasTiny, String intermediaryName, String namedName) {
 		@Override
 		public String toString() {
@@ -0,0 +1,119 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.util.telemetry;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Writes spans in the Chrome trace event format, which can be opened with {@code chrome://tracing} or Perfetto.
+ */
+public final class ChromeTraceWriter {
+	private ChromeTraceWriter() {
+	}
+
+	/**
+	 * @param startNanos the {@link System#nanoTime()} that timestamps in the trace are relative to
+	 */
+	public static void write(Path path, List<SpanRecord> spans, long startNanos) throws IOException {
+		Files.createDirectories(path.toAbsolutePath().getParent());
+
+		final long pid = ProcessHandle.current().pid();
+		final Map<Long, String> threadNames = new LinkedHashMap<>();
+
+		try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+				JsonWriter json = new JsonWriter(writer)) {
+			json.beginObject();
+			json.name("displayTimeUnit").value("ms");
+			json.name("traceEvents").beginArray();
+
+			for (SpanRecord span : spans) {
+				threadNames.putIfAbsent(span.threadId(), span.threadName());
+
+				json.beginObject();
+				json.name("name").value(span.name());
+				json.name("cat").value("loom");
+				json.name("ph").value("X");
+				json.name("ts").value(TimeUnit.NANOSECONDS.toMicros(span.startNanos() - startNanos));
+				json.name("dur").value(TimeUnit.NANOSECONDS.toMicros(span.wallNanos()));
+				json.name("pid").value(pid);
+				json.name("tid").value(span.threadId());
+
+				json.name("args").beginObject();
+				json.name("id").value(span.id());
+				json.name("parentId").value(span.parentId());
+
+				if (span.cpuNanos() >= 0) {
+					json.name("cpuMs").value(span.cpuNanos() / 1_000_000D);
+				}
+
+				if (span.allocatedBytes() >= 0) {
+					json.name("allocatedBytes").value(span.allocatedBytes());
+				}
+
+				if (span.bytesRead() > 0) {
+					json.name("bytesRead").value(span.bytesRead());
+				}
+
+				if (span.bytesWritten() > 0) {
+					json.name("bytesWritten").value(span.bytesWritten());
+				}
+
+				if (span.cacheHit() != null) {
+					json.name("cache").value(span.cacheHit() ? "hit" : "miss");
+				}
+
+				for (Map.Entry<String, String> attribute : span.attributes().entrySet()) {
+					json.name(attribute.getKey()).value(attribute.getValue());
+				}
+
+				json.endObject();
+				json.endObject();
+			}
+
+			for (Map.Entry<Long, String> thread : threadNames.entrySet()) {
+				json.beginObject();
+				json.name("name").value("thread_name");
+				json.name("ph").value("M");
+				json.name("pid").value(pid);
+				json.name("tid").value(thread.getKey());
+				json.name("args").beginObject().name("name").value(thread.getValue()).endObject();
+				json.endObject();
+			}
+
+			json.endArray();
+			json.endObject();
+		}
+	}
+}
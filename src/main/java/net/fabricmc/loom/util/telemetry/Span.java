@@ -0,0 +1,173 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.util.telemetry;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A timed section of work, spans opened while another is open on the same thread are nested in it.
+ *
+ * <p>Wall time, thread CPU time and bytes allocated by the thread are measured automatically. Bytes read and written
+ * and cache usage are reported by the code being measured.
+ */
+public class Span implements AutoCloseable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(Span.class);
+	static final Span NOOP = new Span();
+
+	private Span() {
+	}
+
+	public Span attribute(String key, Object value) {
+		return this;
+	}
+
+	public Span bytesRead(long bytes) {
+		return this;
+	}
+
+	public Span bytesWritten(long bytes) {
+		return this;
+	}
+
+	public Span cacheHit() {
+		return cache(true);
+	}
+
+	public Span cacheMiss() {
+		return cache(false);
+	}
+
+	protected Span cache(boolean hit) {
+		return this;
+	}
+
+	@Override
+	public void close() {
+	}
+
+	static final class Recording extends Span {
+		private final SpanCollector collector;
+		private final long id;
+		@Nullable
+		private final Recording parent;
+		private final String name;
+		private final Thread thread;
+		private final long startNanos;
+		private final long startCpuNanos;
+		private final long startAllocatedBytes;
+		private final Map<String, String> attributes = new LinkedHashMap<>();
+		private long bytesRead;
+		private long bytesWritten;
+		@Nullable
+		private Boolean cacheHit;
+		private volatile boolean closed = false;
+
+		Recording(SpanCollector collector, long id, @Nullable Recording parent, String name) {
+			this.collector = collector;
+			this.id = id;
+			this.parent = parent;
+			this.name = name;
+			this.thread = Thread.currentThread();
+			this.startNanos = System.nanoTime();
+			this.startCpuNanos = collector.currentThreadCpuTime();
+			this.startAllocatedBytes = collector.currentThreadAllocatedBytes();
+		}
+
+		@Override
+		public synchronized Span attribute(String key, Object value) {
+			attributes.put(key, String.valueOf(value));
+			return this;
+		}
+
+		@Override
+		public synchronized Span bytesRead(long bytes) {
+			bytesRead += bytes;
+			return this;
+		}
+
+		@Override
+		public synchronized Span bytesWritten(long bytes) {
+			bytesWritten += bytes;
+			return this;
+		}
+
+		@Override
+		protected synchronized Span cache(boolean hit) {
+			cacheHit = hit;
+			return this;
+		}
+
+		@Override
+		public void close() {
+			final SpanRecord record;
+			final boolean sameThread = Thread.currentThread() == thread;
+
+			synchronized (this) {
+				if (closed) {
+					return;
+				}
+
+				closed = true;
+
+				if (!sameThread) {
+					// Recorded anyway, the times measured for the thread are not meaningful
+					LOGGER.debug("Span {} was closed on a different thread to the one that opened it", name);
+				}
+
+				record = new SpanRecord(
+						id,
+						parent != null ? parent.id : 0,
+						name,
+						thread.getId(),
+						thread.getName(),
+						startNanos,
+						System.nanoTime() - startNanos,
+						startCpuNanos < 0 || !sameThread ? -1 : collector.currentThreadCpuTime() - startCpuNanos,
+						startAllocatedBytes < 0 || !sameThread ? -1 : collector.currentThreadAllocatedBytes() - startAllocatedBytes,
+						bytesRead,
+						bytesWritten,
+						cacheHit,
+						Map.copyOf(attributes)
+				);
+			}
+
+			collector.closed(this, record, sameThread);
+		}
+
+		boolean isClosed() {
+			return closed;
+		}
+
+		@Nullable
+		Recording parent() {
+			return parent;
+		}
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.util.telemetry;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Collects the spans of every {@link TelemetryRecorder} session that is recording at the same time.
+ */
+final class SpanCollector {
+	private final AtomicLong nextId = new AtomicLong(1);
+	private final ThreadLocal<Span.Recording> current = new ThreadLocal<>();
+	private final Queue<SpanRecord> records = new ConcurrentLinkedQueue<>();
+	private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+	@Nullable
+	private final com.sun.management.ThreadMXBean allocationBean;
+	private final boolean cpuTimeSupported;
+
+	SpanCollector() {
+		cpuTimeSupported = threadBean.isCurrentThreadCpuTimeSupported() && threadBean.isThreadCpuTimeEnabled();
+
+		if (threadBean instanceof com.sun.management.ThreadMXBean sunThreadBean && sunThreadBean.isThreadAllocatedMemorySupported() && sunThreadBean.isThreadAllocatedMemoryEnabled()) {
+			allocationBean = sunThreadBean;
+		} else {
+			allocationBean = null;
+		}
+	}
+
+	/**
+	 * @return the spans that were opened after the given {@link System#nanoTime()}, ordered by their start time
+	 */
+	List<SpanRecord> recordsSince(long startNanos) {
+		final List<SpanRecord> result = new ArrayList<>();
+
+		for (SpanRecord record : records) {
+			if (record.startNanos() - startNanos >= 0) {
+				result.add(record);
+			}
+		}
+
+		result.sort(Comparator.comparingLong(SpanRecord::startNanos));
+		return result;
+	}
+
+	Span open(String name) {
+		final Span.Recording span = new Span.Recording(this, nextId.getAndIncrement(), openSpan(), name);
+		current.set(span);
+		return span;
+	}
+
+	Span current() {
+		final Span.Recording span = openSpan();
+		return span != null ? span : Span.NOOP;
+	}
+
+	/**
+	 * @return the innermost span on this thread, skipping spans that were closed on another thread
+	 */
+	@Nullable
+	private Span.Recording openSpan() {
+		Span.Recording span = current.get();
+
+		while (span != null && span.isClosed()) {
+			span = span.parent();
+		}
+
+		return span;
+	}
+
+	void closed(Span.Recording span, SpanRecord record, boolean sameThread) {
+		records.add(record);
+
+		if (!sameThread) {
+			// The opening thread skips the span once it sees it has been closed
+			return;
+		}
+
+		if (span.parent() != null) {
+			current.set(span.parent());
+		} else {
+			current.remove();
+		}
+	}
+
+	long currentThreadCpuTime() {
+		return cpuTimeSupported ? threadBean.getCurrentThreadCpuTime() : -1;
+	}
+
+	long currentThreadAllocatedBytes() {
+		return allocationBean != null ? allocationBean.getCurrentThreadAllocatedBytes() : -1;
+	}
+}
@@ -0,0 +1,42 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.util.telemetry;
+
+import java.util.Map;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A closed span.
+ *
+ * @param parentId the id of the enclosing span, or 0 for a root span
+ * @param startNanos the {@link System#nanoTime()} when the span was opened
+ * @param cpuNanos the CPU time used by the thread, or -1 when not supported
+ * @param allocatedBytes the bytes allocated by the thread, or -1 when not supported
+ * @param cacheHit whether the span's work was satisfied from a cache, or null when unknown
+ */
+public record SpanRecord(long id, long parentId, String name, long threadId, String threadName, long startNanos, long wallNanos, long cpuNanos, long allocatedBytes,
+							long bytesRead, long bytesWritten, @Nullable Boolean cacheHit, Map<String, String> attributes) {
+}
@@ -0,0 +1,80 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.util.telemetry;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Entry point for recording {@link Span}s, spans are only recorded while a {@link TelemetryRecorder} is installed.
+ *
+ * <p>Usage:
+ * <pre>{@code
+ * try (Span span = Telemetry.span("remapJar")) {
+ *     span.attribute("type", type);
+ *     ...
+ * }
+ * }</pre>
+ */
+public final class Telemetry {
+	@Nullable
+	private static volatile SpanCollector collector;
+
+	private Telemetry() {
+	}
+
+	/**
+	 * Opens a span as a child of the current span on this thread, it should be closed on the same thread.
+	 */
+	public static Span span(String name) {
+		final SpanCollector collector = Telemetry.collector;
+
+		if (collector == null) {
+			return Span.NOOP;
+		}
+
+		return collector.open(name);
+	}
+
+	/**
+	 * @return the innermost open span on this thread, or a span that records nothing
+	 */
+	public static Span current() {
+		final SpanCollector collector = Telemetry.collector;
+
+		if (collector == null) {
+			return Span.NOOP;
+		}
+
+		return collector.current();
+	}
+
+	public static boolean isEnabled() {
+		return collector != null;
+	}
+
+	static void install(@Nullable SpanCollector collector) {
+		Telemetry.collector = collector;
+	}
+}
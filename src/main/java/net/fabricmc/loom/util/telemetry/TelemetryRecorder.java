@@ -0,0 +1,88 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.util.telemetry;
+
+import java.util.List;
+
+/**
+ * A recording session, such as for a single build, that collects the spans opened while it is installed.
+ *
+ * <p>Sessions that overlap, such as concurrent builds in the same daemon, share a single collector instead of replacing each other.
+ * Each session only returns the spans opened after it started, and the collector is removed once every session has been uninstalled.
+ */
+public final class TelemetryRecorder {
+	private static final Object LOCK = new Object();
+	private static SpanCollector collector;
+	private static int sessions = 0;
+
+	private final SpanCollector sessionCollector;
+	private final long startNanos = System.nanoTime();
+	private boolean installed = true;
+
+	private TelemetryRecorder(SpanCollector sessionCollector) {
+		this.sessionCollector = sessionCollector;
+	}
+
+	/**
+	 * Starts a recording session, installing the shared collector if no other session is recording.
+	 */
+	public static TelemetryRecorder install() {
+		synchronized (LOCK) {
+			if (sessions++ == 0) {
+				collector = new SpanCollector();
+				Telemetry.install(collector);
+			}
+
+			return new TelemetryRecorder(collector);
+		}
+	}
+
+	/**
+	 * Stops this session, spans that are still open are not included.
+	 *
+	 * @return the spans recorded since the session started, ordered by their start time
+	 */
+	public List<SpanRecord> uninstall() {
+		synchronized (LOCK) {
+			if (installed) {
+				installed = false;
+
+				if (--sessions == 0) {
+					Telemetry.install(null);
+					collector = null;
+				}
+			}
+		}
+
+		return sessionCollector.recordsSince(startNanos);
+	}
+
+	/**
+	 * @return the {@link System#nanoTime()} when the session started
+	 */
+	public long getStartNanos() {
+		return startNanos;
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.integration
+
+import com.google.common.hash.Hashing
+import com.google.common.io.Files
+import spock.lang.Specification
+
+import net.fabricmc.loom.test.util.GradleProjectTestTrait
+
+import static net.fabricmc.loom.test.LoomTestConstants.*
+import static org.gradle.testkit.runner.TaskOutcome.SUCCESS
+
+class ParallelModRemappingTest extends Specification implements GradleProjectTestTrait {
+	def "parallel and serial mod remapping produce identical jars"() {
+		setup:
+		def gradle = gradleProject(project: "localFileDependency", version: DEFAULT_GRADLE)
+		def remappedMods = new File(gradle.projectDir, ".gradle/loom-cache/remapped_mods")
+
+		when:
+		// The global cache is disabled so both builds remap every mod
+		def parallel = gradle.run(task: "build", args: ["-Ploom.disableGlobalModCache=true"])
+		def parallelJars = hashJars(remappedMods)
+
+		remappedMods.deleteDir()
+
+		def serial = gradle.run(task: "build", args: ["-Ploom.disableGlobalModCache=true", "-Ploom.disableParallelModRemapping=true"])
+		def serialJars = hashJars(remappedMods)
+
+		then:
+		parallel.task(":build").outcome == SUCCESS
+		serial.task(":build").outcome == SUCCESS
+		parallelJars.size() > 1
+		parallelJars == serialJars
+	}
+
+	private static Map<String, String> hashJars(File dir) {
+		Map<String, String> hashes = [:]
+
+		dir.eachFileRecurse { file ->
+			if (file.name.endsWith(".jar")) {
+				hashes[dir.toPath().relativize(file.toPath()).toString()] = Files.asByteSource(file).hash(Hashing.sha256()).toString()
+			}
+		}
+
+		return hashes
+	}
+}
@@ -0,0 +1,171 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import net.fabricmc.loom.configuration.providers.mappings.BinaryMappingTree
+import net.fabricmc.mappingio.MappingReader
+import net.fabricmc.mappingio.tree.MappingTreeView
+import net.fabricmc.mappingio.tree.MemoryMappingTree
+
+class BinaryMappingTreeTest extends Specification {
+	@TempDir
+	Path tempDir
+
+	def "round trip"() {
+		given:
+		def tiny = tempDir.resolve("mappings.tiny")
+		def binary = tempDir.resolve("mappings.tiny.bin")
+		Files.writeString(tiny, MAPPINGS)
+		def tree = new MemoryMappingTree()
+		MappingReader.read(tiny, tree)
+
+		when:
+		BinaryMappingTree.write(tree, binary, tiny)
+		def mappings = BinaryMappingTree.open(binary, tiny)
+		def intermediary = mappings.getNamespaceId("intermediary")
+		def named = mappings.getNamespaceId("named")
+
+		then:
+		mappings.srcNamespace == "official"
+		mappings.dstNamespaces == ["intermediary", "named"]
+		mappings.getNamespaceId("missing") == MappingTreeView.NULL_NAMESPACE_ID
+		mappings.classCount == 3
+
+		def classDef = mappings.getClass(1)
+		classDef.getName(MappingTreeView.SRC_NAMESPACE_ID) == "a"
+		classDef.getName(intermediary) == "net/minecraft/class_1"
+		classDef.getName(named) == "net/minecraft/Example"
+
+		classDef.fields.size() == 1
+		classDef.fields[0].getName(named) == "value"
+		classDef.fields[0].getDesc(intermediary) == "Lnet/minecraft/class_2;"
+		classDef.fields[0].getDesc(named) == "Lnet/minecraft/Other;"
+
+		classDef.methods.size() == 1
+		classDef.methods[0].getName(named) == "run"
+		classDef.methods[0].getDesc(named) == "(Lnet/minecraft/Other;)V"
+		classDef.methods[0].args.size() == 1
+		classDef.methods[0].args[0].lvIndex == 1
+		classDef.methods[0].args[0].getName(intermediary) == null
+		classDef.methods[0].args[0].getName(named) == "other"
+
+		// Names missing in a namespace stay missing
+		mappings.getClass(0).getName(intermediary) == "net/minecraft/class_3"
+		mappings.getClass(0).getName(named) == null
+	}
+
+	def "stale binary mappings are not used"() {
+		given:
+		def tiny = tempDir.resolve("mappings.tiny")
+		def binary = tempDir.resolve("mappings.tiny.bin")
+		Files.writeString(tiny, MAPPINGS)
+		def tree = new MemoryMappingTree()
+		MappingReader.read(tiny, tree)
+		BinaryMappingTree.write(tree, binary, tiny)
+
+		when:
+		Files.writeString(tiny, MAPPINGS + "\n")
+
+		then:
+		BinaryMappingTree.open(binary, tiny) == null
+		BinaryMappingTree.open(tempDir.resolve("missing.bin"), tiny) == null
+	}
+
+	def "binary mappings are stale after an edit that keeps the size and modified time"() {
+		given:
+		def tiny = tempDir.resolve("mappings.tiny")
+		def binary = tempDir.resolve("mappings.tiny.bin")
+		Files.writeString(tiny, MAPPINGS)
+		def tree = new MemoryMappingTree()
+		MappingReader.read(tiny, tree)
+		BinaryMappingTree.write(tree, binary, tiny)
+		def lastModified = Files.getLastModifiedTime(tiny)
+
+		when:
+		Files.writeString(tiny, MAPPINGS.replace("value", "other"))
+		Files.setLastModifiedTime(tiny, lastModified)
+
+		then:
+		Files.size(tiny) == MAPPINGS.length()
+		BinaryMappingTree.open(binary, tiny) == null
+	}
+
+	def "look up fields by source name"() {
+		given:
+		def tiny = tempDir.resolve("mappings.tiny")
+		def binary = tempDir.resolve("mappings.tiny.bin")
+		Files.writeString(tiny, MAPPINGS)
+		def tree = new MemoryMappingTree()
+		MappingReader.read(tiny, tree)
+		BinaryMappingTree.write(tree, binary, tiny)
+
+		when:
+		def mappings = BinaryMappingTree.open(binary, tiny)
+		def intermediary = mappings.getNamespaceId("intermediary")
+
+		then:
+		mappings.getClass("a").getName(intermediary) == "net/minecraft/class_1"
+		mappings.getClass("missing") == null
+		mappings.getField("a", "f", "Lb;").getName(intermediary) == tree.getField("a", "f", "Lb;").getName(intermediary)
+		mappings.getField("a", "f", null).getName(intermediary) == "field_1"
+		mappings.getField("a", "f", "I") == null
+		mappings.getField("a", "missing", null) == null
+		mappings.getField("missing", "f", null) == null
+	}
+
+	def "binary mappings can be replaced while open"() {
+		given:
+		def tiny = tempDir.resolve("mappings.tiny")
+		def binary = tempDir.resolve("mappings.tiny.bin")
+		Files.writeString(tiny, MAPPINGS)
+		def tree = new MemoryMappingTree()
+		MappingReader.read(tiny, tree)
+		BinaryMappingTree.write(tree, binary, tiny)
+		def mappings = BinaryMappingTree.open(binary, tiny)
+
+		when:
+		BinaryMappingTree.write(tree, binary, tiny)
+		Files.delete(binary)
+
+		then:
+		mappings.getClass(1).getName(MappingTreeView.SRC_NAMESPACE_ID) == "a"
+	}
+
+	private static final String MAPPINGS = """
+tiny\t2\t0\tofficial\tintermediary\tnamed
+c\tc\tnet/minecraft/class_3\t
+c\ta\tnet/minecraft/class_1\tnet/minecraft/Example
+\tf\tLb;\ta\tfield_1\tvalue
+\tm\t(Lb;)V\tb\tmethod_1\trun
+\t\tp\t1\t\t\tother
+c\tb\tnet/minecraft/class_2\tnet/minecraft/Other
+""".trim()
+}
@@ -0,0 +1,128 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.attribute.FileTime
+import java.time.Duration
+import java.time.Instant
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import net.fabricmc.loom.util.BlobStore
+
+class BlobStoreTest extends Specification {
+	@TempDir
+	Path testPath
+
+	def "copy links identical files"() {
+		given:
+		def store = new BlobStore(testPath.resolve("blobs"))
+		def source = testPath.resolve("source.jar")
+		Files.writeString(source, "Hello World")
+
+		when:
+		def first = store.copy(source, testPath.resolve("a/first.jar"))
+		def second = store.copy(source, testPath.resolve("b/second.jar"))
+
+		then:
+		Files.readString(first) == "Hello World"
+		Files.readString(second) == "Hello World"
+		Files.isSameFile(first, second)
+		Files.isSameFile(first, store.put(source))
+	}
+
+	def "copy replaces existing target"() {
+		given:
+		def store = new BlobStore(testPath.resolve("blobs"))
+		def source = testPath.resolve("source.jar")
+		def target = testPath.resolve("target.jar")
+		Files.writeString(source, "New")
+		Files.writeString(target, "Old")
+
+		when:
+		store.copy(source, target)
+
+		then:
+		Files.readString(target) == "New"
+	}
+
+	def "gc keeps referenced blobs"() {
+		given:
+		def store = new BlobStore(testPath.resolve("blobs"))
+		def source = testPath.resolve("source.jar")
+		Files.writeString(source, "Hello World")
+		def target = store.copy(source, testPath.resolve("target.jar"))
+		makeOld(store.put(source))
+
+		when:
+		def result = store.gc()
+
+		then:
+		result.removed() == 0
+		result.kept() == 1
+		Files.readString(target) == "Hello World"
+	}
+
+	def "gc removes unreferenced blobs"() {
+		given:
+		def store = new BlobStore(testPath.resolve("blobs"))
+		def source = testPath.resolve("source.jar")
+		Files.writeString(source, "Hello World")
+		def target = store.copy(source, testPath.resolve("target.jar"))
+		def blob = store.put(source)
+		makeOld(blob)
+		Files.delete(target)
+
+		when:
+		def result = store.gc()
+
+		then:
+		result.removed() == 1
+		result.removedBytes() == 11
+		Files.notExists(blob)
+	}
+
+	def "gc keeps new blobs"() {
+		given:
+		def store = new BlobStore(testPath.resolve("blobs"))
+		def source = testPath.resolve("source.jar")
+		Files.writeString(source, "Hello World")
+		def blob = store.put(source)
+
+		when:
+		def result = store.gc()
+
+		then:
+		result.removed() == 0
+		Files.exists(blob)
+	}
+
+	private static void makeOld(Path path) {
+		Files.setLastModifiedTime(path, FileTime.from(Instant.now().minus(Duration.ofDays(1))))
+	}
+}
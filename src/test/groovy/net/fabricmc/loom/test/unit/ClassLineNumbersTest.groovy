@@ -46,6 +46,54 @@ class ClassLineNumbersTest extends Specification {
 		lineMap["net/minecraft/server/dedicated/ServerPropertiesLoader"].maxLineDest() == 30
 	}
 
+	def "remap line"() {
+		when:
+		def reader = new BufferedReader(new StringReader(LINE_MAP))
+		def entry = ClassLineNumbers.readMappings(reader).lineMap()["net/minecraft/server/dedicated/ServerPropertiesLoader"]
+
+		then:
+		// Lines are remapped to the next mapped line
+		entry.remap(1) == 15
+		entry.remap(11) == 15
+		entry.remap(13) == 20
+		entry.remap(24) == 28
+		// Lines past the max line are mapped to the max destination line
+		entry.remap(25) == 30
+		entry.remap(100) == 30
+	}
+
+	def "binary linemap round trip"() {
+		given:
+		def reader = new BufferedReader(new StringReader(LINE_MAP))
+		def lineNumbers = ClassLineNumbers.readMappings(reader)
+		def bytes = new ByteArrayOutputStream()
+
+		when:
+		lineNumbers.writeBinary(new DataOutputStream(bytes))
+		def read = ClassLineNumbers.readBinary(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())))
+
+		def text = new StringWriter()
+		lineNumbers.write(text)
+
+		then:
+		read == lineNumbers
+		bytes.size() < text.toString().length()
+	}
+
+	def "entry line map behaves like a map"() {
+		when:
+		def entry = new ClassLineNumbers.Entry("net/test/TestClass", 10, 12, [1: 2, 4: 7])
+
+		then:
+		entry.lineMap() instanceof ClassLineNumbers.LineMap
+		entry.lineMap() == [1: 2, 4: 7]
+		entry.lineMap().hashCode() == [1: 2, 4: 7].hashCode()
+		entry.lineMap().get(4) == 7
+		entry.lineMap().get(5) == null
+		entry.lines().getDestLine(5) == -1
+		entry == new ClassLineNumbers.Entry("net/test/TestClass", 10, 12, new LinkedHashMap([1: 2, 4: 7]))
+	}
+
 	private static final String LINE_MAP = """
 net/minecraft/server/dedicated/ServerPropertiesHandler\t203\t187
 \t48\t187
@@ -0,0 +1,193 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.attribute.FileTime
+import java.time.Duration
+import java.time.Instant
+import java.util.zip.ZipEntry
+import java.util.zip.ZipFile
+import java.util.zip.ZipOutputStream
+
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Opcodes
+import org.objectweb.asm.tree.ClassNode
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import net.fabricmc.loom.task.service.ClasspathIndexService
+
+class ClasspathIndexServiceTest extends Specification {
+	@TempDir
+	Path tempDir
+
+	def "index strips code and resources"() {
+		given:
+		def jar = jar('library.jar', [
+			'com/example/Library.class': classBytes('com/example/Library'),
+			'com/example/': null,
+			'assets/example/lang.json': '{}'.bytes,
+		])
+		def service = createService()
+
+		when:
+		def indexed = service.index([jar])
+		def entries = readJar(indexed[0])
+		def node = new ClassNode()
+		new ClassReader(entries['com/example/Library.class']).accept(node, 0)
+
+		then:
+		indexed.size() == 1
+		indexed[0] != jar
+		entries.keySet() == ['com/example/Library.class'] as Set
+		node.superName == 'java/lang/Object'
+		node.fields*.name == ['value']
+		node.methods*.name == ['<init>', 'getValue']
+		node.methods.every { it.instructions.size() == 0 }
+	}
+
+	def "jars with the same contents share an index"() {
+		given:
+		def contents = ['com/example/Library.class': classBytes('com/example/Library')]
+		def first = jar('first.jar', contents)
+		def second = jar('second.jar', contents)
+		def other = jar('other.jar', ['com/example/Other.class': classBytes('com/example/Other')])
+
+		when:
+		def indexed = createService().index([first, second, other])
+		def reindexed = createService().index([second])
+
+		then:
+		indexed.size() == 2
+		reindexed == [indexed[0]]
+	}
+
+	def "directories and invalid jars are kept"() {
+		given:
+		def directory = Files.createDirectories(tempDir.resolve('classes'))
+		def invalid = Files.writeString(tempDir.resolve('invalid.jar'), 'not a jar')
+		def missing = tempDir.resolve('missing.jar')
+
+		when:
+		def indexed = createService().index([directory, invalid, missing])
+
+		then:
+		indexed == [directory, invalid, missing]
+	}
+
+	def "jars of the build are only indexed for the build"() {
+		given:
+		def jar = jar('project/build/libs/library.jar', ['com/example/Library.class': classBytes('com/example/Library')])
+		def service = createService()
+
+		when:
+		def indexed = service.index([jar])
+		def indexedDuringBuild = Files.exists(indexed[0])
+		service.close()
+
+		then:
+		indexed[0] != jar
+		!indexed[0].startsWith(tempDir.resolve('index'))
+		indexedDuringBuild
+		Files.notExists(indexed[0])
+	}
+
+	def "unused indexes are removed"() {
+		given:
+		def used = jar('used.jar', ['com/example/Library.class': classBytes('com/example/Library')])
+		def unused = jar('unused.jar', ['com/example/Other.class': classBytes('com/example/Other')])
+		def indexed = createService().index([used, unused])
+		def old = FileTime.from(Instant.now() - Duration.ofDays(60))
+		indexed.each { Files.setLastModifiedTime(it, old) }
+
+		when:
+		def service = createService()
+		service.index([used])
+		service.close()
+
+		then:
+		Files.exists(indexed[0])
+		Files.notExists(indexed[1])
+	}
+
+	// Jars in the temp dir are treated as dependencies, and jars in the project directory as part of the build
+	private ClasspathIndexService createService() {
+		return new ClasspathIndexService(tempDir.resolve('index'), tempDir, tempDir.resolve('project'))
+	}
+
+	private Path jar(String name, Map<String, byte[]> entries) {
+		def path = tempDir.resolve(name)
+		Files.createDirectories(path.parent)
+
+		new ZipOutputStream(Files.newOutputStream(path)).withCloseable { out ->
+			entries.each { entryName, bytes ->
+				out.putNextEntry(new ZipEntry(entryName))
+
+				if (bytes != null) {
+					out.write(bytes)
+				}
+
+				out.closeEntry()
+			}
+		}
+
+		return path
+	}
+
+	private static Map<String, byte[]> readJar(Path path) {
+		new ZipFile(path.toFile()).withCloseable { zipFile ->
+			zipFile.entries().toList().collectEntries { [(it.name): zipFile.getInputStream(it).bytes] }
+		}
+	}
+
+	private static byte[] classBytes(String name) {
+		def writer = new ClassWriter(ClassWriter.COMPUTE_MAXS)
+		writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, name, null, 'java/lang/Object', null)
+		writer.visitSource('Library.java', null)
+		writer.visitField(Opcodes.ACC_PRIVATE, 'value', 'I', null, null).visitEnd()
+
+		def init = writer.visitMethod(Opcodes.ACC_PUBLIC, '<init>', '()V', null, null)
+		init.visitCode()
+		init.visitVarInsn(Opcodes.ALOAD, 0)
+		init.visitMethodInsn(Opcodes.INVOKESPECIAL, 'java/lang/Object', '<init>', '()V', false)
+		init.visitInsn(Opcodes.RETURN)
+		init.visitMaxs(0, 0)
+		init.visitEnd()
+
+		def getValue = writer.visitMethod(Opcodes.ACC_PUBLIC, 'getValue', '()I', null, null)
+		getValue.visitCode()
+		getValue.visitVarInsn(Opcodes.ALOAD, 0)
+		getValue.visitFieldInsn(Opcodes.GETFIELD, name, 'value', 'I')
+		getValue.visitInsn(Opcodes.IRETURN)
+		getValue.visitMaxs(0, 0)
+		getValue.visitEnd()
+
+		writer.visitEnd()
+		return writer.toByteArray()
+	}
+}
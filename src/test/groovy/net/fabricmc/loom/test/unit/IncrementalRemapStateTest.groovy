@@ -0,0 +1,208 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.concurrent.ConcurrentHashMap
+import java.util.function.BiConsumer
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Opcodes
+import org.objectweb.asm.tree.ClassNode
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import net.fabricmc.loom.task.IncrementalRemapState
+import net.fabricmc.tinyremapper.IMappingProvider
+import net.fabricmc.tinyremapper.TinyRemapper
+
+class IncrementalRemapStateTest extends Specification {
+	@TempDir
+	Path tempDir
+
+	def "first remap remaps all classes"() {
+		given:
+		def jar = jar('input.jar', classes())
+		def state = new IncrementalRemapState(tempDir.resolve('state'), 'key')
+
+		when:
+		def plan = state.plan(jar)
+		def output = remap(state, jar)
+
+		then:
+		plan.full()
+		output.keySet() == ['test/Base', 'test/Child', 'test/GrandChild', 'test/User', 'test/Renamed'] as Set
+	}
+
+	def "unchanged jar reuses all classes"() {
+		given:
+		def jar = jar('input.jar', classes())
+		def state = new IncrementalRemapState(tempDir.resolve('state'), 'key')
+		def first = remap(state, jar)
+
+		when:
+		def plan = state.plan(jar)
+		def output = remap(state, jar)
+
+		then:
+		!plan.full()
+		plan.remap().isEmpty()
+		output.keySet() == first.keySet()
+		output.every { name, bytes -> Arrays.equals(bytes, first[name]) }
+	}
+
+	def "changed class remaps its subclasses and users"() {
+		given:
+		def state = new IncrementalRemapState(tempDir.resolve('state'), 'key')
+		remap(state, jar('input.jar', classes()))
+
+		def changed = classes()
+		changed['test/Base'] = classBytes('test/Base', 'java/lang/Object', [value: 'I', added: 'I'])
+		def jar = jar('changed.jar', changed)
+
+		when:
+		def plan = state.plan(jar)
+		def output = remap(state, jar)
+
+		then:
+		!plan.full()
+		plan.remap() == ['test/Base', 'test/Child', 'test/GrandChild', 'test/User'] as Set
+		output.keySet() == ['test/Base', 'test/Child', 'test/GrandChild', 'test/User', 'test/Renamed'] as Set
+		fields(output['test/Base']) == ['value', 'added']
+	}
+
+	def "removed class remaps its users"() {
+		given:
+		def state = new IncrementalRemapState(tempDir.resolve('state'), 'key')
+		remap(state, jar('input.jar', classes()))
+
+		def changed = classes()
+		changed.remove('test/Other')
+		def jar = jar('changed.jar', changed)
+
+		when:
+		def plan = state.plan(jar)
+		def output = remap(state, jar)
+
+		then:
+		plan.remap() == ['test/User'] as Set
+		output.keySet() == ['test/Base', 'test/Child', 'test/GrandChild', 'test/User'] as Set
+	}
+
+	def "incremental remap matches a full remap"() {
+		given:
+		def state = new IncrementalRemapState(tempDir.resolve('state'), 'key')
+		remap(state, jar('input.jar', classes()))
+
+		def changed = classes()
+		changed['test/Base'] = classBytes('test/Base', 'java/lang/Object', [value: 'I', other: 'Ltest/Other;'])
+		changed.remove('test/GrandChild')
+		changed['test/Added'] = classBytes('test/Added', 'test/Child', [others: '[Ltest/Other;'])
+		def jar = jar('changed.jar', changed)
+
+		when:
+		def incremental = remap(state, jar)
+		def full = remap(new IncrementalRemapState(tempDir.resolve('full'), 'key'), jar)
+
+		then:
+		incremental.keySet() == ['test/Base', 'test/Child', 'test/Added', 'test/User', 'test/Renamed'] as Set
+		incremental.keySet() == full.keySet()
+		incremental.every { name, bytes -> Arrays.equals(bytes, full[name]) }
+	}
+
+	def "changed key remaps all classes"() {
+		given:
+		def jar = jar('input.jar', classes())
+		remap(new IncrementalRemapState(tempDir.resolve('state'), 'key'), jar)
+
+		when:
+		def plan = new IncrementalRemapState(tempDir.resolve('state'), 'other').plan(jar)
+
+		then:
+		plan.full()
+	}
+
+	private static Map<String, byte[]> remap(IncrementalRemapState state, Path jar) {
+		def mappings = { IMappingProvider.MappingAcceptor out -> out.acceptClass('test/Other', 'test/Renamed') } as IMappingProvider
+		def remapper = TinyRemapper.newRemapper().withMappings(mappings).build()
+
+		try {
+			def tag = remapper.createInputTag()
+			state.readInputs(remapper, tag, jar)
+
+			Map<String, byte[]> output = new ConcurrentHashMap<>()
+			state.apply(remapper, tag, { String name, byte[] bytes -> output.put(name, bytes) } as BiConsumer<String, byte[]>)
+			return output
+		} finally {
+			remapper.finish()
+		}
+	}
+
+	private static Map<String, byte[]> classes() {
+		return [
+			'test/Base': classBytes('test/Base', 'java/lang/Object'),
+			'test/Child': classBytes('test/Child', 'test/Base'),
+			'test/GrandChild': classBytes('test/GrandChild', 'test/Child'),
+			'test/User': classBytes('test/User', 'java/lang/Object', [child: 'Ltest/Child;', other: 'Ltest/Other;']),
+			'test/Other': classBytes('test/Other', 'java/lang/Object'),
+		]
+	}
+
+	private Path jar(String name, Map<String, byte[]> classes) {
+		def path = tempDir.resolve(name)
+
+		new ZipOutputStream(Files.newOutputStream(path)).withCloseable { out ->
+			classes.each { className, bytes ->
+				out.putNextEntry(new ZipEntry(className + '.class'))
+				out.write(bytes)
+				out.closeEntry()
+			}
+		}
+
+		return path
+	}
+
+	private static List<String> fields(byte[] bytes) {
+		def node = new ClassNode()
+		new ClassReader(bytes).accept(node, 0)
+		return node.fields*.name
+	}
+
+	private static byte[] classBytes(String name, String superName, Map<String, String> fields = [value: 'I']) {
+		def writer = new ClassWriter(0)
+		writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, name, null, superName, null)
+
+		fields.each { fieldName, descriptor ->
+			writer.visitField(Opcodes.ACC_PUBLIC, fieldName, descriptor, null, null).visitEnd()
+		}
+
+		writer.visitEnd()
+		return writer.toByteArray()
+	}
+}
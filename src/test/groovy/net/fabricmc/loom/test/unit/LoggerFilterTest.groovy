@@ -0,0 +1,116 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit
+
+import java.util.concurrent.CountDownLatch
+
+import spock.lang.Specification
+
+import net.fabricmc.loom.util.LoggerFilter
+
+class LoggerFilterTest extends Specification {
+	PrintStream originalOut
+	ByteArrayOutputStream output
+
+	def setup() {
+		originalOut = System.out
+		output = new ByteArrayOutputStream()
+		System.setOut(new PrintStream(output, true))
+	}
+
+	def cleanup() {
+		System.setOut(originalOut)
+	}
+
+	def "only suppresses the output of the current thread"() {
+		when:
+		LoggerFilter.withCurrentThreadOutputSuppressed {
+			System.out.println("suppressed")
+
+			def thread = new Thread({ System.out.println("other thread") })
+			thread.start()
+			thread.join()
+		}
+
+		System.out.println("after")
+
+		then:
+		output.toString().readLines() == ["other thread", "after"]
+	}
+
+	def "nested suppression"() {
+		when:
+		LoggerFilter.withCurrentThreadOutputSuppressed {
+			LoggerFilter.withCurrentThreadOutputSuppressed {
+				System.out.println("inner")
+			}
+
+			System.out.println("outer")
+		}
+
+		System.out.println("after")
+
+		then:
+		output.toString().readLines() == ["after"]
+	}
+
+	def "overlapping callers do not undo each other"() {
+		given:
+		def firstStarted = new CountDownLatch(1)
+		def secondStarted = new CountDownLatch(1)
+		def firstFinished = new CountDownLatch(1)
+
+		def first = new Thread({
+			LoggerFilter.withCurrentThreadOutputSuppressed {
+				firstStarted.countDown()
+				secondStarted.await()
+				System.out.println("first")
+			}
+
+			firstFinished.countDown()
+		})
+		def second = new Thread({
+			firstStarted.await()
+
+			LoggerFilter.withCurrentThreadOutputSuppressed {
+				secondStarted.countDown()
+				// The first caller finishing must not restore the unfiltered stream
+				firstFinished.await()
+				System.out.println("second")
+			}
+		})
+
+		when:
+		first.start()
+		second.start()
+		first.join()
+		second.join()
+
+		System.out.println("after")
+
+		then:
+		output.toString().readLines() == ["after"]
+	}
+}
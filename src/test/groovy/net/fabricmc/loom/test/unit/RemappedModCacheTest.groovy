@@ -0,0 +1,137 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.attribute.FileTime
+import java.time.Duration
+import java.time.Instant
+
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Opcodes
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import net.fabricmc.loom.configuration.mods.ArtifactMetadata
+import net.fabricmc.loom.configuration.mods.RemappedModCache
+import net.fabricmc.loom.configuration.mods.dependency.ModDependency
+import net.fabricmc.loom.test.util.ZipTestUtils
+import net.fabricmc.loom.util.ModPlatform
+
+import static org.mockito.Mockito.mock
+import static org.mockito.Mockito.when
+
+class RemappedModCacheTest extends Specification {
+	@TempDir
+	Path tempDir
+
+	def "abi hash ignores method bodies"() {
+		given:
+		def original = ZipTestUtils.createZipFromBytes(["com/example/Mod.class": classBytes("com/example/Mod", "value", 1)])
+		def changedBody = ZipTestUtils.createZipFromBytes(["com/example/Mod.class": classBytes("com/example/Mod", "value", 2)])
+		def changedSignature = ZipTestUtils.createZipFromBytes(["com/example/Mod.class": classBytes("com/example/Mod", "otherValue", 1)])
+
+		when:
+		def originalHash = RemappedModCache.hashAbi(original, ModPlatform.FABRIC)
+		def changedBodyHash = RemappedModCache.hashAbi(changedBody, ModPlatform.FABRIC)
+		def changedSignatureHash = RemappedModCache.hashAbi(changedSignature, ModPlatform.FABRIC)
+
+		then:
+		originalHash == changedBodyHash
+		originalHash != changedSignatureHash
+	}
+
+	def "cache key only depends on the abi of the other mods"() {
+		given:
+		def modA = ZipTestUtils.createZipFromBytes(["com/example/A.class": classBytes("com/example/A", "value", 1)])
+		def modAChanged = ZipTestUtils.createZipFromBytes(["com/example/A.class": classBytes("com/example/A", "value", 2)])
+		def modB = ZipTestUtils.createZipFromBytes(["com/example/B.class": classBytes("com/example/B", "value", 1)])
+		def modBChangedBody = ZipTestUtils.createZipFromBytes(["com/example/B.class": classBytes("com/example/B", "value", 2)])
+		def modBChangedSignature = ZipTestUtils.createZipFromBytes(["com/example/B.class": classBytes("com/example/B", "otherValue", 1)])
+
+		when:
+		def key = cache(modA, modB).getCachePath(dependency(modA))
+		def keyChangedBody = cache(modA, modBChangedBody).getCachePath(dependency(modA))
+		def keyChangedSignature = cache(modA, modBChangedSignature).getCachePath(dependency(modA))
+		def keyChangedSelf = cache(modAChanged, modB).getCachePath(dependency(modAChanged))
+
+		then:
+		key == keyChangedBody
+		key != keyChangedSignature
+		key != keyChangedSelf
+	}
+
+	def "prune deletes entries that have not been used recently"() {
+		given:
+		def old = entry("ab/old.jar", 40)
+		def recent = entry("cd/recent.jar", 10)
+		def cache = cache()
+
+		when:
+		cache.prune()
+		// Entries that become old shortly after pruning are kept until the next prune
+		def oldAfterPrune = entry("ef/old.jar", 40)
+		cache.prune()
+
+		then:
+		!Files.exists(old)
+		Files.exists(recent)
+		Files.exists(oldAfterPrune)
+	}
+
+	private Path entry(String name, int ageDays) {
+		def path = tempDir.resolve(name)
+		Files.createDirectories(path.parent)
+		Files.writeString(path, name)
+		Files.setLastModifiedTime(path, FileTime.from(Instant.now().minus(Duration.ofDays(ageDays))))
+		return path
+	}
+
+	private RemappedModCache cache(Path... classpath) {
+		Map<Path, String> classpathAbi = classpath.collectEntries { [it.toAbsolutePath(), RemappedModCache.hashAbi(it, ModPlatform.FABRIC)] }
+		return new RemappedModCache(tempDir, "environment", classpathAbi)
+	}
+
+	private static ModDependency dependency(Path input) {
+		def dependency = mock(ModDependency.class)
+		when(dependency.getInputFile()).thenReturn(input)
+		when(dependency.getMetadata()).thenReturn(new ArtifactMetadata(true, ArtifactMetadata.RemapRequirements.DEFAULT, null, ArtifactMetadata.MixinRemapType.MIXIN))
+		return dependency
+	}
+
+	private static byte[] classBytes(String name, String methodName, int value) {
+		def writer = new ClassWriter(ClassWriter.COMPUTE_MAXS)
+		writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null)
+		def method = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, methodName, "()I", null, null)
+		method.visitCode()
+		method.visitLdcInsn(value)
+		method.visitInsn(Opcodes.IRETURN)
+		method.visitMaxs(0, 0)
+		method.visitEnd()
+		writer.visitEnd()
+		return writer.toByteArray()
+	}
+}
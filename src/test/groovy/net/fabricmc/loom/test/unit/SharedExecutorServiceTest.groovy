@@ -0,0 +1,84 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit
+
+import spock.lang.Specification
+
+import net.fabricmc.loom.util.service.SharedExecutorService
+
+class SharedExecutorServiceTest extends Specification {
+	def "acquire returns the executors used by get"() {
+		when:
+		def acquired = SharedExecutorService.acquire(3)
+
+		then:
+		SharedExecutorService.get().is(acquired)
+		acquired.cpuThreads == 3
+
+		cleanup:
+		SharedExecutorService.release()
+	}
+
+	def "pools are not resized while in use"() {
+		given:
+		def first = SharedExecutorService.acquire(2)
+
+		when:
+		def second = SharedExecutorService.acquire(5)
+
+		then:
+		second.is(first)
+		!first.cpu().isShutdown()
+
+		cleanup:
+		SharedExecutorService.release()
+		SharedExecutorService.release()
+	}
+
+	def "pools are resized once released"() {
+		given:
+		def first = SharedExecutorService.acquire(2)
+		SharedExecutorService.release()
+
+		when:
+		def second = SharedExecutorService.acquire(4)
+
+		then:
+		!second.is(first)
+		second.cpuThreads == 4
+		first.cpu().isShutdown()
+
+		cleanup:
+		SharedExecutorService.release()
+	}
+
+	def "release without acquire fails"() {
+		when:
+		SharedExecutorService.release()
+
+		then:
+		thrown IllegalStateException
+	}
+}
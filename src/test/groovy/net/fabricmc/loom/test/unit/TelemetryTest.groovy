@@ -0,0 +1,145 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit
+
+import java.nio.file.Path
+
+import groovy.json.JsonSlurper
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import net.fabricmc.loom.util.telemetry.ChromeTraceWriter
+import net.fabricmc.loom.util.telemetry.Telemetry
+import net.fabricmc.loom.util.telemetry.TelemetryRecorder
+
+class TelemetryTest extends Specification {
+	@TempDir
+	Path tempDir
+
+	def "spans are no-ops when telemetry is disabled"() {
+		when:
+		def span = Telemetry.span("test")
+		span.attribute("key", "value").cacheHit()
+		span.close()
+
+		then:
+		!Telemetry.isEnabled()
+		Telemetry.current().is(span)
+	}
+
+	def "records nested spans"() {
+		given:
+		def recorder = TelemetryRecorder.install()
+
+		when:
+		def outer = Telemetry.span("outer")
+		outer.attribute("project", ":test")
+
+		def inner = Telemetry.span("inner")
+		Telemetry.current().bytesRead(10).bytesWritten(20).cacheMiss()
+		inner.close()
+
+		Telemetry.current().cacheHit()
+		outer.close()
+
+		def records = recorder.uninstall()
+
+		then:
+		!Telemetry.isEnabled()
+		records*.name() == ["outer", "inner"]
+		records[0].parentId() == 0
+		records[1].parentId() == records[0].id()
+		records[0].attributes() == [project: ":test"]
+		records[0].cacheHit()
+		records[1].bytesRead() == 10
+		records[1].bytesWritten() == 20
+		!records[1].cacheHit()
+		records[0].wallNanos() >= records[1].wallNanos()
+	}
+
+	def "writes a chrome trace"() {
+		given:
+		def recorder = TelemetryRecorder.install()
+		def trace = tempDir.resolve("trace.json")
+
+		when:
+		def span = Telemetry.span("mergeJars")
+		span.attribute("type", "merged").bytesWritten(100)
+		span.close()
+
+		ChromeTraceWriter.write(trace, recorder.uninstall(), recorder.startNanos)
+		def json = new JsonSlurper().parse(trace.toFile())
+
+		then:
+		def events = json.traceEvents.findAll { it.ph == "X" }
+		events.size() == 1
+		events[0].name == "mergeJars"
+		events[0].args.type == "merged"
+		events[0].args.bytesWritten == 100
+		json.traceEvents.any { it.ph == "M" && it.name == "thread_name" }
+	}
+
+	def "overlapping recorders do not replace each other"() {
+		given:
+		def first = TelemetryRecorder.install()
+
+		when:
+		Telemetry.span("first").close()
+		def second = TelemetryRecorder.install()
+		Telemetry.span("second").close()
+
+		def firstRecords = first.uninstall()
+		def enabled = Telemetry.isEnabled()
+		Telemetry.span("third").close()
+		def secondRecords = second.uninstall()
+
+		then:
+		enabled
+		!Telemetry.isEnabled()
+		firstRecords*.name() == ["first", "second"]
+		secondRecords*.name() == ["second", "third"]
+	}
+
+	def "spans can be closed on another thread"() {
+		given:
+		def recorder = TelemetryRecorder.install()
+
+		when:
+		def outer = Telemetry.span("outer")
+		def inner = Telemetry.span("inner")
+		def thread = new Thread({ inner.close() })
+		thread.start()
+		thread.join()
+
+		def current = Telemetry.current()
+		outer.close()
+		def records = recorder.uninstall()
+
+		then:
+		current.is(outer)
+		records*.name() == ["outer", "inner"]
+		records[1].cpuNanos() == -1
+	}
+}
@@ -0,0 +1,298 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.FileSystems
+import java.nio.file.Files
+import java.nio.file.NoSuchFileException
+import java.nio.file.Path
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.zip.ZipEntry
+import java.util.zip.ZipFile
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import net.fabricmc.loom.util.ZipRewriter
+import net.fabricmc.loom.util.ZipUtils
+
+class ZipRewriterTest extends Specification {
+	@TempDir
+	Path tempDir
+
+	def "applies all transforms in a single pass"() {
+		given:
+		def dir = tempDir.resolve("input")
+		Files.createDirectories(dir.resolve("sub"))
+		Files.writeString(dir.resolve("a.txt"), "a")
+		Files.writeString(dir.resolve("sub/b.txt"), "b")
+		Files.writeString(dir.resolve("delete.txt"), "delete")
+		def zip = tempDir.resolve("test.zip")
+		ZipUtils.pack(dir, zip)
+
+		when:
+		def rewriter = ZipRewriter.open(zip)
+		def transformed = rewriter
+				.transform("a.txt", { (new String(it) + "a").bytes } as ZipUtils.UnsafeUnaryOperator<byte[]>)
+				.transform("a.txt", { (new String(it) + "!").bytes } as ZipUtils.UnsafeUnaryOperator<byte[]>)
+				.transform("missing.txt", { it } as ZipUtils.UnsafeUnaryOperator<byte[]>)
+				.delete("delete.txt")
+				.put("new/c.txt", "c".bytes)
+				.apply()
+		rewriter.close()
+
+		then:
+		transformed == 2
+		read(zip, "a.txt") == "aa!"
+		read(zip, "sub/b.txt") == "b"
+		read(zip, "new/c.txt") == "c"
+		!ZipUtils.contains(zip, "delete.txt")
+		!ZipUtils.contains(zip, "missing.txt")
+		entryNames(zip).containsAll(["new/", "new/c.txt"])
+	}
+
+	def "copies untouched entries"() {
+		given:
+		def zip = tempDir.resolve("test.zip")
+		ZipUtils.add(zip, "stored.txt", "This entry is not modified")
+
+		when:
+		ZipUtils.add(zip, "other.txt", "other")
+
+		then:
+		read(zip, "stored.txt") == "This entry is not modified"
+		read(zip, "other.txt") == "other"
+	}
+
+	def "reads entries before they are transformed"() {
+		given:
+		def zip = tempDir.resolve("test.zip")
+		ZipUtils.add(zip, "test.txt", "original")
+
+		when:
+		def rewriter = ZipRewriter.open(zip)
+		rewriter.put("test.txt", "replaced".bytes)
+		def original = new String(rewriter.read("test.txt"), StandardCharsets.UTF_8)
+		def contains = rewriter.contains("/test.txt")
+		def missing = rewriter.read("missing.txt")
+		rewriter.apply()
+		rewriter.close()
+
+		then:
+		original == "original"
+		contains
+		missing == null
+		read(zip, "test.txt") == "replaced"
+	}
+
+	def "rewrites to another file"() {
+		given:
+		def input = tempDir.resolve("input.zip")
+		def output = tempDir.resolve("output.zip")
+
+		if (zip64) {
+			try (def fs = FileSystems.newFileSystem(input, [create: true, forceZIP64End: true])) {
+				Files.writeString(fs.getPath("a.txt"), "a")
+				Files.writeString(fs.getPath("b.txt"), "b")
+			}
+		} else {
+			ZipUtils.add(input, "a.txt", "a")
+			ZipUtils.add(input, "b.txt", "b")
+		}
+
+		Files.writeString(output, "replaced")
+
+		when:
+		def rewriter = ZipRewriter.open(input, output)
+		def transformed = rewriter
+				.transform("a.txt", { "transformed".bytes } as ZipUtils.UnsafeUnaryOperator<byte[]>)
+				.apply()
+		rewriter.close()
+
+		then:
+		transformed == 1
+		read(output, "a.txt") == "transformed"
+		read(output, "b.txt") == "b"
+		read(input, "a.txt") == "a"
+		Files.list(tempDir).withCloseable { it.count() } == 2
+
+		where:
+		zip64 << [false, true]
+	}
+
+	def "rewrites to another file without transforms"() {
+		given:
+		def input = tempDir.resolve("input.zip")
+		def output = tempDir.resolve("output.zip")
+		ZipUtils.add(input, "a.txt", "a")
+
+		when:
+		def rewriter = ZipRewriter.open(input, output)
+		def transformed = rewriter.apply()
+		rewriter.close()
+
+		then:
+		transformed == 0
+		read(output, "a.txt") == "a"
+	}
+
+	def "replace missing entry"() {
+		given:
+		def zip = tempDir.resolve("test.zip")
+		ZipUtils.add(zip, "test.txt", "test")
+
+		when:
+		ZipUtils.replace(zip, "missing.txt", "replaced".bytes)
+
+		then:
+		thrown NoSuchFileException
+		read(zip, "test.txt") == "test"
+	}
+
+	def "rewrite zip64"() {
+		given:
+		def zip = tempDir.resolve("test.zip")
+
+		try (def fs = FileSystems.newFileSystem(zip, [create: true, forceZIP64End: true])) {
+			Files.writeString(fs.getPath("test.txt"), "test")
+		}
+
+		when:
+		def transformed = ZipUtils.transform(zip, ["test.txt": { "transformed".bytes } as ZipUtils.UnsafeUnaryOperator<byte[]>])
+
+		then:
+		transformed == 1
+		read(zip, "test.txt") == "transformed"
+	}
+
+	def "parallel rewrite keeps entry order"() {
+		given:
+		def dir = tempDir.resolve("input")
+		Files.createDirectories(dir)
+
+		for (i in 0..<200) {
+			Files.writeString(dir.resolve("file${i}.txt"), "file${i}")
+		}
+
+		def zip = tempDir.resolve("test.zip")
+		ZipUtils.pack(dir, zip)
+		def names = entryNames(zip)
+
+		def executor = Executors.newFixedThreadPool(4)
+
+		when:
+		def rewriter = ZipRewriter.open(zip).parallel(executor)
+
+		// Transform every other entry, so modified and copied entries are interleaved
+		for (i in (0..<200).step(2)) {
+			rewriter.transform("file${i}.txt", { (new String(it) + "!").bytes } as ZipUtils.UnsafeUnaryOperator<byte[]>)
+		}
+
+		def transformed = rewriter.apply()
+		rewriter.close()
+
+		then:
+		transformed == 100
+		entryNames(zip) == names
+		read(zip, "file0.txt") == "file0!"
+		read(zip, "file1.txt") == "file1"
+		read(zip, "file198.txt") == "file198!"
+
+		cleanup:
+		executor.shutdown()
+	}
+
+	def "parallel rewrite waits for pending entries when one fails"() {
+		given:
+		def dir = tempDir.resolve("input")
+		Files.createDirectories(dir)
+
+		for (i in 0..<200) {
+			Files.writeString(dir.resolve("file${i}.txt"), "file${i}")
+		}
+
+		def zip = tempDir.resolve("test.zip")
+		ZipUtils.pack(dir, zip)
+		def original = Files.readAllBytes(zip)
+
+		def executor = Executors.newFixedThreadPool(4)
+		def running = new AtomicInteger()
+
+		when:
+		def rewriter = ZipRewriter.open(zip).parallel(executor)
+		rewriter.transform("file0.txt", { throw new IOException("Failed to transform") } as ZipUtils.UnsafeUnaryOperator<byte[]>)
+
+		for (i in 1..<200) {
+			rewriter.transform("file${i}.txt", {
+				running.incrementAndGet()
+				Thread.sleep(10)
+				running.decrementAndGet()
+				return it
+			} as ZipUtils.UnsafeUnaryOperator<byte[]>)
+		}
+
+		try {
+			rewriter.apply()
+		} finally {
+			// No entry may still be reading from the zip once apply has failed
+			assert running.get() == 0
+			rewriter.close()
+		}
+
+		then:
+		def e = thrown(IOException)
+		e.message == "Failed to transform"
+		Files.readAllBytes(zip) == original
+
+		cleanup:
+		executor.shutdown()
+	}
+
+	def "added entries are reproducible"() {
+		given:
+		def first = tempDir.resolve("first.zip")
+		def second = tempDir.resolve("second.zip")
+
+		when:
+		ZipUtils.add(first, "dir/test.txt", "test")
+		Thread.sleep(2000)
+		ZipUtils.add(second, "dir/test.txt", "test")
+
+		then:
+		Files.readAllBytes(first) == Files.readAllBytes(second)
+	}
+
+	private static String read(Path zip, String path) {
+		return new String(ZipUtils.unpack(zip, path), StandardCharsets.UTF_8)
+	}
+
+	private static List<String> entryNames(Path zip) {
+		try (def zipFile = new ZipFile(zip.toFile())) {
+			return zipFile.entries().collect { ZipEntry entry -> entry.name }
+		}
+	}
+}
@@ -26,6 +26,7 @@ package net.fabricmc.loom.test.unit
 
 import java.nio.charset.StandardCharsets
 import java.nio.file.Files
+import java.nio.file.NoSuchFileException
 import java.time.ZoneId
 
 import com.google.gson.JsonObject
@@ -190,6 +191,38 @@ class ZipUtilsTest extends Specification {
 		"Etc/GMT+9" 		| _
 	}
 
+	def "write zip matches reprocessed zip"() {
+		given:
+		def dir = Files.createTempDirectory("loom-zip-test")
+		def zip = File.createTempFile("loom-zip-test", ".zip").toPath()
+		def written = File.createTempFile("loom-zip-test", ".zip").toPath()
+		Files.writeString(dir.resolve("b.txt"), "second")
+		Files.writeString(dir.resolve("a.txt"), "first")
+		ZipUtils.pack(dir, zip)
+		ZipReprocessorUtil.reprocessZip(zip, true, false)
+
+		when:
+		ZipReprocessorUtil.writeZip(written, ["b.txt": dir.resolve("b.txt"), "a.txt": dir.resolve("a.txt")], true, false)
+
+		then:
+		ZipUtils.unpack(written, "a.txt") == "first".bytes
+		ZipUtils.unpack(written, "b.txt") == "second".bytes
+		Checksum.sha1Hex(written) == Checksum.sha1Hex(zip)
+	}
+
+	def "write zip removes the temporary file on failure"() {
+		given:
+		def dir = Files.createTempDirectory("loom-zip-test")
+		def written = dir.resolve("written.zip")
+
+		when:
+		ZipReprocessorUtil.writeZip(written, ["missing.txt": dir.resolve("missing.txt")], true, false)
+
+		then:
+		thrown NoSuchFileException
+		!Files.exists(dir.resolve("written.zip.tmp"))
+	}
+
 	def "transform json"() {
 		given:
 		def dir = File.createTempDir()
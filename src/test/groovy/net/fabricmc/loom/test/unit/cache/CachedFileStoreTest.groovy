@@ -89,11 +89,14 @@ class CachedFileStoreTest extends Specification {
 			Files.setLastModifiedTime(root.resolve(key), FileTime.from(Instant.now().minusSeconds(i)))
 		}
 
-		store.prune()
+		def result = store.prune()
 
 		then:
+		result.removedEntries() == 250
 		Files.exists(root.resolve("test_0"))
 		Files.exists(root.resolve("test_100"))
+		Files.exists(root.resolve("test_249"))
+		Files.notExists(root.resolve("test_250"))
 		Files.notExists(root.resolve("test_300"))
 	}
 
@@ -118,6 +121,30 @@ class CachedFileStoreTest extends Specification {
 		Files.notExists(root.resolve("test_300"))
 	}
 
+	def "pruneLargeFiles"() {
+		given:
+		// Each entry is 11 bytes
+		def cacheRules = new CachedFileStoreImpl.CacheRules(1000, 11 * 100, Duration.ofDays(7))
+		def store = new CachedFileStoreImpl(root, BYTE_ARRAY_SERIALIZER, cacheRules)
+		when:
+
+		for (i in 0..<500) {
+			def key = "test_" + i
+			store.putEntry(key, "Hello world".bytes)
+			// Higher files are older and should be removed.
+			Files.setLastModifiedTime(root.resolve(key), FileTime.from(Instant.now().minusSeconds(i)))
+		}
+
+		def result = store.prune()
+
+		then:
+		result.removedEntries() == 400
+		result.removedBytes() == 400 * 11
+		Files.exists(root.resolve("test_0"))
+		Files.exists(root.resolve("test_99"))
+		Files.notExists(root.resolve("test_100"))
+	}
+
 	private static CachedFileStore.EntrySerializer<byte[]> BYTE_ARRAY_SERIALIZER = new CachedFileStore.EntrySerializer<byte[]>() {
 		@Override
 		byte[] read(Path path) throws IOException {
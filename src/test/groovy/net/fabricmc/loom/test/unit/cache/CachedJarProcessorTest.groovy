@@ -25,6 +25,9 @@
 package net.fabricmc.loom.test.unit.cache
 
 import java.nio.file.Files
+import java.nio.file.Path
+import java.util.concurrent.ConcurrentHashMap
+import java.util.zip.ZipFile
 
 import spock.lang.Specification
 
@@ -32,7 +35,10 @@ import net.fabricmc.loom.decompilers.ClassLineNumbers
 import net.fabricmc.loom.decompilers.cache.CachedData
 import net.fabricmc.loom.decompilers.cache.CachedFileStore
 import net.fabricmc.loom.decompilers.cache.CachedJarProcessor
+import net.fabricmc.loom.decompilers.cache.ClassEntry
+import net.fabricmc.loom.decompilers.cache.JarWalker
 import net.fabricmc.loom.test.util.ZipTestUtils
+import net.fabricmc.loom.util.FileSystemUtil
 import net.fabricmc.loom.util.ZipUtils
 
 class CachedJarProcessorTest extends Specification {
@@ -231,6 +237,95 @@ class CachedJarProcessorTest extends Specification {
 		0 * _ // Strict mock
 	}
 
+	def "prepare job hashes and looks up many classes in input order"() {
+		given:
+		// Enough classes for many lookup batches to be in flight, every tenth class has an inner class
+		def entries = [:]
+		def uncachedClasses = []
+
+		for (i in 0..<1000) {
+			def name = String.format("net/fabricmc/Class%04d", i)
+			def classNames = i % 10 == 0 ? ["${name}.class", "${name}\$Inner.class"] : ["${name}.class"]
+
+			classNames.each { entries[it.toString()] = "${it} ${i}".toString() }
+
+			if (i % 2 == 1) {
+				uncachedClasses.addAll(classNames*.toString())
+			}
+		}
+
+		def jar = ZipTestUtils.createZip(entries)
+		def store = new ConcurrentHashMap<String, CachedData>()
+		def cache = [getEntry: { String key -> store.get(key) }] as CachedFileStore<CachedData>
+		def processor = new CachedJarProcessor(cache, "abc123")
+
+		// The hashes as computed one class at a time from a zip file system
+		def expectedHashes = FileSystemUtil.getJarFileSystem(jar).withCloseable { fs ->
+			JarWalker.findClasses(fs).collectEntries { ClassEntry entry -> [entry.sourcesFileName(), "abc123/" + entry.hash(fs.getRoot())] }
+		}
+
+		when:
+		def fullRequest = processor.prepareJob(jar)
+		def fullJob = fullRequest.job() as CachedJarProcessor.FullWorkJob
+
+		// Cache every even class
+		expectedHashes.eachWithIndex { name, hash, i ->
+			if (i % 2 == 0) {
+				def className = name.substring(0, name.length() - ".java".length())
+				store[hash] = new CachedData(className, "sources ${i}".toString(), lineNumber(className))
+			}
+		}
+
+		def partialRequest = processor.prepareJob(jar)
+		def partialJob = partialRequest.job() as CachedJarProcessor.PartialWorkJob
+
+		then:
+		fullRequest.stats().misses() == 1000
+		fullJob.outputNameMap() == expectedHashes
+
+		partialRequest.stats().hits() == 500
+		partialRequest.stats().misses() == 500
+		partialRequest.lineNumbers().lineMap().size() == 500
+		partialJob.outputNameMap() == expectedHashes.findAll { name, hash -> !store.containsKey(hash) }
+
+		// The classes to process are written in the input order, with their inner classes
+		entryNames(partialJob.incomplete()) == uncachedClasses
+		new String(ZipUtils.unpack(partialJob.incomplete(), "net/fabricmc/Class0001.class")) == "net/fabricmc/Class0001.class 1"
+		new String(ZipUtils.unpack(partialJob.existing(), "net/fabricmc/Class0998.java")) == "sources 998"
+		entryNames(partialJob.existing()).size() == 500
+	}
+
+	def "prepare job for a jar without classes"() {
+		given:
+		def jar = ZipTestUtils.createZip(["META-INF/MANIFEST.MF": "Manifest-Version: 1.0"])
+		def cache = Mock(CachedFileStore)
+		def processor = new CachedJarProcessor(cache, "abc123")
+
+		when:
+		def workRequest = processor.prepareJob(jar)
+		def workJob = workRequest.job() as CachedJarProcessor.CompletedWorkJob
+
+		def outputJar = Files.createTempFile("loom-test-output", ".jar")
+		Files.delete(outputJar)
+		processor.completeJob(outputJar, workJob, null)
+
+		then:
+		workRequest.lineNumbers() == null
+		workRequest.stats().hits() == 0
+		workRequest.stats().misses() == 0
+
+		// The empty output is still a valid zip
+		entryNames(outputJar).isEmpty()
+
+		0 * _ // Strict mock
+	}
+
+	private static List<String> entryNames(Path jar) {
+		new ZipFile(jar.toFile()).withCloseable { zipFile ->
+			return zipFile.entries().collect { it.name }
+		}
+	}
+
 	private static ClassLineNumbers lineNumbers(List<String> names) {
 		return new ClassLineNumbers(names.collectEntries { [it, lineNumber(it)] })
 	}
@@ -0,0 +1,169 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit.cache
+
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.Path
+import java.time.Duration
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import net.fabricmc.loom.decompilers.ClassLineNumbers
+import net.fabricmc.loom.decompilers.cache.CachedData
+import net.fabricmc.loom.decompilers.cache.CachedFileStore
+import net.fabricmc.loom.decompilers.cache.CachedFileStoreImpl
+import net.fabricmc.loom.decompilers.cache.PackedCachedFileStore
+
+class PackedCachedFileStoreTest extends Specification {
+	@TempDir
+	Path testPath
+
+	def "putEntry + getEntry"() {
+		given:
+		def cacheRules = new CachedFileStoreImpl.CacheRules(100, Duration.ofDays(7))
+		def store = PackedCachedFileStore.open(testPath, BYTE_ARRAY_SERIALIZER, cacheRules)
+		when:
+		store.putEntry("abc", "Hello world".bytes)
+		def entry = store.getEntry("abc")
+		def unknownEntry = store.getEntry("123")
+		store.close()
+		then:
+		entry == "Hello world".bytes
+		unknownEntry == null
+	}
+
+	def "replace entry"() {
+		given:
+		def cacheRules = new CachedFileStoreImpl.CacheRules(100, Duration.ofDays(7))
+		def store = PackedCachedFileStore.open(testPath, BYTE_ARRAY_SERIALIZER, cacheRules)
+		when:
+		store.putEntry("abc", "Hello world".bytes)
+		store.putEntry("abc", "Goodbye world".bytes)
+		def entry = store.getEntry("abc")
+		store.close()
+		then:
+		entry == "Goodbye world".bytes
+	}
+
+	def "entries persist after reopening"() {
+		given:
+		def cacheRules = new CachedFileStoreImpl.CacheRules(1000, Duration.ofDays(7))
+		when:
+		PackedCachedFileStore.open(testPath, BYTE_ARRAY_SERIALIZER, cacheRules).withCloseable {
+			for (i in 0..<500) {
+				it.putEntry("test_" + i, ("Hello world " + i).bytes)
+			}
+		}
+
+		def store = PackedCachedFileStore.open(testPath, BYTE_ARRAY_SERIALIZER, cacheRules)
+		def first = store.getEntry("test_0")
+		def last = store.getEntry("test_499")
+		store.close()
+		then:
+		first == "Hello world 0".bytes
+		last == "Hello world 499".bytes
+	}
+
+	def "pruneManyFiles"() {
+		given:
+		def cacheRules = new CachedFileStoreImpl.CacheRules(250, Duration.ofDays(7))
+		def store = PackedCachedFileStore.open(testPath, BYTE_ARRAY_SERIALIZER, cacheRules)
+		when:
+		for (i in 0..<500) {
+			store.putEntry("test_" + i, "Hello world".bytes)
+		}
+
+		// Touch the first entries, so the others are the least recently used
+		Thread.sleep(10)
+
+		for (i in 0..<250) {
+			store.getEntry("test_" + i)
+		}
+
+		store.prune()
+
+		then:
+		store.getEntry("test_0") != null
+		store.getEntry("test_100") != null
+		store.getEntry("test_300") == null
+
+		cleanup:
+		store.close()
+	}
+
+	def "pruneOldFiles"() {
+		given:
+		def cacheRules = new CachedFileStoreImpl.CacheRules(1000, Duration.ZERO)
+		def store = PackedCachedFileStore.open(testPath, BYTE_ARRAY_SERIALIZER, cacheRules)
+		when:
+		for (i in 0..<500) {
+			store.putEntry("test_" + i, "Hello world".bytes)
+		}
+
+		Thread.sleep(10)
+		store.prune()
+
+		then:
+		store.getEntry("test_0") == null
+		store.getEntry("test_499") == null
+
+		cleanup:
+		store.close()
+	}
+
+	def "CachedData is read from the pack"() {
+		given:
+		def cacheRules = new CachedFileStoreImpl.CacheRules(100, Duration.ofDays(7))
+		def lineNumberEntry = new ClassLineNumbers.Entry("net/test/TestClass", 1, 2, [1: 2, 4: 7])
+		def cachedData = new CachedData("net/test/TestClass", "Example sources", lineNumberEntry)
+		when:
+		PackedCachedFileStore.open(testPath, CachedData.BUFFER_SERIALIZER, cacheRules).withCloseable {
+			it.putEntry("abc", cachedData)
+		}
+
+		def readCachedData = PackedCachedFileStore.open(testPath, CachedData.BUFFER_SERIALIZER, cacheRules).withCloseable {
+			return it.getEntry("abc")
+		}
+
+		then:
+		readCachedData == cachedData
+	}
+
+	private static CachedFileStore.BufferSerializer<byte[]> BYTE_ARRAY_SERIALIZER = new CachedFileStore.BufferSerializer<byte[]>() {
+		@Override
+		byte[] read(ByteBuffer buffer) throws IOException {
+			byte[] bytes = new byte[buffer.remaining()]
+			buffer.get(bytes)
+			return bytes
+		}
+
+		@Override
+		void write(byte[] entry, FileChannel fileChannel) throws IOException {
+			fileChannel.write(ByteBuffer.wrap(entry))
+		}
+	}
+}
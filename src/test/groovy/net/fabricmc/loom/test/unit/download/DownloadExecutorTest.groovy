@@ -0,0 +1,227 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit.download
+
+import java.nio.file.Files
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.function.LongSupplier
+
+import io.javalin.http.HttpStatus
+
+import net.fabricmc.loom.util.download.AdaptiveDownloadLimiter
+import net.fabricmc.loom.util.download.Download
+import net.fabricmc.loom.util.download.DownloadException
+import net.fabricmc.loom.util.download.DownloadExecutor
+
+class DownloadExecutorTest extends DownloadTest {
+	def "Adaptive: Many files with latency"() {
+		setup:
+		def inFlight = new AtomicInteger()
+		def peakInFlight = new AtomicInteger()
+
+		server.get("/slow/{name}") {
+			peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max)
+			Thread.sleep(20)
+			inFlight.decrementAndGet()
+			it.result(it.pathParam("name"))
+		}
+
+		def dir = File.createTempDir().toPath()
+
+		when:
+		// Allow more platform threads than requests per host, so the limit must come from the per host limiter
+		DownloadExecutor.adaptive(4, 16).withCloseable { executor ->
+			for (i in 0..<200) {
+				Download.create("$PATH/slow/$i").downloadPathAsync(dir.resolve("${i}.txt"), executor)
+			}
+		}
+
+		then:
+		(0..<200).every { Files.readString(dir.resolve("${it}.txt")) == "$it" }
+		peakInFlight.get() <= 4
+	}
+
+	def "Adaptive: Error"() {
+		setup:
+		server.get("/adaptive") {
+			it.result("Hello World")
+		}
+
+		def dir = File.createTempDir().toPath()
+
+		when:
+		DownloadExecutor.adaptive(16, 4).withCloseable { executor ->
+			Download.create("$PATH/adaptive").downloadPathAsync(dir.resolve("1.txt"), executor)
+			Download.create("$PATH/adaptiveError").downloadPathAsync(dir.resolve("2.txt"), executor)
+		}
+
+		then:
+		thrown DownloadException
+	}
+
+	def "Limiter: Grows by one per response in slow start"() {
+		setup:
+		def clock = new FakeClock()
+		def limiter = new AdaptiveDownloadLimiter(4, 64, clock)
+
+		when:
+		10.times {
+			clock.sample(limiter, 10, HttpStatus.OK.code)
+		}
+
+		then:
+		limiter.getLimit() == 14
+	}
+
+	def "Limiter: Grows by one per round trip after congestion"() {
+		setup:
+		def clock = new FakeClock()
+		def limiter = new AdaptiveDownloadLimiter(32, 64, clock)
+
+		when:
+		clock.sample(limiter, 10, HttpStatus.SERVICE_UNAVAILABLE.code)
+		def afterBackoff = limiter.getLimit()
+
+		// Roughly one window of successful responses
+		26.times {
+			clock.sample(limiter, 10, HttpStatus.OK.code)
+		}
+
+		then:
+		afterBackoff == 24
+		limiter.getLimit() == 25
+	}
+
+	def "Limiter: Backs off on high latency"() {
+		setup:
+		def clock = new FakeClock()
+		def limiter = new AdaptiveDownloadLimiter(8, 64, clock)
+
+		when:
+		clock.sample(limiter, 10, HttpStatus.OK.code)
+		def afterFast = limiter.getLimit()
+
+		// Within the tolerance of the fastest response
+		clock.sample(limiter, 20, HttpStatus.OK.code)
+		def afterTolerated = limiter.getLimit()
+
+		clock.sample(limiter, 50, HttpStatus.OK.code)
+		def afterSlow = limiter.getLimit()
+
+		// Slow start has ended, so a fast response only grows the limit by a fraction
+		clock.sample(limiter, 10, HttpStatus.OK.code)
+
+		then:
+		afterFast == 9
+		afterTolerated == 10
+		afterSlow == 7
+		limiter.getLimit() == 7
+	}
+
+	def "Limiter: Backs off on server errors"() {
+		setup:
+		def clock = new FakeClock()
+		def limiter = new AdaptiveDownloadLimiter(32, 64, clock)
+
+		when:
+		clock.sample(limiter, 10, HttpStatus.SERVICE_UNAVAILABLE.code)
+
+		then:
+		limiter.getLimit() == 24
+	}
+
+	def "Limiter: Backs off on failed requests"() {
+		setup:
+		def clock = new FakeClock()
+		def limiter = new AdaptiveDownloadLimiter(32, 64, clock)
+
+		when:
+		def permit = limiter.acquire()
+		clock.advance(10)
+		permit.close()
+
+		then:
+		limiter.getLimit() == 24
+	}
+
+	def "Limiter: Backs off once per window"() {
+		setup:
+		def clock = new FakeClock()
+		def limiter = new AdaptiveDownloadLimiter(32, 64, clock)
+
+		when:
+		// All 4 requests start before the first error is seen
+		def permits = (0..<4).collect { limiter.acquire() }
+		clock.advance(10)
+		permits.each {
+			it.onResponse(HttpStatus.TOO_MANY_REQUESTS.code)
+			it.close()
+		}
+		def afterWindow = limiter.getLimit()
+
+		// A request that started after the back off can cut the limit again
+		clock.sample(limiter, 10, HttpStatus.TOO_MANY_REQUESTS.code)
+
+		then:
+		afterWindow == 24
+		limiter.getLimit() == 18
+	}
+
+	def "Limiter: Never exceeds max"() {
+		setup:
+		def clock = new FakeClock()
+		def limiter = new AdaptiveDownloadLimiter(4, 6, clock)
+
+		when:
+		10.times {
+			clock.sample(limiter, 10, HttpStatus.OK.code)
+		}
+
+		then:
+		limiter.getLimit() == 6
+	}
+
+	private static class FakeClock implements LongSupplier {
+		long nanos = 0
+
+		@Override
+		long getAsLong() {
+			return nanos
+		}
+
+		void advance(long millis) {
+			nanos += TimeUnit.MILLISECONDS.toNanos(millis)
+		}
+
+		// Runs a request that gets a response with the given status after the given latency
+		void sample(limiter, long latencyMillis, int statusCode) {
+			limiter.acquire().withCloseable {
+				advance(latencyMillis)
+				it.onResponse(statusCode)
+			}
+		}
+	}
+}
@@ -0,0 +1,305 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit.forge
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+import dev.architectury.at.io.AccessTransformFormats
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Opcodes
+import org.objectweb.asm.tree.ClassNode
+import org.objectweb.asm.tree.MethodInsnNode
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import net.fabricmc.loom.configuration.accesstransformer.AccessTransformerEngine
+import net.fabricmc.loom.test.util.ZipTestUtils
+import net.fabricmc.loom.util.ZipUtils
+
+class AccessTransformerEngineTest extends Specification {
+	private static final String FORGE_AT_MAIN = 'net.minecraftforge.accesstransformer.TransformerProcessor'
+	private static final String NEOFORGE_AT_MAIN = 'net.neoforged.accesstransformer.cli.TransformerProcessor'
+
+	@TempDir
+	Path tempDir
+
+	def "widens members"() {
+		given:
+		def engine = engine '''
+			public-f test.Target secret
+			protected test.Target hidden()V
+			public test.Target *
+			'''
+
+		when:
+		def node = read(engine.transform(targetClass()))
+
+		then:
+		field(node, 'secret').access == Opcodes.ACC_PUBLIC
+		field(node, 'prot').access == Opcodes.ACC_PUBLIC
+		method(node, 'hidden').access == Opcodes.ACC_PROTECTED
+		method(node, 'util').access == (Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC)
+	}
+
+	def "never narrows visibility"() {
+		given:
+		def engine = engine '''
+			private test.Target callHidden()V
+			default test.Target prot
+			'''
+
+		when:
+		def node = read(engine.transform(targetClass()))
+
+		then:
+		method(node, 'callHidden').access == Opcodes.ACC_PUBLIC
+		field(node, 'prot').access == Opcodes.ACC_PROTECTED
+	}
+
+	def "adds and removes final"() {
+		given:
+		def engine = engine '''
+			private+f test.Target prot
+			private-f test.Target fin()V
+			'''
+
+		when:
+		def node = read(engine.transform(targetClass()))
+
+		then:
+		field(node, 'prot').access == (Opcodes.ACC_PROTECTED | Opcodes.ACC_FINAL)
+		method(node, 'fin').access == Opcodes.ACC_PRIVATE
+	}
+
+	def "turns calls to widened private methods into virtual calls"() {
+		given:
+		def engine = engine '''
+			public test.Target *()
+			'''
+
+		when:
+		def node = read(engine.transform(targetClass()))
+		def calls = method(node, 'callHidden').instructions.findAll { it instanceof MethodInsnNode }.collectEntries { [(it.name): it.opcode] }
+
+		then:
+		calls == [hidden: Opcodes.INVOKEVIRTUAL, util: Opcodes.INVOKESTATIC, '<init>': Opcodes.INVOKESPECIAL]
+	}
+
+	def "class rule applies to its own inner class entry"() {
+		given:
+		def engine = engine '''
+			public-f test.Target
+			'''
+
+		when:
+		def node = read(engine.transform(targetClass()))
+
+		then:
+		node.access == (Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER)
+		node.innerClasses.find { it.name == 'test/Target' }.access == (Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC)
+		node.innerClasses.find { it.name == 'test/Target$Other' }.access == Opcodes.ACC_PRIVATE
+	}
+
+	def "leaves untargeted classes untouched"() {
+		given:
+		def engine = engine '''
+			public test.Unrelated
+			'''
+		def bytes = targetClass()
+
+		expect:
+		engine.transform(bytes).is(bytes)
+	}
+
+	def "transforms jar"() {
+		given:
+		def engine = engine '''
+			public test.Target hidden()V
+			'''
+		def input = ZipTestUtils.createZipFromBytes(['test/Target.class': targetClass(), 'META-INF/accesstransformer.cfg': 'hello'.bytes])
+		def output = tempDir.resolve('output.jar')
+
+		when:
+		engine.transformJar(input, output)
+
+		then:
+		method(read(ZipUtils.unpack(output, 'test/Target.class')), 'hidden').access == Opcodes.ACC_PUBLIC
+		new String(ZipUtils.unpack(output, 'META-INF/accesstransformer.cfg')) == 'hello'
+	}
+
+	def "transforms jar in place"() {
+		given:
+		def engine = engine '''
+			public test.Target hidden()V
+			'''
+		def jar = ZipTestUtils.createZipFromBytes(['test/Target.class': targetClass(), 'META-INF/accesstransformer.cfg': 'hello'.bytes])
+
+		when:
+		engine.transformJar(jar, jar)
+
+		then:
+		method(read(ZipUtils.unpack(jar, 'test/Target.class')), 'hidden').access == Opcodes.ACC_PUBLIC
+		new String(ZipUtils.unpack(jar, 'META-INF/accesstransformer.cfg')) == 'hello'
+		Files.list(jar.parent).withCloseable { files -> files.noneMatch { it.fileName.toString().startsWith(jar.fileName.toString()) && it.fileName.toString().endsWith('.tmp') } }
+	}
+
+	// Applies the same access transformers with Forge's and NeoForge's tools, and checks that the results match.
+	def "matches #tool access transformers"() {
+		given:
+		def atFile = tempDir.resolve('accesstransformer.cfg')
+		atFile.text = at.stripIndent()
+		def input = ZipTestUtils.createZipFromBytes(['test/Target.class': targetClass()])
+		def expectedJar = tempDir.resolve('expected.jar')
+		def actualJar = tempDir.resolve('actual.jar')
+
+		when:
+		def process = new ProcessBuilder(
+				Path.of(System.getProperty('java.home'), 'bin', 'java').toString(),
+				'-cp', System.getProperty('java.class.path'),
+				mainClass,
+				'--inJar', input.toString(),
+				'--outJar', expectedJar.toString(),
+				'--atFile', atFile.toString()
+				).inheritIO().start()
+		engine(at).transformJar(input, actualJar)
+
+		then:
+		process.waitFor() == 0
+		describe(ZipUtils.unpack(actualJar, 'test/Target.class')) == describe(ZipUtils.unpack(expectedJar, 'test/Target.class'))
+
+		where:
+		[at, tool] << [
+			[
+				'''
+				public-f test.Target secret
+				protected test.Target hidden()V
+				''',
+				'''
+				public test.Target *
+				private+f test.Target prot
+				''',
+				'''
+				public test.Target *()
+				private-f test.Target fin()V
+				''',
+				'''
+				public-f test.Target
+				default test.Target callHidden()V
+				protected+f test.Target util()V
+				''',
+			],
+			['forge', 'neoforge']
+		].combinations()
+		mainClass = tool == 'forge' ? FORGE_AT_MAIN : NEOFORGE_AT_MAIN
+	}
+
+	private static AccessTransformerEngine engine(String at) {
+		return AccessTransformerEngine.create(AccessTransformFormats.FML.read(new StringReader(at.stripIndent())))
+	}
+
+	/**
+	 * Creates a class equivalent to this source, with an InnerClasses entry for itself:
+	 * <pre>
+	 * class Target {
+	 *     private final int secret;
+	 *     protected int prot;
+	 *     private void hidden() {}
+	 *     private static void util() {}
+	 *     private final void fin() {}
+	 *     public void callHidden() { hidden(); util(); new Target(); }
+	 * }
+	 * </pre>
+	 */
+	private static byte[] targetClass() {
+		def writer = new ClassWriter(ClassWriter.COMPUTE_MAXS)
+		writer.visit(Opcodes.V17, Opcodes.ACC_SUPER, 'test/Target', null, 'java/lang/Object', null)
+		writer.visitInnerClass('test/Target', 'test/Outer', 'Target', Opcodes.ACC_STATIC)
+		writer.visitInnerClass('test/Target$Other', 'test/Target', 'Other', Opcodes.ACC_PRIVATE)
+		writer.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, 'secret', 'I', null, null).visitEnd()
+		writer.visitField(Opcodes.ACC_PROTECTED, 'prot', 'I', null, null).visitEnd()
+
+		def init = writer.visitMethod(0, '<init>', '()V', null, null)
+		init.visitCode()
+		init.visitVarInsn(Opcodes.ALOAD, 0)
+		init.visitMethodInsn(Opcodes.INVOKESPECIAL, 'java/lang/Object', '<init>', '()V', false)
+		init.visitInsn(Opcodes.RETURN)
+		init.visitMaxs(0, 0)
+		init.visitEnd()
+
+		for (def entry : [hidden: Opcodes.ACC_PRIVATE, util: Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC, fin: Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL]) {
+			def method = writer.visitMethod(entry.value, entry.key, '()V', null, null)
+			method.visitCode()
+			method.visitInsn(Opcodes.RETURN)
+			method.visitMaxs(0, 0)
+			method.visitEnd()
+		}
+
+		def call = writer.visitMethod(Opcodes.ACC_PUBLIC, 'callHidden', '()V', null, null)
+		call.visitCode()
+		call.visitVarInsn(Opcodes.ALOAD, 0)
+		call.visitMethodInsn(Opcodes.INVOKESPECIAL, 'test/Target', 'hidden', '()V', false)
+		call.visitMethodInsn(Opcodes.INVOKESTATIC, 'test/Target', 'util', '()V', false)
+		call.visitTypeInsn(Opcodes.NEW, 'test/Target')
+		call.visitInsn(Opcodes.DUP)
+		call.visitMethodInsn(Opcodes.INVOKESPECIAL, 'test/Target', '<init>', '()V', false)
+		call.visitInsn(Opcodes.POP)
+		call.visitInsn(Opcodes.RETURN)
+		call.visitMaxs(0, 0)
+		call.visitEnd()
+
+		writer.visitEnd()
+		return writer.toByteArray()
+	}
+
+	private static ClassNode read(byte[] bytes) {
+		def node = new ClassNode()
+		new ClassReader(bytes).accept(node, 0)
+		return node
+	}
+
+	private static field(ClassNode node, String name) {
+		return node.fields.find { it.name == name }
+	}
+
+	private static method(ClassNode node, String name) {
+		return node.methods.find { it.name == name }
+	}
+
+	// Everything an access transformer may change, in a comparable form
+	private static List<String> describe(byte[] bytes) {
+		def node = read(bytes)
+		def result = ["class ${node.access}".toString()]
+		result += node.innerClasses.collect { "inner ${it.name} ${it.access}".toString() }
+		result += node.fields.collect { "field ${it.name} ${it.access}".toString() }
+		node.methods.each { method ->
+			result << "method ${method.name}${method.desc} ${method.access}".toString()
+			result += method.instructions.findAll { it instanceof MethodInsnNode }.collect { "  ${it.opcode} ${it.owner}.${it.name}${it.desc}".toString() }
+		}
+
+		return result
+	}
+}
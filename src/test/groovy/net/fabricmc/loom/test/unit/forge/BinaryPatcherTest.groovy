@@ -0,0 +1,209 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit.forge
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.zip.Adler32
+import java.util.zip.ZipEntry
+import java.util.zip.ZipFile
+import java.util.zip.ZipOutputStream
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import net.fabricmc.loom.configuration.providers.forge.BinaryPatcher
+
+class BinaryPatcherTest extends Specification {
+	@TempDir
+	Path tempDir
+
+	def "apply gdiff"() {
+		given:
+		def source = "Hello, world!".bytes
+		// Copy "Hello", insert " there", then copy ", world!"
+		def patch = gdiff { out ->
+			out.writeByte(249)
+			out.writeShort(0)
+			out.writeByte(5)
+			out.writeByte(6)
+			out.write(" there".bytes)
+			out.writeByte(252)
+			out.writeInt(5)
+			out.writeByte(8)
+		}
+
+		when:
+		def result = BinaryPatcher.applyGdiff(source, patch)
+
+		then:
+		new String(result) == "Hello there, world!"
+	}
+
+	def "apply gdiff out of bounds"() {
+		given:
+		def patch = gdiff { out ->
+			out.writeByte(249)
+			out.writeShort(10)
+			out.writeByte(5)
+		}
+
+		when:
+		BinaryPatcher.applyGdiff("short".bytes, patch)
+
+		then:
+		thrown IOException
+	}
+
+	def "patch jar"() {
+		given:
+		def clean = tempDir.resolve("clean.jar")
+		def patches = tempDir.resolve("patches.jar")
+		def output = tempDir.resolve("output.jar")
+
+		zip(clean, [
+			"a.class": "class a".bytes,
+			"b.class": "class b".bytes,
+			"data.txt": "data".bytes
+		])
+		zip(patches, [
+			"a.binpatch": binpatch("a", "class a".bytes, gdiff { out ->
+				out.writeByte(249)
+				out.writeShort(0)
+				out.writeByte(7)
+				out.writeByte(8)
+				out.write(" patched".bytes)
+			}),
+			"c.binpatch": binpatch("c", null, gdiff { out ->
+				out.writeByte(7)
+				out.write("class c".bytes)
+			})
+		])
+
+		when:
+		BinaryPatcher.patchJar(clean, output, patches, options, { bytes -> ("[" + new String(bytes) + "]").bytes })
+
+		then:
+		unzip(output) == expected
+
+		where:
+		options                                        | expected
+		new BinaryPatcher.Options(null, false, false)  | ["a.class": "[class a patched]", "c.class": "[class c]"]
+		new BinaryPatcher.Options(null, false, true)   | ["a.class": "[class a patched]", "b.class": "[class b]", "c.class": "[class c]"]
+		new BinaryPatcher.Options(null, true, true)    | ["a.class": "[class a patched]", "b.class": "[class b]", "data.txt": "data", "c.class": "[class c]"]
+	}
+
+	def "patch jar checksum mismatch"() {
+		given:
+		def clean = tempDir.resolve("clean.jar")
+		def patches = tempDir.resolve("patches.jar")
+
+		zip(clean, ["a.class": "class a".bytes])
+		zip(patches, ["a.binpatch": binpatch("a", "class b".bytes, gdiff { })])
+
+		when:
+		BinaryPatcher.patchJar(clean, tempDir.resolve("output.jar"), patches, new BinaryPatcher.Options(null, false, false), { it })
+
+		then:
+		def e = thrown(IOException)
+		e.cause.message.contains("checksum")
+		Files.notExists(tempDir.resolve("output.jar"))
+		Files.notExists(tempDir.resolve("output.jar.tmp"))
+	}
+
+	def "patch jar with many entries"() {
+		given:
+		def clean = tempDir.resolve("clean.jar")
+		def patches = tempDir.resolve("patches.jar")
+		def output = tempDir.resolve("output.jar")
+		def classes = (0..<1000).collectEntries { ["class_${it}.class".toString(), "class ${it}".bytes] }
+
+		zip(clean, classes)
+		zip(patches, [:])
+
+		when:
+		BinaryPatcher.patchJar(clean, output, patches, new BinaryPatcher.Options(null, false, true), { it })
+
+		then:
+		unzip(output) == classes.collectEntries { name, data -> [name, new String(data)] }
+		unzip(output).keySet().toList() == classes.keySet().toList()
+	}
+
+	def "parse options"() {
+		expect:
+		BinaryPatcher.Options.parse(args) == expected
+
+		where:
+		args                                                                                        | expected
+		["--clean", "{clean}", "--output", "{output}", "--apply", "{patch}"]                        | new BinaryPatcher.Options(null, false, false)
+		["--clean", "{clean}", "--apply", "{patch}", "--prefix", "client", "--data", "--unpatched"] | new BinaryPatcher.Options("client", true, true)
+		["--clean", "{clean}", "--apply", "{patch}", "--legacy"]                                    | null
+	}
+
+	private static byte[] gdiff(Closure commands) {
+		def bytes = new ByteArrayOutputStream()
+		def out = new DataOutputStream(bytes)
+		out.writeInt((int) 0xD1FFD1FFL)
+		out.writeByte(4)
+		commands(out)
+		out.writeByte(0)
+		return bytes.toByteArray()
+	}
+
+	private static byte[] binpatch(String name, byte[] clean, byte[] patch) {
+		def bytes = new ByteArrayOutputStream()
+		def out = new DataOutputStream(bytes)
+		out.writeByte(1)
+		out.writeUTF(name)
+		out.writeUTF(name)
+		out.writeBoolean(clean != null)
+
+		if (clean != null) {
+			def adler32 = new Adler32()
+			adler32.update(clean)
+			out.writeInt((int) adler32.value)
+		}
+
+		out.writeInt(patch.length)
+		out.write(patch)
+		return bytes.toByteArray()
+	}
+
+	private static void zip(Path path, Map<String, byte[]> entries) {
+		new ZipOutputStream(Files.newOutputStream(path)).withCloseable { out ->
+			entries.each { name, data ->
+				out.putNextEntry(new ZipEntry(name))
+				out.write(data)
+				out.closeEntry()
+			}
+		}
+	}
+
+	private static Map<String, String> unzip(Path path) {
+		new ZipFile(path.toFile()).withCloseable { zip ->
+			zip.entries().toList().collectEntries { [(it.name): new String(zip.getInputStream(it).bytes)] }
+		}
+	}
+}
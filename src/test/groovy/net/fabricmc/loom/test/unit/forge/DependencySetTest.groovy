@@ -99,4 +99,15 @@ class DependencySetTest extends Specification {
 			'childAB'
 		]
 	}
+
+	def "dependencies"() {
+		expect:
+		dependencySet.getDependencies(allSteps.find { it.name() == step }).toList() == dependencies
+
+		where:
+		step      | dependencies
+		'root'    | []
+		'childA1' | ['root']
+		'childAB' | ['childA2', 'childB']
+	}
 }
@@ -0,0 +1,139 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit.forge
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.attribute.FileTime
+import java.time.Duration
+import java.time.Instant
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import net.fabricmc.loom.configuration.providers.forge.ConfigValue
+import net.fabricmc.loom.configuration.providers.forge.mcpconfig.McpConfigStep
+import net.fabricmc.loom.configuration.providers.forge.mcpconfig.McpStepCache
+import net.fabricmc.loom.configuration.providers.forge.mcpconfig.steplogic.StepLogic
+
+class McpStepCacheTest extends Specification {
+	@TempDir
+	Path tempDir
+
+	McpConfigStep step = new McpConfigStep('rename', 'rename', [input: ConfigValue.of('{mergeOutput}')])
+	StepLogic logic = new TestLogic()
+
+	def "key depends on input contents"() {
+		given:
+		def cache = new McpStepCache(tempDir.resolve("cache"))
+		def inputA = write("a/input.jar", "input")
+		def inputB = write("b/input.jar", "input")
+		def inputC = write("c/input.jar", "changed")
+
+		expect:
+		cache.getKey(step, logic, context(inputA)) == cache.getKey(step, logic, context(inputB))
+		cache.getKey(step, logic, context(inputA)) != cache.getKey(step, logic, context(inputC))
+	}
+
+	def "uncacheable step"() {
+		given:
+		def cache = new McpStepCache(tempDir.resolve("cache"))
+		def uncacheable = new StepLogic() {
+			@Override
+			void execute(StepLogic.ExecutionContext context) {
+			}
+		}
+
+		expect:
+		cache.getKey(step, uncacheable, context(write("input.jar", "input"))) == null
+	}
+
+	def "put and get"() {
+		given:
+		def cache = new McpStepCache(tempDir.resolve("cache"))
+		def key = cache.getKey(step, logic, context(write("input.jar", "input")))
+		def output = write("step/output.jar", "output")
+
+		when:
+		def before = cache.get(key)
+		cache.put(key, output)
+		def after = cache.get(key)
+
+		then:
+		before == null
+		after.fileName.toString() == "output.jar"
+		after.text == "output"
+	}
+
+	def "prune deletes entries that have not been used recently"() {
+		given:
+		def cache = new McpStepCache(tempDir.resolve("cache"))
+		def old = entry("cache/ab/old", 40)
+		def recent = entry("cache/cd/recent", 10)
+		def restored = entry("cache/re/restored", 40)
+
+		when:
+		cache.get("restored")
+		cache.prune()
+
+		then:
+		!Files.exists(old)
+		Files.exists(recent.resolve("output.jar"))
+		Files.exists(restored.resolve("output.jar"))
+	}
+
+	private Path entry(String path, int ageDays) {
+		def output = write("$path/output.jar", "output")
+		Files.setLastModifiedTime(output.parent, FileTime.from(Instant.now().minus(Duration.ofDays(ageDays))))
+		return output.parent
+	}
+
+	private Path write(String path, String content) {
+		def file = tempDir.resolve(path)
+		Files.createDirectories(file.parent)
+		file.text = content
+		return file
+	}
+
+	private StepLogic.ExecutionContext context(Path input) {
+		return Stub(StepLogic.ExecutionContext) {
+			resolve(_ as ConfigValue) >> { ConfigValue value -> value instanceof ConfigValue.Variable ? input.toAbsolutePath().toString() : value.resolve(null) }
+		}
+	}
+
+	private static class TestLogic implements StepLogic {
+		@Override
+		void execute(StepLogic.ExecutionContext context) {
+		}
+
+		@Override
+		boolean hashInputs(StepLogic.InputHasher hasher) {
+			hasher.putValue(ConfigValue.of('{input}'))
+			hasher.putValue(ConfigValue.of('{output}'))
+			hasher.putValue(ConfigValue.of('--flag'))
+			return true
+		}
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit.forge
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import net.fabricmc.loom.configuration.providers.mappings.MergedMappingsCache
+
+class MergedMappingsCacheTest extends Specification {
+	@TempDir
+	Path tempDir
+
+	def "merged mappings are reused when the inputs are unchanged"() {
+		setup:
+		def cache = new MergedMappingsCache(tempDir.resolve("cache"))
+		def tiny = file("tiny.tiny", "tiny mappings")
+		def srg = file("srg.tsrg", "srg mappings")
+		def merges = 0
+		def merger = merger(tempDir.resolve("output.tiny")) { ++merges }
+
+		when:
+		MergedMappingsCache.getOrMerge(cache, tempDir.resolve("output.tiny"), ["srg", false, "1.20.1", tiny, srg], merger)
+		Files.delete(tempDir.resolve("output.tiny"))
+		MergedMappingsCache.getOrMerge(cache, tempDir.resolve("output.tiny"), ["srg", false, "1.20.1", tiny, srg], merger)
+
+		then:
+		merges == 1
+		tempDir.resolve("output.tiny").text == "merged 1"
+	}
+
+	def "changing a merge input misses the cache"() {
+		setup:
+		def cache = new MergedMappingsCache(tempDir.resolve("cache"))
+		def target = tempDir.resolve("output.tiny")
+		def tiny = file("tiny.tiny", "tiny mappings")
+		def srg = file("srg.tsrg", "srg mappings")
+		def merges = 0
+		def merger = merger(target) { ++merges }
+		MergedMappingsCache.getOrMerge(cache, target, ["srg", false, "1.20.1", tiny, srg], merger)
+
+		when:
+		def inputs = change(["srg", false, "1.20.1", tiny, srg])
+		MergedMappingsCache.getOrMerge(cache, target, inputs, merger)
+
+		then:
+		merges == 2
+		target.text == "merged 2"
+
+		where:
+		change << [
+			{ it[0] = "mojang"; it },
+			{ it[1] = true; it },
+			{ it[2] = "1.20.2"; it },
+			{ it[3].text = "changed tiny mappings"; it },
+			{ it[4].text = "changed srg mappings"; it },
+			{ Files.delete(it[4]); it },
+			{ it + ["extra.tsrg"] },
+		]
+	}
+
+	def "merges without a cache"() {
+		setup:
+		def target = tempDir.resolve("output.tiny")
+		def merges = 0
+		def merger = merger(target) { ++merges }
+
+		when:
+		MergedMappingsCache.getOrMerge(null, target, ["srg"], merger)
+		MergedMappingsCache.getOrMerge(null, target, ["srg"], merger)
+
+		then:
+		merges == 2
+		!Files.exists(tempDir.resolve("cache"))
+	}
+
+	private Path file(String name, String contents) {
+		def path = tempDir.resolve(name)
+		path.text = contents
+		return path
+	}
+
+	private static MergedMappingsCache.Merger merger(Path target, Closure<Integer> count) {
+		return { -> target.text = "merged ${count()}" } as MergedMappingsCache.Merger
+	}
+}
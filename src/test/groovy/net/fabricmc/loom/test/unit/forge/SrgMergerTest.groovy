@@ -30,6 +30,8 @@ import java.nio.file.Path
 import spock.lang.Specification
 import spock.lang.TempDir
 
+import net.fabricmc.loom.util.MappingException
+import net.fabricmc.loom.util.service.SharedExecutorService
 import net.fabricmc.loom.util.srg.ForgeMappingsMerger
 import net.fabricmc.mappingio.MappingUtil
 import net.fabricmc.mappingio.format.MappingFormat
@@ -65,6 +67,87 @@ class SrgMergerTest extends Specification {
 		Files.readAllLines(output) == expected
 	}
 
+	def "parallel merge matches the serial output on a fixture with conflicts"() {
+		setup:
+		// The fixture has a conflict resolved by removing a filled method and a group of unrelated methods that share a SRG name.
+		// Repeating it spreads the classes and method groups over several chunks, expectedOutput.tiny is the output of the serial merge.
+		def copies = 64
+		def srgInput = writeCopies("srgInput.tsrg", copies)
+		def tinyInput = writeCopies("tinyInput.tiny", copies)
+		def extraInput = writeCopies("extraInput.tsrg", copies)
+		def expected = copyFixture(readTestData("expectedOutput.tiny"), copies)
+		def extraMappings = ForgeMappingsMerger.ExtraMappings.ofMojmapTsrg(extraInput)
+		SharedExecutorService.acquire(threads)
+
+		when:
+		def merged = ForgeMappingsMerger.mergeSrg(srgInput, tinyInput, extraMappings, true)
+		def sw = new StringWriter()
+		merged.accept(new Tiny2FileWriter(sw, false))
+
+		then:
+		sw.toString().readLines() == expected
+
+		cleanup:
+		SharedExecutorService.release()
+
+		where:
+		threads << [1, 4]
+	}
+
+	def "parallel merge reports unfixable conflicts"() {
+		setup:
+		def srgInput = mappingsDir.resolve("srgInput.tsrg")
+		def tinyInput = mappingsDir.resolve("tinyInput.tiny")
+		srgInput.text = """tsrg2 left right
+a test/A
+\ta ()V m_1_
+b test/B
+\ta ()V m_1_
+"""
+		tinyInput.text = """tiny\t2\t0\tofficial\tintermediary\tnamed
+c\ta\tclass_1\ttest/A
+\tm\t()V\ta\tmethod_1\tfirst
+c\tb\tclass_2\ttest/B
+\tm\t()V\ta\tmethod_1\tsecond
+"""
+
+		when:
+		ForgeMappingsMerger.mergeSrg(srgInput, tinyInput, null, true)
+
+		then:
+		def e = thrown(MappingException)
+		e.message.contains("multiple preferred methods")
+		e.message.contains("a.a()V => method_1/first (tiny)")
+		e.message.contains("b.a()V => method_1/second (tiny)")
+	}
+
+	/**
+	 * Repeats the fixture with every class and member name made unique to its copy, so the copies do not conflict with each other.
+	 */
+	private static List<String> copyFixture(List<String> lines, int copies) {
+		def output = [lines[0]]
+
+		for (int i = 0; i < copies; i++) {
+			for (String line : lines.drop(1)) {
+				if (!line.startsWith("\t")) {
+					// Tiny class lines start with the "c" element kind, which is not a class name
+					def kind = line.startsWith("c\t") ? "c\t" : ""
+					line = kind + line.substring(kind.length()).replaceAll(/(?<![^\t ])([a-d]|test\/\w+)(?![^\t ])/, "\$1$i")
+				}
+
+				output << line.replaceAll(/\b([mf]_\d+_|(?:class|method|field)_\d+)\b/, "\$1_$i")
+			}
+		}
+
+		return output
+	}
+
+	private Path writeCopies(String path, int copies) {
+		def output = mappingsDir.resolve(path)
+		Files.write(output, copyFixture(readTestData(path), copies))
+		return output
+	}
+
 	private def merge(ForgeMappingsMerger.ExtraMappings extraMappings, Path output) {
 		def srgInput = extractTempFile("srgInput.tsrg")
 		def tinyInput = extractTempFile("tinyInput.tiny")
@@ -0,0 +1,140 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit.layeredmappings
+
+import net.fabricmc.loom.api.mappings.layered.MappingLayer
+import net.fabricmc.loom.api.mappings.layered.MappingsNamespace
+import net.fabricmc.loom.configuration.providers.mappings.LayeredMappingSpec
+import net.fabricmc.loom.configuration.providers.mappings.LayeredMappingsProcessor
+import net.fabricmc.mappingio.MappingVisitor
+import net.fabricmc.mappingio.adapter.MappingSourceNsSwitch
+import net.fabricmc.mappingio.format.tiny.Tiny2FileReader
+import net.fabricmc.mappingio.tree.MemoryMappingTree
+
+class LayeredMappingsProcessorTest extends LayeredMappingsSpecification {
+	def "merging layers with the same source namespace matches switching the namespace for every layer"() {
+		setup:
+		def layers = [
+			new TinyLayer(MappingsNamespace.OFFICIAL, INTERMEDIARY_LAYER),
+			new TinyLayer(MappingsNamespace.OFFICIAL, OFFICIAL_LAYER),
+			new TinyLayer(MappingsNamespace.INTERMEDIARY, INTERMEDIARY_SOURCE_LAYER),
+			new TinyLayer(MappingsNamespace.NAMED, NAMED_LAYER),
+			new TinyLayer(MappingsNamespace.OFFICIAL, OFFICIAL_FIELD_LAYER),
+		]
+		def processor = new LayeredMappingsProcessor(new LayeredMappingSpec([]))
+
+		when:
+		def merged = processor.getMappings(layers)
+		def switched = switchEveryLayer(layers)
+
+		then:
+		merged.srcNamespace == "named"
+		switched.srcNamespace == "named"
+		getTiny(reorder(merged)) == getTiny(reorder(switched))
+		getTiny(reorder(merged)).contains("Example")
+		getTiny(reorder(merged)).contains("value")
+		getTiny(reorder(merged)).contains("A comment")
+
+		// Layers that are not built into Loom may use the project, so are visited on the calling thread
+		layers.every { it.visitedOn == Thread.currentThread() }
+	}
+
+	// The merge as it was done before layers with the same source namespace shared one namespace switch
+	private static MemoryMappingTree switchEveryLayer(List<MappingLayer> layers) {
+		def mappingTree = new MemoryMappingTree()
+
+		for (MappingLayer layer : layers) {
+			def rebuild = layer.sourceNamespace != MappingsNamespace.NAMED
+			def workingTree = mappingTree
+
+			if (rebuild) {
+				workingTree = new MemoryMappingTree()
+
+				if (mappingTree.srcNamespace != null) {
+					mappingTree.accept(new MappingSourceNsSwitch(workingTree, layer.sourceNamespace.toString()))
+				}
+			}
+
+			layer.visit(workingTree)
+
+			if (rebuild) {
+				mappingTree = new MemoryMappingTree()
+				workingTree.accept(new MappingSourceNsSwitch(mappingTree, MappingsNamespace.NAMED.toString()))
+			}
+		}
+
+		return mappingTree
+	}
+
+	private static class TinyLayer implements MappingLayer {
+		final MappingsNamespace sourceNamespace
+		final String mappings
+		Thread visitedOn
+
+		TinyLayer(MappingsNamespace sourceNamespace, String mappings) {
+			this.sourceNamespace = sourceNamespace
+			this.mappings = mappings
+		}
+
+		@Override
+		void visit(MappingVisitor mappingVisitor) throws IOException {
+			visitedOn = Thread.currentThread()
+			Tiny2FileReader.read(new StringReader(mappings), mappingVisitor)
+		}
+
+		@Override
+		MappingsNamespace getSourceNamespace() {
+			return sourceNamespace
+		}
+	}
+
+	private static final String INTERMEDIARY_LAYER = """tiny\t2\t0\tofficial\tintermediary\tnamed
+c\ta\tnet/minecraft/class_1\tnet/minecraft/class_1
+\tf\tI\ta\tfield_1\tfield_1
+\tm\t()V\tb\tmethod_1\tmethod_1
+c\tb\tnet/minecraft/class_2\tnet/minecraft/class_2
+"""
+
+	private static final String OFFICIAL_LAYER = """tiny\t2\t0\tofficial\tnamed
+c\ta\tnet/minecraft/Example
+\tm\t()V\tb\trun
+"""
+
+	private static final String INTERMEDIARY_SOURCE_LAYER = """tiny\t2\t0\tintermediary\tnamed
+c\tnet/minecraft/class_1\tnet/minecraft/Example
+\tm\t()V\tmethod_1\trun
+\t\tp\t1\t\tparameter
+"""
+
+	private static final String NAMED_LAYER = """tiny\t2\t0\tnamed\tintermediary
+c\tnet/minecraft/class_2\tnet/minecraft/class_2
+\tc\tA comment
+"""
+
+	private static final String OFFICIAL_FIELD_LAYER = """tiny\t2\t0\tofficial\tnamed
+c\ta\tnet/minecraft/Example
+\tf\tI\ta\tvalue
+"""
+}
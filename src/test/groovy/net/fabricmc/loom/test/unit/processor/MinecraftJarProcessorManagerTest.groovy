@@ -24,13 +24,31 @@
 
 package net.fabricmc.loom.test.unit.processor
 
+import java.nio.file.Files
+import java.nio.file.Path
+
+import groovy.transform.Immutable
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.ClassVisitor
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Opcodes
+import org.objectweb.asm.tree.ClassNode
 import spock.lang.Specification
+import spock.lang.TempDir
 
+import net.fabricmc.loom.api.processor.MinecraftJarProcessor
+import net.fabricmc.loom.api.processor.ProcessorContext
 import net.fabricmc.loom.api.processor.SpecContext
 import net.fabricmc.loom.configuration.processors.MinecraftJarProcessorManager
+import net.fabricmc.loom.configuration.processors.ProcessedJarManifest
 import net.fabricmc.loom.test.util.processor.TestMinecraftJarProcessor
+import net.fabricmc.loom.util.Pair
+import net.fabricmc.loom.util.ZipUtils
 
 class MinecraftJarProcessorManagerTest extends Specification {
+	@TempDir
+	Path tempDir
+
 	def "Cache value matches"() {
 		when:
 		def specContext = Mock(SpecContext)
@@ -59,4 +77,173 @@ class MinecraftJarProcessorManagerTest extends Specification {
 		manager1.jarHash == "a714eb2de6"
 		manager2.jarHash == "eb6faafa72"
 	}
+
+	def "Fused class processors"() {
+		given:
+		def jar = tempDir.resolve("test.jar")
+		ZipUtils.add(jar, [
+			new Pair("test/Test.class", createClass("test/Test")),
+			new Pair("test/Other.class", createClass("test/Other"))
+		])
+
+		def processor1 = new InterfaceAddingProcessor(name: "processor1", iface: "test/Iface1")
+		def processor2 = new InterfaceAddingProcessor(name: "processor2", iface: "test/Iface2")
+		def manager = MinecraftJarProcessorManager.create([processor1, processor2], Mock(SpecContext), fused)
+
+		when:
+		manager.processJar(jar, Mock(ProcessorContext))
+
+		then:
+		readClass(jar, "test/Test").interfaces == ["test/Iface1", "test/Iface2"]
+		readClass(jar, "test/Other").interfaces == []
+		processor1.processedJar == !fused
+		processor2.processedJar == !fused
+
+		where:
+		fused << [true, false]
+	}
+
+	def "Whole jar processors see the output of earlier fused processors"() {
+		given:
+		def jar = tempDir.resolve("test.jar")
+		ZipUtils.add(jar, [new Pair("test/Test.class", createClass("test/Test"))])
+
+		def processor1 = new InterfaceAddingProcessor(name: "processor1", iface: "test/Iface1")
+		def wholeJar = new InterfaceRecordingProcessor()
+		def processor2 = new InterfaceAddingProcessor(name: "processor2", iface: "test/Iface2")
+		def manager = MinecraftJarProcessorManager.create([processor1, wholeJar, processor2], Mock(SpecContext), true)
+
+		when:
+		manager.processJar(jar, Mock(ProcessorContext))
+
+		then:
+		wholeJar.interfaces == ["test/Iface1"]
+		readClass(jar, "test/Test").interfaces == ["test/Iface1", "test/Iface2"]
+	}
+
+	def "Incrementally reprocess changed processors"() {
+		given:
+		def input = tempDir.resolve("input.jar")
+		ZipUtils.add(input, ["test/Test", "test/Other", "test/Third"].collect { new Pair(it + ".class", createClass(it)) })
+
+		def unchanged = new InterfaceAddingProcessor(name: "unchanged", iface: "test/Iface1", targets: ["test/Test"])
+		def before = new InterfaceAddingProcessor(name: "changed", iface: "test/Iface2", targets: ["test/Test", "test/Other"])
+		def after = new InterfaceAddingProcessor(name: "changed", iface: "test/Iface3", targets: ["test/Third"])
+
+		def previousJar = tempDir.resolve("previous.jar")
+		Files.copy(input, previousJar)
+		def previous = MinecraftJarProcessorManager.create([unchanged, before], Mock(SpecContext)).processJar(previousJar, Mock(ProcessorContext))
+
+		def jar = tempDir.resolve("processed.jar")
+		Files.copy(previousJar, jar)
+
+		when:
+		def manager = MinecraftJarProcessorManager.create([unchanged, after], Mock(SpecContext))
+		def processors = manager.processJarIncrementally(input, jar, previous, Mock(ProcessorContext))
+
+		then:
+		processors*.name() == ["unchanged", "changed"]
+		processors[1].targets() == ["test/Third"] as Set
+		readClass(jar, "test/Test").interfaces == ["test/Iface1"]
+		readClass(jar, "test/Other").interfaces == []
+		readClass(jar, "test/Third").interfaces == ["test/Iface3"]
+	}
+
+	def "Whole jar processors cannot be reprocessed incrementally"() {
+		given:
+		def jar = tempDir.resolve("test.jar")
+		ZipUtils.add(jar, [new Pair("test/Test.class", createClass("test/Test"))])
+		def processor = new InterfaceAddingProcessor(name: "processor", iface: "test/Iface1")
+		def previous = [new ProcessedJarManifest.Processor("legacy", 0, null)]
+
+		when:
+		def manager = MinecraftJarProcessorManager.create([processor], Mock(SpecContext))
+		def processors = manager.processJarIncrementally(jar, jar, previous, Mock(ProcessorContext))
+
+		then:
+		processors == null
+	}
+
+	private static byte[] createClass(String name) {
+		def writer = new ClassWriter(0)
+		writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null)
+		writer.visitEnd()
+		return writer.toByteArray()
+	}
+
+	private static ClassNode readClass(Path jar, String name) {
+		def node = new ClassNode()
+		new ClassReader(ZipUtils.unpack(jar, name + ".class")).accept(node, 0)
+		return node
+	}
+
+	static class InterfaceRecordingProcessor implements MinecraftJarProcessor<Spec> {
+		List<String> interfaces
+
+		@Override
+		String getName() {
+			return "recording"
+		}
+
+		@Override
+		Spec buildSpec(SpecContext context) {
+			return new Spec()
+		}
+
+		@Override
+		void processJar(Path jar, Spec spec, ProcessorContext context) throws IOException {
+			interfaces = readClass(jar, "test/Test").interfaces
+		}
+
+		static class Spec implements MinecraftJarProcessor.Spec {
+		}
+	}
+
+	static class InterfaceAddingProcessor implements MinecraftJarProcessor<Spec> {
+		String name
+		String iface
+		List<String> targets = ["test/Test"]
+		boolean processedJar = false
+
+		@Override
+		Spec buildSpec(SpecContext context) {
+			return new Spec(iface, targets)
+		}
+
+		@Override
+		void processJar(Path jar, Spec spec, ProcessorContext context) throws IOException {
+			processedJar = true
+			MinecraftJarProcessorManager.transformClasses(jar, [createTransformer(spec)])
+		}
+
+		@Override
+		MinecraftJarProcessor.ClassProcessor<Spec> processClasses() {
+			return { Spec spec, ProcessorContext context -> createTransformer(spec) } as MinecraftJarProcessor.ClassProcessor<Spec>
+		}
+
+		private static MinecraftJarProcessor.ClassTransformer createTransformer(Spec spec) {
+			return new MinecraftJarProcessor.ClassTransformer() {
+				@Override
+				Set<String> getTargets() {
+					return spec.targets as Set
+				}
+
+				@Override
+				ClassVisitor visit(String className, ClassVisitor next) {
+					return new ClassVisitor(Opcodes.ASM9, next) {
+						@Override
+						void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+							super.visit(version, access, name, signature, superName, (interfaces + [spec.iface]) as String[])
+						}
+					}
+				}
+			}
+		}
+
+		@Immutable
+		static class Spec implements MinecraftJarProcessor.Spec {
+			String iface
+			List<String> targets
+		}
+	}
 }
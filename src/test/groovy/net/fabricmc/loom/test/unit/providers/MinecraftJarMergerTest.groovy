@@ -0,0 +1,167 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit.providers
+
+import java.nio.file.FileSystems
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.zip.ZipFile
+
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Opcodes
+import org.objectweb.asm.tree.ClassNode
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import net.fabricmc.loom.configuration.providers.minecraft.MinecraftJarMerger
+
+class MinecraftJarMergerTest extends Specification {
+	private static final String ENVIRONMENT = 'Lnet/fabricmc/api/Environment;'
+
+	@TempDir
+	Path tempDir
+
+	def "merge jars"() {
+		given:
+		def client = jar('client.jar', false, [
+			'net/minecraft/Common.class': classBytes('net/minecraft/Common', 'shared'),
+			'net/minecraft/Different.class': classBytes('net/minecraft/Different', 'clientField'),
+			'net/minecraft/ClientOnly.class': classBytes('net/minecraft/ClientOnly', 'value'),
+			'assets/lang/en_us.json': '{}'.bytes,
+			'META-INF/MANIFEST.MF': 'Manifest-Version: 1.0\n'.bytes,
+			'META-INF/MOJANGCS.SF': 'signature'.bytes,
+		])
+		def server = jar('server.jar', false, [
+			'net/minecraft/Common.class': classBytes('net/minecraft/Common', 'shared'),
+			'net/minecraft/Different.class': classBytes('net/minecraft/Different', 'serverField'),
+			'net/minecraft/ServerOnly.class': classBytes('net/minecraft/ServerOnly', 'value'),
+			'com/example/Library.class': classBytes('com/example/Library', 'value'),
+			'data/pack.mcmeta': '{"pack":{}}'.bytes,
+		])
+		def output = tempDir.resolve('merged.jar')
+
+		when:
+		merge(client, server, output)
+		def entries = readJar(output)
+
+		then:
+		entries.keySet().findAll { !it.endsWith('/') } as Set == [
+			'net/minecraft/Common.class',
+			'net/minecraft/Different.class',
+			'net/minecraft/ClientOnly.class',
+			'net/minecraft/ServerOnly.class',
+			'assets/lang/en_us.json',
+			'data/pack.mcmeta',
+			'META-INF/MANIFEST.MF',
+		] as Set
+		entries.keySet().containsAll(['net/', 'net/minecraft/', 'assets/lang/'])
+		new String(entries['META-INF/MANIFEST.MF']).contains('Main-Class: net.minecraft.client.Main')
+		new String(entries['assets/lang/en_us.json']) == '{}'
+
+		sidedAnnotation(read(entries['net/minecraft/Common.class'])) == null
+		sidedAnnotation(read(entries['net/minecraft/ClientOnly.class'])) == 'CLIENT'
+		sidedAnnotation(read(entries['net/minecraft/ServerOnly.class'])) == 'SERVER'
+
+		def different = read(entries['net/minecraft/Different.class'])
+		sidedAnnotation(different) == null
+		different.fields*.name as Set == ['clientField', 'serverField'] as Set
+	}
+
+	def "merge zip64 jars"() {
+		given:
+		def clientEntries = [
+			'net/minecraft/Different.class': classBytes('net/minecraft/Different', 'clientField'),
+			'net/minecraft/ClientOnly.class': classBytes('net/minecraft/ClientOnly', 'value'),
+			'assets/icon.png': [1, 2, 3] as byte[],
+		]
+		def serverEntries = [
+			'net/minecraft/Different.class': classBytes('net/minecraft/Different', 'serverField'),
+			'com/example/Library.class': classBytes('com/example/Library', 'value'),
+		]
+		def streamed = tempDir.resolve('streamed.jar')
+		def fallback = tempDir.resolve('fallback.jar')
+
+		when:
+		merge(jar('client.jar', false, clientEntries), jar('server.jar', false, serverEntries), streamed)
+		merge(jar('client64.jar', true, clientEntries), jar('server64.jar', true, serverEntries), fallback)
+		def streamedEntries = readJar(streamed)
+		def fallbackEntries = readJar(fallback)
+
+		then:
+		streamedEntries.keySet() == fallbackEntries.keySet()
+		streamedEntries.every { name, bytes -> Arrays.equals(bytes, fallbackEntries[name]) }
+	}
+
+	private static void merge(Path client, Path server, Path output) {
+		new MinecraftJarMerger(client.toFile(), server.toFile(), output.toFile()).withCloseable {
+			it.enableSyntheticParamsOffset()
+			it.merge()
+		}
+	}
+
+	private static byte[] classBytes(String name, String field) {
+		def writer = new ClassWriter(0)
+		writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, name, null, 'java/lang/Object', null)
+		writer.visitField(Opcodes.ACC_PUBLIC, field, 'I', null, null).visitEnd()
+		writer.visitEnd()
+		return writer.toByteArray()
+	}
+
+	private static ClassNode read(byte[] bytes) {
+		def node = new ClassNode()
+		new ClassReader(bytes).accept(node, 0)
+		return node
+	}
+
+	private static String sidedAnnotation(ClassNode node) {
+		def annotation = node.visibleAnnotations?.find { it.desc == ENVIRONMENT }
+		return annotation?.values?.get(1)?.getAt(1)
+	}
+
+	private Path jar(String name, boolean zip64, Map<String, byte[]> entries) {
+		def path = tempDir.resolve(name)
+
+		FileSystems.newFileSystem(path, [create: true, forceZIP64End: zip64]).withCloseable { fs ->
+			entries.each { entryName, bytes ->
+				def entryPath = fs.getPath(entryName)
+
+				if (entryPath.parent != null) {
+					Files.createDirectories(entryPath.parent)
+				}
+
+				Files.write(entryPath, bytes)
+			}
+		}
+
+		return path
+	}
+
+	private static Map<String, byte[]> readJar(Path path) {
+		new ZipFile(path.toFile()).withCloseable { zip ->
+			return zip.entries().toList().collectEntries { [(it.name): zip.getInputStream(it).bytes] }
+		}
+	}
+}